@@ -0,0 +1,119 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.commands;
+
+import ch.heigvd.dai.logic.StatusCode;
+import java.util.InvalidPropertiesFormatException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the text encoding and decoding of each type of command.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameCommandBenchmark {
+
+  @Param({
+    "END", "FILL", "GUESS", "INFO", "LAST", "LOBBY", "JOIN", "QUIT", "ROUND", "START", "STATUS",
+    "TURN", "VOWEL", "WINNER", "GO", "SKIP", "LETTERS", "HELP", "HOST"
+  })
+  private GameCommandType type;
+
+  private GameCommand command;
+  private String body;
+
+  /** Prepares a typical command of the benchmarked type, and its text encoding. */
+  @Setup
+  public void setup() {
+    GameCommand.registerHandlers();
+    command = sample(type);
+    body = command.toTcpBody();
+  }
+
+  /**
+   * Builds a command of the given type, with arguments as sent during a game.
+   *
+   * @param type the {@link GameCommandType} of the command
+   * @return the {@link GameCommand}
+   */
+  static GameCommand sample(GameCommandType type) {
+    return switch (type) {
+      case END ->
+          new EndCommand(
+              "alice", new String[] {"alice", "bob", "carol"}, new int[] {12500, 3200, 0});
+      case FILL -> new FillCommand("WHEEL OF FORTUNE");
+      case GUESS -> new GuessCommand('T');
+      case INFO -> new InfoCommand("WHE*L OF FO*T*NE", "phrase", new char[] {'W', 'H', 'E', 'L'});
+      case LAST -> new LastCommand(15, "***E* *F ***T*NE", "phrase", "RSTNLE");
+      case LOBBY -> new LobbyCommand(new String[] {"alice", "bob", "carol"});
+      case JOIN -> new JoinCommand("alice", "match-1");
+      case QUIT -> new QuitCommand();
+      case ROUND -> new RoundCommand("WHEEL OF FORTUNE");
+      case START -> new StartCommand(1, "***** ** *******", "phrase");
+      case STATUS -> new StatusCommand(StatusCode.LETTER_EXISTS);
+      case TURN -> new TurnCommand(500, 3200);
+      case VOWEL -> new VowelCommand('E');
+      case WINNER -> new WinnerCommand("alice");
+      case GO -> new GoCommand();
+      case SKIP -> new SkipCommand();
+      case LETTERS -> new LettersCommand("HDCMA");
+      case HELP -> new HelpCommand();
+      case HOST -> new HostCommand();
+    };
+  }
+
+  /**
+   * Encodes the command in the text format.
+   *
+   * @return the encoded command
+   */
+  @Benchmark
+  public String toTcpBody() {
+    return command.toTcpBody();
+  }
+
+  /**
+   * Decodes the command from the text format.
+   *
+   * @return the decoded command
+   * @throws InvalidPropertiesFormatException never, the encoded command being valid
+   */
+  @Benchmark
+  public GameCommand fromTcpBody() throws InvalidPropertiesFormatException {
+    return GameCommand.fromTcpBody(body);
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.server;
+
+import ch.heigvd.dai.Player;
+import ch.heigvd.dai.logic.PlayerState;
+import ch.heigvd.dai.logic.commands.FillCommand;
+import ch.heigvd.dai.logic.commands.GameCommand;
+import ch.heigvd.dai.logic.commands.GuessCommand;
+import ch.heigvd.dai.logic.commands.VowelCommand;
+import ch.heigvd.dai.logic.server.puzzle.Puzzle;
+import ch.heigvd.dai.logic.server.puzzle.PuzzleHistory;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of a full round of a game match, driven in-process by three players.
+ *
+ * <p>Each player guesses the most frequent consonant left, buys the most frequent vowel left after
+ * a correct guess, and solves the puzzle once no consonant is left. The match is created for each
+ * round, its first round being played.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameMatchBenchmark {
+
+  private static final String CONSONANTS = "TNSHRDLCMWFGYPBVKJXQZ";
+  private static final String VOWELS = "EAOIU";
+  private static final String[] USERNAMES = {"alice", "bob", "carol"};
+
+  private PrintStream out;
+  private long seed;
+
+  /** Mutes the progress the matches print on the standard output. */
+  @Setup
+  public void setup() {
+    out = System.out;
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+  }
+
+  /** Restores the standard output. */
+  @TearDown
+  public void tearDown() {
+    System.setOut(out);
+  }
+
+  /**
+   * Creates a match and plays its first round.
+   *
+   * @return the number of commands the match sent to the players
+   */
+  @Benchmark
+  public int playRound() {
+    GameMatch match =
+        new GameMatch("benchmark", Runnable::run, seed++, new PuzzleHistory(Puzzle.getCatalogue()));
+    for (String username : USERNAMES) {
+      match.addPlayer(username);
+    }
+    match.startGame();
+
+    int pushed = 0;
+    String solution = match.getSolution();
+    while (solution.equals(match.getSolution())) {
+      Player player = match.getCurrentPlayer();
+      String guessed = new String(match.getGuessedLetters());
+      if (player.getState() == PlayerState.SECOND_GUESS_PHASE) {
+        char vowel = nextLetter(VOWELS, guessed);
+        if (0 != vowel) {
+          match.guessVowel(new VowelCommand(vowel));
+        } else {
+          match.skipTurn(player);
+        }
+      } else {
+        char consonant = nextLetter(CONSONANTS, guessed);
+        if (0 != consonant) {
+          match.guessConsonant(new GuessCommand(consonant));
+        } else {
+          match.solvePuzzle(new FillCommand(solution));
+        }
+      }
+
+      for (String username : USERNAMES) {
+        GameCommand[] commands = match.getPendingCommands(match.getPlayer(username));
+        pushed += null != commands ? commands.length : 0;
+      }
+    }
+    return pushed;
+  }
+
+  /**
+   * Gets the first letter not guessed yet.
+   *
+   * @param letters a {@link String} with the candidate letters, by order of preference
+   * @param guessed a {@link String} with the letters already guessed
+   * @return the letter, or 0 if all the letters were guessed
+   */
+  private static char nextLetter(String letters, String guessed) {
+    for (int i = 0; i < letters.length(); i++) {
+      if (guessed.indexOf(letters.charAt(i)) < 0) {
+        return letters.charAt(i);
+      }
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.server.puzzle;
+
+import ch.heigvd.dai.logic.server.GameMatch;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Benchmarks of the puzzles: drawing a new one, and guessing and counting its letters.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PuzzleBenchmark {
+
+  /** Letters in the order they are guessed, most frequent in English first. */
+  private static final String LETTERS = "ETAOINSHRDLCUMWFGYPBVKJXQZ";
+
+  private PuzzleCatalogue catalogue;
+  private PuzzleDeck deck;
+  private final RoaringBitmap nothingSeen = new RoaringBitmap();
+  private PuzzleRecord record;
+  private Puzzle puzzle;
+
+  /** Prepares a deck of the built-in puzzles, and the longest of them. */
+  @Setup
+  public void setup() {
+    catalogue = Puzzle.getCatalogue();
+    deck = new PuzzleDeck(catalogue, new SplittableRandom(42));
+    record = catalogue.get(0);
+    for (int i = 1; i < catalogue.size(); i++) {
+      if (catalogue.get(i).puzzle().length() > record.puzzle().length()) {
+        record = catalogue.get(i);
+      }
+    }
+    puzzle = new Puzzle(record, "", GameMatch.VOWEL_COST);
+  }
+
+  /**
+   * Draws the puzzle of a new round, as a game match does.
+   *
+   * @return the new puzzle
+   */
+  @Benchmark
+  public Puzzle drawPuzzle() {
+    int index = Puzzle.drawIndex(deck, nothingSeen);
+    return new Puzzle(catalogue.get(index), "", GameMatch.VOWEL_COST);
+  }
+
+  /**
+   * Builds a puzzle and guesses all the letters one after the other, until it is solved.
+   *
+   * @return the number of letters uncovered
+   */
+  @Benchmark
+  public int tryGuessLetter() {
+    Puzzle p = new Puzzle(record, "", GameMatch.VOWEL_COST);
+    int uncovered = 0;
+    for (int i = 0; i < LETTERS.length(); i++) {
+      char letter = LETTERS.charAt(i);
+      if (p.tryGuessLetter(letter)) {
+        uncovered += p.getLetterCount(letter);
+      }
+    }
+    return uncovered;
+  }
+
+  /**
+   * Counts the occurrences of each letter of the alphabet in the puzzle.
+   *
+   * @return the total number of letters
+   */
+  @Benchmark
+  public int getLetterCount() {
+    int count = 0;
+    for (char letter = 'A'; letter <= 'Z'; letter++) {
+      count += puzzle.getLetterCount(letter);
+    }
+    return count;
+  }
+}
@@ -64,6 +64,22 @@ public class Client implements Callable<Integer> {
       defaultValue = Root.DEFAULT_PORT)
   private int serverPort;
 
+  @CommandLine.Option(
+      names = {"-m", "--match"},
+      description =
+          """
+          Name of the game match to join. The match is created if it does not exist yet.
+          If not specified, the server puts the player in the next match gathering players.""")
+  private String matchName;
+
+  @CommandLine.Option(
+      names = {"-b", "--binary"},
+      description =
+          """
+          Use the compact binary protocol instead of the text protocol.
+          The client falls back to text if the server does not support it.""")
+  private boolean binary;
+
   /**
    * Call function that contains the logic of the subcommand.
    *
@@ -79,7 +95,7 @@ public class Client implements Callable<Integer> {
 
     SocketClient client = null;
     try {
-      client = new SocketClient(hostAndPort);
+      client = new SocketClient(hostAndPort, matchName, binary);
     } catch (UnknownHostException | NullPointerException | IllegalArgumentException e) {
       System.err.println("[Client] Exception when creating SocketClient: " + e);
       return 1;
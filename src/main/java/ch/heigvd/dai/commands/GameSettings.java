@@ -0,0 +1,108 @@
+/*
+ * Wheel Of Fortune - a Java server/client CLI implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ch.heigvd.dai.commands;
+
+import ch.heigvd.dai.logic.server.puzzle.CatalogueWatcher;
+import ch.heigvd.dai.logic.server.puzzle.Puzzle;
+import ch.heigvd.dai.logic.server.puzzle.PuzzleCatalogue;
+import ch.heigvd.dai.logic.server.puzzle.PuzzleCategory;
+import ch.heigvd.dai.logic.server.wheel.WheelConfiguration;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import picocli.CommandLine;
+
+/**
+ * Options shared by the subcommands running game matches, setting the puzzles and the wheel the
+ * matches play with.
+ *
+ * <p>This class is meant to be used as a {@link CommandLine.Mixin}.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+public class GameSettings {
+
+  @CommandLine.Option(
+      names = {"-c", "--catalogue"},
+      description =
+          """
+              Puzzle catalogue file the puzzles are drawn from.
+              The server watches the file, and loads it again without interrupting the matches whenever it is replaced.
+              If not specified, the puzzles shipped with the game are used.""")
+  private Path catalogueFile;
+
+  @CommandLine.Option(
+      names = {"-w", "--category-weight"},
+      description =
+          """
+              Weight of a puzzle category in the rounds, in the format 'CATEGORY=WEIGHT' (possible categories: ${COMPLETION-CANDIDATES}).
+              Can be repeated. Once set, each round picks a category in proportion to its weight, and the categories left out are never picked.
+              If not specified, the puzzles are drawn regardless of their category.""")
+  private Map<PuzzleCategory, Integer> categoryWeights;
+
+  @CommandLine.Option(
+      names = {"--wheel"},
+      description =
+          """
+              Wheel file with the wedges of the wheel, and optionally of a different wheel for some rounds.
+              Each line defines a wedge as 'TYPE [VALUE [WEIGHT]]', the value being an amount or a range 'MIN..MAX' drawn at each spin.
+              A '[round N]' line starts the wheel of round N.
+              If not specified, the wheel of the show is used.""")
+  private Path wheelFile;
+
+  /**
+   * Loads the puzzle catalogue and the wheel, and sets them as the ones used by the game matches.
+   * An error message is displayed if one of them could not be loaded.
+   *
+   * @param watchCatalogue whether the catalogue file is watched and loaded again whenever it is
+   *     replaced
+   * @return {@code true} if the settings were applied, {@code false} otherwise
+   */
+  boolean apply(boolean watchCatalogue) {
+    if (null != catalogueFile) {
+      CatalogueWatcher watcher = new CatalogueWatcher(catalogueFile);
+      try {
+        PuzzleCatalogue catalogue = watcher.load();
+        System.out.println(
+            "[Server] Loaded " + catalogue.size() + " puzzles from " + catalogueFile);
+      } catch (IOException e) {
+        System.err.println("[Server] Exception when loading the puzzle catalogue: " + e);
+        return false;
+      }
+      if (watchCatalogue) {
+        Thread.ofPlatform().name("catalogue-watcher").daemon().start(watcher);
+      }
+    }
+
+    if (null != categoryWeights) {
+      Puzzle.setCategoryWeights(categoryWeights);
+    }
+
+    if (null != wheelFile) {
+      try {
+        WheelConfiguration.setCurrent(WheelConfiguration.load(wheelFile));
+      } catch (IOException e) {
+        System.err.println("[Server] Exception when loading the wheel: " + e);
+        return false;
+      }
+    }
+
+    return true;
+  }
+}
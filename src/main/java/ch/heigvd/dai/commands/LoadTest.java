@@ -0,0 +1,189 @@
+/*
+ * Wheel Of Fortune - a Java server/client CLI implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ch.heigvd.dai.commands;
+
+import ch.heigvd.dai.logic.commands.GameCommandType;
+import ch.heigvd.dai.logic.server.GameMatch;
+import ch.heigvd.dai.metrics.LatencyHistogram;
+import ch.heigvd.dai.network.LoadGenerator;
+import com.google.common.net.HostAndPort;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import picocli.CommandLine;
+
+/**
+ * Implements the {@code loadtest} subcommand for executing the program on a CLI.
+ *
+ * <p>This class defines the parameters and options that are only specific for this subcommand. For
+ * checking the usage of the subcommand, use the {@code --help} option.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+@CommandLine.Command(
+    name = "loadtest",
+    description =
+        "Play complete games against a running server over many connections, and report the latencies.")
+public class LoadTest implements Callable<Integer> {
+
+  @CommandLine.Option(
+      names = {"-h", "--host"},
+      description =
+          """
+              IP address of the server. Can be passed in the format '[host]:[port]' or simply 'host'.
+              IPv6 is supported, but the IP should always be enclosed by square brackets.
+              Default: '${DEFAULT-VALUE}'""",
+      defaultValue = Root.DEFAULT_HOST)
+  private String serverAddress;
+
+  @CommandLine.Option(
+      names = {"-p", "--port"},
+      description =
+          """
+          Port where the server is expecting client connections.
+          If the port is specified along side the IP address, then this value is ignored.
+          Default: ${DEFAULT-VALUE}""",
+      defaultValue = Root.DEFAULT_PORT)
+  private int serverPort;
+
+  @CommandLine.Option(
+      names = {"-n", "--connections"},
+      description =
+          """
+          Number of connections to open, each one playing as a bot.
+          Default: ${DEFAULT-VALUE}""",
+      defaultValue = "1000")
+  private int connections;
+
+  @CommandLine.Option(
+      names = {"-s", "--match-size"},
+      description =
+          """
+          Number of bots playing in each match.
+          Default: ${DEFAULT-VALUE}""",
+      defaultValue = "3")
+  private int matchSize;
+
+  @CommandLine.Option(
+      names = {"-g", "--games"},
+      description =
+          """
+          Number of games each match plays before its bots disconnect.
+          Default: ${DEFAULT-VALUE}""",
+      defaultValue = "1")
+  private int gamesPerMatch;
+
+  @CommandLine.Option(
+      names = {"-c", "--concurrent-connects"},
+      description =
+          """
+          Maximum number of connections being set up at the same time.
+          Default: ${DEFAULT-VALUE}""",
+      defaultValue = "64")
+  private int concurrentConnects;
+
+  @CommandLine.Option(
+      names = {"-t", "--timeout"},
+      description =
+          """
+          Maximum duration of the load test, in seconds. The bots still playing are then stopped.
+          Default: ${DEFAULT-VALUE}""",
+      defaultValue = "300")
+  private int timeoutSeconds;
+
+  /**
+   * Call function that contains the logic of the subcommand.
+   *
+   * <p>This function performs the multiple input validation checks and outputs an exit code
+   * accordingly. An error message is displayed to explain why the command failed.
+   *
+   * @return 0 if all the games were played without errors, 1 otherwise.
+   */
+  @Override
+  public Integer call() {
+    if (matchSize > GameMatch.MAX_PLAYERS) {
+      System.err.println(
+          "[LoadTest] A match cannot have more than " + GameMatch.MAX_PLAYERS + " players");
+      return 1;
+    }
+
+    HostAndPort hostAndPort =
+        HostAndPort.fromString(serverAddress).withDefaultPort(serverPort).requireBracketsForIPv6();
+
+    LoadGenerator.Result result;
+    try {
+      LoadGenerator generator =
+          new LoadGenerator(hostAndPort, connections, matchSize, gamesPerMatch, concurrentConnects);
+      System.out.println(
+          "[LoadTest] Playing with " + connections + " connections against " + hostAndPort + "...");
+      result = generator.run(Duration.ofSeconds(timeoutSeconds));
+    } catch (UnknownHostException | NullPointerException | IllegalArgumentException e) {
+      System.err.println("[LoadTest] Exception when creating LoadGenerator: " + e);
+      return 1;
+    } catch (InterruptedException e) {
+      System.err.println("[LoadTest] Interrupted: " + e);
+      return 1;
+    }
+
+    double seconds = result.nanos() / 1e9;
+    System.out.printf(
+        "Played %d games over %d connections in %.2f s%n",
+        result.games(), result.connections(), seconds);
+    System.out.printf(
+        "  %.0f commands/s, %.0f broadcasts/s%n",
+        result.commands() / seconds, result.broadcasts() / seconds);
+    System.out.println("Connection setup:");
+    printLatencies("", result.connectTimes());
+    System.out.println("Round trips:");
+    printLatencies("all", result.roundTrips());
+    for (Map.Entry<GameCommandType, LatencyHistogram> entry :
+        result.roundTripsByType().entrySet()) {
+      if (entry.getValue().getCount() > 0) {
+        printLatencies(entry.getKey().name(), entry.getValue());
+      }
+    }
+
+    long errors = 0;
+    System.out.println("Errors:");
+    for (Map.Entry<String, Long> entry : result.errors().entrySet()) {
+      System.out.printf("  %-17s %d%n", entry.getKey(), entry.getValue());
+      errors += entry.getValue();
+    }
+
+    return 0 == errors ? 0 : 1;
+  }
+
+  /**
+   * Prints the count and the percentiles of a latency histogram.
+   *
+   * @param label a {@link String} naming the latencies
+   * @param histogram the {@link LatencyHistogram} to print
+   */
+  private static void printLatencies(String label, LatencyHistogram histogram) {
+    System.out.printf(
+        "  %-7s n=%-9d p50 %-9s p99 %-9s p99.9 %-9s max %s%n",
+        label,
+        histogram.getCount(),
+        LatencyHistogram.format(histogram.getValueAtPercentile(50)),
+        LatencyHistogram.format(histogram.getValueAtPercentile(99)),
+        LatencyHistogram.format(histogram.getValueAtPercentile(99.9)),
+        LatencyHistogram.format(histogram.getMax()));
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ch.heigvd.dai.commands;
+
+import picocli.CommandLine;
+
+/**
+ * Implements the {@code puzzles} subcommand for executing the program on a CLI.
+ *
+ * <p>This class only groups the subcommands managing the puzzle catalogues, such as {@link
+ * PuzzlesImport}. For checking the usage of the subcommand, use the {@code --help} option.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+@CommandLine.Command(
+    name = "puzzles",
+    description = "Manage the puzzle catalogues used by the server.",
+    subcommands = {PuzzlesImport.class})
+public class Puzzles {}
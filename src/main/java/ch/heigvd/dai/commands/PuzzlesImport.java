@@ -0,0 +1,142 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ch.heigvd.dai.commands;
+
+import ch.heigvd.dai.logic.server.puzzle.PuzzleCategory;
+import ch.heigvd.dai.logic.server.puzzle.PuzzleImporter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import picocli.CommandLine;
+
+/**
+ * Implements the {@code puzzles import} subcommand for executing the program on a CLI.
+ *
+ * <p>This class defines the parameters and options that are only specific for this subcommand. For
+ * checking the usage of the subcommand, use the {@code --help} option.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+@CommandLine.Command(
+    name = "import",
+    description = "Import puzzles from text or CSV files into a catalogue file for the server.")
+public class PuzzlesImport implements Callable<Integer> {
+
+  @CommandLine.Parameters(
+      arity = "1..*",
+      paramLabel = "INPUT",
+      description = "Text or CSV files with the puzzles to import, read in the given order.")
+  private List<Path> inputs;
+
+  @CommandLine.Option(
+      names = {"-o", "--output"},
+      required = true,
+      description =
+          """
+              Catalogue file to write, replaced if it already exists.
+              A server watching this file loads the new catalogue as soon as the import is over.""")
+  private Path output;
+
+  @CommandLine.Option(
+      names = {"-f", "--format"},
+      description =
+          """
+              Format of the input files (possible values: ${COMPLETION-CANDIDATES}).
+              CSV expects lines in the format 'category,phrase', the phrase being optionally quoted.
+              TEXT expects one phrase per line, all of the category given with --category.
+              Default: ${DEFAULT-VALUE}""",
+      defaultValue = "CSV")
+  private PuzzleImporter.Format format;
+
+  @CommandLine.Option(
+      names = {"-c", "--category"},
+      description =
+          """
+              Category of the phrases in TEXT format (possible values: ${COMPLETION-CANDIDATES}).""")
+  private PuzzleCategory category;
+
+  @CommandLine.Option(
+      names = {"--min-length"},
+      description =
+          """
+              Minimum length of a phrase, once its whitespace is collapsed.
+              Default: ${DEFAULT-VALUE}""",
+      defaultValue = "3")
+  private int minLength;
+
+  @CommandLine.Option(
+      names = {"--max-length"},
+      description =
+          """
+              Maximum length of a phrase, once its whitespace is collapsed.
+              Default: ${DEFAULT-VALUE}""",
+      defaultValue = "52")
+  private int maxLength;
+
+  @CommandLine.Option(
+      names = {"-t", "--threads"},
+      description =
+          """
+              Number of threads validating the phrases. 0 means one thread per available processor.
+              Default: ${DEFAULT-VALUE}""",
+      defaultValue = "0")
+  private int threadCount;
+
+  /**
+   * Call function that contains the logic of the subcommand.
+   *
+   * <p>This function performs the multiple input validation checks and outputs an exit code
+   * accordingly. An error message is displayed to explain why the command failed.
+   *
+   * @return 0 if the catalogue was successfully written, 1 otherwise.
+   */
+  @Override
+  public Integer call() {
+    int threads = 0 == threadCount ? Runtime.getRuntime().availableProcessors() : threadCount;
+
+    PuzzleImporter importer;
+    try {
+      importer = new PuzzleImporter(format, category, minLength, maxLength, threads);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      return 1;
+    }
+
+    long start = System.nanoTime();
+    PuzzleImporter.Report report;
+    try {
+      report = importer.importInto(inputs, output);
+    } catch (IOException e) {
+      System.err.println("[PuzzleImporter] Exception when importing the puzzles: " + e);
+      return 1;
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    System.out.printf(
+        "Imported %d puzzles into %s in %.2f s (%d lines read, %d duplicates, %d invalid)%n",
+        report.imported(), output, seconds, report.lines(), report.duplicates(), report.invalid());
+    for (Map.Entry<PuzzleCategory, Integer> entry : report.categoryCounts().entrySet()) {
+      System.out.println("  " + entry.getKey() + ": " + entry.getValue());
+    }
+
+    return 0;
+  }
+}
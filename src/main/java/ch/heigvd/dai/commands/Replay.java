@@ -0,0 +1,88 @@
+/*
+ * Wheel Of Fortune - a Java server/client CLI implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ch.heigvd.dai.commands;
+
+import ch.heigvd.dai.logic.server.MatchReplay;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import picocli.CommandLine;
+
+/**
+ * Implements the {@code replay} subcommand for executing the program on a CLI.
+ *
+ * <p>This class defines the parameters and options that are only specific for this subcommand. For
+ * checking the usage of the subcommand, use the {@code --help} option.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+@CommandLine.Command(
+    name = "replay",
+    description = "Play again a game match recorded by the server, and check it plays identically.")
+public class Replay implements Callable<Integer> {
+
+  @CommandLine.Parameters(
+      index = "0",
+      description =
+          """
+              Match log written by the server started with the '--record' option.
+              The match is only replayed with the same puzzle catalogue, category weights and wheel as the server.""")
+  private Path logFile;
+
+  @CommandLine.Mixin private GameSettings settings;
+
+  /**
+   * Call function that contains the logic of the subcommand.
+   *
+   * <p>This function performs the multiple input validation checks and outputs an exit code
+   * accordingly. An error message is displayed to explain why the command failed.
+   *
+   * @return 0 if the match was replayed identically, 1 otherwise.
+   */
+  @Override
+  public Integer call() {
+    if (!settings.apply(false)) {
+      return 1;
+    }
+
+    MatchReplay.Result result;
+    try {
+      result = MatchReplay.replay(Files.readAllLines(logFile, StandardCharsets.UTF_8), System.out);
+    } catch (IOException e) {
+      System.err.println("[Replay] Exception when replaying the match: " + e);
+      return 1;
+    }
+
+    if (result.isIdentical()) {
+      System.out.println(
+          "[Replay] Replayed " + result.commands() + " commands identically to the recording");
+      return 0;
+    }
+
+    System.out.println(
+        "[Replay] "
+            + result.divergences()
+            + " of the "
+            + result.commands()
+            + " commands replayed differ from the recording");
+    return 1;
+  }
+}
@@ -24,9 +24,9 @@ import picocli.CommandLine;
  * Implements the root command for executing the program on a CLI.
  *
  * <p>For checking the usage of the command, use the {@code --help} option. No specific parameters
- * or arguments are saved on this class, the logic is implemented separately in the {@link Server}
- * and {@link Client} classes. The default values for the host and port are saved here as static
- * attributes.
+ * or arguments are saved on this class, the logic is implemented separately in the {@link Server},
+ * {@link Client} and {@link Puzzles} classes. The default values for the host and port are saved
+ * here as static attributes.
  *
  * @author Pedro Alves da Silva
  * @author Gonçalo Carvalheiro Heleno
@@ -35,7 +35,14 @@ import picocli.CommandLine;
     description =
         "Wheel Of Fortune - a Java server/client CLI implementation of the television game",
     version = "1.0.1", // x-release-please-version
-    subcommands = {Server.class, Client.class},
+    subcommands = {
+      Server.class,
+      Client.class,
+      Puzzles.class,
+      Replay.class,
+      Simulate.class,
+      LoadTest.class
+    },
     scope = CommandLine.ScopeType.INHERIT,
     mixinStandardHelpOptions = true)
 public class Root {
@@ -18,11 +18,22 @@
 
 package ch.heigvd.dai.commands;
 
-import ch.heigvd.dai.logic.server.GameMatch;
+import ch.heigvd.dai.logging.Level;
+import ch.heigvd.dai.logging.Logger;
+import ch.heigvd.dai.logic.server.MatchLog;
+import ch.heigvd.dai.logic.server.MatchRegistry;
+import ch.heigvd.dai.metrics.CommandMetrics;
+import ch.heigvd.dai.metrics.PrometheusEndpoint;
+import ch.heigvd.dai.network.NioSocketServer;
+import ch.heigvd.dai.network.ServerMode;
 import ch.heigvd.dai.network.SocketServer;
 import com.google.common.net.HostAndPort;
-import java.net.UnknownHostException;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import picocli.CommandLine;
 
 /**
@@ -66,6 +77,68 @@ public class Server implements Callable<Integer> {
       defaultValue = Root.DEFAULT_PORT)
   private int serverPort;
 
+  @CommandLine.Option(
+      names = {"-m", "--mode"},
+      description =
+          """
+              Execution mode used to handle the client connections (possible values: ${COMPLETION-CANDIDATES}).
+              THREADED uses one platform thread per client, VIRTUAL one virtual thread per client,
+              and NIO multiplexes all the clients over a few reactor threads.
+              Default: ${DEFAULT-VALUE}""",
+      defaultValue = "THREADED")
+  private ServerMode mode;
+
+  @CommandLine.Option(
+      names = {"-r", "--reactors"},
+      description =
+          """
+              Number of reactor threads handling the client connections and running the game matches.
+              Only used in NIO mode. 0 means one reactor per available processor.
+              Default: ${DEFAULT-VALUE}""",
+      defaultValue = "0")
+  private int reactorCount;
+
+  @CommandLine.Option(
+      names = {"--record"},
+      description =
+          """
+              Directory where each game match is recorded, with its seed and all the commands it handled.
+              A recorded match can be played again identically with the 'replay' subcommand.
+              If not specified, the matches are not recorded.""")
+  private Path recordDirectory;
+
+  @CommandLine.Option(
+      names = {"--stats"},
+      description =
+          """
+              Interval in seconds at which the metrics of each type of command are printed:
+              requests, errors, bytes in and out, pending broadcasts and response latencies.
+              0 means the metrics are never printed.
+              Default: ${DEFAULT-VALUE}""",
+      defaultValue = "0")
+  private int statsInterval;
+
+  @CommandLine.Option(
+      names = {"--metrics-port"},
+      description =
+          """
+              Port of a separate HTTP listener serving the metrics of the server at /metrics, in the Prometheus text format.
+              The listener binds to the same IP address as the server.
+              If not specified, the metrics are not served.""")
+  private Integer metricsPort;
+
+  @CommandLine.Option(
+      names = {"-l", "--log-level"},
+      description =
+          """
+              Least severe level of the messages logged by the server (possible values: ${COMPLETION-CANDIDATES}).
+              DEBUG logs every command handled, with its latency, and TRACE also logs the puzzle solutions.
+              Default: ${DEFAULT-VALUE}""",
+      defaultValue = "INFO")
+  private Level logLevel;
+
+  @CommandLine.Mixin private GameSettings settings;
+
   /**
    * Call function that contains the logic of the subcommand.
    *
@@ -76,17 +149,69 @@ public class Server implements Callable<Integer> {
    */
   @Override
   public Integer call() {
+    Logger.setLevel(logLevel);
+
     HostAndPort hostAndPort =
         HostAndPort.fromString(bindAddress).withDefaultPort(serverPort).requireBracketsForIPv6();
 
-    GameMatch match = new GameMatch();
-    SocketServer server = null;
+    int reactors = 0 == reactorCount ? Runtime.getRuntime().availableProcessors() : reactorCount;
+
+    if (!settings.apply(true)) {
+      return 1;
+    }
+
+    if (null != recordDirectory) {
+      try {
+        MatchLog.setDirectory(recordDirectory);
+      } catch (IOException e) {
+        System.err.println("[Server] Exception when creating the record directory: " + e);
+        return 1;
+      }
+    }
+
+    if (statsInterval < 0) {
+      System.err.println("[Server] The interval of the metrics cannot be negative");
+      return 1;
+    }
+    if (statsInterval > 0) {
+      ScheduledExecutorService stats =
+          Executors.newSingleThreadScheduledExecutor(
+              Thread.ofPlatform().name("stats").daemon().factory());
+      stats.scheduleAtFixedRate(
+          () -> CommandMetrics.getGlobal().print(System.out),
+          statsInterval,
+          statsInterval,
+          TimeUnit.SECONDS);
+    }
+
+    Runnable server = null;
+    MatchRegistry registry = null;
     try {
-      server = new SocketServer(hostAndPort, match);
-    } catch (UnknownHostException | NullPointerException | IllegalArgumentException e) {
+      switch (mode) {
+        case THREADED, VIRTUAL -> {
+          registry = new MatchRegistry();
+          server = new SocketServer(hostAndPort, registry, mode == ServerMode.VIRTUAL);
+        }
+        case NIO -> {
+          NioSocketServer nioServer = new NioSocketServer(hostAndPort, reactors);
+          registry = nioServer.getRegistry();
+          server = nioServer;
+        }
+      }
+    } catch (IOException | NullPointerException | IllegalArgumentException e) {
       System.err.println("[Server] Exception when creating SocketServer: " + e);
       return 1;
     }
+
+    if (null != metricsPort) {
+      try {
+        new PrometheusEndpoint(HostAndPort.fromParts(hostAndPort.getHost(), metricsPort), registry)
+            .start();
+      } catch (IOException | IllegalArgumentException e) {
+        System.err.println("[Server] Exception when creating the metrics endpoint: " + e);
+        return 1;
+      }
+    }
     server.run();
 
     return 0;
@@ -0,0 +1,157 @@
+/*
+ * Wheel Of Fortune - a Java server/client CLI implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ch.heigvd.dai.commands;
+
+import ch.heigvd.dai.logic.server.MatchSimulator;
+import ch.heigvd.dai.logic.server.MatchSimulator.BotStrategy;
+import java.util.List;
+import java.util.concurrent.Callable;
+import picocli.CommandLine;
+
+/**
+ * Implements the {@code simulate} subcommand for executing the program on a CLI.
+ *
+ * <p>This class defines the parameters and options that are only specific for this subcommand. For
+ * checking the usage of the subcommand, use the {@code --help} option.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+@CommandLine.Command(
+    name = "simulate",
+    description = "Play complete games between bots, without any network, and report the results.")
+public class Simulate implements Callable<Integer> {
+
+  @CommandLine.Option(
+      names = {"-n", "--games"},
+      description =
+          """
+              Number of games to play.
+              Default: ${DEFAULT-VALUE}""",
+      defaultValue = "100000")
+  private long games;
+
+  @CommandLine.Option(
+      names = {"-b", "--bots"},
+      split = ",",
+      description =
+          """
+              Strategy of each bot of a game, separated by commas (possible values: ${COMPLETION-CANDIDATES}).
+              CAUTIOUS solves late and buys vowels, BALANCED solves when three quarters of the puzzle are uncovered, and BOLD solves early without buying vowels.
+              Default: ${DEFAULT-VALUE}""",
+      defaultValue = "CAUTIOUS,BALANCED,BOLD")
+  private List<BotStrategy> bots;
+
+  @CommandLine.Option(
+      names = {"-s", "--seed"},
+      description =
+          """
+              Seed of the simulation. The same seed and settings always yield the same results.
+              Default: ${DEFAULT-VALUE}""",
+      defaultValue = "0")
+  private long seed;
+
+  @CommandLine.Option(
+      names = {"-t", "--threads"},
+      description =
+          """
+              Number of threads playing the games. 0 means one thread per available processor.
+              Default: ${DEFAULT-VALUE}""",
+      defaultValue = "0")
+  private int threadCount;
+
+  @CommandLine.Mixin private GameSettings settings;
+
+  /**
+   * Call function that contains the logic of the subcommand.
+   *
+   * <p>This function performs the multiple input validation checks and outputs an exit code
+   * accordingly. An error message is displayed to explain why the command failed.
+   *
+   * @return 0 if the games were played, 1 otherwise.
+   */
+  @Override
+  public Integer call() {
+    if (games <= 0) {
+      System.err.println("[Simulate] The number of games must be positive");
+      return 1;
+    }
+
+    if (!settings.apply(false)) {
+      return 1;
+    }
+
+    int threads = 0 == threadCount ? Runtime.getRuntime().availableProcessors() : threadCount;
+
+    MatchSimulator.Result result;
+    try {
+      result = new MatchSimulator(bots, seed).run(games, threads);
+    } catch (IllegalArgumentException | IllegalStateException | InterruptedException e) {
+      System.err.println("[Simulate] Exception when simulating: " + e);
+      return 1;
+    }
+
+    double seconds = result.nanos() / 1e9;
+    long finished = result.games() - result.stuckGames();
+    System.out.printf(
+        "Played %d games on %d threads in %.2f s (%d stuck)%n",
+        result.games(), threads, seconds, result.stuckGames());
+    System.out.printf(
+        "  %.0f games/s, %.0f turns/s, %.1f turns/game, %.1f pushed commands/game%n",
+        result.games() / seconds,
+        result.actions() / seconds,
+        (double) result.actions() / result.games(),
+        (double) result.pushedCommands() / result.games());
+    if (result.allocatedBytes() >= 0) {
+      System.out.printf(
+          "  %.1f KiB allocated/game%n", result.allocatedBytes() / 1024.0 / result.games());
+    }
+
+    System.out.println("Payouts of all the players:");
+    printPayouts(result.payouts());
+    System.out.println("Payouts of the players of the last round:");
+    printPayouts(result.finalistPayouts());
+
+    System.out.println("Strategies:");
+    for (int i = 0; i < result.strategies().size(); i++) {
+      System.out.printf(
+          "  bot%d %-8s mean %8.0f$, last round in %5.1f%% of the games, won %5.1f%% of them%n",
+          i,
+          result.strategies().get(i),
+          (double) result.seatMoney()[i] / Math.max(finished, 1),
+          100.0 * result.seatFinals()[i] / Math.max(finished, 1),
+          100.0 * result.seatWins()[i] / Math.max(result.seatFinals()[i], 1));
+    }
+
+    return 0;
+  }
+
+  /**
+   * Prints the quantiles of a payout histogram.
+   *
+   * @param histogram the payout histogram
+   */
+  private static void printPayouts(long[] histogram) {
+    System.out.printf(
+        "  p50 <= %d$, p90 <= %d$, p99 <= %d$, max <= %d$%n",
+        MatchSimulator.Result.quantile(histogram, 0.5),
+        MatchSimulator.Result.quantile(histogram, 0.9),
+        MatchSimulator.Result.quantile(histogram, 0.99),
+        MatchSimulator.Result.quantile(histogram, 1));
+  }
+}
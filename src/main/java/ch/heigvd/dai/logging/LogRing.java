@@ -0,0 +1,327 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logging;
+
+import ch.heigvd.dai.logic.commands.GameCommandType;
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded ring of log messages, filled by any number of threads and drained by a single background
+ * writer.
+ *
+ * <p>The ring is a fixed array of reusable slots, each with a sequence number telling whether it is
+ * free or holds a message (the bounded queue of Dmitry Vyukov). A logging thread claims a slot with
+ * a single compare-and-set, fills it and publishes it; no lock is taken and nothing is allocated.
+ * When the writer falls behind and the ring is full, messages are dropped and counted rather than
+ * blocking the threads serving the players.
+ *
+ * <p>The writer formats the messages in the logfmt style, one per line, and writes them to {@link
+ * System#out} in batches, taking the lock of the stream once per batch. When the ring is empty, the
+ * writer parks until a logging thread publishes a message and wakes it up, so an idle server does
+ * not wake the writer at all.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+final class LogRing {
+
+  /** Number of slots of the ring, a power of two. */
+  private static final int CAPACITY = 1 << 13;
+
+  private static final int MASK = CAPACITY - 1;
+
+  /** Maximum time waited for the writer to drain the ring when the JVM shuts down. */
+  private static final long SHUTDOWN_TIMEOUT_MILLIS = 1000;
+
+  /** A slot of the ring, holding the fields of a message. */
+  private static final class Slot {
+    private Level level;
+    private long timeMillis;
+    private String source;
+    private String match;
+    private String player;
+    private GameCommandType command;
+    private long latencyNanos;
+    private String message;
+  }
+
+  /** The ring shared by all the loggers, created with its writer on first use. */
+  private static final class Holder {
+    private static final LogRing RING = new LogRing();
+  }
+
+  private final Slot[] slots;
+
+  /**
+   * Sequence number of each slot: equal to the position of the next message to write in it when
+   * free, and to that position plus one once the message is published.
+   */
+  private final AtomicLongArray sequences;
+
+  /** Position of the next message to be claimed by a logging thread. */
+  private final AtomicLong tail;
+
+  /** Position of the next message to be written. Only touched by the writer. */
+  private long head;
+
+  private final LongAdder dropped;
+  private final Thread writer;
+  private volatile boolean stopping;
+
+  /**
+   * Whether the writer found the ring empty and is about to park, or parked. A logging thread that
+   * sees it after publishing a message unparks the writer.
+   */
+  private volatile boolean waiting;
+
+  /** Default constructor. Creates an empty ring and starts its writer. */
+  private LogRing() {
+    slots = new Slot[CAPACITY];
+    sequences = new AtomicLongArray(CAPACITY);
+    for (int i = 0; i < CAPACITY; i++) {
+      slots[i] = new Slot();
+      sequences.set(i, i);
+    }
+    tail = new AtomicLong(0);
+    head = 0;
+    dropped = new LongAdder();
+    stopping = false;
+    waiting = false;
+
+    writer = Thread.ofPlatform().name("log-writer").daemon().unstarted(this::write);
+    writer.start();
+    Runtime.getRuntime()
+        .addShutdownHook(Thread.ofPlatform().name("log-shutdown").unstarted(this::stop));
+  }
+
+  /**
+   * Gets the ring shared by all the loggers.
+   *
+   * @return the {@link LogRing}
+   */
+  static LogRing get() {
+    return Holder.RING;
+  }
+
+  /**
+   * Publishes a message to the ring, or drops it if the ring is full.
+   *
+   * @param level the {@link Level} of the message
+   * @param source the name of the component logging the message
+   * @param match the name of the game match concerned, or {@code null}
+   * @param player the username of the player concerned, or {@code null}
+   * @param command the {@link GameCommandType} concerned, or {@code null}
+   * @param latencyNanos the latency measured, in nanoseconds, or a negative value if there is none
+   * @param message the message
+   */
+  void publish(
+      Level level,
+      String source,
+      String match,
+      String player,
+      GameCommandType command,
+      long latencyNanos,
+      String message) {
+    long position = tail.get();
+    int index;
+    while (true) {
+      index = (int) position & MASK;
+      long sequence = sequences.getAcquire(index);
+      if (sequence == position) {
+        if (tail.compareAndSet(position, position + 1)) {
+          break;
+        }
+        position = tail.get();
+      } else if (sequence < position) {
+        // The writer did not free this slot yet, the ring is full.
+        dropped.increment();
+        return;
+      } else {
+        position = tail.get();
+      }
+    }
+
+    Slot slot = slots[index];
+    slot.level = level;
+    slot.timeMillis = System.currentTimeMillis();
+    slot.source = source;
+    slot.match = match;
+    slot.player = player;
+    slot.command = command;
+    slot.latencyNanos = latencyNanos;
+    slot.message = message;
+
+    // A volatile write, so that it cannot be reordered with the read of the flag below: either the
+    // writer sees the message before parking, or this thread sees the writer waiting.
+    sequences.set(index, position + 1);
+    if (waiting) {
+      LockSupport.unpark(writer);
+    }
+  }
+
+  /**
+   * Checks whether the writer has a message to write.
+   *
+   * @return {@code true} if the next message is published, {@code false} if the ring is empty
+   */
+  private boolean hasMessage() {
+    return sequences.get((int) head & MASK) == head + 1;
+  }
+
+  /**
+   * Appends the published messages to a buffer, freeing their slots.
+   *
+   * @param sb the {@link StringBuilder} to append the formatted messages to
+   * @return the number of messages appended
+   */
+  private int drain(StringBuilder sb) {
+    int count = 0;
+    while (true) {
+      int index = (int) head & MASK;
+      if (sequences.getAcquire(index) != head + 1) {
+        return count;
+      }
+
+      Slot slot = slots[index];
+      format(sb, slot);
+      slot.source = null;
+      slot.match = null;
+      slot.player = null;
+      slot.command = null;
+      slot.message = null;
+      sequences.setRelease(index, head + CAPACITY);
+      ++head;
+      ++count;
+    }
+  }
+
+  /**
+   * Formats a message as a logfmt line.
+   *
+   * @param sb the {@link StringBuilder} to append the line to
+   * @param slot the {@link Slot} holding the message
+   */
+  private static void format(StringBuilder sb, Slot slot) {
+    sb.append("time=").append(Instant.ofEpochMilli(slot.timeMillis));
+    sb.append(" level=").append(slot.level);
+    sb.append(" source=").append(slot.source);
+    if (null != slot.match) {
+      sb.append(" match=");
+      appendValue(sb, slot.match);
+    }
+    if (null != slot.player) {
+      sb.append(" player=");
+      appendValue(sb, slot.player);
+    }
+    if (null != slot.command) {
+      sb.append(" command=").append(slot.command);
+    }
+    if (slot.latencyNanos >= 0) {
+      sb.append(" latency_us=").append(slot.latencyNanos / 1000);
+    }
+    sb.append(" msg=");
+    appendValue(sb, slot.message);
+    sb.append('\n');
+  }
+
+  /**
+   * Appends a value, quoted if it contains spaces, quotes or an equal sign.
+   *
+   * @param sb the {@link StringBuilder} to append the value to
+   * @param value the value
+   */
+  private static void appendValue(StringBuilder sb, String value) {
+    boolean quote = value.isEmpty();
+    for (int i = 0; i < value.length() && !quote; i++) {
+      char c = value.charAt(i);
+      quote = c <= ' ' || c == '"' || c == '=';
+    }
+    if (!quote) {
+      sb.append(value);
+      return;
+    }
+
+    sb.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"' -> sb.append("\\\"");
+        case '\\' -> sb.append("\\\\");
+        case '\n' -> sb.append("\\n");
+        default -> sb.append(c);
+      }
+    }
+    sb.append('"');
+  }
+
+  /** Loop of the writer, draining the ring until the JVM shuts down. */
+  private void write() {
+    StringBuilder sb = new StringBuilder(64 * 1024);
+    long reportedDrops = 0;
+    while (true) {
+      boolean last = stopping;
+      int count = drain(sb);
+
+      long drops = dropped.sum();
+      if (drops != reportedDrops) {
+        sb.append("time=")
+            .append(Instant.now())
+            .append(" level=WARN source=Log msg=\"")
+            .append(drops - reportedDrops)
+            .append(" messages dropped, the ring was full\"\n");
+        reportedDrops = drops;
+      }
+
+      if (!sb.isEmpty()) {
+        PrintStream out = System.out;
+        out.append(sb);
+        out.flush();
+        sb.setLength(0);
+      }
+
+      if (last) {
+        return;
+      }
+      if (0 == count) {
+        // Announce the wait before checking the ring a last time, so no message is left unwritten.
+        waiting = true;
+        if (!hasMessage() && !stopping) {
+          LockSupport.park(this);
+        }
+        waiting = false;
+      }
+    }
+  }
+
+  /** Lets the writer drain what is left in the ring, then stops it. Called on shutdown. */
+  private void stop() {
+    stopping = true;
+    LockSupport.unpark(writer);
+    try {
+      writer.join(SHUTDOWN_TIMEOUT_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
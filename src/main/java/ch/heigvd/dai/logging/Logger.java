@@ -0,0 +1,194 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logging;
+
+import ch.heigvd.dai.logic.commands.GameCommandType;
+import java.util.function.Supplier;
+
+/**
+ * Logger writing structured messages asynchronously.
+ *
+ * <p>A message carries a level, the component logging it, and optionally the game match, player and
+ * command it is about, along with a measured latency. It is handed to a lock-free ring drained by a
+ * background writer, so logging never waits for the console.
+ *
+ * <p>The messages are built lazily, from a {@link Supplier} only called if the level of the message
+ * is enabled. A disabled message thus costs a single read of the global threshold. Messages are
+ * built on the calling thread, so they capture the state of the game as it was when logging.
+ *
+ * <p>The threshold is global to the process, and {@link Level#INFO} by default.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+public final class Logger {
+
+  /** Ordinal of the least severe level that is enabled. */
+  private static volatile int threshold = Level.INFO.ordinal();
+
+  private final String source;
+  private final String match;
+
+  /**
+   * Default constructor. Creates a logger whose messages are not about a particular game match.
+   *
+   * @param source the name of the component logging the messages
+   */
+  public Logger(String source) {
+    this(source, null);
+  }
+
+  /**
+   * Constructor for a logger whose messages are about a game match.
+   *
+   * @param source the name of the component logging the messages
+   * @param match the name of the game match, or {@code null} if there is none
+   */
+  private Logger(String source, String match) {
+    this.source = source;
+    this.match = match;
+  }
+
+  /**
+   * Creates a logger with the same source, whose messages are about the given game match.
+   *
+   * @param match the name of the game match
+   * @return a new {@link Logger}
+   */
+  public Logger forMatch(String match) {
+    return new Logger(source, match);
+  }
+
+  /**
+   * Sets the least severe level that is logged, for all the loggers.
+   *
+   * @param level the {@link Level}, {@link Level#OFF} to disable all the messages
+   */
+  public static void setLevel(Level level) {
+    threshold = level.ordinal();
+  }
+
+  /**
+   * Gets the least severe level that is logged.
+   *
+   * @return the {@link Level}
+   */
+  public static Level getLevel() {
+    return Level.values()[threshold];
+  }
+
+  /**
+   * Checks whether messages of a level are logged. Can be used to skip preparing the fields of a
+   * message when the level is disabled.
+   *
+   * @param level the {@link Level} of the message
+   * @return {@code true} if the messages of this level are logged, {@code false} otherwise
+   */
+  public static boolean isEnabled(Level level) {
+    return level.ordinal() >= threshold && level != Level.OFF;
+  }
+
+  /**
+   * Logs a message with all its fields.
+   *
+   * @param level the {@link Level} of the message
+   * @param player the username of the player concerned, or {@code null}
+   * @param command the {@link GameCommandType} concerned, or {@code null}
+   * @param latencyNanos the latency measured, in nanoseconds, or a negative value if there is none
+   * @param message a {@link Supplier} of the message, only called if the level is enabled
+   */
+  public void log(
+      Level level,
+      String player,
+      GameCommandType command,
+      long latencyNanos,
+      Supplier<String> message) {
+    if (isEnabled(level)) {
+      LogRing.get().publish(level, source, match, player, command, latencyNanos, message.get());
+    }
+  }
+
+  /**
+   * Logs an error message.
+   *
+   * @param message a {@link Supplier} of the message, only called if the level is enabled
+   */
+  public void error(Supplier<String> message) {
+    log(Level.ERROR, null, null, -1, message);
+  }
+
+  /**
+   * Logs a warning message.
+   *
+   * @param message a {@link Supplier} of the message, only called if the level is enabled
+   */
+  public void warn(Supplier<String> message) {
+    log(Level.WARN, null, null, -1, message);
+  }
+
+  /**
+   * Logs an informational message.
+   *
+   * @param message a {@link Supplier} of the message, only called if the level is enabled
+   */
+  public void info(Supplier<String> message) {
+    log(Level.INFO, null, null, -1, message);
+  }
+
+  /**
+   * Logs an informational message about a player.
+   *
+   * @param player the username of the player concerned
+   * @param message a {@link Supplier} of the message, only called if the level is enabled
+   */
+  public void info(String player, Supplier<String> message) {
+    log(Level.INFO, player, null, -1, message);
+  }
+
+  /**
+   * Logs a debug message about a player.
+   *
+   * @param player the username of the player concerned
+   * @param message a {@link Supplier} of the message, only called if the level is enabled
+   */
+  public void debug(String player, Supplier<String> message) {
+    log(Level.DEBUG, player, null, -1, message);
+  }
+
+  /**
+   * Logs a debug message about a command sent by a player.
+   *
+   * @param player the username of the player concerned
+   * @param command the {@link GameCommandType} of the command
+   * @param message a {@link Supplier} of the message, only called if the level is enabled
+   */
+  public void debug(String player, GameCommandType command, Supplier<String> message) {
+    log(Level.DEBUG, player, command, -1, message);
+  }
+
+  /**
+   * Logs a trace message about a player.
+   *
+   * @param player the username of the player concerned
+   * @param message a {@link Supplier} of the message, only called if the level is enabled
+   */
+  public void trace(String player, Supplier<String> message) {
+    log(Level.TRACE, player, null, -1, message);
+  }
+}
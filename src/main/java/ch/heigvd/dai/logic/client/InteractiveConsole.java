@@ -47,6 +47,7 @@ import java.util.Map;
 
 public class InteractiveConsole {
   private String username;
+  private final String matchName;
   private PlayerState currentState;
   private boolean promptAlreadyShown;
 
@@ -124,6 +125,16 @@ public class InteractiveConsole {
    * game
    */
   public InteractiveConsole() {
+    this(null);
+  }
+
+  /**
+   * Creates a new interactive console instance that joins a specific game match
+   *
+   * @param matchName Name of the match to join, or null to let the server pick one
+   */
+  public InteractiveConsole(String matchName) {
+    this.matchName = matchName;
     currentState = PlayerState.WAIT_FOR_USERNAME;
     promptAlreadyShown = false;
   }
@@ -245,6 +256,15 @@ public class InteractiveConsole {
     return username;
   }
 
+  /**
+   * Returns the name of the match the player wants to join
+   *
+   * @return The name of the match, or null to let the server pick one
+   */
+  public String getMatchName() {
+    return matchName;
+  }
+
   /**
    * Sets a new username
    *
@@ -20,10 +20,9 @@ package ch.heigvd.dai.logic.client.parsers;
 
 import ch.heigvd.dai.logic.PlayerState;
 import ch.heigvd.dai.logic.client.InteractiveConsole;
+import ch.heigvd.dai.logic.commands.EndCommand;
 import ch.heigvd.dai.logic.commands.GameCommand;
 import ch.heigvd.dai.logic.commands.GameCommandType;
-import java.util.Iterator;
-import java.util.List;
 
 public class EndResponseParser implements IResponseParser {
 
@@ -31,17 +30,14 @@ public class EndResponseParser implements IResponseParser {
   public void parse(InteractiveConsole interactiveConsole, GameCommand response) {
     if (response.getType() == GameCommandType.END
         && interactiveConsole.getCurrentState() == PlayerState.WAIT_FOR_TURN) {
-      List<Object> args = response.getArgs();
-      Iterator<Object> iter = args.iterator();
+      EndCommand end = (EndCommand) response;
+      String[] players = end.getPlayers();
+      int[] money = end.getMoney();
       System.out.println("Game ended!");
-      System.out.println("*** WINNER: " + iter.next() + " ***");
+      System.out.println("*** WINNER: " + end.getWinningPlayer() + " ***");
       System.out.println("=== GAME RESULTS ===");
-      for (int i = 0; iter.hasNext(); ++i) {
-        if (i % 2 == 0) { // If even, print username.
-          System.out.print(iter.next());
-        } else { // Else, print money with a new line.
-          System.out.println(" - " + iter.next());
-        }
+      for (int i = 0; i < players.length; ++i) {
+        System.out.println(players[i] + " - " + money[i]);
       }
       System.out.println("Please stay connected to play again, or type 'quit' to go home.");
       interactiveConsole.setCurrentState(PlayerState.WAIT_IN_LOBBY);
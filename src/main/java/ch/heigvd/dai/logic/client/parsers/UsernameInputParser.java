@@ -30,7 +30,10 @@ public class UsernameInputParser implements IInputParser {
     GameCommand command = null;
 
     try {
-      command = JoinCommand.fromTcpBody(new String[] {input});
+      String matchName = interactiveConsole.getMatchName();
+      command =
+          JoinCommand.fromTcpBody(
+              null != matchName ? new String[] {input, matchName} : new String[] {input});
       interactiveConsole.setUsername(input);
     } catch (InvalidPropertiesFormatException e) {
       System.err.println("Invalid username!");
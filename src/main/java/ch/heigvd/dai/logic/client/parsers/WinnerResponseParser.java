@@ -28,11 +28,13 @@ public class WinnerResponseParser implements IResponseParser {
 
   @Override
   public void parse(InteractiveConsole interactiveConsole, GameCommand response) {
-    if (response.getType() == GameCommandType.WINNER
-        && interactiveConsole.getCurrentState() == PlayerState.WAIT_FOR_TURN) {
+    if (response.getType() == GameCommandType.WINNER) {
       System.out.println("Thank you to all the participants for playing!");
       System.out.println("We've now reached the last round. And the player to play it is...");
       System.out.println(((WinnerCommand) response).getUsername() + " !");
+
+      // The round may have been solved by this player, who was still about to play.
+      interactiveConsole.setCurrentState(PlayerState.WAIT_FOR_TURN);
     }
   }
 }
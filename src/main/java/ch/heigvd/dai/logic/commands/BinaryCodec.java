@@ -0,0 +1,584 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.commands;
+
+import ch.heigvd.dai.logic.StatusCode;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.InvalidPropertiesFormatException;
+
+/**
+ * Encoder and decoder of the compact binary protocol.
+ *
+ * <p>Each command is sent as a frame made of the length of its payload, as an unsigned varint,
+ * followed by the payload itself: the ordinal of its {@link GameCommandType} as an opcode byte,
+ * then its arguments. Numbers, money included, are zigzag varints, and strings are the varint
+ * length of their UTF-8 bytes followed by the bytes. A {@link StatusCode} is sent as its ordinal in
+ * a single byte, and the letters already used in a round are sent as a 26-bit mask with one bit per
+ * letter of the alphabet, followed by the string of the letters outside of {@code A-Z}, usually
+ * empty.
+ *
+ * <p>A client opts in by sending {@link #handshake(int)} as the first line of the connection. The
+ * handshake is a valid, if unknown, line of the text protocol: a server speaking only text answers
+ * it with a {@code STATUS KO} line, after which the client can carry on in text. A server speaking
+ * binary answers with its own handshake instead, carrying the version both sides use from then on,
+ * and switches to binary frames right after it.
+ *
+ * <p>The requests of the clients are decoded through the factories of the text protocol, so that
+ * they go through exactly the same validation. The commands sent by the server are built directly
+ * from their fields.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+public final class BinaryCodec {
+
+  /** Latest version of the binary protocol. */
+  public static final int VERSION = 1;
+
+  /** Length of the handshake, including its line terminator. */
+  public static final int HANDSHAKE_LENGTH = 6;
+
+  /** Maximum length of the payload of a frame. */
+  public static final int MAX_FRAME_LENGTH = 8192;
+
+  /** Bytes starting the handshake, a NUL byte that no text client sends followed by a tag. */
+  private static final byte[] HANDSHAKE_PREFIX = {0, 'W', 'O', 'F'};
+
+  /** Maximum number of bytes of a varint holding 32 bits. */
+  private static final int MAX_VARINT_LENGTH = 5;
+
+  /** Number of letters of the alphabet, one bit each in the mask of the used letters. */
+  private static final int ALPHABET_LENGTH = 26;
+
+  /** Command types indexed by opcode. */
+  private static final GameCommandType[] TYPES = GameCommandType.values();
+
+  /** Status codes indexed by their byte. */
+  private static final StatusCode[] STATUS_CODES = StatusCode.values();
+
+  /** Private constructor, this class only has static methods. */
+  private BinaryCodec() {}
+
+  /**
+   * Builds the handshake asking for, or acknowledging, a version of the binary protocol.
+   *
+   * @param version the version of the binary protocol, between 1 and {@link #VERSION}
+   * @return a byte array with the handshake, including its line terminator
+   */
+  public static byte[] handshake(int version) {
+    byte[] handshake = Arrays.copyOf(HANDSHAKE_PREFIX, HANDSHAKE_LENGTH);
+    handshake[HANDSHAKE_PREFIX.length] = (byte) version;
+    handshake[HANDSHAKE_LENGTH - 1] = '\n';
+    return handshake;
+  }
+
+  /**
+   * Gets the version of the binary protocol carried by a handshake.
+   *
+   * @param line the array holding the line, without its line terminator
+   * @param offset the offset of the first byte of the line
+   * @param length the number of bytes of the line
+   * @return the version carried by the handshake, or -1 if the line is not a handshake
+   */
+  public static int parseHandshake(byte[] line, int offset, int length) {
+    if (length != HANDSHAKE_LENGTH - 1
+        || !Arrays.equals(
+            line,
+            offset,
+            offset + HANDSHAKE_PREFIX.length,
+            HANDSHAKE_PREFIX,
+            0,
+            HANDSHAKE_PREFIX.length)) {
+      return -1;
+    }
+
+    int version = line[offset + HANDSHAKE_PREFIX.length] & 0xFF;
+    return version > 0 ? version : -1;
+  }
+
+  /**
+   * Encodes a command into a binary frame.
+   *
+   * @param command the {@link GameCommand} to encode
+   * @return a byte array with the frame, length prefix included
+   */
+  public static byte[] encode(GameCommand command) {
+    Output out = new Output();
+    out.writeByte(command.getType().ordinal());
+
+    switch (command.getType()) {
+      case END -> {
+        EndCommand end = (EndCommand) command;
+        String[] players = end.getPlayers();
+        int[] money = end.getMoney();
+        out.writeString(end.getWinningPlayer());
+        out.writeVarint(players.length);
+        for (int i = 0; i < players.length; i++) {
+          out.writeString(players[i]);
+          out.writeInt(money[i]);
+        }
+      }
+
+      case INFO -> {
+        InfoCommand info = (InfoCommand) command;
+        out.writeString(info.getPuzzle());
+        out.writeString(info.getCategory());
+        out.writeLetters(info.getUsedLetters());
+      }
+
+      case LAST -> {
+        LastCommand last = (LastCommand) command;
+        out.writeInt(last.getTimeout());
+        out.writeString(last.getPuzzle());
+        out.writeString(last.getCategory());
+        out.writeString(last.getInitialLetters());
+      }
+
+      case LOBBY -> {
+        String[] players = ((LobbyCommand) command).getPlayers();
+        out.writeVarint(players.length);
+        for (String player : players) {
+          out.writeString(player);
+        }
+      }
+
+      case ROUND -> out.writeString(((RoundCommand) command).getPuzzle());
+
+      case START -> {
+        StartCommand start = (StartCommand) command;
+        out.writeInt(start.getRoundNumber());
+        out.writeString(start.getPuzzle());
+        out.writeString(start.getCategory());
+      }
+
+      case STATUS -> out.writeByte(((StatusCommand) command).getStatus().ordinal());
+
+      case TURN -> {
+        TurnCommand turn = (TurnCommand) command;
+        out.writeInt(turn.getTurnMoney());
+        out.writeInt(turn.getTotalMoney());
+      }
+
+      case WINNER -> out.writeString(((WinnerCommand) command).getUsername());
+
+      case FILL -> out.writeString(((FillCommand) command).getPuzzle());
+
+      case GUESS -> out.writeVarint(((GuessCommand) command).getGuessedLetter());
+
+      case JOIN -> {
+        // An empty match name stands for no match name, which the text protocol rejects anyway.
+        JoinCommand join = (JoinCommand) command;
+        out.writeString(join.getUsername());
+        out.writeString(null != join.getMatchName() ? join.getMatchName() : "");
+      }
+
+      case LETTERS -> out.writeString(((LettersCommand) command).getLetters());
+
+      case VOWEL -> out.writeVarint(((VowelCommand) command).getVowel());
+
+      case GO, SKIP, QUIT, HELP, HOST -> {
+        // No arguments.
+      }
+    }
+
+    return out.toFrame();
+  }
+
+  /**
+   * Decodes the payload of a binary frame, without its length prefix.
+   *
+   * @param payload the array holding the payload
+   * @param offset the offset of the first byte of the payload
+   * @param length the number of bytes of the payload
+   * @return the decoded {@link GameCommand}
+   * @throws InvalidPropertiesFormatException if the payload is not a valid command
+   */
+  public static GameCommand decode(byte[] payload, int offset, int length)
+      throws InvalidPropertiesFormatException {
+    Input in = new Input(payload, offset, length);
+    int opcode = in.readByte();
+    if (opcode >= TYPES.length) {
+      throw new InvalidPropertiesFormatException("[BinaryCodec] Unknown opcode " + opcode);
+    }
+
+    GameCommandType type = TYPES[opcode];
+    GameCommand command =
+        switch (type) {
+          case END -> {
+            String winningPlayer = in.readString();
+            String[] players = new String[in.readCount()];
+            int[] money = new int[players.length];
+            for (int i = 0; i < players.length; i++) {
+              players[i] = in.readString();
+              money[i] = in.readInt();
+            }
+            yield new EndCommand(winningPlayer, players, money);
+          }
+
+          case INFO -> new InfoCommand(in.readString(), in.readString(), in.readLetters());
+
+          case LAST ->
+              new LastCommand(in.readInt(), in.readString(), in.readString(), in.readString());
+
+          case LOBBY -> {
+            String[] players = new String[in.readCount()];
+            if (players.length == 0) {
+              throw new InvalidPropertiesFormatException(
+                  "[BinaryCodec] Command did not receive any player usernames");
+            }
+            for (int i = 0; i < players.length; i++) {
+              players[i] = in.readString();
+            }
+            yield new LobbyCommand(players);
+          }
+
+          case ROUND -> new RoundCommand(in.readString());
+
+          case START -> new StartCommand(in.readInt(), in.readString(), in.readString());
+
+          case STATUS -> {
+            int status = in.readByte();
+            if (status >= STATUS_CODES.length) {
+              throw new InvalidPropertiesFormatException(
+                  "[BinaryCodec] Unknown status code " + status);
+            }
+            yield new StatusCommand(STATUS_CODES[status]);
+          }
+
+          case TURN -> new TurnCommand(in.readInt(), in.readInt());
+
+          case WINNER -> new WinnerCommand(in.readString());
+
+            // Requests of the clients, validated by the factories of the text protocol.
+          case FILL, LETTERS -> fromArgs(type, in.readString());
+
+          case GUESS, VOWEL -> fromArgs(type, String.valueOf((char) in.readVarint()));
+
+          case JOIN -> {
+            String username = in.readString();
+            String matchName = in.readString();
+            yield matchName.isEmpty()
+                ? fromArgs(type, username)
+                : fromArgs(type, username, matchName);
+          }
+
+          case GO, SKIP, QUIT, HELP, HOST -> fromArgs(type);
+        };
+
+    if (in.remaining() > 0) {
+      throw new InvalidPropertiesFormatException(
+          "[BinaryCodec] Unexpected bytes after the arguments of " + type);
+    }
+    return command;
+  }
+
+  /**
+   * Reads a binary frame from a stream and decodes it, blocking until the whole frame is read.
+   *
+   * @param in the {@link InputStream} to read from, preferably buffered
+   * @return the decoded {@link GameCommand}, or {@code null} if the stream ended before a new frame
+   * @throws EOFException if the stream ended in the middle of a frame
+   * @throws InvalidPropertiesFormatException if the frame is not a valid command, or is longer than
+   *     {@link #MAX_FRAME_LENGTH}
+   * @throws IOException if the stream cannot be read
+   */
+  public static GameCommand read(InputStream in) throws IOException {
+    int length = 0;
+    for (int shift = 0; ; shift += 7) {
+      int b = in.read();
+      if (b < 0) {
+        if (shift == 0) {
+          return null;
+        }
+        throw new EOFException("[BinaryCodec] Stream ended in the middle of a frame");
+      }
+
+      length |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        break;
+      } else if (shift == 7 * (MAX_VARINT_LENGTH - 1)) {
+        throw new InvalidPropertiesFormatException("[BinaryCodec] Invalid frame length");
+      }
+    }
+
+    if (length < 0 || length > MAX_FRAME_LENGTH) {
+      throw new InvalidPropertiesFormatException("[BinaryCodec] Frame too long: " + length);
+    }
+
+    byte[] payload = in.readNBytes(length);
+    if (payload.length < length) {
+      throw new EOFException("[BinaryCodec] Stream ended in the middle of a frame");
+    }
+    return decode(payload, 0, length);
+  }
+
+  /**
+   * Builds a request through the factory of the text protocol.
+   *
+   * @param type the {@link GameCommandType} of the request
+   * @param args the arguments of the request
+   * @return the {@link GameCommand} built by the factory
+   * @throws InvalidPropertiesFormatException if the arguments are invalid for this command
+   */
+  private static GameCommand fromArgs(GameCommandType type, String... args)
+      throws InvalidPropertiesFormatException {
+    CommandFactoryFunction factory = GameCommand.getFactoryHandler(type);
+    if (null == factory) {
+      throw new InvalidPropertiesFormatException("[BinaryCodec] No handler for " + type);
+    }
+
+    // Like the text decoder, hand no array at all to the commands without arguments.
+    return factory.apply(args.length > 0 ? args : null);
+  }
+
+  /** Growable buffer the payload of a frame is written to. */
+  private static final class Output {
+    private byte[] bytes = new byte[64];
+    private int length = 0;
+
+    /**
+     * Makes room for more bytes.
+     *
+     * @param count the number of bytes about to be written
+     */
+    private void ensure(int count) {
+      if (length + count > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + count));
+      }
+    }
+
+    /**
+     * Writes a single byte.
+     *
+     * @param value the byte to write, in its lowest 8 bits
+     */
+    void writeByte(int value) {
+      ensure(1);
+      bytes[length++] = (byte) value;
+    }
+
+    /**
+     * Writes an unsigned varint, 7 bits per byte with the highest bit set on all bytes but the
+     * last.
+     *
+     * @param value the value to write, read as an unsigned integer
+     */
+    void writeVarint(int value) {
+      ensure(MAX_VARINT_LENGTH);
+      while ((value & ~0x7F) != 0) {
+        bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      bytes[length++] = (byte) value;
+    }
+
+    /**
+     * Writes a signed integer as a zigzag varint, so that small negative values stay short.
+     *
+     * @param value the value to write
+     */
+    void writeInt(int value) {
+      writeVarint((value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Writes a string as the length of its UTF-8 bytes followed by the bytes.
+     *
+     * @param value the {@link String} to write
+     */
+    void writeString(String value) {
+      byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+      writeVarint(utf8.length);
+      ensure(utf8.length);
+      System.arraycopy(utf8, 0, bytes, length, utf8.length);
+      length += utf8.length;
+    }
+
+    /**
+     * Writes a set of letters as a mask of the letters from {@code A} to {@code Z}, followed by the
+     * string of the other letters.
+     *
+     * @param letters a {@link String} with the letters, without duplicates
+     */
+    void writeLetters(String letters) {
+      int mask = 0;
+      StringBuilder others = new StringBuilder();
+      for (int i = 0; i < letters.length(); i++) {
+        char letter = letters.charAt(i);
+        if (letter >= 'A' && letter <= 'Z') {
+          mask |= 1 << (letter - 'A');
+        } else {
+          others.append(letter);
+        }
+      }
+      writeVarint(mask);
+      writeString(others.toString());
+    }
+
+    /**
+     * Builds the frame holding the bytes written so far.
+     *
+     * @return a byte array with the length prefix followed by the payload
+     */
+    byte[] toFrame() {
+      int prefixLength = 1;
+      for (int remaining = length >>> 7; remaining != 0; remaining >>>= 7) {
+        prefixLength++;
+      }
+
+      byte[] frame = new byte[prefixLength + length];
+      int position = 0;
+      int value = length;
+      while ((value & ~0x7F) != 0) {
+        frame[position++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      frame[position++] = (byte) value;
+      System.arraycopy(bytes, 0, frame, position, length);
+      return frame;
+    }
+  }
+
+  /** Cursor over the payload of a frame being decoded. */
+  private static final class Input {
+    private final byte[] bytes;
+    private int position;
+    private final int limit;
+
+    /**
+     * Default constructor.
+     *
+     * @param bytes the array holding the payload
+     * @param offset the offset of the first byte of the payload
+     * @param length the number of bytes of the payload
+     */
+    Input(byte[] bytes, int offset, int length) {
+      this.bytes = bytes;
+      position = offset;
+      limit = offset + length;
+    }
+
+    /**
+     * Gets the number of bytes left to read.
+     *
+     * @return the number of bytes between the cursor and the end of the payload
+     */
+    int remaining() {
+      return limit - position;
+    }
+
+    /**
+     * Reads a single byte.
+     *
+     * @return the byte read, between 0 and 255
+     * @throws InvalidPropertiesFormatException if the payload ended
+     */
+    int readByte() throws InvalidPropertiesFormatException {
+      if (position == limit) {
+        throw new InvalidPropertiesFormatException("[BinaryCodec] Command is missing arguments");
+      }
+      return bytes[position++] & 0xFF;
+    }
+
+    /**
+     * Reads an unsigned varint.
+     *
+     * @return the value read, as an unsigned integer
+     * @throws InvalidPropertiesFormatException if the payload ended or the varint is too long
+     */
+    int readVarint() throws InvalidPropertiesFormatException {
+      int value = 0;
+      for (int shift = 0; shift < 7 * MAX_VARINT_LENGTH; shift += 7) {
+        int b = readByte();
+        value |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new InvalidPropertiesFormatException("[BinaryCodec] Invalid varint");
+    }
+
+    /**
+     * Reads a signed integer written as a zigzag varint.
+     *
+     * @return the value read
+     * @throws InvalidPropertiesFormatException if the payload ended or the varint is too long
+     */
+    int readInt() throws InvalidPropertiesFormatException {
+      int value = readVarint();
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads the number of elements of a list, each of them taking at least one byte.
+     *
+     * @return the number of elements
+     * @throws InvalidPropertiesFormatException if the payload cannot hold that many elements
+     */
+    int readCount() throws InvalidPropertiesFormatException {
+      int count = readVarint();
+      if (count < 0 || count > remaining()) {
+        throw new InvalidPropertiesFormatException("[BinaryCodec] Invalid number of elements");
+      }
+      return count;
+    }
+
+    /**
+     * Reads a string written as the length of its UTF-8 bytes followed by the bytes.
+     *
+     * @return the {@link String} read
+     * @throws InvalidPropertiesFormatException if the payload is shorter than the string
+     */
+    String readString() throws InvalidPropertiesFormatException {
+      int length = readVarint();
+      if (length < 0 || length > remaining()) {
+        throw new InvalidPropertiesFormatException("[BinaryCodec] Invalid string length");
+      }
+      String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+      position += length;
+      return value;
+    }
+
+    /**
+     * Reads a set of letters written by {@link Output#writeLetters(String)}.
+     *
+     * @return a char array with the letters from {@code A} to {@code Z} in alphabetical order,
+     *     followed by the other letters
+     * @throws InvalidPropertiesFormatException if the payload ended
+     */
+    char[] readLetters() throws InvalidPropertiesFormatException {
+      int mask = readVarint();
+      String others = readString();
+      char[] letters =
+          new char[Integer.bitCount(mask & ((1 << ALPHABET_LENGTH) - 1)) + others.length()];
+      int count = 0;
+      for (int i = 0; i < ALPHABET_LENGTH; i++) {
+        if ((mask & (1 << i)) != 0) {
+          letters[count++] = (char) ('A' + i);
+        }
+      }
+      others.getChars(0, others.length(), letters, count);
+      return letters;
+    }
+  }
+}
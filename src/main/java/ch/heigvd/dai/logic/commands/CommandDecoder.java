@@ -0,0 +1,375 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.commands;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.InvalidPropertiesFormatException;
+
+/**
+ * Streaming decoder of the text protocol, working directly on the UTF-8 bytes of a line.
+ *
+ * <p>The line is tokenized with a hand-written state machine that accepts exactly the grammar of
+ * the original regular expression {@code ([^"]\S*|.+?")\s*}: words are separated by whitespace,
+ * quoted arguments may contain spaces, and an unclosed quote is dropped. The command verb is
+ * matched case-insensitively against the byte names of {@link GameCommandType}, without creating
+ * any string. Only the arguments handed to the factory of the command are allocated, and commands
+ * without arguments allocate nothing at all.
+ *
+ * <p>A decoder keeps the bounds of the tokens between calls to avoid allocating them every time. It
+ * is thus not thread-safe, and each connection is expected to own its decoder.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+public final class CommandDecoder {
+
+  /** Command types indexed by the length of their name, to match the verb without a string. */
+  private static final GameCommandType[][] VERBS_BY_LENGTH;
+
+  /** ASCII names of the command types, indexed by ordinal. */
+  private static final byte[][] VERB_NAMES;
+
+  static {
+    GameCommandType[] types = GameCommandType.values();
+    VERB_NAMES = new byte[types.length][];
+    int maxLength = 0;
+    for (GameCommandType type : types) {
+      VERB_NAMES[type.ordinal()] = type.name().getBytes(StandardCharsets.US_ASCII);
+      maxLength = Math.max(maxLength, type.name().length());
+    }
+
+    VERBS_BY_LENGTH = new GameCommandType[maxLength + 1][0];
+    for (GameCommandType type : types) {
+      GameCommandType[] sameLength = VERBS_BY_LENGTH[type.name().length()];
+      sameLength = Arrays.copyOf(sameLength, sameLength.length + 1);
+      sameLength[sameLength.length - 1] = type;
+      VERBS_BY_LENGTH[type.name().length()] = sameLength;
+    }
+  }
+
+  /** Start and end offsets of the arguments of the line being decoded, two entries per token. */
+  private int[] tokenBounds = new int[16];
+
+  /** Number of arguments of the line being decoded. */
+  private int tokenCount;
+
+  /** Copy of the bytes of direct buffers, which have no accessible backing array. */
+  private byte[] scratch = new byte[0];
+
+  /**
+   * Decodes the line held by a buffer, from its position to its limit. The position of the buffer
+   * is moved to its limit.
+   *
+   * @param line a {@link ByteBuffer} with the UTF-8 bytes of a line, without its line terminator
+   * @return the decoded {@link GameCommand}
+   * @throws InvalidPropertiesFormatException if the line is not a valid command
+   */
+  public GameCommand decode(ByteBuffer line) throws InvalidPropertiesFormatException {
+    int length = line.remaining();
+    if (line.hasArray()) {
+      int offset = line.arrayOffset() + line.position();
+      line.position(line.limit());
+      return decode(line.array(), offset, length);
+    }
+
+    if (scratch.length < length) {
+      scratch = new byte[length];
+    }
+    line.get(scratch, 0, length);
+    return decode(scratch, 0, length);
+  }
+
+  /**
+   * Decodes a line from a window of a byte array.
+   *
+   * @param line the array holding the UTF-8 bytes of the line
+   * @param offset the offset of the first byte of the line
+   * @param length the number of bytes of the line, without its line terminator
+   * @return the decoded {@link GameCommand}
+   * @throws InvalidPropertiesFormatException if the line is not a valid command
+   */
+  public GameCommand decode(byte[] line, int offset, int length)
+      throws InvalidPropertiesFormatException {
+    int start = offset;
+    int end = offset + length;
+
+    // Same as String.trim(): drop the control characters and spaces around the line.
+    while (start < end && (line[start] & 0xFF) <= ' ') {
+      start++;
+    }
+    while (end > start && (line[end - 1] & 0xFF) <= ' ') {
+      end--;
+    }
+
+    // The verb goes up to the first space.
+    int verbEnd = start;
+    while (verbEnd < end && line[verbEnd] != ' ') {
+      verbEnd++;
+    }
+
+    GameCommandType commandType = matchVerb(line, start, verbEnd);
+    if (null == commandType) {
+      throw new InvalidPropertiesFormatException(
+          "Invalid command name: "
+              + new String(line, start, verbEnd - start, StandardCharsets.UTF_8));
+    }
+
+    CommandFactoryFunction handler = GameCommand.getFactoryHandler(commandType);
+    if (null == handler) {
+      throw new InvalidPropertiesFormatException("No handler for command " + commandType);
+    }
+
+    tokenize(line, skipWhitespace(line, verbEnd, end), end);
+
+    String[] commandArgs = null;
+    if (tokenCount > 0) {
+      commandArgs = new String[tokenCount];
+      for (int i = 0; i < tokenCount; i++) {
+        int tokenStart = tokenBounds[2 * i];
+        int tokenEnd = tokenBounds[2 * i + 1];
+        commandArgs[i] =
+            new String(line, tokenStart, tokenEnd - tokenStart, StandardCharsets.UTF_8);
+      }
+    }
+
+    return handler.apply(commandArgs);
+  }
+
+  /**
+   * Finds the command type whose name matches a verb, ignoring the case.
+   *
+   * @param line the array holding the verb
+   * @param start the offset of the first byte of the verb
+   * @param end the offset after the last byte of the verb
+   * @return the matching {@link GameCommandType}, or {@code null} if there is none
+   */
+  private static GameCommandType matchVerb(byte[] line, int start, int end) {
+    int length = end - start;
+    if (length >= VERBS_BY_LENGTH.length) {
+      return null;
+    }
+
+    for (GameCommandType candidate : VERBS_BY_LENGTH[length]) {
+      byte[] name = VERB_NAMES[candidate.ordinal()];
+      int i = 0;
+      while (i < length && toUpperAscii(line[start + i]) == name[i]) {
+        i++;
+      }
+      if (i == length) {
+        return candidate;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Splits the arguments of a line into tokens, storing their bounds in {@link #tokenBounds}.
+   *
+   * <p>At each position, a character other than a quote starts a word running up to the next
+   * whitespace. A quote starts a quoted argument running up to the next quote, unless no quote
+   * closes it on the line, in which case the opening quote is skipped. Whitespace after a token is
+   * skipped, and each token is trimmed like with {@link String#trim()}. As with the original
+   * regular expression, the quotes of a quoted argument are only removed when the argument is not
+   * directly followed by whitespace.
+   *
+   * @param line the array holding the arguments
+   * @param start the offset of the first byte of the arguments
+   * @param end the offset after the last byte of the arguments
+   */
+  private void tokenize(byte[] line, int start, int end) {
+    tokenCount = 0;
+    int position = start;
+    while (position < end) {
+      int tokenStart;
+      int tokenEnd;
+
+      if (line[position] == '"') {
+        int closingQuote = findClosingQuote(line, position + 1, end);
+        if (closingQuote < 0) {
+          // Unclosed quote, it is not part of any token.
+          position++;
+          continue;
+        }
+        // The regular expression only stripped the quotes of a quoted argument not followed by
+        // whitespace, as the whitespace belonged to the matched token otherwise.
+        boolean keepQuotes = closingQuote + 1 < end && isRegexWhitespace(line[closingQuote + 1]);
+        tokenStart = keepQuotes ? position : position + 1;
+        tokenEnd = keepQuotes ? closingQuote + 1 : closingQuote;
+        position = closingQuote + 1;
+      } else {
+        tokenStart = position;
+        position++;
+        while (position < end && !isRegexWhitespace(line[position])) {
+          position++;
+        }
+        tokenEnd = position;
+      }
+
+      while (position < end && isRegexWhitespace(line[position])) {
+        position++;
+      }
+
+      while (tokenStart < tokenEnd && (line[tokenStart] & 0xFF) <= ' ') {
+        tokenStart++;
+      }
+      while (tokenEnd > tokenStart && (line[tokenEnd - 1] & 0xFF) <= ' ') {
+        tokenEnd--;
+      }
+      addToken(tokenStart, tokenEnd);
+    }
+  }
+
+  /**
+   * Finds the quote closing a quoted argument. Like the {@code .} of a regular expression, a quoted
+   * argument cannot span a line terminator.
+   *
+   * @param line the array holding the arguments
+   * @param start the offset right after the opening quote
+   * @param end the offset after the last byte of the arguments
+   * @return the offset of the closing quote, or -1 if there is none
+   */
+  private static int findClosingQuote(byte[] line, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (line[i] == '"') {
+        return i;
+      }
+      if (lineTerminatorLength(line, i, end) > 0) {
+        return -1;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Records the bounds of a token, growing {@link #tokenBounds} if needed.
+   *
+   * @param start the offset of the first byte of the token
+   * @param end the offset after the last byte of the token
+   */
+  private void addToken(int start, int end) {
+    if (2 * tokenCount + 1 >= tokenBounds.length) {
+      tokenBounds = Arrays.copyOf(tokenBounds, tokenBounds.length * 2);
+    }
+    tokenBounds[2 * tokenCount] = start;
+    tokenBounds[2 * tokenCount + 1] = end;
+    tokenCount++;
+  }
+
+  /**
+   * Skips the whitespace between the verb and the arguments, like {@link String#stripLeading()}.
+   *
+   * @param line the array holding the line
+   * @param start the offset where the whitespace may start
+   * @param end the offset after the last byte of the line
+   * @return the offset of the first byte that is not whitespace
+   */
+  private static int skipWhitespace(byte[] line, int start, int end) {
+    int position = start;
+    int length;
+    while (position < end && (length = whitespaceLength(line, position, end)) > 0) {
+      position += length;
+    }
+    return position;
+  }
+
+  /**
+   * Gets the length of the UTF-8 encoded character at a position if it is a whitespace according to
+   * {@link Character#isWhitespace(int)}.
+   *
+   * @param line the array holding the line
+   * @param position the offset of the character
+   * @param end the offset after the last byte of the line
+   * @return the number of bytes of the whitespace character, or 0 if it is not whitespace
+   */
+  private static int whitespaceLength(byte[] line, int position, int end) {
+    int b0 = line[position] & 0xFF;
+    if (b0 < 0x80) {
+      return Character.isWhitespace(b0) ? 1 : 0;
+    }
+    if (position + 2 >= end) {
+      return 0;
+    }
+
+    int b1 = line[position + 1] & 0xFF;
+    int b2 = line[position + 2] & 0xFF;
+    if (b0 == 0xE1 && b1 == 0x9A && b2 == 0x80) {
+      return 3; // U+1680
+    }
+    if (b0 == 0xE2 && b1 == 0x80) {
+      // U+2000 to U+2006, U+2008 to U+200A, U+2028 and U+2029.
+      return (b2 >= 0x80 && b2 <= 0x8A && b2 != 0x87) || b2 == 0xA8 || b2 == 0xA9 ? 3 : 0;
+    }
+    if (b0 == 0xE2 && b1 == 0x81 && b2 == 0x9F) {
+      return 3; // U+205F
+    }
+    if (b0 == 0xE3 && b1 == 0x80 && b2 == 0x80) {
+      return 3; // U+3000
+    }
+    return 0;
+  }
+
+  /**
+   * Gets the length of the UTF-8 encoded character at a position if it is a line terminator for
+   * regular expressions: {@code \n}, {@code \r}, U+0085, U+2028 or U+2029.
+   *
+   * @param line the array holding the line
+   * @param position the offset of the character
+   * @param end the offset after the last byte of the line
+   * @return the number of bytes of the line terminator, or 0 if it is not one
+   */
+  private static int lineTerminatorLength(byte[] line, int position, int end) {
+    int b0 = line[position] & 0xFF;
+    if (b0 == '\n' || b0 == '\r') {
+      return 1;
+    }
+    if (b0 == 0xC2 && position + 1 < end && (line[position + 1] & 0xFF) == 0x85) {
+      return 2;
+    }
+    if (b0 == 0xE2
+        && position + 2 < end
+        && (line[position + 1] & 0xFF) == 0x80
+        && ((line[position + 2] & 0xFF) == 0xA8 || (line[position + 2] & 0xFF) == 0xA9)) {
+      return 3;
+    }
+    return 0;
+  }
+
+  /**
+   * Checks if a byte is whitespace for regular expressions ({@code \s}), that is an ASCII space,
+   * tab, line feed, vertical tab, form feed or carriage return.
+   *
+   * @param b the byte to check
+   * @return {@code true} if the byte is whitespace, {@code false} otherwise
+   */
+  private static boolean isRegexWhitespace(byte b) {
+    return b == ' ' || (b >= '\t' && b <= '\r');
+  }
+
+  /**
+   * Converts an ASCII lower case letter to upper case, leaving any other byte untouched.
+   *
+   * @param b the byte to convert
+   * @return the converted byte
+   */
+  private static byte toUpperAscii(byte b) {
+    return b >= 'a' && b <= 'z' ? (byte) (b - ('a' - 'A')) : b;
+  }
+}
@@ -28,6 +28,15 @@ import java.util.InvalidPropertiesFormatException;
  */
 public class EndCommand extends GameCommand {
 
+  /** The name of the player that won the game. */
+  private final String winningPlayer;
+
+  /** The names of the players. */
+  private final String[] players;
+
+  /** The money of the players, in the same order as their names. */
+  private final int[] money;
+
   /**
    * Default constructor.
    *
@@ -37,10 +46,44 @@ public class EndCommand extends GameCommand {
    */
   public EndCommand(String winningPlayer, String[] players, int[] money) {
     super(GameCommandType.END);
-    args.add(winningPlayer);
+    this.winningPlayer = winningPlayer;
+    this.players = players.clone();
+    this.money = money.clone();
+  }
+
+  /**
+   * Gets the name of the player that won the game.
+   *
+   * @return a {@link String} with the username of the winner
+   */
+  public String getWinningPlayer() {
+    return winningPlayer;
+  }
+
+  /**
+   * Gets the names of the players, in the same order as their money.
+   *
+   * @return a {@link String} array with the usernames of the players
+   */
+  public String[] getPlayers() {
+    return players.clone();
+  }
+
+  /**
+   * Gets the money of the players, in the same order as their names.
+   *
+   * @return an integer array with the money of the players
+   */
+  public int[] getMoney() {
+    return money.clone();
+  }
+
+  @Override
+  protected void appendArgs(StringBuilder sb) {
+    appendArg(sb, winningPlayer);
     for (int i = 0; i < players.length; i++) {
-      args.add(players[i]);
-      args.add(money[i]);
+      appendArg(sb, players[i]);
+      appendArg(sb, money[i]);
     }
   }
 
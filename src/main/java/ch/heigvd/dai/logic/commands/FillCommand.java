@@ -28,6 +28,9 @@ import java.util.InvalidPropertiesFormatException;
  */
 public class FillCommand extends GameCommand {
 
+  /** The puzzle filled in by the player. */
+  private final String puzzle;
+
   /**
    * Default constructor.
    *
@@ -35,17 +38,21 @@ public class FillCommand extends GameCommand {
    */
   public FillCommand(String puzzle) {
     super(GameCommandType.FILL);
-    args.add(puzzle);
+    this.puzzle = puzzle;
   }
 
   /**
    * Gets the guess of the player.
    *
-   * @return a {@link String} with the guess of the player (obtained from the arguments of the
-   *     command)
+   * @return a {@link String} with the guess of the player
    */
   public String getPuzzle() {
-    return (String) args.getFirst();
+    return puzzle;
+  }
+
+  @Override
+  protected void appendArgs(StringBuilder sb) {
+    appendArg(sb, puzzle);
   }
 
   /**
@@ -18,14 +18,11 @@
 
 package ch.heigvd.dai.logic.commands;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
 import java.util.InvalidPropertiesFormatException;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Abstract class representing a command that can be sent to/from the server.
@@ -43,12 +40,19 @@ public abstract class GameCommand {
   /** The type of the command. */
   protected final GameCommandType type;
 
-  /** The arguments of the command. */
-  protected List<Object> args;
+  /**
+   * The command encoded as a text frame ready to be written to a socket, computed on first use.
+   * Commands are not modified once built, so the frame is shared by all the recipients of the
+   * command.
+   */
+  private volatile byte[] textFrame;
+
+  /** The command encoded as a binary frame, computed on first use like {@link #textFrame}. */
+  private volatile byte[] binaryFrame;
 
   /** The handler function for generating a command from a TCP message. */
   private static final Map<GameCommandType, CommandFactoryFunction> _factoryHandlers =
-      new HashMap<>();
+      new EnumMap<>(GameCommandType.class);
 
   // TODO Improve this debugging by using a proper Java logging framework.
   /** Boolean to enable/disable debug messages. */
@@ -61,7 +65,6 @@ public abstract class GameCommand {
    */
   public GameCommand(GameCommandType type) {
     this.type = type;
-    this.args = new LinkedList<>();
   }
 
   /**
@@ -74,58 +77,26 @@ public abstract class GameCommand {
   }
 
   /**
-   * Parses the arguments of the command from a TCP message.
+   * Parses the arguments of the command from a TCP message. See {@link CommandDecoder} for the
+   * grammar of the message.
    *
    * @param body a {@link String} with the body of the TCP message
    * @return a {@link GameCommand} with the parsed arguments
    * @throws InvalidPropertiesFormatException if the arguments are invalid for this command
    */
   public static GameCommand fromTcpBody(String body) throws InvalidPropertiesFormatException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    return new CommandDecoder().decode(bytes, 0, bytes.length);
+  }
 
-    String[] commandNames = body.split(" ");
-    if (commandNames.length == 0) {
-      throw new InvalidPropertiesFormatException("Command name is missing");
-    }
-    String commandName = commandNames[0];
-
-    GameCommandType commandType;
-    try {
-      commandType = GameCommandType.valueOf(commandName.toUpperCase());
-    } catch (IllegalArgumentException e) {
-      throw new InvalidPropertiesFormatException("Invalid command name: " + commandName);
-    }
-
-    if (!_factoryHandlers.containsKey(commandType)) {
-      throw new InvalidPropertiesFormatException("No handler for command " + commandName);
-    }
-
-    // Split word by word, unless quoted
-    String argsSubstr = body.substring(commandName.length()).stripLeading();
-    Pattern regexPatt = Pattern.compile("([^\"]\\S*|.+?\")\\s*");
-    Matcher matcher = regexPatt.matcher(argsSubstr);
-
-    String[] commandArgs = null;
-    List<String> allMatches = new ArrayList<>();
-    while (matcher.find()) {
-      allMatches.add(matcher.group());
-    }
-
-    if (!allMatches.isEmpty()) {
-      commandArgs = new String[allMatches.size()];
-
-      int i = 0;
-      for (String arg : allMatches) {
-
-        // Remove start and end quotes
-        if (arg.startsWith("\"") && arg.endsWith("\"")) {
-          arg = arg.substring(1, arg.length() - 1);
-        }
-        commandArgs[i] = arg.trim(); // Trim any leading and trailing whitespaces.
-        i++;
-      }
-    }
-
-    return _factoryHandlers.get(commandType).apply(commandArgs);
+  /**
+   * Gets the handler generating a command of a given type from a TCP message.
+   *
+   * @param type the {@link GameCommandType} of the command
+   * @return the {@link CommandFactoryFunction} of the command, or {@code null} if there is none
+   */
+  static CommandFactoryFunction getFactoryHandler(GameCommandType type) {
+    return _factoryHandlers.get(type);
   }
 
   /**
@@ -165,57 +136,100 @@ public abstract class GameCommand {
   }
 
   /**
-   * Converts an argument to a string.
+   * Appends a string argument to the body of a TCP message. The argument is quoted if it contains a
+   * space.
    *
-   * @param arg the argument to convert
-   * @return a {@link String} with the argument converted to a string
+   * @param sb the {@link StringBuilder} holding the body of the message
+   * @param arg the argument to append
    */
-  private String argToString(Object arg) {
-    StringBuilder sb = new StringBuilder();
-    if (arg instanceof String && ((String) arg).contains(" ")) {
+  protected static void appendArg(StringBuilder sb, String arg) {
+    sb.append(' ');
+    if (arg.indexOf(' ') >= 0) {
       sb.append('"').append(arg).append('"');
     } else {
       sb.append(arg);
     }
-    return sb.toString();
   }
 
+  /**
+   * Appends a number argument to the body of a TCP message.
+   *
+   * @param sb the {@link StringBuilder} holding the body of the message
+   * @param arg the argument to append
+   */
+  protected static void appendArg(StringBuilder sb, int arg) {
+    sb.append(' ').append(arg);
+  }
+
+  /**
+   * Appends a letter argument to the body of a TCP message.
+   *
+   * @param sb the {@link StringBuilder} holding the body of the message
+   * @param arg the argument to append
+   */
+  protected static void appendArg(StringBuilder sb, char arg) {
+    sb.append(' ').append(arg);
+  }
+
+  /**
+   * Appends the arguments of the command to the body of a TCP message, each of them preceded by a
+   * space. Commands with arguments override this method, the others keep the default which appends
+   * nothing.
+   *
+   * @param sb the {@link StringBuilder} holding the body of the message, after the command type
+   */
+  protected void appendArgs(StringBuilder sb) {}
+
   /**
    * Converts the command to a string that can be sent over the network.
    *
    * @return a {@link String} with the command converted to a string
    */
   public String toTcpBody() {
-    StringBuilder sb = new StringBuilder();
+    StringBuilder sb = new StringBuilder(64);
     sb.append(type.name());
-
-    if (null != args) {
-      for (Object arg : args) {
-        if (arg instanceof Object[]) {
-          for (int i = 0; i < ((Object[]) arg).length; i++) {
-            sb.append(' ').append(argToString(((Object[]) arg)[i]));
-          }
-        } else {
-          sb.append(' ');
-          sb.append(argToString(arg));
-        }
-      }
-    }
-
+    appendArgs(sb);
     return sb.toString();
   }
 
   /**
-   * Gets the arguments of the command.
+   * Gets the frame of the command in a given wire format. In {@link WireFormat#TEXT}, the frame is
+   * the UTF-8 bytes of {@link #toTcpBody()} followed by the line terminator of the protocol, and in
+   * {@link WireFormat#BINARY}, it is the frame built by {@link BinaryCodec#encode(GameCommand)}.
+   * The command is encoded only once per format, however many recipients it has.
    *
-   * @return a {@link List} with the arguments of the command
+   * @param format the {@link WireFormat} spoken by the recipient
+   * @return a byte array with the frame of the command, shared by all the callers and thus never to
+   *     be modified
    */
-  public List<Object> getArgs() {
-    if (null != args) {
-      return List.copyOf(args);
+  public byte[] toFrame(WireFormat format) {
+    // Concurrent callers may both encode the command, which is harmless.
+    byte[] encoded;
+    if (format == WireFormat.BINARY) {
+      encoded = binaryFrame;
+      if (null == encoded) {
+        encoded = BinaryCodec.encode(this);
+        binaryFrame = encoded;
+      }
     } else {
-      return new LinkedList<>();
+      encoded = textFrame;
+      if (null == encoded) {
+        encoded = (toTcpBody() + "\n").getBytes(StandardCharsets.UTF_8);
+        textFrame = encoded;
+      }
     }
+    return encoded;
+  }
+
+  /**
+   * Gets the frame of the command as a read-only buffer, with its own position so that each
+   * recipient can write it at its own pace. See {@link #toFrame(WireFormat)}.
+   *
+   * @param format the {@link WireFormat} spoken by the recipient
+   * @return a read-only {@link ByteBuffer} over the frame of the command
+   */
+  public ByteBuffer toFrameBuffer(WireFormat format) {
+    return ByteBuffer.wrap(toFrame(format)).asReadOnlyBuffer();
   }
 
   /**
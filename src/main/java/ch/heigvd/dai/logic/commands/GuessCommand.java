@@ -30,6 +30,9 @@ import java.util.Objects;
  */
 public class GuessCommand extends GameCommand {
 
+  /** The consonant guessed by the player. */
+  private final char letter;
+
   /**
    * Default constructor.
    *
@@ -37,17 +40,21 @@ public class GuessCommand extends GameCommand {
    */
   public GuessCommand(char letter) {
     super(GameCommandType.GUESS);
-    args.add(letter);
+    this.letter = letter;
   }
 
   /**
    * Gets the consonant the player is guessing.
    *
-   * @return a {@link char} with the consonant the player is guessing (obtained from the arguments
-   *     of the command)
+   * @return a {@link char} with the consonant the player is guessing
    */
   public char getGuessedLetter() {
-    return (char) args.getFirst();
+    return letter;
+  }
+
+  @Override
+  protected void appendArgs(StringBuilder sb) {
+    appendArg(sb, letter);
   }
 
   /**
@@ -31,6 +31,15 @@ import java.util.Objects;
  */
 public class InfoCommand extends GameCommand {
 
+  /** The puzzle that the players have to solve. */
+  private final String puzzle;
+
+  /** The category of the puzzle. */
+  private final String category;
+
+  /** The letters that have already been used. */
+  private final String usedLetters;
+
   /**
    * Default constructor.
    *
@@ -40,39 +49,43 @@ public class InfoCommand extends GameCommand {
    */
   public InfoCommand(String puzzle, String category, char[] usedLetters) {
     super(GameCommandType.INFO);
-    args.add(puzzle);
-    args.add(category);
-    args.add(new String(usedLetters));
+    this.puzzle = puzzle;
+    this.category = category;
+    this.usedLetters = new String(usedLetters);
   }
 
   /**
    * Gets the puzzle that the players have to solve.
    *
-   * @return a {@link String} with the puzzle that the players have to solve (obtained from the
-   *     arguments of the command)
+   * @return a {@link String} with the puzzle that the players have to solve
    */
   public String getPuzzle() {
-    return (String) args.getFirst();
+    return puzzle;
   }
 
   /**
    * Gets the category of the puzzle.
    *
-   * @return a {@link String} with the category of the puzzle (obtained from the arguments of the
-   *     command)
+   * @return a {@link String} with the category of the puzzle
    */
   public String getCategory() {
-    return (String) args.get(1);
+    return category;
   }
 
   /**
    * Gets the letters that have already been used.
    *
-   * @return a {@link String} with the letters that have already been used (obtained from the
-   *     arguments of the command)
+   * @return a {@link String} with the letters that have already been used
    */
   public String getUsedLetters() {
-    return ((String) args.get(2));
+    return usedLetters;
+  }
+
+  @Override
+  protected void appendArgs(StringBuilder sb) {
+    appendArg(sb, puzzle);
+    appendArg(sb, category);
+    appendArg(sb, usedLetters);
   }
 
   /**
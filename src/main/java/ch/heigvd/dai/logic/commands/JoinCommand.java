@@ -30,24 +30,59 @@ import java.util.Objects;
  */
 public class JoinCommand extends GameCommand {
 
+  /** The username of the player. */
+  private final String username;
+
+  /** The name of the match to join, or {@code null} to let the server pick one. */
+  private final String matchName;
+
   /**
-   * Default constructor.
+   * Default constructor. The server picks the match the player joins.
    *
    * @param username a {@link String} with the username of the player that joined the game
    */
   public JoinCommand(String username) {
+    this(username, null);
+  }
+
+  /**
+   * Constructor to join a specific match.
+   *
+   * @param username a {@link String} with the username of the player that joined the game
+   * @param matchName a {@link String} with the name of the match to join (created if it does not
+   *     exist yet), or {@code null} to let the server pick one
+   */
+  public JoinCommand(String username, String matchName) {
     super(GameCommandType.JOIN);
-    args.add(username);
+    this.username = username;
+    this.matchName = matchName;
   }
 
   /**
    * Gets the username of the player that joined the game.
    *
-   * @return a {@link String} with the username of the player that joined the game (obtained from
-   *     the arguments of the command)
+   * @return a {@link String} with the username of the player that joined the game
    */
   public String getUsername() {
-    return (String) args.getFirst();
+    return username;
+  }
+
+  /**
+   * Gets the name of the match the player wants to join.
+   *
+   * @return a {@link String} with the name of the match, or {@code null} if the server should pick
+   *     one
+   */
+  public String getMatchName() {
+    return matchName;
+  }
+
+  @Override
+  protected void appendArgs(StringBuilder sb) {
+    appendArg(sb, username);
+    if (null != matchName) {
+      appendArg(sb, matchName);
+    }
   }
 
   /**
@@ -58,7 +93,10 @@ public class JoinCommand extends GameCommand {
    * @throws InvalidPropertiesFormatException if the arguments are invalid for this command
    */
   public static GameCommand fromTcpBody(String[] args) throws InvalidPropertiesFormatException {
-    if (null == args || args.length != 1 || Arrays.stream(args).anyMatch(Objects::isNull)) {
+    if (null == args
+        || args.length < 1
+        || args.length > 2
+        || Arrays.stream(args).anyMatch(Objects::isNull)) {
       throw new InvalidPropertiesFormatException(
           "[JoinCommand] Command did not receive a player username");
     }
@@ -67,6 +105,10 @@ public class JoinCommand extends GameCommand {
       throw new InvalidPropertiesFormatException("[JoinCommand] Invalid player username");
     }
 
-    return new JoinCommand(args[0]);
+    if (args.length == 2 && args[1].isEmpty()) {
+      throw new InvalidPropertiesFormatException("[JoinCommand] Invalid match name");
+    }
+
+    return new JoinCommand(args[0], args.length == 2 ? args[1] : null);
   }
 }
@@ -30,6 +30,18 @@ import java.util.Objects;
  */
 public class LastCommand extends GameCommand {
 
+  /** The time the player has to play the last round. */
+  private final int timeout;
+
+  /** The puzzle that the player has to solve. */
+  private final String puzzle;
+
+  /** The category of the puzzle. */
+  private final String category;
+
+  /** The letters already revealed on the puzzle. */
+  private final String initialLetters;
+
   /**
    * Default constructor.
    *
@@ -40,50 +52,54 @@ public class LastCommand extends GameCommand {
    */
   public LastCommand(int timeout, String puzzle, String category, String initialLetters) {
     super(GameCommandType.LAST);
-    args.add(timeout);
-    args.add(puzzle);
-    args.add(category);
-    args.add(initialLetters);
+    this.timeout = timeout;
+    this.puzzle = puzzle;
+    this.category = category;
+    this.initialLetters = initialLetters;
   }
 
   /**
    * Gets the time the player has to play the last round.
    *
-   * @return an {@code int} with the time the player has to play the last round (obtained from the
-   *     arguments of the command)
+   * @return an {@code int} with the time the player has to play the last round
    */
   public int getTimeout() {
-    return (int) args.getFirst();
+    return timeout;
   }
 
   /**
    * Gets the puzzle that the player has to solve.
    *
-   * @return a {@link String} with the puzzle that the player has to solve (obtained from the
-   *     arguments of the command)
+   * @return a {@link String} with the puzzle that the player has to solve
    */
   public String getPuzzle() {
-    return (String) args.get(1);
+    return puzzle;
   }
 
   /**
    * Gets the category of the puzzle.
    *
-   * @return a {@link String} with the category of the puzzle (obtained from the arguments of the
-   *     command)
+   * @return a {@link String} with the category of the puzzle
    */
   public String getCategory() {
-    return (String) args.get(2);
+    return category;
   }
 
   /**
    * Gets the initial letters of the puzzle.
    *
-   * @return a {@link String} with the initial letters of the puzzle (obtained from the arguments of
-   *     the command)
+   * @return a {@link String} with the initial letters of the puzzle
    */
   public String getInitialLetters() {
-    return (String) args.get(3);
+    return initialLetters;
+  }
+
+  @Override
+  protected void appendArgs(StringBuilder sb) {
+    appendArg(sb, timeout);
+    appendArg(sb, puzzle);
+    appendArg(sb, category);
+    appendArg(sb, initialLetters);
   }
 
   /**
@@ -19,11 +19,8 @@
 package ch.heigvd.dai.logic.commands;
 
 import java.util.Arrays;
-import java.util.HashSet;
 import java.util.InvalidPropertiesFormatException;
-import java.util.List;
 import java.util.Objects;
-import java.util.Set;
 
 /**
  * Represents the command that the player sends with the letters they are trying to guess on the
@@ -36,6 +33,15 @@ public class LettersCommand extends GameCommand {
 
   public static final int NUMBER_OF_LETTERS = 5;
 
+  /** The letters the player is trying to guess. */
+  private final String letters;
+
+  /**
+   * The letters the player is trying to guess, in upper case, as a mask where the bit {@code i}
+   * stands for the letter {@code 'A' + i}.
+   */
+  private final int letterMask;
+
   /**
    * Default constructor.
    *
@@ -43,23 +49,27 @@ public class LettersCommand extends GameCommand {
    */
   public LettersCommand(String letters) {
     super(GameCommandType.LETTERS);
-    args.add(letters);
+    this.letters = letters;
+
+    int mask = 0;
+    for (int i = 0; i < letters.length(); ++i) {
+      char upperLetter = Character.toUpperCase(letters.charAt(i));
+      if (upperLetter >= 'A' && upperLetter <= 'Z') {
+        mask |= 1 << (upperLetter - 'A');
+      }
+    }
+    letterMask = mask;
   }
 
   /**
-   * Gets the letters the player is trying to guess.
+   * Gets the letters the player is trying to guess, without allocating anything. Any character that
+   * is not a letter is left out.
    *
-   * @return a {@link String} with the letters the player is trying to guess (obtained from the
-   *     arguments of the command)
+   * @return an {@code int} mask where the bit {@code i} is set if the player guessed the letter
+   *     {@code 'A' + i}
    */
-  public Character[] getGuessedLetters() {
-    char[] letters = ((String) args.getFirst()).toCharArray();
-    Character[] argsCopy = new Character[letters.length];
-
-    for (int i = 0; i < letters.length; ++i) {
-      argsCopy[i] = letters[i];
-    }
-    return argsCopy;
+  public int getLetterMask() {
+    return letterMask;
   }
 
   /**
@@ -68,30 +78,47 @@ public class LettersCommand extends GameCommand {
    * @return {@code true} if the string of letters has any repeated letters, {@code false} otherwise
    */
   public boolean hasRepeatedLetters() {
-    List<Character> list = List.of(getGuessedLetters());
-    Set<Character> set = new HashSet<>(list);
-    return set.size() < list.size();
+    for (int i = 1; i < letters.length(); ++i) {
+      if (letters.lastIndexOf(letters.charAt(i), i - 1) >= 0) {
+        return true;
+      }
+    }
+
+    return false;
   }
 
   /**
-   * Checks if the string of letters has any of the letters in the given string.
+   * Checks if the string of letters has any of the letters in the given string. The letters of the
+   * command are compared in upper case, like the letters of the puzzles.
    *
    * @param letters a {@link String} with the letters to check for
    * @return {@code true} if the string of letters has any of the letters in the given string,
    *     {@code false} otherwise
    */
   public boolean hasAnyOf(String letters) {
-    for (Object arg : args) {
-      for (int j = 0; j < letters.length(); ++j) {
-        if (arg.equals(letters.charAt(j))) {
-          return true;
-        }
+    for (int i = 0; i < this.letters.length(); ++i) {
+      if (letters.indexOf(Character.toUpperCase(this.letters.charAt(i))) >= 0) {
+        return true;
       }
     }
 
     return false;
   }
 
+  /**
+   * Gets the letters the player is trying to guess, as they were sent.
+   *
+   * @return a {@link String} with the letters the player is trying to guess
+   */
+  public String getLetters() {
+    return letters;
+  }
+
+  @Override
+  protected void appendArgs(StringBuilder sb) {
+    appendArg(sb, letters);
+  }
+
   /**
    * Parses the arguments of the command from a TCP message.
    *
@@ -32,6 +32,9 @@ import java.util.Objects;
  */
 public class LobbyCommand extends GameCommand {
 
+  /** The usernames of the players in the lobby. */
+  private final String[] players;
+
   /**
    * Default constructor.
    *
@@ -39,17 +42,23 @@ public class LobbyCommand extends GameCommand {
    */
   public LobbyCommand(String[] players) {
     super(GameCommandType.LOBBY);
-    args.add(players);
+    this.players = players.clone();
   }
 
   /**
    * Gets the usernames of the players in the lobby.
    *
-   * @return a {@link String} array with the usernames of the players in the lobby (obtained from
-   *     the arguments of the command)
+   * @return a {@link String} array with the usernames of the players in the lobby
    */
   public String[] getPlayers() {
-    return ((String[]) args.getFirst()).clone();
+    return players.clone();
+  }
+
+  @Override
+  protected void appendArgs(StringBuilder sb) {
+    for (String player : players) {
+      appendArg(sb, player);
+    }
   }
 
   /**
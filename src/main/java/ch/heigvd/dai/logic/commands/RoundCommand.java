@@ -30,6 +30,9 @@ import java.util.Objects;
  */
 public class RoundCommand extends GameCommand {
 
+  /** The puzzle of the round, with the letters revealed so far. */
+  private final String puzzle;
+
   /**
    * Default constructor.
    *
@@ -37,17 +40,21 @@ public class RoundCommand extends GameCommand {
    */
   public RoundCommand(String puzzle) {
     super(GameCommandType.ROUND);
-    args.add(puzzle);
+    this.puzzle = puzzle;
   }
 
   /**
    * Gets the new puzzle to guess.
    *
-   * @return a {@link String} with the new puzzle to guess (obtained from the arguments of the
-   *     command)
+   * @return a {@link String} with the new puzzle to guess
    */
   public String getPuzzle() {
-    return (String) args.getFirst();
+    return puzzle;
+  }
+
+  @Override
+  protected void appendArgs(StringBuilder sb) {
+    appendArg(sb, puzzle);
   }
 
   /**
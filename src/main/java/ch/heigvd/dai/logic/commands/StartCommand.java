@@ -30,6 +30,15 @@ import java.util.Objects;
  */
 public class StartCommand extends GameCommand {
 
+  /** The number of the round that is starting. */
+  private final int roundNumber;
+
+  /** The puzzle that the players have to solve. */
+  private final String puzzle;
+
+  /** The category of the puzzle. */
+  private final String category;
+
   /**
    * Default constructor.
    *
@@ -39,39 +48,43 @@ public class StartCommand extends GameCommand {
    */
   public StartCommand(int roundNumber, String puzzle, String category) {
     super(GameCommandType.START);
-    args.add(roundNumber);
-    args.add(puzzle);
-    args.add(category);
+    this.roundNumber = roundNumber;
+    this.puzzle = puzzle;
+    this.category = category;
   }
 
   /**
    * Gets the number of the round that is starting.
    *
-   * @return an {@code int} with the number of the round that is starting (obtained from the
-   *     arguments of the command)
+   * @return an {@code int} with the number of the round that is starting
    */
   public int getRoundNumber() {
-    return (int) args.getFirst();
+    return roundNumber;
   }
 
   /**
    * Gets the puzzle that the players have to solve.
    *
-   * @return a {@link String} with the puzzle that the players have to solve (obtained from the
-   *     arguments of the command)
+   * @return a {@link String} with the puzzle that the players have to solve
    */
   public String getPuzzle() {
-    return (String) args.get(1);
+    return puzzle;
   }
 
   /**
    * Gets the category of the puzzle.
    *
-   * @return a {@link String} with the category of the puzzle (obtained from the arguments of the
-   *     command)
+   * @return a {@link String} with the category of the puzzle
    */
   public String getCategory() {
-    return (String) args.get(2);
+    return category;
+  }
+
+  @Override
+  protected void appendArgs(StringBuilder sb) {
+    appendArg(sb, roundNumber);
+    appendArg(sb, puzzle);
+    appendArg(sb, category);
   }
 
   /**
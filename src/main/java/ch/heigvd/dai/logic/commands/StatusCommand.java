@@ -31,6 +31,9 @@ import java.util.Objects;
  */
 public class StatusCommand extends GameCommand {
 
+  /** The status returned to the other end. */
+  private final StatusCode status;
+
   /**
    * Default constructor.
    *
@@ -38,17 +41,21 @@ public class StatusCommand extends GameCommand {
    */
   public StatusCommand(StatusCode status) {
     super(GameCommandType.STATUS);
-    args.add(status);
+    this.status = status;
   }
 
   /**
    * Gets the status to return to the player.
    *
-   * @return a {@link StatusCode} with the status to return to the player (obtained from the
-   *     arguments of the command)
+   * @return a {@link StatusCode} with the status to return to the player
    */
   public StatusCode getStatus() {
-    return (StatusCode) args.getFirst();
+    return status;
+  }
+
+  @Override
+  protected void appendArgs(StringBuilder sb) {
+    appendArg(sb, status.name());
   }
 
   /**
@@ -30,6 +30,12 @@ import java.util.Objects;
  */
 public class TurnCommand extends GameCommand {
 
+  /** The money the player can win in this turn. */
+  private final int turnMoney;
+
+  /** The total money the player has. */
+  private final int totalMoney;
+
   /**
    * Default constructor.
    *
@@ -38,28 +44,32 @@ public class TurnCommand extends GameCommand {
    */
   public TurnCommand(int turnMoney, int totalMoney) {
     super(GameCommandType.TURN);
-    args.add(turnMoney);
-    args.add(totalMoney);
+    this.turnMoney = turnMoney;
+    this.totalMoney = totalMoney;
   }
 
   /**
    * Gets the money the player can win in this turn.
    *
-   * @return an {@code int} with the money the player can win in this turn (obtained from the
-   *     arguments of the command)
+   * @return an {@code int} with the money the player can win in this turn
    */
   public int getTurnMoney() {
-    return (int) args.getFirst();
+    return turnMoney;
   }
 
   /**
    * Gets the total money the player has.
    *
-   * @return an {@code int} with the total money the player has (obtained from the arguments of the
-   *     command)
+   * @return an {@code int} with the total money the player has
    */
   public int getTotalMoney() {
-    return (int) args.get(1);
+    return totalMoney;
+  }
+
+  @Override
+  protected void appendArgs(StringBuilder sb) {
+    appendArg(sb, turnMoney);
+    appendArg(sb, totalMoney);
   }
 
   /**
@@ -30,6 +30,9 @@ import java.util.Objects;
  */
 public class VowelCommand extends GameCommand {
 
+  /** The vowel bought by the player. */
+  private final char vowel;
+
   /**
    * Default constructor.
    *
@@ -37,17 +40,21 @@ public class VowelCommand extends GameCommand {
    */
   public VowelCommand(char vowel) {
     super(GameCommandType.VOWEL);
-    args.add(vowel);
+    this.vowel = vowel;
   }
 
   /**
    * Gets the vowel selected by the player, as stored in this object.
    *
-   * @return a {@code char} with the vowel selected by the player (obtained from the arguments of
-   *     the command)
+   * @return a {@code char} with the vowel selected by the player
    */
   public char getVowel() {
-    return (char) args.getFirst();
+    return vowel;
+  }
+
+  @Override
+  protected void appendArgs(StringBuilder sb) {
+    appendArg(sb, vowel);
   }
 
   /**
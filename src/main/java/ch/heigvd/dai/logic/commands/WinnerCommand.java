@@ -30,6 +30,9 @@ import java.util.Objects;
  */
 public class WinnerCommand extends GameCommand {
 
+  /** The username of the player that won the rounds. */
+  private final String username;
+
   /**
    * Default constructor.
    *
@@ -37,7 +40,7 @@ public class WinnerCommand extends GameCommand {
    */
   public WinnerCommand(String username) {
     super(GameCommandType.WINNER);
-    args.add(username);
+    this.username = username;
   }
 
   /**
@@ -46,7 +49,12 @@ public class WinnerCommand extends GameCommand {
    * @return a {@link String} with the username of the winner from the arguments of the command
    */
   public String getUsername() {
-    return (String) args.getFirst();
+    return username;
+  }
+
+  @Override
+  protected void appendArgs(StringBuilder sb) {
+    appendArg(sb, username);
   }
 
   /**
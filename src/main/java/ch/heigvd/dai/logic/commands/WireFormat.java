@@ -0,0 +1,36 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.commands;
+
+/**
+ * Enumerates the encodings a command can be sent with over the network.
+ *
+ * <p>Every connection starts with the {@link #TEXT} protocol. A client opts in to the {@link
+ * #BINARY} protocol by sending the handshake of {@link BinaryCodec} as its very first line.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+public enum WireFormat {
+  /** One line of UTF-8 text per command, see {@link GameCommand#toTcpBody()}. */
+  TEXT,
+
+  /** One length-prefixed binary frame per command, see {@link BinaryCodec}. */
+  BINARY
+}
@@ -19,33 +19,64 @@
 package ch.heigvd.dai.logic.server;
 
 import ch.heigvd.dai.Player;
+import ch.heigvd.dai.logging.Logger;
 import ch.heigvd.dai.logic.PlayerState;
 import ch.heigvd.dai.logic.StatusCode;
 import ch.heigvd.dai.logic.commands.EndCommand;
 import ch.heigvd.dai.logic.commands.FillCommand;
 import ch.heigvd.dai.logic.commands.GameCommand;
+import ch.heigvd.dai.logic.commands.GameCommandType;
 import ch.heigvd.dai.logic.commands.GuessCommand;
 import ch.heigvd.dai.logic.commands.InfoCommand;
+import ch.heigvd.dai.logic.commands.JoinCommand;
 import ch.heigvd.dai.logic.commands.LastCommand;
 import ch.heigvd.dai.logic.commands.LettersCommand;
 import ch.heigvd.dai.logic.commands.LobbyCommand;
+import ch.heigvd.dai.logic.commands.QuitCommand;
 import ch.heigvd.dai.logic.commands.RoundCommand;
 import ch.heigvd.dai.logic.commands.StartCommand;
 import ch.heigvd.dai.logic.commands.StatusCommand;
 import ch.heigvd.dai.logic.commands.TurnCommand;
 import ch.heigvd.dai.logic.commands.VowelCommand;
 import ch.heigvd.dai.logic.commands.WinnerCommand;
+import ch.heigvd.dai.logic.commands.WireFormat;
 import ch.heigvd.dai.logic.server.puzzle.Puzzle;
+import ch.heigvd.dai.logic.server.puzzle.PuzzleCatalogue;
+import ch.heigvd.dai.logic.server.puzzle.PuzzleDeck;
+import ch.heigvd.dai.logic.server.puzzle.PuzzleHistory;
 import ch.heigvd.dai.logic.server.wheel.Wedge;
-import ch.heigvd.dai.logic.server.wheel.Wheel;
+import ch.heigvd.dai.logic.server.wheel.WheelConfiguration;
+import ch.heigvd.dai.metrics.CommandMetrics;
+import ch.heigvd.dai.metrics.ServerMetrics;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 
 /**
  * Core class that represents a game match, with all its players, the wheel, the current round, the
  * current puzzle, and the current phase.
  *
+ * <p>A game match is an actor: its state is only ever touched by the tasks passed to {@link
+ * #submit(Supplier)}, which are run one at a time from the mailbox of the match. The game logic
+ * thus needs no lock, while different matches run in parallel. Only the pending commands and their
+ * listeners can be accessed from any thread, so that connections can collect what the match sent
+ * them.
+ *
+ * <p>All the randomness of a match derives from its seed. Along with the commands of the players
+ * and the drawn puzzles, which a match records in its {@link MatchLog} if any, the seed is enough
+ * to replay the match exactly with {@link MatchReplay}. The puzzles are drawn with a random
+ * generator of their own, so that taking the recorded puzzles instead leaves the wheel spins of the
+ * replay unchanged.
+ *
  * @author Pedro Alves da Silva
  * @author Gonçalo Carvalheiro Heleno
  */
@@ -55,27 +86,154 @@ public class GameMatch {
   public static final int NORMAL_ROUNDS_BEFORE_LAST_ROUND = 5;
   public static final int LAST_ROUND_TIMEOUT = 15;
   public static final int MAX_PLAYERS = 5;
+  private static final Logger LOGGER = new Logger("GameMatch");
+  private final String name;
   private final CopyOnWriteArrayList<Player> connectedPlayers;
-  private final ConcurrentHashMap<Player, ArrayList<GameCommand>> pendingCommands;
-  private GamePhase currentPhase;
+  private final ConcurrentHashMap<Player, Queue<GameCommand>> pendingCommands;
+  private final ConcurrentHashMap<Player, Runnable> pendingCommandsListeners;
+  private final Executor executor;
+  private final MatchMailbox mailbox;
+  private boolean retired;
+  private volatile GamePhase currentPhase;
   private int currPlayerIndex;
-  private final Wheel wheel;
+  private final WheelConfiguration wheels;
+  private final long seed;
+  private final SplittableRandom random;
+  private final SplittableRandom puzzleRandom;
+  private final MatchLog log;
+  private final Logger logger;
+  private final CommandMetrics metrics;
+  private Iterator<MatchLog.PuzzleEntry> replayedPuzzles;
+  private PuzzleDeck puzzleDeck;
+  private final PuzzleHistory puzzleHistory;
   private Puzzle roundPuzzle;
   private int currentRound;
 
   /**
    * Default constructor for a game match. Initializes the attributes of the game match with default
    * that are adequate for a new game.
+   *
+   * @param name the name identifying the game match on the server
+   * @param executor the {@link Executor} running the tasks submitted to the match
    */
-  public GameMatch() {
+  public GameMatch(String name, Executor executor) {
+    this(name, executor, ThreadLocalRandom.current().nextLong());
+  }
+
+  /**
+   * Constructor for a game match whose randomness derives from the given seed. The match is
+   * recorded if a directory was set with {@link MatchLog#setDirectory(java.nio.file.Path)}.
+   *
+   * @param name the name identifying the game match on the server
+   * @param executor the {@link Executor} running the tasks submitted to the match
+   * @param seed the seed of all the randomness of the match
+   */
+  public GameMatch(String name, Executor executor, long seed) {
+    this(name, executor, seed, null);
+  }
+
+  /**
+   * Constructor for a game match whose randomness derives from the given seed, and which keeps
+   * track of the puzzles seen by its players in the given history. Such a match keeps drawing from
+   * the catalogue of that history, even if the server loads another one meanwhile.
+   *
+   * @param name the name identifying the game match on the server
+   * @param executor the {@link Executor} running the tasks submitted to the match
+   * @param seed the seed of all the randomness of the match
+   * @param history the {@link PuzzleHistory} of the players, or {@code null} to share the one of
+   *     the server
+   */
+  public GameMatch(String name, Executor executor, long seed, PuzzleHistory history) {
+    this.name = name;
     connectedPlayers = new CopyOnWriteArrayList<>();
-    wheel = new Wheel();
+    wheels = WheelConfiguration.getCurrent();
+    this.seed = seed;
+    random = new SplittableRandom(seed);
+    puzzleRandom = random.split();
+    puzzleHistory = null == history ? Puzzle.getHistory() : history;
+    log =
+        MatchLog.create(
+            name,
+            seed,
+            MatchLog.settingsFingerprint(wheels, Puzzle.getCategoryWeights()),
+            puzzleHistory.getCatalogue().size());
+    metrics = CommandMetrics.getGlobal();
+    logger = LOGGER.forMatch(name);
+    puzzleDeck = new PuzzleDeck(puzzleHistory.getCatalogue(), puzzleRandom);
     currPlayerIndex = 0;
     currentPhase = GamePhase.WAITING_FOR_PLAYERS;
     pendingCommands = new ConcurrentHashMap<>();
+    pendingCommandsListeners = new ConcurrentHashMap<>();
+    this.executor = executor;
+    mailbox = new MatchMailbox(executor);
+    retired = false;
     currentRound = 0;
   }
 
+  /**
+   * Submits a task to the mailbox of the game match. The task runs after all the tasks submitted
+   * before it, and never concurrently with another task of the same match.
+   *
+   * @param task the {@link Supplier} to run on the match
+   * @param <T> the type of the result of the task
+   * @return a {@link CompletableFuture} completed with the result of the task, or exceptionally if
+   *     the task threw
+   */
+  public <T> CompletableFuture<T> submit(Supplier<T> task) {
+    return CompletableFuture.supplyAsync(task, mailbox);
+  }
+
+  /**
+   * Returns the executor running the tasks submitted to the match, the match being pinned to it.
+   *
+   * @return the {@link Executor} of the game match
+   */
+  public Executor getExecutor() {
+    return executor;
+  }
+
+  /**
+   * Marks the game match as removed from its registry. No player can join a retired match. Needs to
+   * be called from a task of the match.
+   */
+  void retire() {
+    retired = true;
+    if (null != log) {
+      log.close();
+    }
+  }
+
+  /**
+   * Returns the seed of all the randomness of the match.
+   *
+   * @return the seed of the game match
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Makes the match draw the given puzzles, in order, instead of avoiding the puzzles seen by its
+   * players, and switch to a new deck at each recorded switch of catalogue. Used to replay a match,
+   * the puzzles seen by the players being unknown.
+   *
+   * @param puzzles an {@link Iterator} over the recorded {@link MatchLog.PuzzleEntry puzzle and
+   *     catalogue entries}, in the order of the log
+   */
+  void replayPuzzles(Iterator<MatchLog.PuzzleEntry> puzzles) {
+    replayedPuzzles = puzzles;
+  }
+
+  /**
+   * Checks if the game match was removed from its registry. Needs to be called from a task of the
+   * match.
+   *
+   * @return {@code true} if the match is retired, {@code false} otherwise
+   */
+  boolean isRetired() {
+    return retired;
+  }
+
   /**
    * Adds a player to the game match. If the player is successfully added, a message is sent to all
    * other players to inform them of the new player.
@@ -94,19 +252,25 @@ public class GameMatch {
         }
       }
 
-      Player newPlayer = new Player(username);
-      connectedPlayers.add(newPlayer);
-      pendingCommands.put(newPlayer, new ArrayList<>());
+      if (joinResult == StatusCode.OK) {
+        Player newPlayer = new Player(username);
+        connectedPlayers.add(newPlayer);
+        pendingCommands.put(newPlayer, new ConcurrentLinkedQueue<>());
 
-      // Let the other players know someone joined.
-      queueOthersGlobalCommand(newPlayer, new StatusCommand(StatusCode.PLAYER_JOINED));
-      queueOthersGlobalCommand(newPlayer, new LobbyCommand(getPlayers()));
+        // Let the other players know someone joined.
+        queueOthersGlobalCommand(newPlayer, new StatusCommand(StatusCode.PLAYER_JOINED));
+        queueOthersGlobalCommand(newPlayer, new LobbyCommand(getPlayers()));
+      }
     } else {
       joinResult = StatusCode.FULL;
     }
 
+    if (null != log) {
+      log.command(username, new JoinCommand(username, null), new StatusCommand(joinResult));
+    }
+
     // Force start game if lobby is full
-    if (connectedPlayers.size() == MAX_PLAYERS) {
+    if (joinResult == StatusCode.OK && connectedPlayers.size() == MAX_PLAYERS) {
       startGame();
     }
 
@@ -131,12 +295,23 @@ public class GameMatch {
     }
 
     if (playerFound) {
-      connectedPlayers.remove(playerIndex);
+      if (null != log) {
+        log.command(username, new QuitCommand(), null);
+      }
+
+      Player player = connectedPlayers.remove(playerIndex);
+      Queue<GameCommand> dropped = pendingCommands.remove(player);
+      GameCommand droppedCommand;
+      // Poll rather than iterate, the connection may still be taking the commands meanwhile.
+      while (null != dropped && null != (droppedCommand = dropped.poll())) {
+        metrics.broadcastDequeued(droppedCommand.getType());
+      }
+      pendingCommandsListeners.remove(player);
       queueGlobalCommand(new LobbyCommand(getPlayers()));
 
       if (connectedPlayers.isEmpty()) {
         currentPhase = GamePhase.WAITING_FOR_PLAYERS;
-        System.out.println("No more players. Restarting match...");
+        logger.info(() -> "No more players, restarting match");
         return;
       }
 
@@ -152,6 +327,24 @@ public class GameMatch {
     }
   }
 
+  /**
+   * Returns the name identifying the game match on the server.
+   *
+   * @return a {@link String} with the name of the game match
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Checks if no player is connected to the game match.
+   *
+   * @return {@code true} if no player is connected, {@code false} otherwise
+   */
+  public boolean isEmpty() {
+    return connectedPlayers.isEmpty();
+  }
+
   /**
    * Returns the usernames of all the players connected to the game match.
    *
@@ -185,6 +378,43 @@ public class GameMatch {
     return player;
   }
 
+  /**
+   * Gets the player whose turn it is.
+   *
+   * @return the {@link Player} whose turn it is, or {@code null} if the game is not ongoing
+   */
+  public Player getCurrentPlayer() {
+    if (currentPhase == GamePhase.NORMAL_TURN || currentPhase == GamePhase.LAST_TURN) {
+      return connectedPlayers.get(currPlayerIndex);
+    }
+
+    return null;
+  }
+
+  /**
+   * Gets the current phase of the game. Can be called from any thread, without going through the
+   * mailbox of the match.
+   *
+   * @return the {@link GamePhase} of the game match
+   */
+  public GamePhase getPhase() {
+    return currentPhase;
+  }
+
+  /**
+   * Gets the solution of the puzzle currently being played. Only meant for the bots of the {@link
+   * MatchSimulator}, never for players.
+   *
+   * @return a {@link String} with the full puzzle or {@code null} if it's not a guessing phase
+   */
+  String getSolution() {
+    if (currentPhase == GamePhase.NORMAL_TURN || currentPhase == GamePhase.LAST_TURN) {
+      return roundPuzzle.getFullPuzzle();
+    }
+
+    return null;
+  }
+
   /**
    * Gets the pending commands for a given player.
    *
@@ -193,14 +423,35 @@ public class GameMatch {
    *     or a {@code null} if there are no pending commands
    */
   public GameCommand[] getPendingCommands(Player player) {
-    if (pendingCommands.containsKey(player)) {
-      GameCommand[] commands = new GameCommand[pendingCommands.get(player).size()];
-      pendingCommands.get(player).toArray(commands);
-      pendingCommands.get(player).clear();
-      return commands;
-    } else {
+    Queue<GameCommand> queue = pendingCommands.get(player);
+    if (null == queue) {
       return null;
     }
+
+    ArrayList<GameCommand> commands = new ArrayList<>();
+    GameCommand command;
+    while (null != (command = queue.poll())) {
+      metrics.broadcastDequeued(command.getType());
+      commands.add(command);
+    }
+    return commands.toArray(new GameCommand[0]);
+  }
+
+  /**
+   * Sets the listener that is notified every time a command is queued for a given player. This
+   * allows the connection of the player to send the command right away, instead of polling {@link
+   * #getPendingCommands(Player)}.
+   *
+   * <p>The listener is called on the thread that queued the command, so it should only schedule the
+   * sending and return quickly.
+   *
+   * @param player the player to listen to
+   * @param listener a {@link Runnable} to call when a command is queued for the player
+   */
+  public void setPendingCommandsListener(Player player, Runnable listener) {
+    if (pendingCommands.containsKey(player)) {
+      pendingCommandsListeners.put(player, listener);
+    }
   }
 
   /**
@@ -213,6 +464,110 @@ public class GameMatch {
     return !connectedPlayers.get(currPlayerIndex).getUsername().equals(player.getUsername());
   }
 
+  /**
+   * Applies a command sent by a player of the match, and records it if the match is recorded. Needs
+   * to be called from a task of the match.
+   *
+   * @param player the {@link Player} who sent the command
+   * @param command the {@link GameCommand} sent by the player, other than QUIT
+   * @return the {@link GameCommand} to send back to the player, or {@code null} if the command does
+   *     not expect a direct response
+   */
+  public GameCommand handle(Player player, GameCommand command) {
+    GameCommand response = null;
+
+    // Handle the request and setup appropriate response.
+    switch (command.getType()) {
+      case JOIN -> {
+        response = new StatusCommand(StatusCode.KO);
+        logger.debug(player.getUsername(), command.getType(), () -> "tried to join again");
+      }
+
+      case GO -> {
+        if (!startGame()) {
+          logger.debug(
+              player.getUsername(),
+              command.getType(),
+              () -> "tried to start the match, but it was already ongoing");
+        } else {
+          logger.info(player.getUsername(), () -> "started the match");
+        }
+      }
+
+      case LETTERS -> {
+        if (isNotMyTurn(player)) {
+          logger.debug(
+              player.getUsername(),
+              command.getType(),
+              () -> "tried to play the last round, but it's not their turn");
+          response = new StatusCommand(StatusCode.KO);
+        } else {
+          response = guessLastRoundLetters((LettersCommand) command);
+        }
+      }
+
+      case GUESS -> {
+        if (isNotMyTurn(player)) {
+          logger.debug(
+              player.getUsername(),
+              command.getType(),
+              () -> "tried to guess a consonant, but it's not their turn");
+          response = new StatusCommand(StatusCode.KO);
+        } else {
+          response = guessConsonant((GuessCommand) command);
+        }
+      }
+
+      case FILL -> {
+        if (isNotMyTurn(player)) {
+          logger.debug(
+              player.getUsername(),
+              command.getType(),
+              () -> "tried to fill in the puzzle, but it's not their turn");
+          response = new StatusCommand(StatusCode.KO);
+        } else {
+          response = solvePuzzle((FillCommand) command);
+        }
+      }
+
+      case SKIP -> {
+        if (isNotMyTurn(player)) {
+          logger.debug(
+              player.getUsername(),
+              command.getType(),
+              () -> "tried to skip their turn, but it's not their turn");
+          response = new StatusCommand(StatusCode.KO);
+        } else {
+          logger.debug(player.getUsername(), command.getType(), () -> "skipped their turn");
+          skipTurn(player);
+        }
+      }
+
+      case VOWEL -> {
+        if (isNotMyTurn(player)) {
+          logger.debug(
+              player.getUsername(),
+              command.getType(),
+              () -> "tried to buy a vowel, but it's not their turn");
+          response = new StatusCommand(StatusCode.KO);
+        } else {
+          logger.debug(player.getUsername(), command.getType(), () -> "bought a vowel");
+          response = guessVowel((VowelCommand) command);
+        }
+      }
+
+      default -> {
+        logger.warn(() -> "Command " + command.getType() + " was uncaught");
+        response = new StatusCommand(StatusCode.KO);
+      }
+    }
+
+    if (null != log) {
+      log.command(player.getUsername(), command, response);
+    }
+    return response;
+  }
+
   /**
    * Starts the game. If there are no players connected or the game is not in the correct phase, the
    * game is not started.
@@ -224,6 +579,10 @@ public class GameMatch {
         && (currentPhase == GamePhase.WAITING_FOR_PLAYERS
             || currentPhase == GamePhase.START_NEW_TURN)) {
       currentPhase = GamePhase.NORMAL_TURN;
+      for (Player p : connectedPlayers) {
+        // The player of the last round of the previous game is left in the second guess phase.
+        p.setState(PlayerState.CHILLING);
+      }
       currPlayerIndex = -1; // Will change when calling advanceRound()
       currentRound = 0; // Will change when calling advanceRound()
       advanceRound();
@@ -241,7 +600,7 @@ public class GameMatch {
    */
   public Wedge spinTheWheel() {
     if (currentPhase == GamePhase.NORMAL_TURN) {
-      return wheel.spinTheWheel();
+      return wheels.getWheel(currentRound).spinTheWheel(random);
     }
 
     return null;
@@ -314,21 +673,30 @@ public class GameMatch {
 
       if (roundPuzzle.hasLetterBeenGuessed(command.getGuessedLetter())) {
         response = new StatusCommand(StatusCode.ALREADY_TRIED);
-        System.out.println(player + " guessed a consonant that has already been guessed");
+        logger.debug(
+            player.getUsername(),
+            GameCommandType.GUESS,
+            () -> "guessed a consonant that has already been guessed");
       } else if (!roundPuzzle.tryGuessLetter(command.getGuessedLetter())) {
         response = new StatusCommand(StatusCode.LETTER_MISSING);
-        System.out.println(player + " guessed a consonant that does not exist in the puzzle");
+        logger.debug(
+            player.getUsername(),
+            GameCommandType.GUESS,
+            () -> "guessed a consonant that does not exist in the puzzle");
         player.setCurrentWedge(null);
         advanceTurn();
       } else {
         int moneyWon = player.getCurrentWedge().getMoneyWon() * repetitions;
         player.incrementMoney(moneyWon);
-        System.out.println(player + " got " + moneyWon + "$ for a correct guess");
+        logger.debug(
+            player.getUsername(),
+            GameCommandType.GUESS,
+            () -> "got " + moneyWon + "$ for a correct guess");
         player.setCurrentWedge(null);
         response = new StatusCommand(StatusCode.LETTER_EXISTS);
 
-        if (roundPuzzle.getFullPuzzle().equals(getCurrentPuzzle())) {
-          System.out.println(player + " finished round");
+        if (roundPuzzle.isSolved()) {
+          logger.info(player.getUsername(), () -> "finished round");
           advanceRound();
         } else {
           player.setState(PlayerState.SECOND_GUESS_PHASE);
@@ -368,14 +736,23 @@ public class GameMatch {
 
       if (roundPuzzle.hasLetterBeenGuessed(command.getVowel())) {
         response = new StatusCommand(StatusCode.ALREADY_TRIED);
-        System.out.println(player + " guessed a vowel that has already been guessed");
+        logger.debug(
+            player.getUsername(),
+            GameCommandType.VOWEL,
+            () -> "guessed a vowel that has already been guessed");
       } else if (!roundPuzzle.tryGuessLetter(command.getVowel())) {
         response = new StatusCommand(StatusCode.LETTER_MISSING);
-        System.out.println(player + " guessed a vowel that does not exist in the puzzle");
+        logger.debug(
+            player.getUsername(),
+            GameCommandType.VOWEL,
+            () -> "guessed a vowel that does not exist in the puzzle");
         endTurn = true;
       } else {
         response = new StatusCommand(StatusCode.LETTER_EXISTS);
-        System.out.println(player + " guessed the vowel " + command.getVowel());
+        logger.debug(
+            player.getUsername(),
+            GameCommandType.VOWEL,
+            () -> "guessed the vowel " + command.getVowel());
         endTurn = true;
 
         // Small hack so next turn is played by the same player
@@ -385,13 +762,13 @@ public class GameMatch {
       if (endTurn) {
         player.decrementMoney(roundPuzzle.getVowelCost());
         player.setCurrentWedge(null);
+        player.setState(PlayerState.CHILLING);
 
-        if (roundPuzzle.getFullPuzzle().equals(getCurrentPuzzle())) {
-          System.out.println(player + " finished round");
+        if (roundPuzzle.isSolved()) {
+          logger.info(player.getUsername(), () -> "finished round");
           advanceRound();
         } else {
           advanceTurn();
-          player.setState(PlayerState.CHILLING);
         }
       }
     } else {
@@ -420,12 +797,13 @@ public class GameMatch {
       if (currentPhase == GamePhase.NORMAL_TURN) {
 
         if (roundPuzzle.guessPuzzle(command.getPuzzle())) {
-          System.out.println(player + " successfully solved the puzzle");
+          logger.info(player.getUsername(), () -> "successfully solved the puzzle");
           response = new StatusCommand(StatusCode.RIGHT_ANSWER);
           queueGlobalCommand(new RoundCommand(getCurrentPuzzle()));
           advanceRound();
         } else {
-          System.out.println(player + " did not solve the puzzle");
+          logger.debug(
+              player.getUsername(), GameCommandType.FILL, () -> "did not solve the puzzle");
           response = new StatusCommand(StatusCode.WRONG_ANSWER);
           advanceTurn();
         }
@@ -437,11 +815,12 @@ public class GameMatch {
         boolean playerWon = false;
 
         if (roundPuzzle.guessPuzzle(command.getPuzzle())) {
-          System.out.println(player + " successfully solved the puzzle");
+          logger.info(player.getUsername(), () -> "successfully solved the puzzle");
           response = new StatusCommand(StatusCode.RIGHT_ANSWER);
           playerWon = true;
         } else {
-          System.out.println(player + " did not solve the puzzle");
+          logger.debug(
+              player.getUsername(), GameCommandType.FILL, () -> "did not solve the puzzle");
           response = new StatusCommand(StatusCode.WRONG_ANSWER);
         }
 
@@ -473,14 +852,36 @@ public class GameMatch {
     currentPhase = GamePhase.WAITING_FOR_PLAYERS;
   }
 
+  /**
+   * Queues a command for a given player and notifies the listener of the player, if any.
+   *
+   * @param player the {@link Player} to send the command to
+   * @param command the {@link GameCommand} to be sent
+   */
+  private void queueCommand(Player player, GameCommand command) {
+    Queue<GameCommand> queue = pendingCommands.get(player);
+    if (null == queue) {
+      return;
+    }
+
+    queue.add(command);
+    metrics.broadcastQueued(command.getType());
+    Runnable listener = pendingCommandsListeners.get(player);
+    if (null != listener) {
+      listener.run();
+    }
+  }
+
   /**
    * Queues a global command to be sent to all players.
    *
    * @param command the {@link GameCommand} to be sent to all players
    */
   private void queueGlobalCommand(GameCommand command) {
+    // Encode the command once for all the players, in the format most clients speak.
+    command.toFrame(WireFormat.TEXT);
     for (Player p : connectedPlayers) {
-      pendingCommands.get(p).add(command);
+      queueCommand(p, command);
     }
   }
 
@@ -491,9 +892,10 @@ public class GameMatch {
    * @param othersCommand the {@link GameCommand} to be sent to all other players
    */
   private void queueOthersGlobalCommand(Player unmatchingPlayer, GameCommand othersCommand) {
+    othersCommand.toFrame(WireFormat.TEXT);
     for (Player p : connectedPlayers) {
       if (!p.getUsername().equals(unmatchingPlayer.getUsername())) {
-        pendingCommands.get(p).add(othersCommand);
+        queueCommand(p, othersCommand);
       }
     }
   }
@@ -507,9 +909,78 @@ public class GameMatch {
   private void queueSpecificGlobalCommand(Player matchingPlayer, GameCommand theirCommand) {
     for (Player p : connectedPlayers) {
       if (p.getUsername().equals(matchingPlayer.getUsername())) {
-        pendingCommands.get(p).add(theirCommand);
+        queueCommand(p, theirCommand);
+      }
+    }
+  }
+
+  /**
+   * Draws the puzzle of the next round, avoiding the puzzles the connected players have already
+   * seen.
+   *
+   * @param initialLetters a {@link String} with the letters uncovered from the start
+   * @return the new {@link Puzzle}
+   */
+  private Puzzle drawPuzzle(String initialLetters) {
+    long start = System.nanoTime();
+
+    // Switch to the catalogue loaded since the last round, if any.
+    PuzzleCatalogue catalogue = puzzleHistory.getCatalogue();
+    if (catalogue != puzzleDeck.getCatalogue() && null == replayedPuzzles) {
+      puzzleDeck = new PuzzleDeck(catalogue, puzzleRandom);
+      if (null != log) {
+        log.catalogue(catalogue.size());
+      }
+    }
+
+    int index;
+    if (null != replayedPuzzles) {
+      // The puzzles seen by the players are unknown, so the recorded puzzle is taken as is.
+      index = nextReplayedPuzzle();
+    } else {
+      List<String> usernames = new ArrayList<>(connectedPlayers.size());
+      for (Player p : connectedPlayers) {
+        usernames.add(p.getUsername());
+      }
+      index = Puzzle.drawIndex(puzzleDeck, puzzleHistory.seenByAny(usernames, catalogue));
+      puzzleHistory.markSeen(usernames, catalogue, index);
+    }
+
+    if (null != log) {
+      log.puzzle(index);
+    }
+    Puzzle puzzle = new Puzzle(puzzleDeck.getCatalogue().get(index), initialLetters, VOWEL_COST);
+    ServerMetrics.getGlobal().getPuzzleSelection().recordSince(start);
+    return puzzle;
+  }
+
+  /**
+   * Takes the index of the next recorded puzzle of a replay. A new deck is built at each recorded
+   * switch of catalogue before it, as the recording did, over the catalogue in use, which must have
+   * as many puzzles as the recorded one.
+   *
+   * @return the index of the recorded puzzle in the catalogue of the deck
+   */
+  private int nextReplayedPuzzle() {
+    while (replayedPuzzles.hasNext()) {
+      MatchLog.PuzzleEntry entry = replayedPuzzles.next();
+      if (entry.isPuzzle()) {
+        return entry.value();
+      }
+
+      PuzzleCatalogue catalogue = puzzleHistory.getCatalogue();
+      if (entry.value() != catalogue.size()) {
+        throw new IllegalStateException(
+            "[GameMatch] Line "
+                + entry.line()
+                + ": the match switched to a catalogue of "
+                + entry.value()
+                + " puzzles, the current one has "
+                + catalogue.size());
       }
+      puzzleDeck = new PuzzleDeck(catalogue, puzzleRandom);
     }
+    throw new IllegalStateException("[GameMatch] The replay has no puzzle left");
   }
 
   /**
@@ -522,22 +993,25 @@ public class GameMatch {
       currentPhase = GamePhase.START_LAST_TURN;
       startLastRound();
     } else {
-      roundPuzzle = Puzzle.createNewPuzzle("", VOWEL_COST);
+      roundPuzzle = drawPuzzle("");
       queueGlobalCommand(
           new StartCommand(currentRound, getCurrentPuzzle(), getCurrentPuzzleCategory()));
-      System.out.println("New game started. Full puzzle: " + roundPuzzle.getFullPuzzle());
+      logger.info(() -> "Round " + currentRound + " started");
+      // The solution is only logged at the most verbose level, to be kept out of production logs.
+      logger.trace(null, () -> "Full puzzle: " + roundPuzzle.getFullPuzzle());
       advanceTurn();
     }
   }
 
   /**
-   * Skips the turn of a player. If it's not the player's turn, the turn is not skipped.
+   * Skips the turn of a player. If it's not the player's turn, or if the match is not in a normal
+   * round, the turn is not skipped.
    *
    * @param player the {@link Player} to skip the turn
    */
   public void skipTurn(Player player) {
     // Reset player state for next turns.
-    if (!isNotMyTurn(player)) {
+    if (currentPhase == GamePhase.NORMAL_TURN && !isNotMyTurn(player)) {
       player.setState(PlayerState.CHILLING);
       advanceTurn();
     }
@@ -548,11 +1022,10 @@ public class GameMatch {
     currPlayerIndex = (currPlayerIndex + 1) % connectedPlayers.size();
     Player currentPlayer = connectedPlayers.get(currPlayerIndex);
     Wedge turnWedge = spinTheWheel();
-    System.out.println(currentPlayer + " got " + turnWedge);
     GameCommand playerResponse;
     boolean endsTurn = turnWedge.skipsATurn() || turnWedge.bankruptsPlayer();
 
-    System.out.println("It is " + currentPlayer + "'s turn. Spin is " + turnWedge);
+    logger.trace(currentPlayer.getUsername(), () -> "spun " + turnWedge);
 
     if (turnWedge.bankruptsPlayer()) {
       currentPlayer.goBankrupt();
@@ -591,19 +1064,22 @@ public class GameMatch {
     if (this.currentPhase == GamePhase.LAST_TURN
         && (player = connectedPlayers.get(currPlayerIndex)).getState() == PlayerState.CHILLING) {
       if (command.hasRepeatedLetters() || command.hasAnyOf(Puzzle.FinalRoundInitialLetters)) {
-        System.out.println(player + " guessed letters that have already been guessed");
+        logger.debug(
+            player.getUsername(),
+            GameCommandType.LETTERS,
+            () -> "guessed letters that have already been guessed");
         response = new StatusCommand(StatusCode.ALREADY_TRIED);
       } else {
-        for (Character c : command.getGuessedLetters()) {
+        for (int mask = command.getLetterMask(); mask != 0; mask &= mask - 1) {
           // Ignore the result as intended
-          roundPuzzle.tryGuessLetter(c);
+          roundPuzzle.tryGuessLetter((char) ('A' + Integer.numberOfTrailingZeros(mask)));
         }
 
         player.setState(PlayerState.SECOND_GUESS_PHASE);
-        System.out.println(
-            player
-                + " is playing with guessed letters "
-                + new String(roundPuzzle.getGuessedLetters()));
+        logger.debug(
+            player.getUsername(),
+            GameCommandType.LETTERS,
+            () -> "is playing with guessed letters " + new String(roundPuzzle.getGuessedLetters()));
         response = new RoundCommand(roundPuzzle.getCurrentPuzzleState());
       }
     } else {
@@ -638,9 +1114,9 @@ public class GameMatch {
     }
 
     currPlayerIndex = winningPlayerIndex;
-    System.out.println(winningPlayer + " is the winner, and goes to the last round");
-    roundPuzzle = Puzzle.createNewPuzzle(Puzzle.FinalRoundInitialLetters, VOWEL_COST);
-    System.out.println("Full puzzle: " + roundPuzzle.getFullPuzzle());
+    logger.info(winningPlayer.getUsername(), () -> "is the winner, and goes to the last round");
+    roundPuzzle = drawPuzzle(Puzzle.FinalRoundInitialLetters);
+    logger.trace(null, () -> "Full puzzle: " + roundPuzzle.getFullPuzzle());
     currentPhase = GamePhase.LAST_TURN;
     queueGlobalCommand(new WinnerCommand(winningPlayer.getUsername()));
     queueSpecificGlobalCommand(
@@ -0,0 +1,248 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ch.heigvd.dai.logic.server;
+
+import ch.heigvd.dai.logging.Logger;
+import ch.heigvd.dai.logic.commands.GameCommand;
+import ch.heigvd.dai.logic.server.puzzle.PuzzleCategory;
+import ch.heigvd.dai.logic.server.wheel.WheelConfiguration;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Log recording everything needed to replay a game match: its seed, the commands its players sent
+ * along with the responses they got, and the puzzles it drew.
+ *
+ * <p>The log is a text file with one entry per line:
+ *
+ * <ul>
+ *   <li>{@code SEED <seed>}, first, with the seed of all the randomness of the match;
+ *   <li>{@code SETTINGS <fingerprint>}, with the fingerprint of the wheels and the category weights
+ *       used by the match, in hexadecimal;
+ *   <li>{@code CATALOGUE <size>}, with the number of puzzles of the catalogue in use, written again
+ *       whenever the match switches to a catalogue loaded meanwhile;
+ *   <li>{@code <username> <command>}, for each command applied to the match, in the text format of
+ *       the protocol, the username being quoted if it contains a space;
+ *   <li>{@code = <response>}, right after a command that got a direct response;
+ *   <li>{@code PUZZLE <index>}, for each puzzle drawn, with its index in the catalogue.
+ * </ul>
+ *
+ * <p>The drawn puzzles also depend on the puzzles the players saw in other matches, which is why
+ * they are recorded too. Lines starting with {@code #} are comments. See {@link MatchReplay} for
+ * replaying a log.
+ *
+ * <p>The entries are written by the tasks of the match, one at a time, so a log needs no lock.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+public class MatchLog implements AutoCloseable {
+
+  private static final Logger LOGGER = new Logger("Server");
+
+  public static final String SEED = "SEED";
+  public static final String SETTINGS = "SETTINGS";
+  public static final String CATALOGUE = "CATALOGUE";
+  public static final String PUZZLE = "PUZZLE";
+  public static final String RESPONSE = "=";
+
+  /** Directory where the logs of the new matches are written, {@code null} to not record them. */
+  private static volatile Path Directory = null;
+
+  private final Path file;
+  private final BufferedWriter writer;
+
+  /**
+   * Entry of a log about the puzzles of a match, as read back to replay it.
+   *
+   * @param keyword {@link #CATALOGUE} or {@link #PUZZLE}
+   * @param value the number of puzzles of the catalogue, or the index of the drawn puzzle
+   * @param line the number of the line of the entry in the log, starting at 1
+   */
+  record PuzzleEntry(String keyword, int value, int line) {
+
+    /**
+     * Checks whether the entry is a drawn puzzle rather than a switch of catalogue.
+     *
+     * @return {@code true} if the entry is a {@link #PUZZLE} entry, {@code false} otherwise
+     */
+    boolean isPuzzle() {
+      return PUZZLE.equals(keyword);
+    }
+  }
+
+  /**
+   * Default constructor. Creates the log file and writes its header.
+   *
+   * @param file the {@link Path} of the log file to create
+   * @param seed the seed of the match
+   * @param settings the fingerprint of the wheels and category weights used by the match
+   * @param catalogueSize the number of puzzles of the catalogue used by the match
+   * @throws IOException if the file cannot be created
+   * @see #settingsFingerprint(WheelConfiguration, Map)
+   */
+  public MatchLog(Path file, long seed, long settings, int catalogueSize) throws IOException {
+    this.file = file;
+    writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    writer.write("# Wheel Of Fortune match log, replay it with the 'replay' command");
+    writer.newLine();
+    writer.write(SEED + " " + seed);
+    writer.newLine();
+    writer.write(SETTINGS + " " + Long.toHexString(settings));
+    writer.newLine();
+    writer.write(CATALOGUE + " " + catalogueSize);
+    writer.newLine();
+    writer.flush();
+  }
+
+  /**
+   * Sets the directory where the logs of the matches created from now on are written, creating it
+   * if needed.
+   *
+   * @param directory the {@link Path} of the directory, or {@code null} to stop recording
+   * @throws IOException if the directory cannot be created
+   */
+  public static void setDirectory(Path directory) throws IOException {
+    if (null != directory) {
+      Files.createDirectories(directory);
+    }
+    Directory = directory;
+  }
+
+  /**
+   * Computes the fingerprint of the settings a match depends on besides its seed and catalogue, so
+   * that a replay can check it runs with the settings of the recording.
+   *
+   * @param wheels the {@link WheelConfiguration} of the match
+   * @param weights a {@link Map} with the weight of each {@link PuzzleCategory}, empty if the
+   *     puzzles are drawn regardless of their category
+   * @return the 64-bit FarmHash fingerprint of the wheels and the category weights
+   */
+  public static long settingsFingerprint(
+      WheelConfiguration wheels, Map<PuzzleCategory, Integer> weights) {
+    Hasher hasher = Hashing.farmHashFingerprint64().newHasher().putLong(wheels.fingerprint());
+    for (PuzzleCategory category : PuzzleCategory.values()) {
+      hasher.putInt(weights.getOrDefault(category, 0));
+    }
+    return hasher.putBoolean(weights.isEmpty()).hash().asLong();
+  }
+
+  /**
+   * Creates the log of a new match, if matches are recorded.
+   *
+   * @param matchName the name of the match, used in the file name
+   * @param seed the seed of the match
+   * @param settings the fingerprint of the wheels and category weights used by the match
+   * @param catalogueSize the number of puzzles of the catalogue used by the match
+   * @return the new {@link MatchLog}, or {@code null} if matches are not recorded or the log cannot
+   *     be created
+   */
+  static MatchLog create(String matchName, long seed, long settings, int catalogueSize) {
+    Path directory = Directory;
+    if (null == directory) {
+      return null;
+    }
+
+    String fileName =
+        matchName.replaceAll("[^A-Za-z0-9_-]", "_") + "-" + Long.toHexString(seed) + ".log";
+    try {
+      return new MatchLog(directory.resolve(fileName), seed, settings, catalogueSize);
+    } catch (IOException e) {
+      LOGGER.warn(() -> "Cannot record match " + matchName + ": " + e);
+      return null;
+    }
+  }
+
+  /**
+   * Records a command applied to the match, and the response it got.
+   *
+   * @param username the username of the player who sent the command
+   * @param command the {@link GameCommand} applied to the match
+   * @param response the {@link GameCommand} sent back to the player, or {@code null} if none
+   */
+  void command(String username, GameCommand command, GameCommand response) {
+    StringBuilder sb = new StringBuilder(64);
+    sb.append(quote(username)).append(' ').append(command.toTcpBody());
+    if (null != response) {
+      sb.append(System.lineSeparator()).append(RESPONSE).append(' ').append(response.toTcpBody());
+    }
+    write(sb.toString(), true);
+  }
+
+  /**
+   * Records a switch of the match to another catalogue.
+   *
+   * @param catalogueSize the number of puzzles of the new catalogue
+   */
+  void catalogue(int catalogueSize) {
+    write(CATALOGUE + " " + catalogueSize, false);
+  }
+
+  /**
+   * Records a puzzle drawn by the match.
+   *
+   * @param index the index of the puzzle in the catalogue
+   */
+  void puzzle(int index) {
+    write(PUZZLE + " " + index, false);
+  }
+
+  /**
+   * Writes a line to the log. A failure to write only stops the recording, the match goes on.
+   *
+   * @param line a {@link String} with the line to write
+   * @param flush whether to flush the log afterwards
+   */
+  private void write(String line, boolean flush) {
+    try {
+      writer.write(line);
+      writer.newLine();
+      if (flush) {
+        writer.flush();
+      }
+    } catch (IOException e) {
+      LOGGER.warn(() -> "Cannot write to match log " + file + ": " + e);
+    }
+  }
+
+  /**
+   * Quotes a username if it contains a space, as done by the protocol.
+   *
+   * @param username a {@link String} with the username
+   * @return the username, quoted if needed
+   */
+  static String quote(String username) {
+    return username.contains(" ") ? "\"" + username + "\"" : username;
+  }
+
+  /** Flushes and closes the log. */
+  @Override
+  public void close() {
+    try {
+      writer.close();
+    } catch (IOException e) {
+      LOGGER.warn(() -> "Cannot close match log " + file + ": " + e);
+    }
+  }
+}
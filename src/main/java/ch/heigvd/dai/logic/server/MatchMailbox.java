@@ -0,0 +1,101 @@
+/*
+ * Wheel Of Fortune - a Java server/client CLI implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.server;
+
+import ch.heigvd.dai.logging.Logger;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Mailbox of a game match, turning the match into an actor.
+ *
+ * <p>Tasks submitted from any thread are queued and run one at a time, in submission order, on the
+ * backing {@link Executor}. At most one drain of the mailbox is scheduled at any given time, so the
+ * tasks never run concurrently and the state they touch needs no lock. Different mailboxes share
+ * the same executor and thus run in parallel.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+final class MatchMailbox implements Executor {
+
+  private static final Logger LOGGER = new Logger("Server");
+
+  /** Maximum number of tasks run in a row before handing the thread back to other mailboxes. */
+  private static final int DRAIN_BATCH_SIZE = 64;
+
+  private final Executor executor;
+  private final Queue<Runnable> tasks;
+  private final AtomicBoolean scheduled;
+
+  /**
+   * Default constructor.
+   *
+   * @param executor the {@link Executor} running the drains of the mailbox
+   */
+  MatchMailbox(Executor executor) {
+    this.executor = executor;
+    tasks = new ConcurrentLinkedQueue<>();
+    scheduled = new AtomicBoolean(false);
+  }
+
+  /**
+   * Queues a task in the mailbox and schedules a drain if none is scheduled yet. Can be called from
+   * any thread, including from a task of this mailbox.
+   *
+   * @param task the {@link Runnable} to run
+   */
+  @Override
+  public void execute(Runnable task) {
+    tasks.add(task);
+    schedule();
+  }
+
+  /** Schedules a drain of the mailbox on the executor, unless one is already scheduled. */
+  private void schedule() {
+    if (scheduled.compareAndSet(false, true)) {
+      executor.execute(this::drain);
+    }
+  }
+
+  /**
+   * Runs the queued tasks, up to {@link #DRAIN_BATCH_SIZE} of them, then schedules a new drain if
+   * tasks were queued meanwhile.
+   */
+  private void drain() {
+    try {
+      Runnable task;
+      for (int i = 0; i < DRAIN_BATCH_SIZE && null != (task = tasks.poll()); i++) {
+        try {
+          task.run();
+        } catch (RuntimeException e) {
+          LOGGER.error(() -> "Exception in match task: " + e);
+        }
+      }
+    } finally {
+      scheduled.set(false);
+    }
+
+    if (!tasks.isEmpty()) {
+      schedule();
+    }
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * Wheel Of Fortune - a Java server/client CLI implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.server;
+
+import ch.heigvd.dai.logic.StatusCode;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Registry of all the game matches hosted by a server.
+ *
+ * <p>Players either join a match by its name, creating it if it does not exist yet, or let the
+ * registry pick the match currently gathering players. Matches are reclaimed as soon as their last
+ * player leaves.
+ *
+ * <p>Joining and reclaiming a match are both done from a task of the match, and a reclaimed match
+ * is retired, so a player never ends up alone in a match that was already removed from the
+ * registry. The loop running the tasks of each match is picked by a {@link MatchScheduler}.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+public class MatchRegistry {
+
+  /** Prefix of the names given to the matches created by the matchmaking. */
+  public static final String AUTO_MATCH_PREFIX = "match-";
+
+  /**
+   * Result of a join request.
+   *
+   * @param status the {@link StatusCode} returned by {@link GameMatch#addPlayer(String)}
+   * @param match the {@link GameMatch} the player tried to join
+   */
+  public record JoinResult(StatusCode status, GameMatch match) {}
+
+  private final ConcurrentHashMap<String, GameMatch> matches;
+  private final MatchScheduler scheduler;
+  private final AtomicLong createdMatches;
+  private final AtomicReference<String> matchmakingMatchName;
+
+  /**
+   * Default constructor. Creates an empty registry whose matches run their tasks on virtual
+   * threads.
+   */
+  public MatchRegistry() {
+    this(MatchScheduler.shared(Executors.newVirtualThreadPerTaskExecutor()));
+  }
+
+  /**
+   * Constructor for an empty registry whose matches run their tasks on the loops picked by the
+   * given scheduler.
+   *
+   * @param scheduler the {@link MatchScheduler} assigning the matches to their loop
+   */
+  public MatchRegistry(MatchScheduler scheduler) {
+    matches = new ConcurrentHashMap<>();
+    this.scheduler = scheduler;
+    createdMatches = new AtomicLong(0);
+    matchmakingMatchName = new AtomicReference<>(nextMatchmakingName());
+  }
+
+  /**
+   * Generates the name of a new match created by the matchmaking.
+   *
+   * @return a {@link String} with a name that was never returned before by this registry
+   */
+  private String nextMatchmakingName() {
+    return AUTO_MATCH_PREFIX + createdMatches.incrementAndGet();
+  }
+
+  /**
+   * Adds a player to a game match.
+   *
+   * <p>If {@code matchName} is {@code null}, the player joins the match currently gathering
+   * players, and a new one is opened whenever it is full or already playing. Otherwise, the player
+   * joins the match with the given name, which is created if needed.
+   *
+   * @param username the username of the player to be added
+   * @param matchName the name of the match to join, or {@code null} to let the registry pick one
+   * @return a {@link CompletableFuture} completed with a {@link JoinResult} holding the status of
+   *     the operation and the match that was tried
+   */
+  public CompletableFuture<JoinResult> join(String username, String matchName) {
+    if (null != matchName) {
+      return joinNamed(username, matchName);
+    }
+
+    String name = matchmakingMatchName.get();
+    return joinNamed(username, name)
+        .thenCompose(
+            result -> {
+              if (result.status() != StatusCode.FULL) {
+                return CompletableFuture.completedFuture(result);
+              }
+
+              // The match is full or already playing, open a new one for the next players.
+              matchmakingMatchName.compareAndSet(name, nextMatchmakingName());
+              return join(username, null);
+            });
+  }
+
+  /**
+   * Adds a player to the game match with the given name, creating the match if needed.
+   *
+   * @param username the username of the player to be added
+   * @param matchName the name of the match to join
+   * @return a {@link CompletableFuture} completed with a {@link JoinResult} holding the status of
+   *     the operation and the match that was tried
+   */
+  private CompletableFuture<JoinResult> joinNamed(String username, String matchName) {
+    GameMatch match =
+        matches.computeIfAbsent(matchName, name -> new GameMatch(name, scheduler.acquire()));
+    return match
+        .submit(
+            () -> {
+              // The match was reclaimed meanwhile, try again with a fresh one.
+              if (match.isRetired()) {
+                return null;
+              }
+
+              StatusCode status = match.addPlayer(username);
+
+              // Never keep a match nobody managed to join.
+              retireIfEmpty(match);
+              return new JoinResult(status, match);
+            })
+        .thenCompose(
+            result ->
+                null != result
+                    ? CompletableFuture.completedFuture(result)
+                    : joinNamed(username, matchName));
+  }
+
+  /**
+   * Retires and removes a game match from the registry if no more players are connected to it.
+   * Needs to be called from a task of the match.
+   *
+   * @param match the {@link GameMatch} to reclaim
+   */
+  private void retireIfEmpty(GameMatch match) {
+    if (!match.isRetired() && match.isEmpty()) {
+      match.retire();
+      matches.remove(match.getName(), match);
+      scheduler.release(match.getExecutor());
+    }
+  }
+
+  /**
+   * Removes a player from a game match, and removes the match from the registry if no more players
+   * are connected to it.
+   *
+   * @param match the {@link GameMatch} the player is leaving
+   * @param username the username of the player leaving
+   * @return a {@link CompletableFuture} completed once the player left
+   */
+  public CompletableFuture<Void> leave(GameMatch match, String username) {
+    return match.submit(
+        () -> {
+          match.quitPlayer(username);
+          retireIfEmpty(match);
+          return null;
+        });
+  }
+
+  /**
+   * Gets the scheduler assigning the matches to their loop.
+   *
+   * @return the {@link MatchScheduler} of the registry
+   */
+  public MatchScheduler getScheduler() {
+    return scheduler;
+  }
+
+  /**
+   * Gets the game match with the given name.
+   *
+   * @param matchName the name of the match
+   * @return the {@link GameMatch} with the given name, or {@code null} if it does not exist
+   */
+  public GameMatch getMatch(String matchName) {
+    return matches.get(matchName);
+  }
+
+  /**
+   * Gets all the game matches currently hosted.
+   *
+   * @return an unmodifiable {@link Collection} of {@link GameMatch}
+   */
+  public Collection<GameMatch> getMatches() {
+    return Collections.unmodifiableCollection(matches.values());
+  }
+
+  /**
+   * Gets the number of game matches currently hosted.
+   *
+   * @return the number of matches with at least one connected player
+   */
+  public int size() {
+    return matches.size();
+  }
+}
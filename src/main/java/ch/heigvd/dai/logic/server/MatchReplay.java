@@ -0,0 +1,290 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ch.heigvd.dai.logic.server;
+
+import ch.heigvd.dai.Player;
+import ch.heigvd.dai.logic.commands.GameCommand;
+import ch.heigvd.dai.logic.commands.StatusCommand;
+import ch.heigvd.dai.logic.server.puzzle.Puzzle;
+import ch.heigvd.dai.logic.server.wheel.WheelConfiguration;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.InvalidPropertiesFormatException;
+import java.util.List;
+
+/**
+ * Replays a game match recorded in a {@link MatchLog}.
+ *
+ * <p>A new match is created with the recorded seed, and the recorded commands are applied to it one
+ * by one, in the same order and through the same methods as when it was played. Each response is
+ * compared to the recorded one, and the commands the match sends to its players are printed along
+ * the way. The recorded puzzles are taken from the current catalogue, as the puzzles the players
+ * had seen are unknown, and the match switches to a new deck at each recorded switch of catalogue,
+ * as it did when recorded. The replay is therefore refused unless the current wheels and category
+ * weights have the recorded fingerprint and the current catalogue the recorded number of puzzles.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+public class MatchReplay {
+
+  /**
+   * Summary of a replay.
+   *
+   * @param seed the seed of the match
+   * @param commands the number of commands replayed
+   * @param divergences the number of responses differing from the recorded ones
+   */
+  public record Result(long seed, int commands, int divergences) {
+
+    /**
+     * Checks whether the replay reproduced the recording.
+     *
+     * @return {@code true} if every response was the recorded one, {@code false} otherwise
+     */
+    public boolean isIdentical() {
+      return 0 == divergences;
+    }
+  }
+
+  private MatchReplay() {}
+
+  /**
+   * Replays a match log.
+   *
+   * @param lines a {@link List} with the lines of the log
+   * @param out a {@link PrintStream} where the transcript of the match is printed
+   * @return a {@link Result} summarizing the replay
+   * @throws InvalidPropertiesFormatException if the log is not valid
+   */
+  public static Result replay(List<String> lines, PrintStream out)
+      throws InvalidPropertiesFormatException {
+    Long seed = null;
+    Long settings = null;
+    List<MatchLog.PuzzleEntry> puzzles = new ArrayList<>();
+    for (int i = 0; i < lines.size(); i++) {
+      String line = lines.get(i);
+      String[] parts = line.strip().split(" ", 2);
+      switch (parts[0]) {
+        case MatchLog.SEED -> seed = parseLong(line, parts);
+        case MatchLog.SETTINGS -> settings = parseFingerprint(line, parts);
+        case MatchLog.CATALOGUE, MatchLog.PUZZLE ->
+            puzzles.add(new MatchLog.PuzzleEntry(parts[0], parseInt(line, parts), i + 1));
+        default -> {}
+      }
+    }
+    checkHeader(seed, settings, puzzles);
+
+    GameMatch match = new GameMatch("replay", Runnable::run, seed);
+    match.replayPuzzles(puzzles.iterator());
+    out.println("# Replaying match with seed " + seed);
+
+    int commands = 0;
+    int divergences = 0;
+    for (int i = 0; i < lines.size(); i++) {
+      String line = lines.get(i).strip();
+      if (line.isEmpty() || line.startsWith("#") || isKeyword(line)) {
+        continue;
+      }
+
+      String username = parseUsername(line);
+      GameCommand command =
+          GameCommand.fromTcpBody(line.substring(MatchLog.quote(username).length() + 1));
+      String expected = null;
+      if (i + 1 < lines.size() && lines.get(i + 1).startsWith(MatchLog.RESPONSE + " ")) {
+        expected = lines.get(i + 1).substring(MatchLog.RESPONSE.length() + 1);
+      }
+
+      GameCommand response;
+      try {
+        response = apply(match, username, command);
+      } catch (RuntimeException e) {
+        throw new InvalidPropertiesFormatException(
+            "[MatchReplay] Line " + (i + 1) + ": the replay diverged: " + e.getMessage());
+      }
+      ++commands;
+
+      String actual = null != response ? response.toTcpBody() : null;
+      out.println("> " + MatchLog.quote(username) + " " + command.toTcpBody());
+      if (null != actual) {
+        out.println("< " + actual);
+      }
+      if (null == expected ? null != actual : !expected.equals(actual)) {
+        ++divergences;
+        out.println("# Divergence at line " + (i + 1) + ", recorded response: " + expected);
+      }
+
+      for (String player : match.getPlayers()) {
+        for (GameCommand pushed : match.getPendingCommands(match.getPlayer(player))) {
+          out.println("  [" + player + "] " + pushed.toTcpBody());
+        }
+      }
+    }
+
+    return new Result(seed, commands, divergences);
+  }
+
+  /**
+   * Checks that the header of a log was read, and that the match can be replayed with the current
+   * settings and catalogue.
+   *
+   * @param seed the recorded seed, {@code null} if missing
+   * @param settings the recorded fingerprint of the wheels and category weights, {@code null} if
+   *     missing
+   * @param puzzles a {@link List} with the recorded {@link MatchLog.PuzzleEntry puzzle and
+   *     catalogue entries}
+   * @throws InvalidPropertiesFormatException if the header is incomplete, or the settings or the
+   *     catalogue differ from the recorded ones
+   */
+  private static void checkHeader(Long seed, Long settings, List<MatchLog.PuzzleEntry> puzzles)
+      throws InvalidPropertiesFormatException {
+    if (null == seed) {
+      throw new InvalidPropertiesFormatException("[MatchReplay] The log has no seed");
+    }
+    if (null == settings) {
+      throw new InvalidPropertiesFormatException("[MatchReplay] The log has no settings");
+    }
+    if (settings
+        != MatchLog.settingsFingerprint(
+            WheelConfiguration.getCurrent(), Puzzle.getCategoryWeights())) {
+      throw new InvalidPropertiesFormatException(
+          "[MatchReplay] The match was recorded with other wheels or category weights");
+    }
+    if (puzzles.isEmpty() || puzzles.getFirst().isPuzzle()) {
+      throw new InvalidPropertiesFormatException("[MatchReplay] The log has no catalogue");
+    }
+
+    int size = puzzles.getFirst().value();
+    if (size != Puzzle.getCatalogue().size()) {
+      throw new InvalidPropertiesFormatException(
+          "[MatchReplay] The match was recorded with a catalogue of "
+              + size
+              + " puzzles, the current one has "
+              + Puzzle.getCatalogue().size());
+    }
+  }
+
+  /**
+   * Applies a recorded command to the match being replayed.
+   *
+   * @param match the {@link GameMatch} being replayed
+   * @param username the username of the player who sent the command
+   * @param command the recorded {@link GameCommand}
+   * @return the response of the match, or {@code null} if none
+   */
+  private static GameCommand apply(GameMatch match, String username, GameCommand command) {
+    switch (command.getType()) {
+      case JOIN -> {
+        return new StatusCommand(match.addPlayer(username));
+      }
+
+      case QUIT -> {
+        match.quitPlayer(username);
+        return null;
+      }
+
+      default -> {
+        Player player = match.getPlayer(username);
+        if (null == player) {
+          throw new IllegalStateException(username + " is not in the match");
+        }
+        return match.handle(player, command);
+      }
+    }
+  }
+
+  /**
+   * Checks whether a line is an entry other than a command or a response.
+   *
+   * @param line a {@link String} with the line
+   * @return {@code true} if the line is a seed, settings, catalogue, puzzle or response entry
+   */
+  private static boolean isKeyword(String line) {
+    String keyword = line.split(" ", 2)[0];
+    return keyword.equals(MatchLog.SEED)
+        || keyword.equals(MatchLog.SETTINGS)
+        || keyword.equals(MatchLog.CATALOGUE)
+        || keyword.equals(MatchLog.PUZZLE)
+        || keyword.equals(MatchLog.RESPONSE);
+  }
+
+  /**
+   * Parses the username at the start of a command entry.
+   *
+   * @param line a {@link String} with the entry
+   * @return the username, without quotes
+   * @throws InvalidPropertiesFormatException if the entry has no command after the username
+   */
+  private static String parseUsername(String line) throws InvalidPropertiesFormatException {
+    int end = line.startsWith("\"") ? line.indexOf('"', 1) + 1 : line.indexOf(' ');
+    if (end <= 0 || end >= line.length() || line.charAt(end) != ' ') {
+      throw new InvalidPropertiesFormatException("[MatchReplay] Invalid entry: " + line);
+    }
+    return line.startsWith("\"") ? line.substring(1, end - 1) : line.substring(0, end);
+  }
+
+  /**
+   * Parses the number of a {@code KEYWORD <number>} entry.
+   *
+   * @param line a {@link String} with the entry, for errors
+   * @param parts the keyword and the rest of the entry
+   * @return the number
+   * @throws InvalidPropertiesFormatException if the entry has no valid number
+   */
+  private static long parseLong(String line, String[] parts)
+      throws InvalidPropertiesFormatException {
+    try {
+      return Long.parseLong(parts[1].strip());
+    } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+      throw new InvalidPropertiesFormatException("[MatchReplay] Invalid entry: " + line);
+    }
+  }
+
+  /**
+   * Parses the number of a {@code KEYWORD <number>} entry holding an index or a size.
+   *
+   * @param line a {@link String} with the entry, for errors
+   * @param parts the keyword and the rest of the entry
+   * @return the number
+   * @throws InvalidPropertiesFormatException if the entry has no valid non-negative number
+   */
+  private static int parseInt(String line, String[] parts) throws InvalidPropertiesFormatException {
+    try {
+      return Integer.parseUnsignedInt(parts[1].strip());
+    } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+      throw new InvalidPropertiesFormatException("[MatchReplay] Invalid entry: " + line);
+    }
+  }
+
+  /**
+   * Parses the fingerprint of a {@code KEYWORD <fingerprint>} entry, written in hexadecimal.
+   *
+   * @param line a {@link String} with the entry, for errors
+   * @param parts the keyword and the rest of the entry
+   * @return the fingerprint
+   * @throws InvalidPropertiesFormatException if the entry has no valid fingerprint
+   */
+  private static long parseFingerprint(String line, String[] parts)
+      throws InvalidPropertiesFormatException {
+    try {
+      return Long.parseUnsignedLong(parts[1].strip(), 16);
+    } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+      throw new InvalidPropertiesFormatException("[MatchReplay] Invalid entry: " + line);
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.server;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Assigns the game matches to the loops running their tasks.
+ *
+ * <p>Each match is pinned to a single loop for its whole life, chosen when the match is created.
+ * Implementations are free to pick the least loaded loop, so that a loop that accumulated many
+ * active matches sheds the new ones to idler loops.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+public interface MatchScheduler {
+
+  /**
+   * Snapshot of the load of a loop.
+   *
+   * @param name the name of the loop
+   * @param matches the number of game matches pinned to the loop
+   * @param connections the number of client connections handled by the loop, 0 if the loop does not
+   *     handle any I/O
+   * @param tasks the number of tasks run by the loop so far
+   */
+  record LoopLoad(String name, int matches, int connections, long tasks) {}
+
+  /**
+   * Picks the loop of a new game match.
+   *
+   * @return the {@link Executor} of the loop the match is pinned to
+   */
+  Executor acquire();
+
+  /**
+   * Notifies that a game match pinned to a loop was retired.
+   *
+   * @param executor the {@link Executor} returned by {@link #acquire()} for the match
+   */
+  void release(Executor executor);
+
+  /**
+   * Gets the current load of every loop.
+   *
+   * @return a {@link List} of {@link LoopLoad}, one per loop
+   */
+  List<LoopLoad> getLoads();
+
+  /**
+   * Creates a scheduler pinning all the game matches to the same executor, which is expected to run
+   * the matches in parallel, like a virtual-thread-per-task executor.
+   *
+   * @param executor the {@link Executor} running the tasks of all the matches
+   * @return a {@link MatchScheduler} with a single loop
+   */
+  static MatchScheduler shared(Executor executor) {
+    AtomicInteger matches = new AtomicInteger(0);
+    AtomicLong tasks = new AtomicLong(0);
+    Executor countingExecutor =
+        task -> {
+          tasks.incrementAndGet();
+          executor.execute(task);
+        };
+
+    return new MatchScheduler() {
+      @Override
+      public Executor acquire() {
+        matches.incrementAndGet();
+        return countingExecutor;
+      }
+
+      @Override
+      public void release(Executor released) {
+        matches.decrementAndGet();
+      }
+
+      @Override
+      public List<LoopLoad> getLoads() {
+        return List.of(new LoopLoad("shared", matches.get(), 0, tasks.get()));
+      }
+    };
+  }
+}
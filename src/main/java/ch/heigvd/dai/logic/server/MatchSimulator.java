@@ -0,0 +1,521 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ch.heigvd.dai.logic.server;
+
+import ch.heigvd.dai.Player;
+import ch.heigvd.dai.logging.Level;
+import ch.heigvd.dai.logging.Logger;
+import ch.heigvd.dai.logic.PlayerState;
+import ch.heigvd.dai.logic.StatusCode;
+import ch.heigvd.dai.logic.commands.FillCommand;
+import ch.heigvd.dai.logic.commands.GameCommand;
+import ch.heigvd.dai.logic.commands.GuessCommand;
+import ch.heigvd.dai.logic.commands.LettersCommand;
+import ch.heigvd.dai.logic.commands.StatusCommand;
+import ch.heigvd.dai.logic.commands.VowelCommand;
+import ch.heigvd.dai.logic.server.puzzle.Puzzle;
+import ch.heigvd.dai.logic.server.puzzle.PuzzleHistory;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+/**
+ * Plays complete game matches in-process, with bots calling the methods of {@link GameMatch}
+ * directly instead of going through a connection.
+ *
+ * <p>The games are spread over the threads of a {@link ForkJoinPool} with a parallel stream. Each
+ * game has its own seed, derived from the seed of the simulation, and its own puzzle history, so
+ * that a simulation always yields the same results with the same settings, whatever the number of
+ * threads. The bots take a seat in turn, so that no strategy always plays first.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+public class MatchSimulator {
+
+  /** Consonants in the order the bots guess them, most frequent in English first. */
+  private static final String CONSONANTS = "TNSHRDLCMWFGYPBVKJXQZ";
+
+  /** Vowels in the order the bots buy them, most frequent in English first. */
+  private static final String VOWELS = "EAOIU";
+
+  /** Letters the bots pick for the last round, none of them being uncovered from the start. */
+  private static final String LAST_ROUND_LETTERS = "HDCMA";
+
+  /** Number of actions after which a game is considered stuck and given up. */
+  private static final int MAX_ACTIONS_PER_GAME = 10_000;
+
+  /** Width of the buckets of the payout histograms. */
+  private static final int PAYOUT_BUCKET = 500;
+
+  /** Number of buckets of the payout histograms, the last one gathering all the higher payouts. */
+  private static final int PAYOUT_BUCKETS = 1001;
+
+  /** Increment of the seeds of consecutive games, the golden ratio as usual. */
+  private static final long SEED_INCREMENT = 0x9E3779B97F4A7C15L;
+
+  /**
+   * Strategy followed by a bot.
+   *
+   * <p>A bot attempts to solve the puzzle once enough of it was uncovered, and then finds the
+   * solution with a probability equal to the uncovered part of the puzzle.
+   */
+  public enum BotStrategy {
+    /** Solves late and buys vowels whenever it can afford them. */
+    CAUTIOUS(0.9, GameMatch.VOWEL_COST),
+    /** Solves when three quarters of the puzzle are uncovered and keeps some money for vowels. */
+    BALANCED(0.75, 2 * GameMatch.VOWEL_COST),
+    /** Solves early and never buys vowels. */
+    BOLD(0.5, Integer.MAX_VALUE);
+
+    private final double solveThreshold;
+    private final int vowelThreshold;
+
+    /**
+     * Constructor of a strategy.
+     *
+     * @param solveThreshold the uncovered part of the puzzle from which the bot attempts to solve
+     * @param vowelThreshold the money from which the bot buys vowels
+     */
+    BotStrategy(double solveThreshold, int vowelThreshold) {
+      this.solveThreshold = solveThreshold;
+      this.vowelThreshold = vowelThreshold;
+    }
+  }
+
+  /**
+   * Results of a simulation. The money of the players is their money at the end of the game.
+   *
+   * @param games the number of games played
+   * @param stuckGames the number of games given up after {@link #MAX_ACTIONS_PER_GAME} actions
+   * @param actions the number of actions of the bots, each one being a call to the match
+   * @param pushedCommands the number of commands the matches queued for the players
+   * @param allocatedBytes the number of bytes allocated by the games, or -1 if not measured
+   * @param nanos the duration of the simulation, in nanoseconds
+   * @param strategies the {@link BotStrategy} of each seat
+   * @param seatMoney the total money of the bots of each strategy, in the order of {@code
+   *     strategies}
+   * @param seatFinals the number of times the bots of each strategy played the last round
+   * @param seatWins the number of times the bots of each strategy solved the last round
+   * @param payouts the histogram of the money of all the players
+   * @param finalistPayouts the histogram of the money of the players of the last round
+   */
+  public record Result(
+      long games,
+      long stuckGames,
+      long actions,
+      long pushedCommands,
+      long allocatedBytes,
+      long nanos,
+      List<BotStrategy> strategies,
+      long[] seatMoney,
+      long[] seatFinals,
+      long[] seatWins,
+      long[] payouts,
+      long[] finalistPayouts) {
+
+    /**
+     * Gets the money below which lies the given part of a payout histogram.
+     *
+     * @param histogram one of the payout histograms of the result
+     * @param quantile the part of the payouts, between 0 and 1
+     * @return the upper bound of the bucket holding the quantile
+     */
+    public static int quantile(long[] histogram, double quantile) {
+      long total = Arrays.stream(histogram).sum();
+      long rank = (long) Math.ceil(quantile * total);
+      long seen = 0;
+      for (int i = 0; i < histogram.length; i++) {
+        seen += histogram[i];
+        if (seen >= rank && seen > 0) {
+          return (i + 1) * PAYOUT_BUCKET;
+        }
+      }
+      return 0;
+    }
+  }
+
+  /** Results gathered by a thread of the simulation, merged once all the games were played. */
+  private static final class Totals {
+    private final int seats;
+    private long games;
+    private long stuckGames;
+    private long actions;
+    private long pushedCommands;
+    private long allocatedBytes;
+    private final long[] seatMoney;
+    private final long[] seatFinals;
+    private final long[] seatWins;
+    private final long[] payouts;
+    private final long[] finalistPayouts;
+
+    /**
+     * Constructor of empty totals.
+     *
+     * @param seats the number of seats of a game
+     */
+    private Totals(int seats) {
+      this.seats = seats;
+      seatMoney = new long[seats];
+      seatFinals = new long[seats];
+      seatWins = new long[seats];
+      payouts = new long[PAYOUT_BUCKETS];
+      finalistPayouts = new long[PAYOUT_BUCKETS];
+    }
+
+    /**
+     * Adds the totals of another thread to these ones.
+     *
+     * @param other the {@link Totals} to add
+     */
+    private void merge(Totals other) {
+      games += other.games;
+      stuckGames += other.stuckGames;
+      actions += other.actions;
+      pushedCommands += other.pushedCommands;
+      allocatedBytes += other.allocatedBytes;
+      for (int i = 0; i < seats; i++) {
+        seatMoney[i] += other.seatMoney[i];
+        seatFinals[i] += other.seatFinals[i];
+        seatWins[i] += other.seatWins[i];
+      }
+      for (int i = 0; i < PAYOUT_BUCKETS; i++) {
+        payouts[i] += other.payouts[i];
+        finalistPayouts[i] += other.finalistPayouts[i];
+      }
+    }
+  }
+
+  private final List<BotStrategy> strategies;
+  private final long seed;
+  private final com.sun.management.ThreadMXBean threads;
+
+  /**
+   * Default constructor.
+   *
+   * @param strategies a {@link List} with the {@link BotStrategy} of each bot of a game, between 1
+   *     and {@link GameMatch#MAX_PLAYERS} of them
+   * @param seed the seed the seeds of the games derive from
+   * @throws IllegalArgumentException if the number of bots is invalid
+   */
+  public MatchSimulator(List<BotStrategy> strategies, long seed) {
+    if (strategies.isEmpty() || strategies.size() > GameMatch.MAX_PLAYERS) {
+      throw new IllegalArgumentException(
+          "[MatchSimulator] A game needs between 1 and " + GameMatch.MAX_PLAYERS + " bots");
+    }
+
+    this.strategies = List.copyOf(strategies);
+    this.seed = seed;
+
+    // Only measure the allocations when the JVM supports it.
+    com.sun.management.ThreadMXBean bean = null;
+    if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean b
+        && b.isThreadAllocatedMemorySupported()) {
+      b.setThreadAllocatedMemoryEnabled(true);
+      bean = b;
+    }
+    threads = bean;
+  }
+
+  /**
+   * Plays the given number of games.
+   *
+   * <p>The matches report their progress in the server log, which is turned off while simulating.
+   *
+   * @param games the number of games to play
+   * @param parallelism the number of threads playing the games
+   * @return the {@link Result} of the simulation
+   * @throws InterruptedException if interrupted while waiting for the games
+   */
+  public Result run(long games, int parallelism) throws InterruptedException {
+    Level level = Logger.getLevel();
+    Logger.setLevel(Level.OFF);
+
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    long start = System.nanoTime();
+    Totals totals;
+    try {
+      totals =
+          pool.submit(
+                  () ->
+                      LongStream.range(0, games)
+                          .parallel()
+                          .collect(
+                              () -> new Totals(strategies.size()), this::playGame, Totals::merge))
+              .get();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("[MatchSimulator] A game failed", e.getCause());
+    } finally {
+      pool.shutdownNow();
+      Logger.setLevel(level);
+    }
+    long nanos = System.nanoTime() - start;
+
+    return new Result(
+        totals.games,
+        totals.stuckGames,
+        totals.actions,
+        totals.pushedCommands,
+        null != threads ? totals.allocatedBytes : -1,
+        nanos,
+        strategies,
+        totals.seatMoney,
+        totals.seatFinals,
+        totals.seatWins,
+        totals.payouts,
+        totals.finalistPayouts);
+  }
+
+  /**
+   * Plays a complete game and adds its results to the totals of the thread.
+   *
+   * @param totals the {@link Totals} of the thread playing the game
+   * @param game the number of the game, from which its seed derives
+   */
+  private void playGame(Totals totals, long game) {
+    long allocatedBefore = null != threads ? threads.getCurrentThreadAllocatedBytes() : 0;
+
+    long gameSeed = seed + game * SEED_INCREMENT;
+    SplittableRandom random = new SplittableRandom(~gameSeed);
+    GameMatch match =
+        new GameMatch(
+            "simulation-" + game,
+            Runnable::run,
+            gameSeed,
+            new PuzzleHistory(Puzzle.getCatalogue()));
+
+    // Take a seat in turn, and remember the strategy of each seat.
+    int seats = strategies.size();
+    int firstSeat = (int) (game % seats);
+    Player[] players = new Player[seats];
+    for (int i = 0; i < seats; i++) {
+      int strategy = (firstSeat + i) % seats;
+      String username = "bot" + strategy;
+      match.addPlayer(username);
+      players[strategy] = match.getPlayer(username);
+    }
+    match.startGame();
+
+    Player finalist = null;
+    boolean won = false;
+    long actions = 0;
+    long pushed = 0;
+    Player player;
+    while (null != (player = match.getCurrentPlayer()) && actions < MAX_ACTIONS_PER_GAME) {
+      BotStrategy strategy = strategies.get(indexOf(players, player));
+      if (match.getPhase() == GamePhase.LAST_TURN) {
+        finalist = player;
+        won = playLastRound(match, player, random);
+      } else {
+        playTurn(match, player, strategy, random);
+      }
+      ++actions;
+
+      // Collect what the match sent, as the connections of the players would.
+      for (Player p : players) {
+        GameCommand[] commands = match.getPendingCommands(p);
+        if (null != commands) {
+          pushed += commands.length;
+        }
+      }
+    }
+
+    totals.games++;
+    totals.actions += actions;
+    totals.pushedCommands += pushed;
+    if (null != match.getCurrentPlayer()) {
+      totals.stuckGames++;
+    } else {
+      for (int i = 0; i < seats; i++) {
+        int money = players[i].getMoney();
+        totals.seatMoney[i] += money;
+        totals.payouts[bucket(money)]++;
+        if (players[i] == finalist) {
+          totals.seatFinals[i]++;
+          totals.finalistPayouts[bucket(money)]++;
+          if (won) {
+            totals.seatWins[i]++;
+          }
+        }
+      }
+    }
+
+    if (null != threads) {
+      totals.allocatedBytes += threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+    }
+  }
+
+  /**
+   * Plays one action of a bot during a normal round.
+   *
+   * @param match the {@link GameMatch} being played
+   * @param player the {@link Player} whose turn it is
+   * @param strategy the {@link BotStrategy} of the player
+   * @param random the {@link SplittableRandom} of the game
+   */
+  private static void playTurn(
+      GameMatch match, Player player, BotStrategy strategy, SplittableRandom random) {
+    String puzzle = match.getCurrentPuzzle();
+    double uncovered = uncovered(puzzle);
+    if (uncovered >= strategy.solveThreshold) {
+      solve(match, uncovered, random);
+      return;
+    }
+
+    char[] guessed = match.getGuessedLetters();
+    if (player.getState() == PlayerState.SECOND_GUESS_PHASE) {
+      char vowel = nextLetter(VOWELS, guessed, random);
+      if (0 != vowel && player.getMoney() >= strategy.vowelThreshold) {
+        match.guessVowel(new VowelCommand(vowel));
+      } else {
+        match.skipTurn(player);
+      }
+      return;
+    }
+
+    char consonant = nextLetter(CONSONANTS, guessed, random);
+    if (0 != consonant) {
+      match.guessConsonant(new GuessCommand(consonant));
+    } else {
+      // Nothing left to guess but the vowels, which are only bought after a consonant.
+      solve(match, uncovered, random);
+    }
+  }
+
+  /**
+   * Plays one action of a bot during the last round.
+   *
+   * @param match the {@link GameMatch} being played
+   * @param player the {@link Player} playing the last round
+   * @param random the {@link SplittableRandom} of the game
+   * @return {@code true} if the player solved the puzzle, {@code false} otherwise
+   */
+  private static boolean playLastRound(GameMatch match, Player player, SplittableRandom random) {
+    if (player.getState() != PlayerState.SECOND_GUESS_PHASE) {
+      match.guessLastRoundLetters(new LettersCommand(LAST_ROUND_LETTERS));
+      return false;
+    }
+
+    GameCommand response = solve(match, uncovered(match.getCurrentPuzzle()), random);
+    return response instanceof StatusCommand status
+        && status.getStatus() == StatusCode.RIGHT_ANSWER;
+  }
+
+  /**
+   * Attempts to solve the puzzle, finding the solution with a probability equal to the uncovered
+   * part of the puzzle.
+   *
+   * @param match the {@link GameMatch} being played
+   * @param uncovered the uncovered part of the puzzle
+   * @param random the {@link SplittableRandom} of the game
+   * @return the response of the match
+   */
+  private static GameCommand solve(GameMatch match, double uncovered, SplittableRandom random) {
+    String attempt = random.nextDouble() < uncovered ? match.getSolution() : "-";
+    return match.solvePuzzle(new FillCommand(attempt));
+  }
+
+  /**
+   * Picks one of the next two letters not guessed yet, in the given order.
+   *
+   * @param letters a {@link String} with the candidate letters, by order of preference
+   * @param guessed the letters already guessed
+   * @param random the {@link SplittableRandom} of the game
+   * @return the picked letter, or 0 if all the letters were guessed
+   */
+  private static char nextLetter(String letters, char[] guessed, SplittableRandom random) {
+    char picked = 0;
+    for (int i = 0; i < letters.length(); i++) {
+      char c = letters.charAt(i);
+      if (!contains(guessed, c)) {
+        if (0 != picked || random.nextBoolean()) {
+          return c;
+        }
+        picked = c;
+      }
+    }
+    return picked;
+  }
+
+  /**
+   * Computes the uncovered part of a puzzle.
+   *
+   * @param puzzle a {@link String} with the current state of the puzzle
+   * @return the number of uncovered letters divided by the number of letters
+   */
+  private static double uncovered(String puzzle) {
+    int letters = 0;
+    int hidden = 0;
+    for (int i = 0; i < puzzle.length(); i++) {
+      char c = puzzle.charAt(i);
+      if ('*' == c) {
+        ++hidden;
+        ++letters;
+      } else if (Character.isLetter(c)) {
+        ++letters;
+      }
+    }
+    return 0 == letters ? 1 : (double) (letters - hidden) / letters;
+  }
+
+  /**
+   * Checks whether a letter is among the given ones, regardless of their case.
+   *
+   * @param letters the letters to search
+   * @param letter the upper case letter to find
+   * @return {@code true} if the letter was found, {@code false} otherwise
+   */
+  private static boolean contains(char[] letters, char letter) {
+    for (char c : letters) {
+      if (Character.toUpperCase(c) == letter) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Finds the seat of a player, which is also the index of its strategy.
+   *
+   * @param players the players of the game, by seat
+   * @param player the {@link Player} to find
+   * @return the seat of the player
+   */
+  private static int indexOf(Player[] players, Player player) {
+    for (int i = 0; i < players.length; i++) {
+      if (players[i] == player) {
+        return i;
+      }
+    }
+    throw new IllegalStateException("[MatchSimulator] Unknown player " + player);
+  }
+
+  /**
+   * Gets the bucket of the payout histograms an amount of money falls in.
+   *
+   * @param money the amount of money
+   * @return the index of the bucket
+   */
+  private static int bucket(int money) {
+    return Math.min(money / PAYOUT_BUCKET, PAYOUT_BUCKETS - 1);
+  }
+}
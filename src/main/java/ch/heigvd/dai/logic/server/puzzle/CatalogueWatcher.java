@@ -0,0 +1,150 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.server.puzzle;
+
+import ch.heigvd.dai.logging.Logger;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.InvalidPropertiesFormatException;
+
+/**
+ * Watches a catalogue file and loads it again whenever it changes, without restarting the server.
+ *
+ * <p>The new catalogue is opened and checked on the thread of the watcher, then swapped in with
+ * {@link Puzzle#setCatalogue(PuzzleCatalogue)}. The matches never wait for it: they keep drawing
+ * from the previous catalogue until the swap, and pick the new one up at their next round. If the
+ * new file is not a valid catalogue, the current one is kept.
+ *
+ * <p>Since the watched file may be edited in place, which would corrupt a catalogue mapping it, the
+ * file is first copied to a private snapshot, which is the file actually mapped.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+public class CatalogueWatcher implements Runnable {
+
+  private static final Logger LOGGER = new Logger("Server");
+
+  /** Time to wait for a burst of changes to the file to settle before loading it. */
+  private static final long SETTLE_DELAY_MS = 200;
+
+  private final Path file;
+
+  /**
+   * Default constructor.
+   *
+   * @param file the {@link Path} of the catalogue file to watch
+   */
+  public CatalogueWatcher(Path file) {
+    this.file = file.toAbsolutePath();
+  }
+
+  /**
+   * Loads the catalogue file and swaps it in.
+   *
+   * @return the loaded {@link PuzzleCatalogue}
+   * @throws IOException if the file cannot be read or is not a valid catalogue
+   */
+  public PuzzleCatalogue load() throws IOException {
+    Path snapshot = Files.createTempFile("catalogue-", ".wofc");
+    PuzzleCatalogue catalogue;
+    try {
+      Files.copy(file, snapshot, StandardCopyOption.REPLACE_EXISTING);
+      catalogue = PuzzleCatalogue.open(snapshot);
+    } finally {
+      // The mapping outlives the file, except on systems refusing to delete a mapped file.
+      try {
+        Files.delete(snapshot);
+      } catch (IOException e) {
+        snapshot.toFile().deleteOnExit();
+      }
+    }
+
+    if (0 == catalogue.size()) {
+      throw new InvalidPropertiesFormatException("[CatalogueWatcher] The catalogue is empty");
+    }
+
+    Puzzle.setCatalogue(catalogue);
+    return catalogue;
+  }
+
+  /**
+   * Watches the directory of the catalogue file, and loads the file again whenever it is created,
+   * replaced or modified. Runs until the thread is interrupted.
+   */
+  @Override
+  public void run() {
+    try (WatchService watchService = file.getFileSystem().newWatchService()) {
+      file.getParent()
+          .register(
+              watchService,
+              StandardWatchEventKinds.ENTRY_CREATE,
+              StandardWatchEventKinds.ENTRY_MODIFY);
+
+      while (!Thread.currentThread().isInterrupted()) {
+        if (!hasChanged(watchService.take())) {
+          continue;
+        }
+
+        // Let the writer finish, and coalesce the events it triggers meanwhile.
+        Thread.sleep(SETTLE_DELAY_MS);
+        WatchKey key;
+        while (null != (key = watchService.poll())) {
+          hasChanged(key);
+        }
+
+        try {
+          PuzzleCatalogue catalogue = load();
+          LOGGER.info(() -> "Reloaded " + catalogue.size() + " puzzles from " + file);
+        } catch (IOException e) {
+          LOGGER.warn(() -> "Keeping the current puzzle catalogue: " + e);
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      LOGGER.warn(() -> "Cannot watch the puzzle catalogue: " + e);
+    }
+  }
+
+  /**
+   * Consumes the events of a watch key and resets it.
+   *
+   * @param key the {@link WatchKey} with the pending events
+   * @return {@code true} if one of the events may concern the catalogue file, {@code false}
+   *     otherwise
+   */
+  private boolean hasChanged(WatchKey key) {
+    boolean changed = false;
+    for (WatchEvent<?> event : key.pollEvents()) {
+      changed |=
+          event.kind() == StandardWatchEventKinds.OVERFLOW
+              || file.getFileName().equals(event.context());
+    }
+    key.reset();
+    return changed;
+  }
+}
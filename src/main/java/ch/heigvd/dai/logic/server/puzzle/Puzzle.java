@@ -18,13 +18,24 @@
 
 package ch.heigvd.dai.logic.server.puzzle;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import org.roaringbitmap.RoaringBitmap;
 
 /**
- * Implements the logic for a Wheel of Fortune puzzle and contains all the possible puzzles that can
- * be used in the game.
+ * Implements the logic for a Wheel of Fortune puzzle. New puzzles are drawn from the {@link
+ * PuzzleCatalogue} in use by the server.
+ *
+ * <p>A puzzle indexes the positions of each letter from {@code A} to {@code Z} of its phrase when
+ * it is created. The board shown to the players is revealed in place, the guessed letters are kept
+ * in a bitmask, and the number of letters still hidden is maintained along the way. Guessing a
+ * letter, counting its occurrences or checking whether the puzzle is solved thus only costs as much
+ * as the occurrences of the letter, and allocates nothing. Only the letters from {@code A} to
+ * {@code Z} are hidden, as they are the only ones the players can guess: any other character, such
+ * as an accented letter of a catalogue that was not built with {@link PuzzleImporter}, is shown
+ * from the start, so that the puzzle can still be solved.
  *
  * @author Pedro Alves da Silva
  * @author Gonçalo Carvalheiro Heleno
@@ -32,210 +43,51 @@ import java.util.Random;
 public class Puzzle {
 
   public static final String FinalRoundInitialLetters = "RSTNLE";
+
+  /** Number of letters of the alphabet indexed by a puzzle. */
+  private static final int ALPHABET_LENGTH = 26;
+
+  /** Character shown on the board in place of a hidden letter. */
+  private static final char HIDDEN_LETTER = '*';
+
   private final PuzzleRecord record;
-  private final List<Character> lettersGuessed;
   private final int vowelCost;
+
+  /** The phrase as shown to the players, with the hidden letters replaced by {@code *}. */
+  private final char[] board;
+
+  /**
+   * Offsets in {@link #letterPositions} of the positions of each letter, indexed from {@code A}.
+   * The positions of a letter end where the positions of the next one start.
+   */
+  private final int[] letterOffsets;
+
+  /** Positions in the phrase of the letters from {@code A} to {@code Z}, grouped by letter. */
+  private final int[] letterPositions;
+
+  /** Letters from {@code A} to {@code Z} already guessed, one bit per letter. */
+  private int guessedMask;
+
+  /** Letters already guessed, in the order they were guessed. */
+  private char[] lettersGuessed;
+
+  /** Number of letters already guessed. */
+  private int guessedCount;
+
+  /** Number of letters of the phrase still hidden on the board. */
+  private int hiddenLetters;
+
+  /** The board as a string, built when needed and dropped whenever a letter is revealed. */
   private String currentPuzzleState;
 
   /**
-   * Attribute containing all the possible puzzles that can be used in the game. Puzzles are based
-   * on some of the actual Wheel of Fortune puzzles, retrieved from <a
-   * href="http://google.com">https://wheeloffortuneanswer.com/</a>.
+   * Puzzles each player has already seen, along with the catalogue the puzzles are drawn from. The
+   * history is kept when another catalogue is loaded.
    */
-  private static final PuzzleRecord[] PossiblePuzzles =
-      new PuzzleRecord[] {
-        new PuzzleRecord("A Bag Full Of Blue M&M's", PuzzleCategory.FOOD),
-        new PuzzleRecord("All-Natural Ingredients", PuzzleCategory.FOOD),
-        new PuzzleRecord("All-You-Can-Eat Shrimp", PuzzleCategory.FOOD),
-        new PuzzleRecord("An Assortment Of Colorful Hard Candy", PuzzleCategory.FOOD),
-        new PuzzleRecord("Antipasto Salad With Oil & Vinegar", PuzzleCategory.FOOD),
-        new PuzzleRecord("Bacon And Soft-Boiled Eggs", PuzzleCategory.FOOD),
-        new PuzzleRecord("Bacon Wrapped Barbecue Shrimp", PuzzleCategory.FOOD),
-        new PuzzleRecord("Baked Apples With Cinnamon", PuzzleCategory.FOOD),
-        new PuzzleRecord("Banana Pudding", PuzzleCategory.FOOD),
-        new PuzzleRecord("Beef & Broccoli Stir Fry", PuzzleCategory.FOOD),
-        new PuzzleRecord("Best Pizza In Town", PuzzleCategory.FOOD),
-        new PuzzleRecord("Black-Eyed Pea Soup", PuzzleCategory.FOOD),
-        new PuzzleRecord("Buttered Croissant With Jam", PuzzleCategory.FOOD),
-        new PuzzleRecord("California Roll With Wasabi", PuzzleCategory.FOOD),
-        new PuzzleRecord("Champagne & Caviar", PuzzleCategory.FOOD),
-        new PuzzleRecord("Chicken & Waffles", PuzzleCategory.FOOD),
-        new PuzzleRecord("Chocolate Covered Marshmallows", PuzzleCategory.FOOD),
-        new PuzzleRecord("Drizzling Melted Butter On My Food", PuzzleCategory.FOOD),
-        new PuzzleRecord("Dulce De Leche On Ice Cream", PuzzleCategory.FOOD),
-        new PuzzleRecord("Fresh Fruits & Vegetables", PuzzleCategory.FOOD),
-        new PuzzleRecord("Frozen Berries", PuzzleCategory.FOOD),
-        new PuzzleRecord("Gingerbread Men Cookies", PuzzleCategory.FOOD),
-        new PuzzleRecord("Glass Of Ice Tea", PuzzleCategory.FOOD),
-        new PuzzleRecord("Iced Coffee With Cream", PuzzleCategory.FOOD),
-        new PuzzleRecord("Large Pizza With Everything On It", PuzzleCategory.FOOD),
-        new PuzzleRecord("Light & Fluffy Deep Fried Doughnuts", PuzzleCategory.FOOD),
-        new PuzzleRecord("Lime Wedge", PuzzleCategory.FOOD),
-        new PuzzleRecord("Lobster Tail & Butter Sauce", PuzzleCategory.FOOD),
-        new PuzzleRecord("Maine Lobster", PuzzleCategory.FOOD),
-        new PuzzleRecord("Marshmallow Peeps", PuzzleCategory.FOOD),
-        new PuzzleRecord("Mashed Potatoes With Chives", PuzzleCategory.FOOD),
-        new PuzzleRecord("Peanut Butter & Jelly Sandwich", PuzzleCategory.FOOD),
-        new PuzzleRecord("Raspberries, Strawberries, And Cherries", PuzzleCategory.FOOD),
-        new PuzzleRecord("Red Sangria With Sweet Orange Slices", PuzzleCategory.FOOD),
-        new PuzzleRecord("Sponge Cake Topped With Sugary Icing", PuzzleCategory.FOOD),
-        new PuzzleRecord("Sugar-Free Cola", PuzzleCategory.FOOD),
-        new PuzzleRecord("Alarm Clock With Nature Sounds", PuzzleCategory.AROUND_THE_HOUSE),
-        new PuzzleRecord("Antique Clock", PuzzleCategory.AROUND_THE_HOUSE),
-        new PuzzleRecord("Backyard Furniture", PuzzleCategory.AROUND_THE_HOUSE),
-        new PuzzleRecord("Bermuda Shorts", PuzzleCategory.AROUND_THE_HOUSE),
-        new PuzzleRecord("Black-And White Family Photograph", PuzzleCategory.AROUND_THE_HOUSE),
-        new PuzzleRecord("Cashmere Blanket", PuzzleCategory.AROUND_THE_HOUSE),
-        new PuzzleRecord("Clear Plastic Shower Curtain", PuzzleCategory.AROUND_THE_HOUSE),
-        new PuzzleRecord("Creaking Door", PuzzleCategory.AROUND_THE_HOUSE),
-        new PuzzleRecord("Egyptian Cotton Sheets", PuzzleCategory.AROUND_THE_HOUSE),
-        new PuzzleRecord("Electrical Outlets", PuzzleCategory.AROUND_THE_HOUSE),
-        new PuzzleRecord("Family Heirlooms", PuzzleCategory.AROUND_THE_HOUSE),
-        new PuzzleRecord("Floor-To-Ceiling Views", PuzzleCategory.AROUND_THE_HOUSE),
-        new PuzzleRecord("Fresh-Smelling Bathroom Drain", PuzzleCategory.AROUND_THE_HOUSE),
-        new PuzzleRecord("Memory-Foam Pet Mat", PuzzleCategory.AROUND_THE_HOUSE),
-        new PuzzleRecord("Moisturizing Cream", PuzzleCategory.AROUND_THE_HOUSE),
-        new PuzzleRecord("Pet's Water Bowl", PuzzleCategory.AROUND_THE_HOUSE),
-        new PuzzleRecord("Scented Candles", PuzzleCategory.AROUND_THE_HOUSE),
-        new PuzzleRecord("Stackable Baskets", PuzzleCategory.AROUND_THE_HOUSE),
-        new PuzzleRecord("USB Power Adapter", PuzzleCategory.AROUND_THE_HOUSE),
-        new PuzzleRecord("Welcome Doormat", PuzzleCategory.AROUND_THE_HOUSE),
-        new PuzzleRecord("Blackjack", PuzzleCategory.FUN_AND_GAMES),
-        new PuzzleRecord("Bodysurfing", PuzzleCategory.FUN_AND_GAMES),
-        new PuzzleRecord("Bowling", PuzzleCategory.FUN_AND_GAMES),
-        new PuzzleRecord("Bowling Night", PuzzleCategory.FUN_AND_GAMES),
-        new PuzzleRecord("Buying A Vowel", PuzzleCategory.FUN_AND_GAMES),
-        new PuzzleRecord("Deck Of Playing Cards", PuzzleCategory.FUN_AND_GAMES),
-        new PuzzleRecord("Egg Toss", PuzzleCategory.FUN_AND_GAMES),
-        new PuzzleRecord("Etch A Sketch", PuzzleCategory.FUN_AND_GAMES),
-        new PuzzleRecord("Fake Snake Popping Out Of A Nut Can", PuzzleCategory.FUN_AND_GAMES),
-        new PuzzleRecord("Halloween", PuzzleCategory.FUN_AND_GAMES),
-        new PuzzleRecord("Marco! Polo!", PuzzleCategory.FUN_AND_GAMES),
-        new PuzzleRecord("Painting By Numbers", PuzzleCategory.FUN_AND_GAMES),
-        new PuzzleRecord("Playing A Round Of Golf", PuzzleCategory.FUN_AND_GAMES),
-        new PuzzleRecord("Playing Tic-Tac-Toe In The Snow", PuzzleCategory.FUN_AND_GAMES),
-        new PuzzleRecord("Riddles And Jokes", PuzzleCategory.FUN_AND_GAMES),
-        new PuzzleRecord("Scoring The Winning Goal", PuzzleCategory.FUN_AND_GAMES),
-        new PuzzleRecord("Sidewalk Chalk & Hula Hoops", PuzzleCategory.FUN_AND_GAMES),
-        new PuzzleRecord("Skateboarding & Snowboarding", PuzzleCategory.FUN_AND_GAMES),
-        new PuzzleRecord("Snowball Fights", PuzzleCategory.FUN_AND_GAMES),
-        new PuzzleRecord("The First Game Of The World Cup", PuzzleCategory.FUN_AND_GAMES),
-        new PuzzleRecord("Truth Or Dare & Simon Says", PuzzleCategory.FUN_AND_GAMES),
-        new PuzzleRecord("Abbey Library Of St. Gall", PuzzleCategory.LANDMARKS),
-        new PuzzleRecord("Acropolis Museum In Athens, Greece", PuzzleCategory.LANDMARKS),
-        new PuzzleRecord("Big Ben", PuzzleCategory.LANDMARKS),
-        new PuzzleRecord("Boston Harbor", PuzzleCategory.LANDMARKS),
-        new PuzzleRecord("Castle Of Lisbon", PuzzleCategory.LANDMARKS),
-        new PuzzleRecord("Colosseum", PuzzleCategory.LANDMARKS),
-        new PuzzleRecord("Dolby Theater", PuzzleCategory.LANDMARKS),
-        new PuzzleRecord("Egyptian Pyramids", PuzzleCategory.LANDMARKS),
-        new PuzzleRecord("Eiffel Tower", PuzzleCategory.LANDMARKS),
-        new PuzzleRecord("Empire State Building", PuzzleCategory.LANDMARKS),
-        new PuzzleRecord("Grand Canyon National Park", PuzzleCategory.LANDMARKS),
-        new PuzzleRecord("Great Wall Of China", PuzzleCategory.LANDMARKS),
-        new PuzzleRecord("Hawaii Volcanoes National Park", PuzzleCategory.LANDMARKS),
-        new PuzzleRecord("Hollywood Walk Of Fame", PuzzleCategory.LANDMARKS),
-        new PuzzleRecord("Joshua Tree National Park", PuzzleCategory.LANDMARKS),
-        new PuzzleRecord("Lisbon Oceanarium", PuzzleCategory.LANDMARKS),
-        new PuzzleRecord("Lisbon Portela Airport", PuzzleCategory.LANDMARKS),
-        new PuzzleRecord("Monument Valley Navajo Tribal Park", PuzzleCategory.LANDMARKS),
-        new PuzzleRecord("Piccadilly Circus", PuzzleCategory.LANDMARKS),
-        new PuzzleRecord("Serra De Estrela", PuzzleCategory.LANDMARKS),
-        new PuzzleRecord("Sidney Harbour", PuzzleCategory.LANDMARKS),
-        new PuzzleRecord("Stonehenge", PuzzleCategory.LANDMARKS),
-        new PuzzleRecord("Taj Mahal", PuzzleCategory.LANDMARKS),
-        new PuzzleRecord("The Cathedral Of Our Lady Of Chartres", PuzzleCategory.LANDMARKS),
-        new PuzzleRecord("Abbeys And Convents", PuzzleCategory.PLACES),
-        new PuzzleRecord("Amazing Cities", PuzzleCategory.PLACES),
-        new PuzzleRecord("Amazing Water Park", PuzzleCategory.PLACES),
-        new PuzzleRecord("Car Show Room", PuzzleCategory.PLACES),
-        new PuzzleRecord("Computer-Generated World", PuzzleCategory.PLACES),
-        new PuzzleRecord("Exclusive Waterfront Hotel", PuzzleCategory.PLACES),
-        new PuzzleRecord("Foreign Trade Routes", PuzzleCategory.PLACES),
-        new PuzzleRecord("Fortune Teller's Tent", PuzzleCategory.PLACES),
-        new PuzzleRecord("Four-Lane, Heavily-Congested Highway", PuzzleCategory.PLACES),
-        new PuzzleRecord("Gourmet Specialty Restaurants", PuzzleCategory.PLACES),
-        new PuzzleRecord("Grasslands National Park", PuzzleCategory.PLACES),
-        new PuzzleRecord("Historic Downtown District", PuzzleCategory.PLACES),
-        new PuzzleRecord("Hogwarts School Of Witchcraft And Wizardry", PuzzleCategory.PLACES),
-        new PuzzleRecord("Home To Millions Of People", PuzzleCategory.PLACES),
-        new PuzzleRecord("Houses Made Of Concrete & Brick", PuzzleCategory.PLACES),
-        new PuzzleRecord("Japanese Garden", PuzzleCategory.PLACES),
-        new PuzzleRecord("Jazz Club", PuzzleCategory.PLACES),
-        new PuzzleRecord("Korean Barbecue Restaurant", PuzzleCategory.PLACES),
-        new PuzzleRecord("Lake Geneva, Switzerland", PuzzleCategory.PLACES),
-        new PuzzleRecord("Luxury-Cruise Destination", PuzzleCategory.PLACES),
-        new PuzzleRecord("Multipurpose Gym", PuzzleCategory.PLACES),
-        new PuzzleRecord("Prime Whale-Watching Site", PuzzleCategory.PLACES),
-        new PuzzleRecord("Quaint Harbor Town", PuzzleCategory.PLACES),
-        new PuzzleRecord("Rural & Mountainous Region", PuzzleCategory.PLACES),
-        new PuzzleRecord("Security Area", PuzzleCategory.PLACES),
-        new PuzzleRecord("Underground Cave", PuzzleCategory.PLACES),
-        new PuzzleRecord("Where The Sidewalk Ends", PuzzleCategory.PLACES),
-        new PuzzleRecord("Your Neighbor's Driveway", PuzzleCategory.PLACES),
-        new PuzzleRecord("Zen Garden", PuzzleCategory.PLACES),
-        new PuzzleRecord("Africa By Toto", PuzzleCategory.SONGS),
-        new PuzzleRecord("All I Want For Christmas Is You By Mariah Carey", PuzzleCategory.SONGS),
-        new PuzzleRecord("Another Day In Paradise By Phil Collins", PuzzleCategory.SONGS),
-        new PuzzleRecord("Billie Jean By Michael Jackson", PuzzleCategory.SONGS),
-        new PuzzleRecord("Call Me By Blondie", PuzzleCategory.SONGS),
-        new PuzzleRecord("Cold Heart By Dua Lipa & Elton John", PuzzleCategory.SONGS),
-        new PuzzleRecord("Don't Stop The Music By Rihanna", PuzzleCategory.SONGS),
-        new PuzzleRecord("Down Under By Men At Work", PuzzleCategory.SONGS),
-        new PuzzleRecord("Fields Of Gold By Sting", PuzzleCategory.SONGS),
-        new PuzzleRecord("Happy Together By The Turtles", PuzzleCategory.SONGS),
-        new PuzzleRecord("Here Comes The Sun By The Beatles", PuzzleCategory.SONGS),
-        new PuzzleRecord("Imagine By John Lennon", PuzzleCategory.SONGS),
-        new PuzzleRecord("Jammin' By Bob Marley", PuzzleCategory.SONGS),
-        new PuzzleRecord("Monster By Lady Gaga", PuzzleCategory.SONGS),
-        new PuzzleRecord("My Heart Will Go On By Celine Dion", PuzzleCategory.SONGS),
-        new PuzzleRecord("One Love By Bob Marley And The Wailers", PuzzleCategory.SONGS),
-        new PuzzleRecord("Royals By Lorde", PuzzleCategory.SONGS),
-        new PuzzleRecord("Same Old Love By Selena Gomez", PuzzleCategory.SONGS),
-        new PuzzleRecord("Seven Nation Army By The White Stripes", PuzzleCategory.SONGS),
-        new PuzzleRecord("Waiting For A Girl Like You By Foreigner", PuzzleCategory.SONGS),
-        new PuzzleRecord("We Found Love By Rihanna", PuzzleCategory.SONGS),
-        new PuzzleRecord("A Word Search", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Adding A New Show To My Watchlist", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Admiring The Gorgeous Lake", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Applying For A New Job", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord(
-            "Asking A Girl If I Can Carry Her Books", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Asking My Girlfriend To Homecoming", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Breaking All The Rules", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Brewing Ice Tea", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord(
-            "Carrying My Girlfriend's Books Home From School", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Catching Snowflakes On My Tongue", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Celebrating Chinese New Year", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Dining At A Popular Local Restaurant", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord(
-            "Dipping My Toe Into The Mediterranean Sea", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Drinking Champagne", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Drinking Fresh-Squeezed Orange Juice", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Enjoying The Ocean Breeze", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Giving You My Undivided Attention", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Going Away For A Relaxing Weekend", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Having A Good Laugh", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Lying Down", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord(
-            "Participating In A National Spelling Bee", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Reading The Local Paper", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Riding Shotgun", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Roasting Hot Dogs Over A Campfire", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord(
-            "Running Into A Former High School Classmate", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Saving A Few Dollars", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Sipping Hot Chocolate", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Swimming In A Pool", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Taking A Ferry To A Small Island", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Visiting The North Pole", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Walking Around On A Roof", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Yelling Timber!", PuzzleCategory.WHAT_ARE_YOU_DOING),
-        new PuzzleRecord("Zooming Around", PuzzleCategory.WHAT_ARE_YOU_DOING),
-      };
-
-  private static final ArrayList<Integer> PlayedPuzzles = new ArrayList<>();
+  private static final PuzzleHistory History = new PuzzleHistory(PuzzleCatalogue.builtIn());
+
+  /** Weight of each category in the rounds, empty to draw from all the puzzles alike. */
+  private static volatile Map<PuzzleCategory, Integer> CategoryWeights = Map.of();
 
   /**
    * Default constructor. Constructs a new puzzle based on the provided record and initial uncovered
@@ -247,25 +99,68 @@ public class Puzzle {
    * @param vowelCost an integer with the cost of guessing a vowel
    */
   public Puzzle(PuzzleRecord record, String initialLetters, int vowelCost) {
-    String upperInitialLetters = initialLetters.toUpperCase();
-    lettersGuessed = new ArrayList<>();
     this.record = record;
     this.vowelCost = vowelCost;
+    board = record.puzzle().toCharArray();
 
-    for (char letter : upperInitialLetters.toCharArray()) {
-      lettersGuessed.add(letter);
+    // Count the occurrences of each letter, then lay out their positions one letter after another.
+    letterOffsets = new int[ALPHABET_LENGTH + 1];
+    for (char letter : board) {
+      if (isIndexed(letter)) {
+        ++letterOffsets[letter - 'A' + 1];
+      }
+    }
+    for (int i = 0; i < ALPHABET_LENGTH; i++) {
+      letterOffsets[i + 1] += letterOffsets[i];
+    }
+    letterPositions = new int[letterOffsets[ALPHABET_LENGTH]];
+    int[] nextPositions = Arrays.copyOf(letterOffsets, ALPHABET_LENGTH);
+    for (int i = 0; i < board.length; i++) {
+      if (isIndexed(board[i])) {
+        letterPositions[nextPositions[board[i] - 'A']++] = i;
+      }
     }
 
-    StringBuilder sb = new StringBuilder();
-    for (char letter : record.puzzle().toCharArray()) {
-      if (Character.isLetter(letter) && !upperInitialLetters.contains(Character.toString(letter))) {
-        sb.append('*');
-      } else {
-        sb.append(letter);
+    lettersGuessed = new char[ALPHABET_LENGTH];
+    for (char letter : initialLetters.toUpperCase().toCharArray()) {
+      markGuessed(letter);
+    }
+
+    for (int i = 0; i < board.length; i++) {
+      if (isIndexed(board[i]) && !isGuessed(board[i])) {
+        board[i] = HIDDEN_LETTER;
+        ++hiddenLetters;
       }
     }
+  }
 
-    currentPuzzleState = sb.toString();
+  /**
+   * Checks whether a letter is one of the letters indexed by the puzzle.
+   *
+   * @param letter a {@code char} with the upper case letter to check
+   * @return {@code true} if the letter is between {@code A} and {@code Z}, {@code false} otherwise
+   */
+  private static boolean isIndexed(char letter) {
+    return letter >= 'A' && letter <= 'Z';
+  }
+
+  /**
+   * Adds a letter to the guessed letters, unless it was already guessed.
+   *
+   * @param upperLetter a {@code char} with the upper case letter
+   */
+  private void markGuessed(char upperLetter) {
+    if (isGuessed(upperLetter)) {
+      return;
+    }
+
+    if (isIndexed(upperLetter)) {
+      guessedMask |= 1 << (upperLetter - 'A');
+    }
+    if (guessedCount == lettersGuessed.length) {
+      lettersGuessed = Arrays.copyOf(lettersGuessed, lettersGuessed.length * 2);
+    }
+    lettersGuessed[guessedCount++] = upperLetter;
   }
 
   /**
@@ -275,8 +170,27 @@ public class Puzzle {
    * @return {@code true} if the letter has been used, {@code false} otherwise
    */
   public boolean hasLetterBeenGuessed(char letter) {
-    Character upperLetter = Character.toUpperCase(letter);
-    return lettersGuessed.contains(upperLetter);
+    return isGuessed(Character.toUpperCase(letter));
+  }
+
+  /**
+   * Checks whether an upper case letter has previously been guessed. Unlike {@link
+   * #hasLetterBeenGuessed(char)}, it cannot be overridden, so the constructor can call it.
+   *
+   * @param upperLetter a {@code char} with the upper case letter to check
+   * @return {@code true} if the letter has been used, {@code false} otherwise
+   */
+  private boolean isGuessed(char upperLetter) {
+    if (isIndexed(upperLetter)) {
+      return (guessedMask & (1 << (upperLetter - 'A'))) != 0;
+    }
+
+    for (int i = 0; i < guessedCount; i++) {
+      if (lettersGuessed[i] == upperLetter) {
+        return true;
+      }
+    }
+    return false;
   }
 
   /**
@@ -286,47 +200,80 @@ public class Puzzle {
    * @return {@code true} if the letter exists in the puzzle, {@code false} otherwise
    */
   public boolean tryGuessLetter(char letter) {
-    String upperLetter = Character.toString(letter).toUpperCase();
+    char upperLetter = Character.toUpperCase(letter);
     boolean letterGuessed = false;
-    char upperLetterChar = upperLetter.charAt(0);
-
-    if (!hasLetterBeenGuessed(upperLetterChar) && record.puzzle().contains(upperLetter)) {
-      StringBuilder sb = new StringBuilder();
-      String fullPuzzle = record.puzzle();
-      for (int i = 0; i < currentPuzzleState.length(); i++) {
-        if (fullPuzzle.charAt(i) == upperLetterChar) {
-          sb.append(upperLetter);
-        } else {
-          sb.append(currentPuzzleState.charAt(i));
+
+    if (!hasLetterBeenGuessed(upperLetter)) {
+      if (isIndexed(upperLetter)) {
+        int start = letterOffsets[upperLetter - 'A'];
+        int end = letterOffsets[upperLetter - 'A' + 1];
+        for (int i = start; i < end; i++) {
+          reveal(letterPositions[i]);
+        }
+        letterGuessed = end > start;
+      } else {
+        String fullPuzzle = record.puzzle();
+        for (int i = fullPuzzle.indexOf(upperLetter);
+            i >= 0;
+            i = fullPuzzle.indexOf(upperLetter, i + 1)) {
+          reveal(i);
+          letterGuessed = true;
         }
       }
-
-      currentPuzzleState = sb.toString();
-      letterGuessed = true;
-    }
-
-    if (!lettersGuessed.contains(upperLetterChar)) {
-      lettersGuessed.add(upperLetterChar);
+      markGuessed(upperLetter);
     }
 
     return letterGuessed;
   }
 
   /**
-   * Tries to guess the full puzzle.
+   * Reveals the letter at a given position of the board, if it is still hidden.
+   *
+   * @param position the position of the letter in the phrase
+   */
+  private void reveal(int position) {
+    if (board[position] == HIDDEN_LETTER) {
+      board[position] = record.puzzle().charAt(position);
+      --hiddenLetters;
+      currentPuzzleState = null;
+    }
+  }
+
+  /**
+   * Tries to guess the full puzzle. A correct guess reveals the whole board.
    *
    * @param fullPuzzle a {@link String} with the full guess
    * @return {@code true} if the guess is correct, {@code false} otherwise
    */
   public boolean guessPuzzle(String fullPuzzle) {
     if (record.puzzle().contentEquals(fullPuzzle.toUpperCase())) {
-      currentPuzzleState = fullPuzzle;
+      record.puzzle().getChars(0, board.length, board, 0);
+      hiddenLetters = 0;
+      currentPuzzleState = null;
       return true;
     }
 
     return false;
   }
 
+  /**
+   * Checks whether all the letters of the puzzle have been revealed.
+   *
+   * @return {@code true} if no letter is hidden anymore, {@code false} otherwise
+   */
+  public boolean isSolved() {
+    return hiddenLetters == 0;
+  }
+
+  /**
+   * Gets the number of letters of the puzzle that are still hidden.
+   *
+   * @return an integer with the number of hidden letters, each occurrence counting once
+   */
+  public int getHiddenLetterCount() {
+    return hiddenLetters;
+  }
+
   /**
    * Gets the number of times the provided letter appears in the full puzzle.
    *
@@ -338,10 +285,14 @@ public class Puzzle {
    *     hasn't been guessed yet)
    */
   public int getLetterCount(char letter) {
+    char upperLetter = Character.toUpperCase(letter);
+    if (isIndexed(upperLetter)) {
+      return letterOffsets[upperLetter - 'A' + 1] - letterOffsets[upperLetter - 'A'];
+    }
+
     int count = 0;
-    String upperLetter = Character.toString(letter).toUpperCase();
-    for (int i = 0; i < record.puzzle().length(); i++) {
-      if (record.puzzle().charAt(i) == upperLetter.charAt(0)) {
+    for (int i = 0; i < board.length; i++) {
+      if (record.puzzle().charAt(i) == upperLetter) {
         ++count;
       }
     }
@@ -355,7 +306,12 @@ public class Puzzle {
    * @return a {@link String} representing the current puzzle state
    */
   public String getCurrentPuzzleState() {
-    return currentPuzzleState;
+    String state = currentPuzzleState;
+    if (null == state) {
+      state = new String(board);
+      currentPuzzleState = state;
+    }
+    return state;
   }
 
   /**
@@ -367,14 +323,13 @@ public class Puzzle {
     return record.category();
   }
 
+  /**
+   * Returns the letters already guessed, in the order they were guessed.
+   *
+   * @return an array of {@code char} with a copy of the guessed letters
+   */
   public char[] getGuessedLetters() {
-    char[] charGuessed = new char[lettersGuessed.size()];
-
-    for (int i = 0; i < lettersGuessed.size(); i++) {
-      charGuessed[i] = lettersGuessed.get(i);
-    }
-
-    return charGuessed;
+    return Arrays.copyOf(lettersGuessed, guessedCount);
   }
 
   /**
@@ -396,27 +351,70 @@ public class Puzzle {
   }
 
   /**
-   * Creates a new puzzle with a random index from the list of possible puzzles.
+   * Gets the catalogue the puzzles are drawn from.
    *
-   * @param initialLetters a {@link String} with the initial letters to uncover
-   * @param vowelCost an integer with the cost of guessing a vowel
-   * @return a new {@link Puzzle} with the random puzzle
+   * @return the {@link PuzzleCatalogue} in use
    */
-  public static Puzzle createNewPuzzle(String initialLetters, int vowelCost) {
-    Random random = new Random();
-    int nextIndex = 0;
-    boolean validIndex = false;
+  public static PuzzleCatalogue getCatalogue() {
+    return History.getCatalogue();
+  }
 
-    if (PlayedPuzzles.size() == PossiblePuzzles.length) {
-      throw new RuntimeException("No more puzzles available");
-    }
+  /**
+   * Sets the catalogue the puzzles are drawn from. Can be called while matches are running: each
+   * match switches to the new catalogue when its next round starts, the rounds already started
+   * keeping their puzzle. The puzzles seen by the players are remembered, those missing from the
+   * new catalogue being dropped.
+   *
+   * @param catalogue the {@link PuzzleCatalogue} to use
+   * @see PuzzleHistory#setCatalogue(PuzzleCatalogue)
+   */
+  public static void setCatalogue(PuzzleCatalogue catalogue) {
+    History.setCatalogue(catalogue);
+  }
 
-    while (!validIndex) {
-      nextIndex = random.nextInt(PossiblePuzzles.length);
-      validIndex = !PlayedPuzzles.contains(nextIndex);
-    }
+  /**
+   * Gets the history of the puzzles seen by the players, along with the catalogue in use.
+   *
+   * @return the {@link PuzzleHistory} in use
+   */
+  public static PuzzleHistory getHistory() {
+    return History;
+  }
 
-    PlayedPuzzles.add(nextIndex);
-    return new Puzzle(PossiblePuzzles[nextIndex], initialLetters, vowelCost);
+  /**
+   * Gets the weight of each category in the rounds.
+   *
+   * @return an unmodifiable {@link Map} with the weight of each {@link PuzzleCategory}, empty if
+   *     the puzzles are drawn regardless of their category
+   */
+  public static Map<PuzzleCategory, Integer> getCategoryWeights() {
+    return CategoryWeights;
+  }
+
+  /**
+   * Sets the weight of each category in the rounds. Each round, a category is picked in proportion
+   * to its weight, then a puzzle of that category is drawn.
+   *
+   * @param weights a {@link Map} with the weight of each {@link PuzzleCategory}, the categories
+   *     missing from it never being picked, or an empty map to draw from all the puzzles alike
+   */
+  public static void setCategoryWeights(Map<PuzzleCategory, Integer> weights) {
+    CategoryWeights =
+        weights.isEmpty() ? Map.of() : Collections.unmodifiableMap(new EnumMap<>(weights));
+  }
+
+  /**
+   * Draws the index of the puzzle of a new round from a deck, among the puzzles none of the players
+   * has seen, following the category weights if any.
+   *
+   * @param deck the {@link PuzzleDeck} of the game match to draw the puzzle from
+   * @param seen a {@link RoaringBitmap} with the indices of the puzzles seen by the players in the
+   *     catalogue of the deck
+   * @return the index of the drawn puzzle in the catalogue of the deck
+   * @see PuzzleDeck#drawIndex(Map, RoaringBitmap)
+   */
+  public static int drawIndex(PuzzleDeck deck, RoaringBitmap seen) {
+    Map<PuzzleCategory, Integer> weights = CategoryWeights;
+    return weights.isEmpty() ? deck.drawIndex(seen) : deck.drawIndex(weights, seen);
   }
 }
@@ -0,0 +1,592 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.server.puzzle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.InvalidPropertiesFormatException;
+
+/**
+ * Read-only catalogue of the puzzles that can be drawn for a round.
+ *
+ * <p>A catalogue is stored as a binary file, made of the following sections, all integers being
+ * big-endian 32-bit integers:
+ *
+ * <ol>
+ *   <li>a header with the magic number {@code WOFC}, the version of the format, the number of
+ *       categories and the number of puzzles;
+ *   <li>the category index, giving for each {@link PuzzleCategory}, in declaration order, the index
+ *       of its first puzzle and its number of puzzles, the puzzles being sorted by category;
+ *   <li>the offset table, giving the offset of each puzzle in the data section, followed by the
+ *       length of the data section;
+ *   <li>the data section, with the upper case phrases of the puzzles encoded in UTF-8.
+ * </ol>
+ *
+ * <p>Catalogue files are memory-mapped, so opening one only reads its header and the heap does not
+ * grow with the number of puzzles: a {@link PuzzleRecord} is only decoded when its puzzle is drawn.
+ * A mapped file must not be modified in place, but can be replaced by a new file, as done by {@link
+ * PuzzleCatalogueWriter}. The buffers are only ever read at absolute positions, so a catalogue can
+ * be shared by all the matches without any lock.
+ *
+ * <p>A puzzle can also be looked up by the {@link PuzzleRecord#fingerprint() fingerprint} of its
+ * phrase, which identifies it across catalogues. The table of the fingerprints is only built when
+ * needed, with a pass over the whole catalogue.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+public final class PuzzleCatalogue {
+
+  /** Magic number at the start of a catalogue file, {@code WOFC} in ASCII. */
+  static final int MAGIC = 0x574F4643;
+
+  /** Version of the catalogue format written by this class. */
+  public static final int VERSION = 1;
+
+  /** Size in bytes of the header of a catalogue file. */
+  private static final int HEADER_SIZE = 4 * Integer.BYTES;
+
+  /** Maximum size in bytes of a catalogue file, which is read through a single buffer. */
+  static final long MAX_FILE_SIZE = Integer.MAX_VALUE;
+
+  /**
+   * Puzzles shipped with the game, used when no catalogue file is given. Puzzles are based on some
+   * of the actual Wheel of Fortune puzzles, retrieved from <a
+   * href="http://google.com">https://wheeloffortuneanswer.com/</a>.
+   */
+  private static final PuzzleRecord[] BuiltInPuzzles =
+      new PuzzleRecord[] {
+        new PuzzleRecord("A Bag Full Of Blue M&M's", PuzzleCategory.FOOD),
+        new PuzzleRecord("All-Natural Ingredients", PuzzleCategory.FOOD),
+        new PuzzleRecord("All-You-Can-Eat Shrimp", PuzzleCategory.FOOD),
+        new PuzzleRecord("An Assortment Of Colorful Hard Candy", PuzzleCategory.FOOD),
+        new PuzzleRecord("Antipasto Salad With Oil & Vinegar", PuzzleCategory.FOOD),
+        new PuzzleRecord("Bacon And Soft-Boiled Eggs", PuzzleCategory.FOOD),
+        new PuzzleRecord("Bacon Wrapped Barbecue Shrimp", PuzzleCategory.FOOD),
+        new PuzzleRecord("Baked Apples With Cinnamon", PuzzleCategory.FOOD),
+        new PuzzleRecord("Banana Pudding", PuzzleCategory.FOOD),
+        new PuzzleRecord("Beef & Broccoli Stir Fry", PuzzleCategory.FOOD),
+        new PuzzleRecord("Best Pizza In Town", PuzzleCategory.FOOD),
+        new PuzzleRecord("Black-Eyed Pea Soup", PuzzleCategory.FOOD),
+        new PuzzleRecord("Buttered Croissant With Jam", PuzzleCategory.FOOD),
+        new PuzzleRecord("California Roll With Wasabi", PuzzleCategory.FOOD),
+        new PuzzleRecord("Champagne & Caviar", PuzzleCategory.FOOD),
+        new PuzzleRecord("Chicken & Waffles", PuzzleCategory.FOOD),
+        new PuzzleRecord("Chocolate Covered Marshmallows", PuzzleCategory.FOOD),
+        new PuzzleRecord("Drizzling Melted Butter On My Food", PuzzleCategory.FOOD),
+        new PuzzleRecord("Dulce De Leche On Ice Cream", PuzzleCategory.FOOD),
+        new PuzzleRecord("Fresh Fruits & Vegetables", PuzzleCategory.FOOD),
+        new PuzzleRecord("Frozen Berries", PuzzleCategory.FOOD),
+        new PuzzleRecord("Gingerbread Men Cookies", PuzzleCategory.FOOD),
+        new PuzzleRecord("Glass Of Ice Tea", PuzzleCategory.FOOD),
+        new PuzzleRecord("Iced Coffee With Cream", PuzzleCategory.FOOD),
+        new PuzzleRecord("Large Pizza With Everything On It", PuzzleCategory.FOOD),
+        new PuzzleRecord("Light & Fluffy Deep Fried Doughnuts", PuzzleCategory.FOOD),
+        new PuzzleRecord("Lime Wedge", PuzzleCategory.FOOD),
+        new PuzzleRecord("Lobster Tail & Butter Sauce", PuzzleCategory.FOOD),
+        new PuzzleRecord("Maine Lobster", PuzzleCategory.FOOD),
+        new PuzzleRecord("Marshmallow Peeps", PuzzleCategory.FOOD),
+        new PuzzleRecord("Mashed Potatoes With Chives", PuzzleCategory.FOOD),
+        new PuzzleRecord("Peanut Butter & Jelly Sandwich", PuzzleCategory.FOOD),
+        new PuzzleRecord("Raspberries, Strawberries, And Cherries", PuzzleCategory.FOOD),
+        new PuzzleRecord("Red Sangria With Sweet Orange Slices", PuzzleCategory.FOOD),
+        new PuzzleRecord("Sponge Cake Topped With Sugary Icing", PuzzleCategory.FOOD),
+        new PuzzleRecord("Sugar-Free Cola", PuzzleCategory.FOOD),
+        new PuzzleRecord("Alarm Clock With Nature Sounds", PuzzleCategory.AROUND_THE_HOUSE),
+        new PuzzleRecord("Antique Clock", PuzzleCategory.AROUND_THE_HOUSE),
+        new PuzzleRecord("Backyard Furniture", PuzzleCategory.AROUND_THE_HOUSE),
+        new PuzzleRecord("Bermuda Shorts", PuzzleCategory.AROUND_THE_HOUSE),
+        new PuzzleRecord("Black-And White Family Photograph", PuzzleCategory.AROUND_THE_HOUSE),
+        new PuzzleRecord("Cashmere Blanket", PuzzleCategory.AROUND_THE_HOUSE),
+        new PuzzleRecord("Clear Plastic Shower Curtain", PuzzleCategory.AROUND_THE_HOUSE),
+        new PuzzleRecord("Creaking Door", PuzzleCategory.AROUND_THE_HOUSE),
+        new PuzzleRecord("Egyptian Cotton Sheets", PuzzleCategory.AROUND_THE_HOUSE),
+        new PuzzleRecord("Electrical Outlets", PuzzleCategory.AROUND_THE_HOUSE),
+        new PuzzleRecord("Family Heirlooms", PuzzleCategory.AROUND_THE_HOUSE),
+        new PuzzleRecord("Floor-To-Ceiling Views", PuzzleCategory.AROUND_THE_HOUSE),
+        new PuzzleRecord("Fresh-Smelling Bathroom Drain", PuzzleCategory.AROUND_THE_HOUSE),
+        new PuzzleRecord("Memory-Foam Pet Mat", PuzzleCategory.AROUND_THE_HOUSE),
+        new PuzzleRecord("Moisturizing Cream", PuzzleCategory.AROUND_THE_HOUSE),
+        new PuzzleRecord("Pet's Water Bowl", PuzzleCategory.AROUND_THE_HOUSE),
+        new PuzzleRecord("Scented Candles", PuzzleCategory.AROUND_THE_HOUSE),
+        new PuzzleRecord("Stackable Baskets", PuzzleCategory.AROUND_THE_HOUSE),
+        new PuzzleRecord("USB Power Adapter", PuzzleCategory.AROUND_THE_HOUSE),
+        new PuzzleRecord("Welcome Doormat", PuzzleCategory.AROUND_THE_HOUSE),
+        new PuzzleRecord("Blackjack", PuzzleCategory.FUN_AND_GAMES),
+        new PuzzleRecord("Bodysurfing", PuzzleCategory.FUN_AND_GAMES),
+        new PuzzleRecord("Bowling", PuzzleCategory.FUN_AND_GAMES),
+        new PuzzleRecord("Bowling Night", PuzzleCategory.FUN_AND_GAMES),
+        new PuzzleRecord("Buying A Vowel", PuzzleCategory.FUN_AND_GAMES),
+        new PuzzleRecord("Deck Of Playing Cards", PuzzleCategory.FUN_AND_GAMES),
+        new PuzzleRecord("Egg Toss", PuzzleCategory.FUN_AND_GAMES),
+        new PuzzleRecord("Etch A Sketch", PuzzleCategory.FUN_AND_GAMES),
+        new PuzzleRecord("Fake Snake Popping Out Of A Nut Can", PuzzleCategory.FUN_AND_GAMES),
+        new PuzzleRecord("Halloween", PuzzleCategory.FUN_AND_GAMES),
+        new PuzzleRecord("Marco! Polo!", PuzzleCategory.FUN_AND_GAMES),
+        new PuzzleRecord("Painting By Numbers", PuzzleCategory.FUN_AND_GAMES),
+        new PuzzleRecord("Playing A Round Of Golf", PuzzleCategory.FUN_AND_GAMES),
+        new PuzzleRecord("Playing Tic-Tac-Toe In The Snow", PuzzleCategory.FUN_AND_GAMES),
+        new PuzzleRecord("Riddles And Jokes", PuzzleCategory.FUN_AND_GAMES),
+        new PuzzleRecord("Scoring The Winning Goal", PuzzleCategory.FUN_AND_GAMES),
+        new PuzzleRecord("Sidewalk Chalk & Hula Hoops", PuzzleCategory.FUN_AND_GAMES),
+        new PuzzleRecord("Skateboarding & Snowboarding", PuzzleCategory.FUN_AND_GAMES),
+        new PuzzleRecord("Snowball Fights", PuzzleCategory.FUN_AND_GAMES),
+        new PuzzleRecord("The First Game Of The World Cup", PuzzleCategory.FUN_AND_GAMES),
+        new PuzzleRecord("Truth Or Dare & Simon Says", PuzzleCategory.FUN_AND_GAMES),
+        new PuzzleRecord("Abbey Library Of St. Gall", PuzzleCategory.LANDMARKS),
+        new PuzzleRecord("Acropolis Museum In Athens, Greece", PuzzleCategory.LANDMARKS),
+        new PuzzleRecord("Big Ben", PuzzleCategory.LANDMARKS),
+        new PuzzleRecord("Boston Harbor", PuzzleCategory.LANDMARKS),
+        new PuzzleRecord("Castle Of Lisbon", PuzzleCategory.LANDMARKS),
+        new PuzzleRecord("Colosseum", PuzzleCategory.LANDMARKS),
+        new PuzzleRecord("Dolby Theater", PuzzleCategory.LANDMARKS),
+        new PuzzleRecord("Egyptian Pyramids", PuzzleCategory.LANDMARKS),
+        new PuzzleRecord("Eiffel Tower", PuzzleCategory.LANDMARKS),
+        new PuzzleRecord("Empire State Building", PuzzleCategory.LANDMARKS),
+        new PuzzleRecord("Grand Canyon National Park", PuzzleCategory.LANDMARKS),
+        new PuzzleRecord("Great Wall Of China", PuzzleCategory.LANDMARKS),
+        new PuzzleRecord("Hawaii Volcanoes National Park", PuzzleCategory.LANDMARKS),
+        new PuzzleRecord("Hollywood Walk Of Fame", PuzzleCategory.LANDMARKS),
+        new PuzzleRecord("Joshua Tree National Park", PuzzleCategory.LANDMARKS),
+        new PuzzleRecord("Lisbon Oceanarium", PuzzleCategory.LANDMARKS),
+        new PuzzleRecord("Lisbon Portela Airport", PuzzleCategory.LANDMARKS),
+        new PuzzleRecord("Monument Valley Navajo Tribal Park", PuzzleCategory.LANDMARKS),
+        new PuzzleRecord("Piccadilly Circus", PuzzleCategory.LANDMARKS),
+        new PuzzleRecord("Serra De Estrela", PuzzleCategory.LANDMARKS),
+        new PuzzleRecord("Sidney Harbour", PuzzleCategory.LANDMARKS),
+        new PuzzleRecord("Stonehenge", PuzzleCategory.LANDMARKS),
+        new PuzzleRecord("Taj Mahal", PuzzleCategory.LANDMARKS),
+        new PuzzleRecord("The Cathedral Of Our Lady Of Chartres", PuzzleCategory.LANDMARKS),
+        new PuzzleRecord("Abbeys And Convents", PuzzleCategory.PLACES),
+        new PuzzleRecord("Amazing Cities", PuzzleCategory.PLACES),
+        new PuzzleRecord("Amazing Water Park", PuzzleCategory.PLACES),
+        new PuzzleRecord("Car Show Room", PuzzleCategory.PLACES),
+        new PuzzleRecord("Computer-Generated World", PuzzleCategory.PLACES),
+        new PuzzleRecord("Exclusive Waterfront Hotel", PuzzleCategory.PLACES),
+        new PuzzleRecord("Foreign Trade Routes", PuzzleCategory.PLACES),
+        new PuzzleRecord("Fortune Teller's Tent", PuzzleCategory.PLACES),
+        new PuzzleRecord("Four-Lane, Heavily-Congested Highway", PuzzleCategory.PLACES),
+        new PuzzleRecord("Gourmet Specialty Restaurants", PuzzleCategory.PLACES),
+        new PuzzleRecord("Grasslands National Park", PuzzleCategory.PLACES),
+        new PuzzleRecord("Historic Downtown District", PuzzleCategory.PLACES),
+        new PuzzleRecord("Hogwarts School Of Witchcraft And Wizardry", PuzzleCategory.PLACES),
+        new PuzzleRecord("Home To Millions Of People", PuzzleCategory.PLACES),
+        new PuzzleRecord("Houses Made Of Concrete & Brick", PuzzleCategory.PLACES),
+        new PuzzleRecord("Japanese Garden", PuzzleCategory.PLACES),
+        new PuzzleRecord("Jazz Club", PuzzleCategory.PLACES),
+        new PuzzleRecord("Korean Barbecue Restaurant", PuzzleCategory.PLACES),
+        new PuzzleRecord("Lake Geneva, Switzerland", PuzzleCategory.PLACES),
+        new PuzzleRecord("Luxury-Cruise Destination", PuzzleCategory.PLACES),
+        new PuzzleRecord("Multipurpose Gym", PuzzleCategory.PLACES),
+        new PuzzleRecord("Prime Whale-Watching Site", PuzzleCategory.PLACES),
+        new PuzzleRecord("Quaint Harbor Town", PuzzleCategory.PLACES),
+        new PuzzleRecord("Rural & Mountainous Region", PuzzleCategory.PLACES),
+        new PuzzleRecord("Security Area", PuzzleCategory.PLACES),
+        new PuzzleRecord("Underground Cave", PuzzleCategory.PLACES),
+        new PuzzleRecord("Where The Sidewalk Ends", PuzzleCategory.PLACES),
+        new PuzzleRecord("Your Neighbor's Driveway", PuzzleCategory.PLACES),
+        new PuzzleRecord("Zen Garden", PuzzleCategory.PLACES),
+        new PuzzleRecord("Africa By Toto", PuzzleCategory.SONGS),
+        new PuzzleRecord("All I Want For Christmas Is You By Mariah Carey", PuzzleCategory.SONGS),
+        new PuzzleRecord("Another Day In Paradise By Phil Collins", PuzzleCategory.SONGS),
+        new PuzzleRecord("Billie Jean By Michael Jackson", PuzzleCategory.SONGS),
+        new PuzzleRecord("Call Me By Blondie", PuzzleCategory.SONGS),
+        new PuzzleRecord("Cold Heart By Dua Lipa & Elton John", PuzzleCategory.SONGS),
+        new PuzzleRecord("Don't Stop The Music By Rihanna", PuzzleCategory.SONGS),
+        new PuzzleRecord("Down Under By Men At Work", PuzzleCategory.SONGS),
+        new PuzzleRecord("Fields Of Gold By Sting", PuzzleCategory.SONGS),
+        new PuzzleRecord("Happy Together By The Turtles", PuzzleCategory.SONGS),
+        new PuzzleRecord("Here Comes The Sun By The Beatles", PuzzleCategory.SONGS),
+        new PuzzleRecord("Imagine By John Lennon", PuzzleCategory.SONGS),
+        new PuzzleRecord("Jammin' By Bob Marley", PuzzleCategory.SONGS),
+        new PuzzleRecord("Monster By Lady Gaga", PuzzleCategory.SONGS),
+        new PuzzleRecord("My Heart Will Go On By Celine Dion", PuzzleCategory.SONGS),
+        new PuzzleRecord("One Love By Bob Marley And The Wailers", PuzzleCategory.SONGS),
+        new PuzzleRecord("Royals By Lorde", PuzzleCategory.SONGS),
+        new PuzzleRecord("Same Old Love By Selena Gomez", PuzzleCategory.SONGS),
+        new PuzzleRecord("Seven Nation Army By The White Stripes", PuzzleCategory.SONGS),
+        new PuzzleRecord("Waiting For A Girl Like You By Foreigner", PuzzleCategory.SONGS),
+        new PuzzleRecord("We Found Love By Rihanna", PuzzleCategory.SONGS),
+        new PuzzleRecord("A Word Search", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Adding A New Show To My Watchlist", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Admiring The Gorgeous Lake", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Applying For A New Job", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord(
+            "Asking A Girl If I Can Carry Her Books", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Asking My Girlfriend To Homecoming", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Breaking All The Rules", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Brewing Ice Tea", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord(
+            "Carrying My Girlfriend's Books Home From School", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Catching Snowflakes On My Tongue", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Celebrating Chinese New Year", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Dining At A Popular Local Restaurant", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord(
+            "Dipping My Toe Into The Mediterranean Sea", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Drinking Champagne", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Drinking Fresh-Squeezed Orange Juice", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Enjoying The Ocean Breeze", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Giving You My Undivided Attention", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Going Away For A Relaxing Weekend", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Having A Good Laugh", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Lying Down", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord(
+            "Participating In A National Spelling Bee", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Reading The Local Paper", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Riding Shotgun", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Roasting Hot Dogs Over A Campfire", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord(
+            "Running Into A Former High School Classmate", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Saving A Few Dollars", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Sipping Hot Chocolate", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Swimming In A Pool", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Taking A Ferry To A Small Island", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Visiting The North Pole", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Walking Around On A Roof", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Yelling Timber!", PuzzleCategory.WHAT_ARE_YOU_DOING),
+        new PuzzleRecord("Zooming Around", PuzzleCategory.WHAT_ARE_YOU_DOING),
+      };
+
+  /** Catalogue of the built-in puzzles, encoded the first time it is needed. */
+  private static PuzzleCatalogue builtIn;
+
+  private final ByteBuffer buffer;
+  private final int size;
+  private final int categoryIndexPosition;
+  private final int offsetTablePosition;
+  private final int dataPosition;
+
+  /** Table of the puzzles by fingerprint, built the first time a fingerprint is looked up. */
+  private volatile FingerprintTable fingerprintTable;
+
+  /**
+   * Open addressing table of the puzzles by fingerprint, with linear probing.
+   *
+   * @param fingerprints the fingerprint of the puzzle of each slot
+   * @param indices the index plus one of the puzzle of each slot, 0 marking an empty slot
+   */
+  private record FingerprintTable(long[] fingerprints, int[] indices) {}
+
+  /**
+   * Constructor for a catalogue read from an encoded buffer.
+   *
+   * @param buffer a {@link ByteBuffer} with a whole catalogue, starting at position 0
+   * @throws InvalidPropertiesFormatException if the buffer does not hold a valid catalogue
+   */
+  private PuzzleCatalogue(ByteBuffer buffer) throws InvalidPropertiesFormatException {
+    if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new InvalidPropertiesFormatException("[PuzzleCatalogue] Not a puzzle catalogue");
+    }
+    if (buffer.getInt(4) != VERSION) {
+      throw new InvalidPropertiesFormatException(
+          "[PuzzleCatalogue] Unsupported catalogue version " + buffer.getInt(4));
+    }
+    if (buffer.getInt(8) != PuzzleCategory.values().length) {
+      throw new InvalidPropertiesFormatException(
+          "[PuzzleCatalogue] Catalogue has "
+              + buffer.getInt(8)
+              + " categories instead of "
+              + PuzzleCategory.values().length);
+    }
+
+    this.buffer = buffer;
+    size = buffer.getInt(12);
+    categoryIndexPosition = HEADER_SIZE;
+    offsetTablePosition = categoryIndexPosition + 2 * Integer.BYTES * buffer.getInt(8);
+    long dataStart = offsetTablePosition + (long) Integer.BYTES * (size + 1L);
+
+    if (size < 0
+        || dataStart > buffer.capacity()
+        || dataStart + buffer.getInt((int) dataStart - Integer.BYTES) != buffer.capacity()) {
+      throw new InvalidPropertiesFormatException("[PuzzleCatalogue] Truncated catalogue");
+    }
+    dataPosition = (int) dataStart;
+  }
+
+  /**
+   * Opens a catalogue file. The file is memory-mapped and stays mapped as long as the catalogue is
+   * reachable.
+   *
+   * @param file the {@link Path} of the catalogue file
+   * @return a {@link PuzzleCatalogue} reading its puzzles from the file
+   * @throws InvalidPropertiesFormatException if the file is not a valid catalogue, or is larger
+   *     than {@link #MAX_FILE_SIZE}
+   * @throws IOException if the file cannot be read
+   */
+  public static PuzzleCatalogue open(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long fileSize = channel.size();
+      if (fileSize > MAX_FILE_SIZE) {
+        throw new InvalidPropertiesFormatException(
+            "[PuzzleCatalogue] Catalogue of "
+                + fileSize
+                + " bytes, the maximum is "
+                + MAX_FILE_SIZE);
+      }
+      return new PuzzleCatalogue(channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize));
+    }
+  }
+
+  /**
+   * Computes the size of a catalogue file, all sections included.
+   *
+   * @param puzzles the number of puzzles of the catalogue
+   * @param dataSize the number of bytes of the phrases of the puzzles
+   * @return the size of the file in bytes
+   */
+  static long fileSize(int puzzles, long dataSize) {
+    return HEADER_SIZE
+        + 2L * Integer.BYTES * PuzzleCategory.values().length
+        + (long) Integer.BYTES * (puzzles + 1L)
+        + dataSize;
+  }
+
+  /**
+   * Creates a catalogue held in memory.
+   *
+   * @param records a {@link Collection} of {@link PuzzleRecord} with the puzzles of the catalogue
+   * @return a {@link PuzzleCatalogue} with the given puzzles, sorted by category
+   */
+  public static PuzzleCatalogue of(Collection<PuzzleRecord> records) {
+    try {
+      return new PuzzleCatalogue(encode(records));
+    } catch (InvalidPropertiesFormatException e) {
+      // A freshly encoded catalogue is always valid.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Gets the catalogue of the puzzles shipped with the game.
+   *
+   * @return the built-in {@link PuzzleCatalogue}
+   */
+  public static synchronized PuzzleCatalogue builtIn() {
+    if (null == builtIn) {
+      builtIn = of(Arrays.asList(BuiltInPuzzles));
+    }
+    return builtIn;
+  }
+
+  /**
+   * Writes a catalogue file with a {@link PuzzleCatalogueWriter}.
+   *
+   * @param file the {@link Path} of the file to write, replaced if it already exists
+   * @param records a {@link Collection} of {@link PuzzleRecord} with the puzzles of the catalogue
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(Path file, Collection<PuzzleRecord> records) throws IOException {
+    try (PuzzleCatalogueWriter writer = new PuzzleCatalogueWriter(file)) {
+      for (PuzzleRecord record : records) {
+        writer.add(record);
+      }
+      writer.finish();
+    }
+  }
+
+  /**
+   * Encodes puzzles in the catalogue format.
+   *
+   * @param records a {@link Collection} of {@link PuzzleRecord} with the puzzles to encode
+   * @return a {@link ByteBuffer} with the whole catalogue, ready to be read
+   */
+  private static ByteBuffer encode(Collection<PuzzleRecord> records) {
+    PuzzleRecord[] sorted = records.toArray(new PuzzleRecord[0]);
+    Arrays.sort(sorted, Comparator.comparing(PuzzleRecord::category));
+
+    PuzzleCategory[] categories = PuzzleCategory.values();
+    int[] categoryCounts = new int[categories.length];
+    byte[][] phrases = new byte[sorted.length][];
+    int dataSize = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      phrases[i] = sorted[i].puzzle().getBytes(StandardCharsets.UTF_8);
+      dataSize += phrases[i].length;
+      ++categoryCounts[sorted[i].category().ordinal()];
+    }
+
+    ByteBuffer buffer =
+        ByteBuffer.allocate(
+            HEADER_SIZE
+                + 2 * Integer.BYTES * categories.length
+                + Integer.BYTES * (sorted.length + 1)
+                + dataSize);
+    buffer.putInt(MAGIC).putInt(VERSION).putInt(categories.length).putInt(sorted.length);
+
+    int first = 0;
+    for (int count : categoryCounts) {
+      buffer.putInt(first).putInt(count);
+      first += count;
+    }
+
+    int offset = 0;
+    for (byte[] phrase : phrases) {
+      buffer.putInt(offset);
+      offset += phrase.length;
+    }
+    buffer.putInt(offset);
+
+    for (byte[] phrase : phrases) {
+      buffer.put(phrase);
+    }
+
+    return buffer.flip();
+  }
+
+  /**
+   * Gets the number of puzzles in the catalogue.
+   *
+   * @return the number of puzzles
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets the index of the first puzzle of a category. The puzzles of a category have consecutive
+   * indices.
+   *
+   * @param category the {@link PuzzleCategory}
+   * @return the index of the first puzzle of the category
+   */
+  public int getFirstIndex(PuzzleCategory category) {
+    return buffer.getInt(categoryIndexPosition + 2 * Integer.BYTES * category.ordinal());
+  }
+
+  /**
+   * Gets the number of puzzles of a category.
+   *
+   * @param category the {@link PuzzleCategory}
+   * @return the number of puzzles of the category
+   */
+  public int getCount(PuzzleCategory category) {
+    return buffer.getInt(
+        categoryIndexPosition + 2 * Integer.BYTES * category.ordinal() + Integer.BYTES);
+  }
+
+  /**
+   * Gets the category of a puzzle.
+   *
+   * @param index the index of the puzzle
+   * @return the {@link PuzzleCategory} of the puzzle
+   */
+  public PuzzleCategory getCategory(int index) {
+    for (PuzzleCategory category : PuzzleCategory.values()) {
+      if (index < getFirstIndex(category) + getCount(category)) {
+        return category;
+      }
+    }
+    throw new IndexOutOfBoundsException(index);
+  }
+
+  /**
+   * Finds a puzzle by the fingerprint of its phrase. If several puzzles have the same phrase, the
+   * first of them is found.
+   *
+   * @param fingerprint the {@link PuzzleRecord#fingerprint() fingerprint} of the phrase
+   * @return the index of the puzzle, or -1 if no puzzle of the catalogue has this fingerprint
+   */
+  public int indexOf(long fingerprint) {
+    FingerprintTable table = getFingerprintTable();
+    int mask = table.indices().length - 1;
+    for (int slot = slotOf(fingerprint, mask);
+        0 != table.indices()[slot];
+        slot = (slot + 1) & mask) {
+      if (table.fingerprints()[slot] == fingerprint) {
+        return table.indices()[slot] - 1;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Builds the table of the puzzles by fingerprint, unless it is already built. Called when a
+   * catalogue is loaded, so that the matches looking puzzles up do not have to build it.
+   */
+  void indexFingerprints() {
+    getFingerprintTable();
+  }
+
+  /**
+   * Gets the table of the puzzles by fingerprint, building it on the first call.
+   *
+   * @return the {@link FingerprintTable} of the catalogue
+   */
+  private FingerprintTable getFingerprintTable() {
+    FingerprintTable table = fingerprintTable;
+    if (null != table) {
+      return table;
+    }
+
+    // At most half full. Building it twice in a race is harmless, both tables being equal.
+    int capacity = Integer.highestOneBit(Math.max(1, size) * 2 - 1) * 2;
+    long[] fingerprints = new long[capacity];
+    int[] indices = new int[capacity];
+    for (int i = 0; i < size; i++) {
+      long fingerprint = get(i).fingerprint();
+      int slot = slotOf(fingerprint, capacity - 1);
+      while (0 != indices[slot] && fingerprints[slot] != fingerprint) {
+        slot = (slot + 1) & (capacity - 1);
+      }
+      if (0 == indices[slot]) {
+        fingerprints[slot] = fingerprint;
+        indices[slot] = i + 1;
+      }
+    }
+
+    table = new FingerprintTable(fingerprints, indices);
+    fingerprintTable = table;
+    return table;
+  }
+
+  /**
+   * Gets the first slot probed for a fingerprint.
+   *
+   * @param fingerprint the fingerprint
+   * @param mask the capacity of the table minus one, the capacity being a power of two
+   * @return the slot
+   */
+  private static int slotOf(long fingerprint, int mask) {
+    return (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+  }
+
+  /**
+   * Reads a puzzle of the catalogue.
+   *
+   * @param index the index of the puzzle, between 0 and {@link #size()} excluded
+   * @return a {@link PuzzleRecord} decoded from the catalogue
+   */
+  public PuzzleRecord get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException(index);
+    }
+
+    int start = buffer.getInt(offsetTablePosition + Integer.BYTES * index);
+    int end = buffer.getInt(offsetTablePosition + Integer.BYTES * (index + 1));
+    byte[] phrase = new byte[end - start];
+    buffer.get(dataPosition + start, phrase);
+    return new PuzzleRecord(new String(phrase, StandardCharsets.UTF_8), getCategory(index));
+  }
+}
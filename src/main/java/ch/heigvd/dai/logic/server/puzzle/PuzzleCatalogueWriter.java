@@ -0,0 +1,247 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.server.puzzle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a catalogue file one puzzle at a time, in the format read by {@link PuzzleCatalogue}.
+ *
+ * <p>The puzzles of a catalogue are sorted by category, and its offset table precedes the phrases,
+ * so nothing can be written before all the puzzles are known. Instead of keeping them in memory,
+ * the writer spills the phrases of each category, and their lengths, to temporary files next to the
+ * catalogue. {@link #finish()} then assembles the catalogue from them. Only a few counters are kept
+ * in memory, however many puzzles are added.
+ *
+ * <p>The catalogue is assembled in a temporary file, which is then moved in place. A catalogue file
+ * is thus never modified while a server may have it mapped, and a server watching the file only
+ * ever sees complete catalogues.
+ *
+ * <p>A writer is not thread-safe.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+public class PuzzleCatalogueWriter implements Closeable {
+
+  private static final PuzzleCategory[] CATEGORIES = PuzzleCategory.values();
+
+  private final Path file;
+  private final Path[] phraseFiles;
+  private final Path[] lengthFiles;
+  private final OutputStream[] phraseOutputs;
+  private final DataOutputStream[] lengthOutputs;
+  private final int[] counts;
+  private long dataSize;
+  private int size;
+
+  /**
+   * Default constructor. Creates the temporary files next to the catalogue file.
+   *
+   * @param file the {@link Path} of the catalogue file to write, replaced if it already exists
+   * @throws IOException if the temporary files cannot be created
+   */
+  public PuzzleCatalogueWriter(Path file) throws IOException {
+    this.file = file.toAbsolutePath();
+    phraseFiles = new Path[CATEGORIES.length];
+    lengthFiles = new Path[CATEGORIES.length];
+    phraseOutputs = new OutputStream[CATEGORIES.length];
+    lengthOutputs = new DataOutputStream[CATEGORIES.length];
+    counts = new int[CATEGORIES.length];
+
+    try {
+      for (int i = 0; i < CATEGORIES.length; i++) {
+        phraseFiles[i] = createTemporaryFile(".phrases");
+        lengthFiles[i] = createTemporaryFile(".lengths");
+        phraseOutputs[i] = new BufferedOutputStream(Files.newOutputStream(phraseFiles[i]));
+        lengthOutputs[i] =
+            new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(lengthFiles[i])));
+      }
+    } catch (IOException e) {
+      deleteTemporaryFiles();
+      throw e;
+    }
+  }
+
+  /**
+   * Creates a temporary file in the directory of the catalogue file.
+   *
+   * @param suffix a {@link String} with the suffix of the file name
+   * @return the {@link Path} of the new file
+   * @throws IOException if the file cannot be created
+   */
+  private Path createTemporaryFile(String suffix) throws IOException {
+    return Files.createTempFile(file.getParent(), file.getFileName().toString(), suffix);
+  }
+
+  /**
+   * Adds a puzzle to the catalogue.
+   *
+   * @param record the {@link PuzzleRecord} to add
+   * @throws IOException if the puzzle cannot be spilled to its temporary file, or if the catalogue
+   *     file would grow beyond {@link PuzzleCatalogue#MAX_FILE_SIZE}
+   */
+  public void add(PuzzleRecord record) throws IOException {
+    byte[] phrase = record.puzzle().getBytes(StandardCharsets.UTF_8);
+    if (PuzzleCatalogue.fileSize(size + 1, dataSize + phrase.length)
+        > PuzzleCatalogue.MAX_FILE_SIZE) {
+      throw new IOException("[PuzzleCatalogueWriter] The catalogue is too large");
+    }
+
+    int category = record.category().ordinal();
+    phraseOutputs[category].write(phrase);
+    lengthOutputs[category].writeInt(phrase.length);
+    ++counts[category];
+    dataSize += phrase.length;
+    ++size;
+  }
+
+  /**
+   * Gets the number of puzzles added so far.
+   *
+   * @return the number of puzzles
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets the number of puzzles of a category added so far.
+   *
+   * @param category the {@link PuzzleCategory}
+   * @return the number of puzzles of the category
+   */
+  public int getCount(PuzzleCategory category) {
+    return counts[category.ordinal()];
+  }
+
+  /**
+   * Assembles the catalogue file from the puzzles added so far, replacing any existing file.
+   *
+   * @throws IOException if the catalogue file cannot be written
+   */
+  public void finish() throws IOException {
+    for (int i = 0; i < CATEGORIES.length; i++) {
+      phraseOutputs[i].close();
+      lengthOutputs[i].close();
+    }
+
+    // Unlike the spill files, the catalogue gets the default permissions of new files.
+    Path temporaryFile =
+        file.resolveSibling(file.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+    try {
+      try (FileChannel channel =
+          FileChannel.open(
+              temporaryFile,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING,
+              StandardOpenOption.WRITE)) {
+        DataOutputStream out =
+            new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+
+        out.writeInt(PuzzleCatalogue.MAGIC);
+        out.writeInt(PuzzleCatalogue.VERSION);
+        out.writeInt(CATEGORIES.length);
+        out.writeInt(size);
+
+        int first = 0;
+        for (int count : counts) {
+          out.writeInt(first);
+          out.writeInt(count);
+          first += count;
+        }
+
+        int offset = 0;
+        for (int i = 0; i < CATEGORIES.length; i++) {
+          try (DataInputStream lengths =
+              new DataInputStream(new BufferedInputStream(Files.newInputStream(lengthFiles[i])))) {
+            for (int j = 0; j < counts[i]; j++) {
+              out.writeInt(offset);
+              offset += lengths.readInt();
+            }
+          }
+        }
+        out.writeInt(offset);
+
+        for (Path phraseFile : phraseFiles) {
+          try (InputStream phrases = Files.newInputStream(phraseFile)) {
+            phrases.transferTo(out);
+          }
+        }
+
+        out.flush();
+        channel.force(true);
+      }
+      Files.move(
+          temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporaryFile);
+    }
+  }
+
+  /** Deletes the temporary files. The catalogue file is left untouched if not finished. */
+  @Override
+  public void close() throws IOException {
+    deleteTemporaryFiles();
+  }
+
+  /**
+   * Closes the temporary files and deletes them. Unlike {@link #close()}, it cannot be overridden,
+   * so the constructor can call it.
+   *
+   * @throws IOException if a temporary file cannot be closed or deleted
+   */
+  private void deleteTemporaryFiles() throws IOException {
+    IOException failure = null;
+    for (int i = 0; i < CATEGORIES.length; i++) {
+      for (Closeable output : new Closeable[] {phraseOutputs[i], lengthOutputs[i]}) {
+        try {
+          if (null != output) {
+            output.close();
+          }
+        } catch (IOException e) {
+          failure = e;
+        }
+      }
+      for (Path temporaryFile : new Path[] {phraseFiles[i], lengthFiles[i]}) {
+        if (null != temporaryFile) {
+          Files.deleteIfExists(temporaryFile);
+        }
+      }
+    }
+
+    if (null != failure) {
+      throw failure;
+    }
+  }
+}
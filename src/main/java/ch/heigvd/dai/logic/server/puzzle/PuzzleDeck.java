@@ -0,0 +1,343 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.server.puzzle;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Deck of the puzzles of a catalogue, from which a game match draws its puzzles without repeating
+ * any of them.
+ *
+ * <p>The catalogue keeps the puzzles of each category at consecutive indices, so the deck is made
+ * of one pile per category. Each pile is a random permutation of the indices of its category,
+ * shuffled lazily: each draw performs a single step of a Fisher-Yates shuffle, picking one of the
+ * indices not drawn yet and swapping it with the last one of the remaining indices. The swapped
+ * positions of a pile are kept in an {@code int} array allocated on the first draw from the pile,
+ * so a draw costs O(1) and allocates nothing, and a category never drawn from costs no memory.
+ *
+ * <p>A puzzle can be drawn from a given category, from a weighted mix of categories, or from the
+ * whole deck, the category being then picked in proportion to the puzzles it has left. Once every
+ * puzzle of a pile has been drawn, the pile is reshuffled.
+ *
+ * <p>A puzzle can also be drawn among those the players of the match have not seen yet, given as a
+ * bitmap of their indices in the catalogue. The puzzle is then picked uniformly among the unseen
+ * puzzles of the category, by counting the seen puzzles in ranges of the bitmap, without trying and
+ * rejecting seen puzzles. The piles are only drawn from once the players have seen every puzzle of
+ * the category.
+ *
+ * <p>A deck belongs to a single game match and is not thread-safe.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+public class PuzzleDeck {
+
+  private static final PuzzleCategory[] CATEGORIES = PuzzleCategory.values();
+
+  private final PuzzleCatalogue catalogue;
+  private final RandomGenerator random;
+
+  /**
+   * Indices moved by the shuffle of each pile, by their position in the pile, or {@code null} if
+   * nothing was drawn from the pile yet. A position holding 0 was not moved, any other value is the
+   * index moved there plus one, so that a cleared array is an unshuffled pile.
+   */
+  private final int[][] swappedIndices;
+
+  /** Number of puzzles of each pile not drawn yet since the pile was last shuffled. */
+  private final int[] remaining;
+
+  /**
+   * Default constructor.
+   *
+   * @param catalogue the {@link PuzzleCatalogue} to draw the puzzles from
+   * @param random the {@link RandomGenerator} used to shuffle the deck
+   */
+  public PuzzleDeck(PuzzleCatalogue catalogue, RandomGenerator random) {
+    if (0 == catalogue.size()) {
+      throw new IllegalArgumentException("[PuzzleDeck] The puzzle catalogue is empty");
+    }
+
+    this.catalogue = catalogue;
+    this.random = random;
+    swappedIndices = new int[CATEGORIES.length][];
+    remaining = new int[CATEGORIES.length];
+    for (PuzzleCategory category : CATEGORIES) {
+      remaining[category.ordinal()] = catalogue.getCount(category);
+    }
+  }
+
+  /**
+   * Gets the catalogue the puzzles are drawn from.
+   *
+   * @return the {@link PuzzleCatalogue} of the deck
+   */
+  public PuzzleCatalogue getCatalogue() {
+    return catalogue;
+  }
+
+  /**
+   * Draws the index of a puzzle of any category. Every puzzle of the catalogue is drawn once before
+   * any of them is drawn again.
+   *
+   * @return the index of the drawn puzzle in the catalogue
+   */
+  public int drawIndex() {
+    int total = 0;
+    for (int count : remaining) {
+      total += count;
+    }
+
+    // Every pile is exhausted, shuffle the whole deck again.
+    if (0 == total) {
+      for (PuzzleCategory category : CATEGORIES) {
+        int[] swapped = swappedIndices[category.ordinal()];
+        if (null != swapped) {
+          Arrays.fill(swapped, 0);
+        }
+        remaining[category.ordinal()] = catalogue.getCount(category);
+      }
+      total = catalogue.size();
+    }
+
+    int pick = random.nextInt(total);
+    for (PuzzleCategory category : CATEGORIES) {
+      pick -= remaining[category.ordinal()];
+      if (pick < 0) {
+        return drawIndex(category);
+      }
+    }
+    throw new IllegalStateException("[PuzzleDeck] Inconsistent pile sizes");
+  }
+
+  /**
+   * Draws the index of a puzzle of the given category that was not drawn since its pile was last
+   * shuffled, shuffling the pile again if all of them were drawn.
+   *
+   * @param category the {@link PuzzleCategory} of the puzzle to draw
+   * @return the index of the drawn puzzle in the catalogue
+   * @throws IllegalArgumentException if the catalogue has no puzzle of the category
+   */
+  public int drawIndex(PuzzleCategory category) {
+    int pile = category.ordinal();
+    int[] swapped = swappedIndices[pile];
+    if (0 == remaining[pile]) {
+      if (0 == catalogue.getCount(category)) {
+        throw new IllegalArgumentException("[PuzzleDeck] No puzzle in category " + category);
+      }
+      if (null != swapped) {
+        Arrays.fill(swapped, 0);
+      }
+      remaining[pile] = catalogue.getCount(category);
+    }
+    if (null == swapped) {
+      swapped = new int[catalogue.getCount(category)];
+      swappedIndices[pile] = swapped;
+    }
+
+    int position = random.nextInt(remaining[pile]);
+    int last = --remaining[pile];
+    int index = 0 != swapped[position] ? swapped[position] - 1 : position;
+
+    // Move the last remaining index in place of the drawn one. The last position is now out of the
+    // pile, so it does not need to be cleared.
+    swapped[position] = 0 != swapped[last] ? swapped[last] : last + 1;
+
+    return catalogue.getFirstIndex(category) + index;
+  }
+
+  /**
+   * Draws the index of a puzzle from a weighted mix of categories. A category is picked in
+   * proportion to its weight among those having puzzles in the catalogue, then a puzzle is drawn
+   * from it.
+   *
+   * @param weights a {@link Map} with the weight of each {@link PuzzleCategory}, the categories
+   *     missing from it having a weight of 0
+   * @return the index of the drawn puzzle in the catalogue, drawn from the whole deck if no
+   *     category with puzzles has a positive weight
+   */
+  public int drawIndex(Map<PuzzleCategory, Integer> weights) {
+    PuzzleCategory category = pickCategory(weights);
+    return null != category ? drawIndex(category) : drawIndex();
+  }
+
+  /**
+   * Draws the index of a puzzle of any category that none of the players has seen. The category is
+   * picked in proportion to its unseen puzzles, so every unseen puzzle is equally likely.
+   *
+   * @param seen a {@link RoaringBitmap} with the indices of the puzzles seen by the players
+   * @return the index of the drawn puzzle in the catalogue, drawn with {@link #drawIndex()} if the
+   *     players have seen every puzzle
+   */
+  public int drawIndex(RoaringBitmap seen) {
+    int total = 0;
+    for (PuzzleCategory category : CATEGORIES) {
+      total += unseenCount(category, seen);
+    }
+    if (0 == total) {
+      return drawIndex();
+    }
+
+    int pick = random.nextInt(total);
+    for (PuzzleCategory category : CATEGORIES) {
+      int unseen = unseenCount(category, seen);
+      if (pick < unseen) {
+        return unseenIndex(category, seen, pick);
+      }
+      pick -= unseen;
+    }
+    throw new IllegalStateException("[PuzzleDeck] Inconsistent unseen puzzle counts");
+  }
+
+  /**
+   * Draws the index of a puzzle from a weighted mix of categories, among the puzzles of the picked
+   * category that none of the players has seen.
+   *
+   * @param weights a {@link Map} with the weight of each {@link PuzzleCategory}, the categories
+   *     missing from it having a weight of 0
+   * @param seen a {@link RoaringBitmap} with the indices of the puzzles seen by the players
+   * @return the index of the drawn puzzle in the catalogue, drawn with {@link
+   *     #drawIndex(PuzzleCategory)} if the players have seen every puzzle of the picked category,
+   *     and from the whole deck if no category with puzzles has a positive weight
+   */
+  public int drawIndex(Map<PuzzleCategory, Integer> weights, RoaringBitmap seen) {
+    PuzzleCategory category = pickCategory(weights);
+    if (null == category) {
+      return drawIndex(seen);
+    }
+
+    int unseen = unseenCount(category, seen);
+    return 0 == unseen ? drawIndex(category) : unseenIndex(category, seen, random.nextInt(unseen));
+  }
+
+  /**
+   * Picks a category in proportion to its weight among those having puzzles in the catalogue.
+   *
+   * @param weights a {@link Map} with the weight of each {@link PuzzleCategory}
+   * @return the picked {@link PuzzleCategory}, or {@code null} if no category with puzzles has a
+   *     positive weight
+   */
+  private PuzzleCategory pickCategory(Map<PuzzleCategory, Integer> weights) {
+    int total = 0;
+    for (PuzzleCategory category : CATEGORIES) {
+      total += weightOf(category, weights);
+    }
+    if (0 == total) {
+      return null;
+    }
+
+    int pick = random.nextInt(total);
+    for (PuzzleCategory category : CATEGORIES) {
+      pick -= weightOf(category, weights);
+      if (pick < 0) {
+        return category;
+      }
+    }
+    throw new IllegalStateException("[PuzzleDeck] Inconsistent category weights");
+  }
+
+  /**
+   * Counts the puzzles of a category that none of the players has seen.
+   *
+   * @param category the {@link PuzzleCategory}
+   * @param seen a {@link RoaringBitmap} with the indices of the puzzles seen by the players
+   * @return the number of unseen puzzles of the category
+   */
+  private int unseenCount(PuzzleCategory category, RoaringBitmap seen) {
+    int first = catalogue.getFirstIndex(category);
+    int count = catalogue.getCount(category);
+    return count - (int) seen.rangeCardinality(first, first + count);
+  }
+
+  /**
+   * Finds an unseen puzzle of a category by its rank among the unseen puzzles of the category. The
+   * rank is found by a binary search on the number of unseen puzzles up to a given index, each step
+   * counting the seen puzzles in a range of the bitmap.
+   *
+   * @param category the {@link PuzzleCategory}
+   * @param seen a {@link RoaringBitmap} with the indices of the puzzles seen by the players
+   * @param rank the rank of the puzzle among the unseen puzzles of the category, from 0
+   * @return the index of the puzzle in the catalogue
+   */
+  private int unseenIndex(PuzzleCategory category, RoaringBitmap seen, int rank) {
+    int first = catalogue.getFirstIndex(category);
+    int low = first;
+    int high = first + catalogue.getCount(category) - 1;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      long unseenUpToMiddle = middle - first + 1 - seen.rangeCardinality(first, middle + 1L);
+      if (unseenUpToMiddle > rank) {
+        high = middle;
+      } else {
+        low = middle + 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Gets the weight of a category in a mix, which is 0 if the catalogue has no puzzle of it.
+   *
+   * @param category the {@link PuzzleCategory}
+   * @param weights a {@link Map} with the weight of each category
+   * @return the weight of the category, never negative
+   */
+  private int weightOf(PuzzleCategory category, Map<PuzzleCategory, Integer> weights) {
+    Integer weight = weights.get(category);
+    if (null == weight || weight <= 0 || 0 == catalogue.getCount(category)) {
+      return 0;
+    }
+    return weight;
+  }
+
+  /**
+   * Draws a puzzle of any category.
+   *
+   * @return the {@link PuzzleRecord} of the drawn puzzle
+   * @see #drawIndex()
+   */
+  public PuzzleRecord draw() {
+    return catalogue.get(drawIndex());
+  }
+
+  /**
+   * Draws a puzzle of the given category.
+   *
+   * @param category the {@link PuzzleCategory} of the puzzle to draw
+   * @return the {@link PuzzleRecord} of the drawn puzzle
+   * @see #drawIndex(PuzzleCategory)
+   */
+  public PuzzleRecord draw(PuzzleCategory category) {
+    return catalogue.get(drawIndex(category));
+  }
+
+  /**
+   * Draws a puzzle from a weighted mix of categories.
+   *
+   * @param weights a {@link Map} with the weight of each {@link PuzzleCategory}
+   * @return the {@link PuzzleRecord} of the drawn puzzle
+   * @see #drawIndex(Map)
+   */
+  public PuzzleRecord draw(Map<PuzzleCategory, Integer> weights) {
+    return catalogue.get(drawIndex(weights));
+  }
+}
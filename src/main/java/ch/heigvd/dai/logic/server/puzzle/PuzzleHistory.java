@@ -0,0 +1,188 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.server.puzzle;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.ExecutionException;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Remembers which puzzles each player has already seen, across all the matches hosted by the server
+ * and across the catalogues loaded meanwhile.
+ *
+ * <p>The puzzles seen by a player are kept in a compressed {@link RoaringBitmap} of their indices
+ * in a catalogue. It takes 2 bytes per puzzle seen while the player has seen few of them, and never
+ * more than a bit per puzzle of the catalogue, however many puzzles the player sees. The bitmaps of
+ * the players of a match are merged when a puzzle is drawn, so that the {@link PuzzleDeck} can pick
+ * among the puzzles none of them has seen.
+ *
+ * <p>Indices only make sense for a given catalogue, but a puzzle keeps the same {@link
+ * PuzzleRecord#fingerprint() fingerprint} in every catalogue. Each bitmap thus remembers the
+ * catalogue it indexes, and when a match drawing from another catalogue needs it, it is translated
+ * through the fingerprints of its puzzles, the puzzles missing from the other catalogue being
+ * dropped. Loading a new catalogue with {@link #setCatalogue(PuzzleCatalogue)} therefore keeps the
+ * history, each player paying for the translation on their next draw.
+ *
+ * <p>The history is bounded: it keeps the players who played most recently, and forgets a player
+ * who did not play for a while. A forgotten player may then be shown a puzzle again.
+ *
+ * <p>A history can be shared by all the matches, each bitmap being locked while it is read or
+ * updated.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+public class PuzzleHistory {
+
+  /** Maximum number of players remembered, the least recently seen being forgotten first. */
+  private static final int MAX_PLAYERS = 10_000;
+
+  /** Time after which a player who did not play is forgotten. */
+  private static final Duration PLAYER_EXPIRY = Duration.ofDays(1);
+
+  /** Puzzles seen by a player, as indices in the catalogue they were last drawn from. */
+  private static final class Seen {
+    private PuzzleCatalogue catalogue;
+    private RoaringBitmap indices = new RoaringBitmap();
+
+    /**
+     * Default constructor. Creates an empty set of puzzles.
+     *
+     * @param catalogue the {@link PuzzleCatalogue} the indices refer to
+     */
+    Seen(PuzzleCatalogue catalogue) {
+      this.catalogue = catalogue;
+    }
+
+    /**
+     * Gets the seen puzzles as indices in a given catalogue, translating them first if they refer
+     * to another one. Needs to be called with the lock of this object held.
+     *
+     * @param target the {@link PuzzleCatalogue} the indices must refer to
+     * @return the {@link RoaringBitmap} of the indices in the given catalogue
+     */
+    RoaringBitmap in(PuzzleCatalogue target) {
+      if (target != catalogue) {
+        RoaringBitmap translated = new RoaringBitmap();
+        PeekableIntIterator iterator = indices.getIntIterator();
+        while (iterator.hasNext()) {
+          int index = target.indexOf(catalogue.get(iterator.next()).fingerprint());
+          if (index >= 0) {
+            translated.add(index);
+          }
+        }
+        catalogue = target;
+        indices = translated;
+      }
+      return indices;
+    }
+  }
+
+  private final Cache<String, Seen> seenPuzzles;
+  private volatile PuzzleCatalogue catalogue;
+
+  /**
+   * Default constructor. Creates an empty history.
+   *
+   * @param catalogue the {@link PuzzleCatalogue} the puzzles are drawn from
+   */
+  public PuzzleHistory(PuzzleCatalogue catalogue) {
+    this.catalogue = catalogue;
+    seenPuzzles =
+        CacheBuilder.newBuilder().maximumSize(MAX_PLAYERS).expireAfterAccess(PLAYER_EXPIRY).build();
+  }
+
+  /**
+   * Gets the catalogue the puzzles are drawn from.
+   *
+   * @return the {@link PuzzleCatalogue} of the history
+   */
+  public PuzzleCatalogue getCatalogue() {
+    return catalogue;
+  }
+
+  /**
+   * Sets the catalogue the puzzles are drawn from. The puzzles already seen are kept, and are
+   * looked up in the new catalogue by fingerprint. The table of the fingerprints of the new
+   * catalogue is built right away, on the calling thread.
+   *
+   * @param catalogue the {@link PuzzleCatalogue} to draw the puzzles from
+   */
+  public void setCatalogue(PuzzleCatalogue catalogue) {
+    catalogue.indexFingerprints();
+    this.catalogue = catalogue;
+  }
+
+  /**
+   * Remembers that the given players have seen a puzzle.
+   *
+   * @param usernames a {@link Collection} with the usernames of the players
+   * @param catalogue the {@link PuzzleCatalogue} the puzzle was drawn from
+   * @param index the index of the puzzle in the catalogue
+   */
+  public void markSeen(Collection<String> usernames, PuzzleCatalogue catalogue, int index) {
+    for (String username : usernames) {
+      Seen seen;
+      try {
+        seen = seenPuzzles.get(username, () -> new Seen(catalogue));
+      } catch (ExecutionException e) {
+        // Creating a set of puzzles throws nothing.
+        throw new IllegalStateException("[PuzzleHistory] Cannot create a history", e.getCause());
+      }
+
+      synchronized (seen) {
+        seen.in(catalogue).add(index);
+      }
+    }
+  }
+
+  /**
+   * Gets the puzzles seen by at least one of the given players.
+   *
+   * @param usernames a {@link Collection} with the usernames of the players
+   * @param catalogue the {@link PuzzleCatalogue} the puzzles are drawn from
+   * @return a new {@link RoaringBitmap} with the indices in the catalogue of the puzzles seen by
+   *     any of the players
+   */
+  public RoaringBitmap seenByAny(Collection<String> usernames, PuzzleCatalogue catalogue) {
+    RoaringBitmap union = new RoaringBitmap();
+    for (String username : usernames) {
+      Seen seen = seenPuzzles.getIfPresent(username);
+      if (null != seen) {
+        synchronized (seen) {
+          union.or(seen.in(catalogue));
+        }
+      }
+    }
+    return union;
+  }
+
+  /**
+   * Gets the number of players with a history.
+   *
+   * @return the number of players remembered who have seen at least one puzzle
+   */
+  public int size() {
+    return (int) seenPuzzles.size();
+  }
+}
@@ -0,0 +1,433 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.server.puzzle;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Imports puzzles from text corpora into a catalogue file.
+ *
+ * <p>The input files are read line by line, and the lines are handed over in batches to a pool of
+ * threads, which normalize and validate them. The batches are collected in the order they were
+ * read, the duplicates are dropped, and the remaining puzzles are streamed to a {@link
+ * PuzzleCatalogueWriter}. At most a few batches per thread are in flight at any given time, so the
+ * memory used does not depend on the size of the inputs, except for the set of fingerprints used to
+ * spot the duplicates, which takes 16 bytes per distinct puzzle at most.
+ *
+ * <p>Two input formats are supported:
+ *
+ * <ul>
+ *   <li>{@link Format#CSV}, where each line holds a category and a phrase separated by a comma, the
+ *       phrase being optionally enclosed in double quotes, with doubled quotes inside;
+ *   <li>{@link Format#TEXT}, where each line holds a phrase, all of the same category.
+ * </ul>
+ *
+ * <p>Blank lines and lines starting with {@code #} are ignored. Phrases are normalized by stripping
+ * the accents of their letters, collapsing their whitespace and converting them to upper case. A
+ * valid phrase only contains letters from {@code A} to {@code Z}, spaces and the punctuation shown
+ * on the board ({@value #ALLOWED_PUNCTUATION}), and at least one letter, since the players can only
+ * guess the letters from {@code A} to {@code Z}. Letters without an ASCII base, such as {@code Ø},
+ * are rejected. Categories are matched regardless of case, spaces standing for underscores.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+public class PuzzleImporter {
+
+  /** Format of the input files. */
+  public enum Format {
+    CSV,
+    TEXT
+  }
+
+  /**
+   * Summary of an import.
+   *
+   * @param lines the number of lines read, ignored lines included
+   * @param imported the number of puzzles written to the catalogue
+   * @param duplicates the number of valid puzzles dropped as duplicates
+   * @param invalid the number of lines rejected by the validation
+   * @param categoryCounts the number of puzzles written for each {@link PuzzleCategory}
+   */
+  public record Report(
+      long lines,
+      long imported,
+      long duplicates,
+      long invalid,
+      Map<PuzzleCategory, Integer> categoryCounts) {}
+
+  /** Punctuation allowed in a phrase, besides letters and spaces. */
+  public static final String ALLOWED_PUNCTUATION = "'-&!?.,:";
+
+  /** Number of lines validated together by a thread. */
+  private static final int BATCH_SIZE = 4096;
+
+  /** Number of batches in flight per thread. */
+  private static final int BATCHES_PER_THREAD = 4;
+
+  /** Maximum number of rejected lines reported individually. */
+  private static final int MAX_REPORTED_ERRORS = 20;
+
+  private final Format format;
+  private final PuzzleCategory defaultCategory;
+  private final int minLength;
+  private final int maxLength;
+  private final int threads;
+
+  /**
+   * Default constructor.
+   *
+   * @param format the {@link Format} of the input files
+   * @param defaultCategory the {@link PuzzleCategory} of the phrases in {@link Format#TEXT},
+   *     ignored in {@link Format#CSV}
+   * @param minLength the minimum length of a phrase once normalized
+   * @param maxLength the maximum length of a phrase once normalized
+   * @param threads the number of threads validating the lines
+   */
+  public PuzzleImporter(
+      Format format, PuzzleCategory defaultCategory, int minLength, int maxLength, int threads) {
+    if (Format.TEXT == format && null == defaultCategory) {
+      throw new IllegalArgumentException("[PuzzleImporter] A category is needed for text files");
+    }
+    if (minLength < 1 || maxLength < minLength || threads < 1) {
+      throw new IllegalArgumentException("[PuzzleImporter] Invalid length limits or thread count");
+    }
+
+    this.format = format;
+    this.defaultCategory = defaultCategory;
+    this.minLength = minLength;
+    this.maxLength = maxLength;
+    this.threads = threads;
+  }
+
+  /**
+   * Imports the puzzles of the input files into a catalogue file. Rejected lines are reported on
+   * the standard error, up to {@link #MAX_REPORTED_ERRORS} of them.
+   *
+   * @param inputs a {@link List} with the {@link Path} of each input file
+   * @param output the {@link Path} of the catalogue file to write, replaced if it already exists
+   * @return a {@link Report} summarizing the import
+   * @throws IOException if an input cannot be read or the catalogue cannot be written
+   */
+  public Report importInto(List<Path> inputs, Path output) throws IOException {
+    ArrayDeque<Future<Batch>> inFlight = new ArrayDeque<>();
+    LongSet fingerprints = new LongSet();
+    long lines = 0;
+    long duplicates = 0;
+    long invalid = 0;
+
+    try (ExecutorService pool = Executors.newFixedThreadPool(threads);
+        PuzzleCatalogueWriter writer = new PuzzleCatalogueWriter(output)) {
+      for (Path input : inputs) {
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+          long lineNumber = 0;
+          List<String> batch = new ArrayList<>(BATCH_SIZE);
+          String line;
+          do {
+            line = reader.readLine();
+            if (null != line) {
+              batch.add(line);
+            }
+
+            if (batch.size() == BATCH_SIZE || (null == line && !batch.isEmpty())) {
+              long firstLine = lineNumber + 1;
+              List<String> lineBatch = batch;
+              inFlight.add(pool.submit(() -> validate(input, firstLine, lineBatch)));
+              lineNumber += batch.size();
+              lines += batch.size();
+              batch = new ArrayList<>(BATCH_SIZE);
+            }
+
+            // Write the oldest batches out, so that only a few of them are kept in memory.
+            while (inFlight.size() >= threads * BATCHES_PER_THREAD
+                || (null == line && !inFlight.isEmpty())) {
+              Batch validated = await(inFlight.poll());
+              for (String error : validated.errors) {
+                if (invalid++ < MAX_REPORTED_ERRORS) {
+                  System.err.println("[PuzzleImporter] " + error);
+                }
+              }
+              for (int i = 0; i < validated.records.size(); i++) {
+                if (fingerprints.add(validated.fingerprints[i])) {
+                  writer.add(validated.records.get(i));
+                } else {
+                  ++duplicates;
+                }
+              }
+            }
+          } while (null != line);
+        }
+      }
+
+      // Never replace a catalogue with an empty one, which the server could not draw from.
+      if (0 == writer.size()) {
+        throw new IOException("[PuzzleImporter] No valid puzzle, the catalogue was not written");
+      }
+      writer.finish();
+
+      Map<PuzzleCategory, Integer> categoryCounts = new EnumMap<>(PuzzleCategory.class);
+      for (PuzzleCategory category : PuzzleCategory.values()) {
+        categoryCounts.put(category, writer.getCount(category));
+      }
+      return new Report(lines, writer.size(), duplicates, invalid, categoryCounts);
+    }
+  }
+
+  /**
+   * Waits for a batch to be validated.
+   *
+   * @param future the {@link Future} of the validated batch
+   * @return the validated {@link Batch}
+   * @throws IOException if the thread was interrupted or the validation failed unexpectedly
+   */
+  private static Batch await(Future<Batch> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("[PuzzleImporter] Interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IOException("[PuzzleImporter] Validation failed", e.getCause());
+    }
+  }
+
+  /**
+   * Result of the validation of a batch of lines.
+   *
+   * @param records the valid puzzles, in the order of the lines
+   * @param fingerprints the fingerprint of each valid puzzle
+   * @param errors a description of each rejected line
+   */
+  private record Batch(List<PuzzleRecord> records, long[] fingerprints, List<String> errors) {}
+
+  /**
+   * Normalizes and validates a batch of lines. Runs on the pool of threads.
+   *
+   * @param file the {@link Path} of the input file, for errors
+   * @param firstLine the line number of the first line in the file, for errors
+   * @param lines a {@link List} with the lines to validate
+   * @return the validated {@link Batch}
+   */
+  private Batch validate(Path file, long firstLine, List<String> lines) {
+    List<PuzzleRecord> records = new ArrayList<>(lines.size());
+    long[] fingerprints = new long[lines.size()];
+    List<String> errors = new ArrayList<>();
+
+    for (int i = 0; i < lines.size(); i++) {
+      String line = lines.get(i);
+      if (line.isBlank() || line.startsWith("#")) {
+        continue;
+      }
+
+      try {
+        PuzzleRecord record = parse(line);
+        fingerprints[records.size()] = record.fingerprint();
+        records.add(record);
+      } catch (IllegalArgumentException e) {
+        errors.add(file + ":" + (firstLine + i) + ": " + e.getMessage());
+      }
+    }
+
+    return new Batch(records, fingerprints, errors);
+  }
+
+  /**
+   * Parses, normalizes and validates a line.
+   *
+   * @param line a {@link String} with the line
+   * @return the {@link PuzzleRecord} described by the line
+   * @throws IllegalArgumentException if the line is not a valid puzzle
+   */
+  private PuzzleRecord parse(String line) {
+    PuzzleCategory category = defaultCategory;
+    String phrase = line;
+
+    if (Format.CSV == format) {
+      int comma = line.indexOf(',');
+      if (comma < 0) {
+        throw new IllegalArgumentException("missing comma between category and phrase");
+      }
+      category = parseCategory(line.substring(0, comma));
+      phrase = unquote(line.substring(comma + 1).strip());
+    }
+
+    phrase = normalize(phrase);
+    if (phrase.length() < minLength || phrase.length() > maxLength) {
+      throw new IllegalArgumentException(
+          "phrase length " + phrase.length() + " not between " + minLength + " and " + maxLength);
+    }
+
+    boolean hasLetter = false;
+    for (int i = 0; i < phrase.length(); i++) {
+      char c = phrase.charAt(i);
+      if (c >= 'A' && c <= 'Z') {
+        hasLetter = true;
+      } else if (Character.isLetter(c)) {
+        throw new IllegalArgumentException("letter '" + c + "' outside of A-Z in phrase");
+      } else if (c != ' ' && ALLOWED_PUNCTUATION.indexOf(c) < 0) {
+        throw new IllegalArgumentException("invalid character '" + c + "' in phrase");
+      }
+    }
+    if (!hasLetter) {
+      throw new IllegalArgumentException("phrase without any letter");
+    }
+
+    return new PuzzleRecord(phrase, category);
+  }
+
+  /**
+   * Parses a category name.
+   *
+   * @param name a {@link String} with the name, in any case, with spaces or underscores
+   * @return the matching {@link PuzzleCategory}
+   * @throws IllegalArgumentException if no category matches
+   */
+  private static PuzzleCategory parseCategory(String name) {
+    String normalized = name.strip().toUpperCase(Locale.ROOT).replace(' ', '_');
+    try {
+      return PuzzleCategory.valueOf(normalized);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("unknown category '" + name.strip() + "'");
+    }
+  }
+
+  /**
+   * Removes the double quotes around a CSV field, if any.
+   *
+   * @param field a {@link String} with the field
+   * @return the content of the field
+   * @throws IllegalArgumentException if the quotes are not balanced
+   */
+  private static String unquote(String field) {
+    if (!field.startsWith("\"")) {
+      return field;
+    }
+    if (field.length() < 2 || !field.endsWith("\"")) {
+      throw new IllegalArgumentException("unterminated quoted phrase");
+    }
+    return field.substring(1, field.length() - 1).replace("\"\"", "\"");
+  }
+
+  /**
+   * Normalizes a phrase: strips the accents of its letters, collapses its whitespace and converts
+   * it to upper case. The accents are stripped by decomposing the letters, then dropping the
+   * combining marks, so {@code É} becomes {@code E}.
+   *
+   * @param phrase a {@link String} with the phrase
+   * @return the normalized phrase
+   */
+  private static String normalize(String phrase) {
+    String decomposed = Normalizer.normalize(phrase, Normalizer.Form.NFD);
+    StringBuilder sb = new StringBuilder(decomposed.length());
+    boolean pendingSpace = false;
+    for (int i = 0; i < decomposed.length(); i++) {
+      char c = decomposed.charAt(i);
+      if (Character.isWhitespace(c)) {
+        pendingSpace = !sb.isEmpty();
+      } else if (Character.getType(c) != Character.NON_SPACING_MARK) {
+        if (pendingSpace) {
+          sb.append(' ');
+          pendingSpace = false;
+        }
+        sb.append(c);
+      }
+    }
+    return sb.toString().toUpperCase(Locale.ROOT);
+  }
+
+  /**
+   * Set of {@code long} values, stored in an open-addressing table without boxing them. Used to
+   * spot duplicate puzzles by their fingerprint.
+   */
+  private static final class LongSet {
+
+    private long[] table = new long[1 << 16];
+    private boolean hasZero;
+    private int size;
+
+    /**
+     * Adds a value to the set.
+     *
+     * @param value the value to add
+     * @return {@code true} if the value was not in the set, {@code false} otherwise
+     */
+    boolean add(long value) {
+      if (0 == value) {
+        boolean added = !hasZero;
+        hasZero = true;
+        return added;
+      }
+
+      if (2 * (size + 1) > table.length) {
+        grow();
+      }
+      if (insert(table, value)) {
+        ++size;
+        return true;
+      }
+      return false;
+    }
+
+    /** Doubles the capacity of the table. */
+    private void grow() {
+      long[] larger = new long[table.length * 2];
+      for (long value : table) {
+        if (0 != value) {
+          insert(larger, value);
+        }
+      }
+      table = larger;
+    }
+
+    /**
+     * Inserts a non-zero value in a table, with linear probing.
+     *
+     * @param table the table, with a power of two length
+     * @param value the value to insert
+     * @return {@code true} if the value was inserted, {@code false} if it already was in the table
+     */
+    private static boolean insert(long[] table, long value) {
+      int mask = table.length - 1;
+      int slot = (int) (value ^ (value >>> 32)) & mask;
+      while (0 != table[slot]) {
+        if (table[slot] == value) {
+          return false;
+        }
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = value;
+      return true;
+    }
+  }
+}
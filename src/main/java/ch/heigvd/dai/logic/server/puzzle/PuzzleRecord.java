@@ -18,12 +18,29 @@
 
 package ch.heigvd.dai.logic.server.puzzle;
 
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+
 /**
  * Represents a puzzle record in the <i>database</i>, represented by a {@link String} with its
  * contents and the {@link PuzzleCategory} it belongs to.
  */
 public record PuzzleRecord(String puzzle, PuzzleCategory category) {
+
+  private static final HashFunction FINGERPRINT = Hashing.farmHashFingerprint64();
+
   public PuzzleRecord {
     puzzle = puzzle.toUpperCase();
   }
+
+  /**
+   * Gets the fingerprint of the phrase, which identifies the puzzle whatever the catalogue it is
+   * part of and its index there.
+   *
+   * @return the 64-bit FarmHash fingerprint of the UTF-8 bytes of the phrase
+   */
+  public long fingerprint() {
+    return FINGERPRINT.hashString(puzzle, StandardCharsets.UTF_8).asLong();
+  }
 }
@@ -0,0 +1,74 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ch.heigvd.dai.logic.server.wheel;
+
+/**
+ * Defines a wedge of a wheel, or a group of identical wedges.
+ *
+ * <p>The value of a {@link WedgeType#MONEY} wedge can be a range, in which case a value between
+ * {@code minValue} and {@code maxValue} is drawn in steps of {@link #VALUE_STEP} each time the
+ * wedge is spun, like the wildcard wedge of the show.
+ *
+ * @param type the {@link WedgeType} of the wedge
+ * @param minValue the amount of money won with the wedge, or the lowest one if it is a range
+ * @param maxValue the highest amount of money won with the wedge, equal to {@code minValue} if it
+ *     is not a range
+ * @param weight the weight of the wedge, i.e. the number of identical wedges on the wheel
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+public record WedgeDefinition(WedgeType type, int minValue, int maxValue, int weight) {
+
+  /** Step between the values drawn for a wedge with a range of values. */
+  public static final int VALUE_STEP = 100;
+
+  /**
+   * Canonical constructor, checking the definition.
+   *
+   * @throws IllegalArgumentException if the weight is not positive or the range is invalid
+   */
+  public WedgeDefinition {
+    if (weight <= 0) {
+      throw new IllegalArgumentException("[WedgeDefinition] Weight must be positive: " + weight);
+    }
+    if (minValue < 0 || maxValue < minValue || (maxValue - minValue) % VALUE_STEP != 0) {
+      throw new IllegalArgumentException(
+          "[WedgeDefinition] Invalid value range: " + minValue + ".." + maxValue);
+    }
+  }
+
+  /**
+   * Constructor for a wedge with a fixed value.
+   *
+   * @param type the {@link WedgeType} of the wedge
+   * @param value the amount of money won with the wedge
+   * @param weight the weight of the wedge
+   */
+  public WedgeDefinition(WedgeType type, int value, int weight) {
+    this(type, value, value, weight);
+  }
+
+  /**
+   * Checks whether the value of the wedge is drawn at each spin.
+   *
+   * @return {@code true} if the wedge has a range of values, {@code false} otherwise
+   */
+  public boolean hasValueRange() {
+    return minValue != maxValue;
+  }
+}
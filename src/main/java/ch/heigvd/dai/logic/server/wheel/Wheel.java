@@ -1,5 +1,5 @@
 /*
- * Wheel Of Fortune - a Java server/client CLI implementation of the television game
+ * Wheel Of Fortune - a Java server/client implementation of the television game
  * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
  *
  * This program is free software: you can redistribute it and/or modify
@@ -15,73 +15,119 @@
  * You should have received a copy of the GNU General Public License
  * along with this program.  If not, see <https://www.gnu.org/licenses/>.
  */
-
 package ch.heigvd.dai.logic.server.wheel;
 
-import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.List;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Represents the wheel of the game, which contains wedges that can be spun by the players.
  *
+ * <p>The wedges are sampled in proportion to their weight with the alias method: the wheel is split
+ * into as many columns as there are wedge definitions, each column holding at most two wedges, so a
+ * spin only takes two random numbers, whatever the number of wedges and their weights.
+ *
+ * <p>A wheel is immutable and can be shared by all the matches. The random number generator is
+ * provided by the caller, so that each match spins with its own generator.
+ *
  * @author Pedro Alves da Silva
  * @author Gonçalo Carvalheiro Heleno
  */
 public class Wheel {
 
-  private final List<Wedge> wedges;
-  private final Random rand;
+  private final List<WedgeDefinition> definitions;
+
+  /** Wedge of each definition with a fixed value, {@code null} for a range of values. */
+  private final Wedge[] wedges;
 
-  /** Default constructor. Constructs a new wheel with the default wedges. */
-  public Wheel() {
-    rand = new Random();
-    wedges = new ArrayList<>();
+  /** Probability of keeping the wedge of a column rather than its alias. */
+  private final double[] probabilities;
 
-    wedges.add(new Wedge(WedgeType.BANKRUPT, 0));
-    wedges.add(new Wedge(WedgeType.BANKRUPT, 0));
-    wedges.add(new Wedge(WedgeType.BANKRUPT, 0));
-    wedges.add(new Wedge(WedgeType.BANKRUPT, 0));
+  /** Index of the definition sharing each column. */
+  private final int[] aliases;
 
-    wedges.add(new Wedge(WedgeType.LOSE_A_TURN, 0));
+  /**
+   * Default constructor. Constructs a new wheel with the given wedges.
+   *
+   * @param definitions a {@link List} of {@link WedgeDefinition} with the wedges of the wheel
+   * @throws IllegalArgumentException if there are no wedges
+   */
+  public Wheel(List<WedgeDefinition> definitions) {
+    int n = definitions.size();
+    if (0 == n) {
+      throw new IllegalArgumentException("[Wheel] A wheel needs at least one wedge");
+    }
 
-    wedges.add(new Wedge(WedgeType.MONEY, 5000));
-    wedges.add(new Wedge(WedgeType.MONEY, 900));
-    wedges.add(new Wedge(WedgeType.MONEY, 1000));
-    wedges.add(new Wedge(WedgeType.MONEY, 1000));
-    wedges.add(new Wedge(WedgeType.MONEY, 650));
-    wedges.add(new Wedge(WedgeType.MONEY, 500));
-    wedges.add(new Wedge(WedgeType.MONEY, 700));
-    wedges.add(new Wedge(WedgeType.MONEY, 600));
-    wedges.add(new Wedge(WedgeType.MONEY, 600));
-    wedges.add(new Wedge(WedgeType.MONEY, 500));
-    wedges.add(new Wedge(WedgeType.MONEY, 650));
-    wedges.add(new Wedge(WedgeType.MONEY, 850));
-    wedges.add(new Wedge(WedgeType.MONEY, 1000));
-    wedges.add(new Wedge(WedgeType.MONEY, 800));
-    wedges.add(new Wedge(WedgeType.MONEY, 650));
-    wedges.add(new Wedge(WedgeType.MONEY, 500));
-    wedges.add(new Wedge(WedgeType.MONEY, 900));
+    this.definitions = List.copyOf(definitions);
+    wedges = new Wedge[n];
+    probabilities = new double[n];
+    aliases = new int[n];
 
-    // Supposed to be a surprise wedge, but we don't have that implemented
-    wedges.add(new Wedge(WedgeType.MONEY, 500));
+    long totalWeight = 0;
+    for (WedgeDefinition definition : definitions) {
+      totalWeight += definition.weight();
+    }
 
-    // Supposed to be a trip wedge, but we don't have that implemented
-    wedges.add(new Wedge(WedgeType.MONEY, 1000));
+    // Vose's algorithm: pair each column filled below average with one filled above average.
+    double[] scaled = new double[n];
+    ArrayDeque<Integer> small = new ArrayDeque<>();
+    ArrayDeque<Integer> large = new ArrayDeque<>();
+    for (int i = 0; i < n; i++) {
+      WedgeDefinition definition = definitions.get(i);
+      if (!definition.hasValueRange()) {
+        wedges[i] = new Wedge(definition.type(), definition.minValue());
+      }
+      scaled[i] = (double) definition.weight() * n / totalWeight;
+      (scaled[i] < 1.0 ? small : large).add(i);
+    }
 
-    // Supposed to be one million dollars, but the odds would've been unfair
-    wedges.add(new Wedge(WedgeType.MONEY, 10000));
+    while (!small.isEmpty() && !large.isEmpty()) {
+      int less = small.poll();
+      int more = large.poll();
+      probabilities[less] = scaled[less];
+      aliases[less] = more;
+      scaled[more] = scaled[more] + scaled[less] - 1.0;
+      (scaled[more] < 1.0 ? small : large).add(more);
+    }
 
-    // Supposed to be a wildcard wedge
-    wedges.add(new Wedge(WedgeType.MONEY, rand.nextInt(10) * 100));
+    // Whatever is left is full, up to rounding errors.
+    for (int i : large) {
+      probabilities[i] = 1.0;
+    }
+    for (int i : small) {
+      probabilities[i] = 1.0;
+    }
+  }
+
+  /**
+   * Gets the wedges of the wheel.
+   *
+   * @return an unmodifiable {@link List} of {@link WedgeDefinition}
+   */
+  public List<WedgeDefinition> getDefinitions() {
+    return definitions;
   }
 
   /**
    * Simulates a spin of the wheel and returns the wedge that was randomly chosen.
    *
+   * @param random the {@link RandomGenerator} of the match spinning the wheel
    * @return a {@link Wedge} representing the wedge that randomly chosen
    */
-  public Wedge spinTheWheel() {
-    return wedges.get(rand.nextInt(wedges.size()));
+  public Wedge spinTheWheel(RandomGenerator random) {
+    int column = random.nextInt(wedges.length);
+    int index = random.nextDouble() < probabilities[column] ? column : aliases[column];
+
+    Wedge wedge = wedges[index];
+    if (null == wedge) {
+      WedgeDefinition definition = definitions.get(index);
+      int steps = (definition.maxValue() - definition.minValue()) / WedgeDefinition.VALUE_STEP;
+      wedge =
+          new Wedge(
+              definition.type(),
+              definition.minValue() + WedgeDefinition.VALUE_STEP * random.nextInt(steps + 1));
+    }
+    return wedge;
   }
 }
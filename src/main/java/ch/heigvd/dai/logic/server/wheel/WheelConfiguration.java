@@ -0,0 +1,273 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ch.heigvd.dai.logic.server.wheel;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.InvalidPropertiesFormatException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Holds the wheels used by the matches: a default wheel, and optionally a different wheel for some
+ * rounds.
+ *
+ * <p>Wheels are read from a text file with one wedge definition per line, in the format {@code TYPE
+ * [VALUE [WEIGHT]]}. The value is either an amount of money or a range {@code MIN..MAX} drawn at
+ * each spin, and defaults to 0. The weight defaults to 1. The definitions apply to the default
+ * wheel until a {@code [round N]} line, after which they make up the wheel of round {@code N}.
+ * Blank lines and text following a {@code #} are ignored. For example:
+ *
+ * <pre>
+ * BANKRUPT     0        2
+ * LOSE_A_TURN
+ * MONEY        500      6
+ * MONEY        0..900   # wildcard
+ *
+ * [round 5]
+ * BANKRUPT     0        4
+ * MONEY        1000     10
+ * </pre>
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+public class WheelConfiguration {
+
+  /** Wheel of the show, as it was before wheels could be configured. */
+  private static final List<WedgeDefinition> DefaultWedges =
+      List.of(
+          new WedgeDefinition(WedgeType.BANKRUPT, 0, 4),
+          new WedgeDefinition(WedgeType.LOSE_A_TURN, 0, 1),
+          new WedgeDefinition(WedgeType.MONEY, 5000, 1),
+          new WedgeDefinition(WedgeType.MONEY, 900, 2),
+          // Including the trip wedge, which we don't have implemented
+          new WedgeDefinition(WedgeType.MONEY, 1000, 4),
+          new WedgeDefinition(WedgeType.MONEY, 650, 3),
+          // Including the surprise wedge, which we don't have implemented
+          new WedgeDefinition(WedgeType.MONEY, 500, 4),
+          new WedgeDefinition(WedgeType.MONEY, 700, 1),
+          new WedgeDefinition(WedgeType.MONEY, 600, 2),
+          new WedgeDefinition(WedgeType.MONEY, 850, 1),
+          new WedgeDefinition(WedgeType.MONEY, 800, 1),
+          // Supposed to be one million dollars, but the odds would've been unfair
+          new WedgeDefinition(WedgeType.MONEY, 10000, 1),
+          // Supposed to be a wildcard wedge
+          new WedgeDefinition(WedgeType.MONEY, 0, 900, 1));
+
+  /** Configuration used by the matches created from now on. */
+  private static volatile WheelConfiguration Current =
+      new WheelConfiguration(new Wheel(DefaultWedges), Map.of());
+
+  private final Wheel defaultWheel;
+  private final Map<Integer, Wheel> roundWheels;
+
+  /**
+   * Default constructor.
+   *
+   * @param defaultWheel the {@link Wheel} used in the rounds without a wheel of their own
+   * @param roundWheels a {@link Map} with the {@link Wheel} of some rounds, by round number
+   */
+  public WheelConfiguration(Wheel defaultWheel, Map<Integer, Wheel> roundWheels) {
+    this.defaultWheel = defaultWheel;
+    this.roundWheels = Map.copyOf(roundWheels);
+  }
+
+  /**
+   * Gets the configuration used by the matches created from now on.
+   *
+   * @return the current {@link WheelConfiguration}
+   */
+  public static WheelConfiguration getCurrent() {
+    return Current;
+  }
+
+  /**
+   * Sets the configuration used by the matches created from now on.
+   *
+   * @param configuration the {@link WheelConfiguration} to use
+   */
+  public static void setCurrent(WheelConfiguration configuration) {
+    Current = configuration;
+  }
+
+  /**
+   * Gets the wheel of a round.
+   *
+   * @param round the round number, starting at 1
+   * @return the {@link Wheel} of the round
+   */
+  public Wheel getWheel(int round) {
+    return roundWheels.getOrDefault(round, defaultWheel);
+  }
+
+  /**
+   * Gets the fingerprint of the configuration, which only depends on the wedge definitions of its
+   * wheels, so that two configurations read from equivalent files have the same fingerprint.
+   *
+   * @return the 64-bit FarmHash fingerprint of the wheels
+   */
+  public long fingerprint() {
+    Hasher hasher = Hashing.farmHashFingerprint64().newHasher();
+    putWheel(hasher, defaultWheel);
+    for (Map.Entry<Integer, Wheel> entry : new TreeMap<>(roundWheels).entrySet()) {
+      hasher.putInt(entry.getKey());
+      putWheel(hasher, entry.getValue());
+    }
+    return hasher.hash().asLong();
+  }
+
+  /**
+   * Feeds the wedge definitions of a wheel to a hasher.
+   *
+   * @param hasher the {@link Hasher} computing the fingerprint
+   * @param wheel the {@link Wheel} to feed
+   */
+  private static void putWheel(Hasher hasher, Wheel wheel) {
+    hasher.putInt(wheel.getDefinitions().size());
+    for (WedgeDefinition definition : wheel.getDefinitions()) {
+      hasher
+          .putInt(definition.type().ordinal())
+          .putInt(definition.minValue())
+          .putInt(definition.maxValue())
+          .putInt(definition.weight());
+    }
+  }
+
+  /**
+   * Reads a configuration from a wheel file.
+   *
+   * @param file the {@link Path} of the wheel file
+   * @return the {@link WheelConfiguration} described by the file
+   * @throws IOException if the file cannot be read or is not valid
+   */
+  public static WheelConfiguration load(Path file) throws IOException {
+    return parse(Files.readAllLines(file, StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Parses the lines of a wheel file.
+   *
+   * @param lines a {@link List} with the lines of the file
+   * @return the {@link WheelConfiguration} described by the lines
+   * @throws InvalidPropertiesFormatException if a line is not valid, or a wheel has no wedges
+   */
+  public static WheelConfiguration parse(List<String> lines)
+      throws InvalidPropertiesFormatException {
+    List<WedgeDefinition> defaultDefinitions = new ArrayList<>();
+    Map<Integer, List<WedgeDefinition>> roundDefinitions = new HashMap<>();
+    List<WedgeDefinition> definitions = defaultDefinitions;
+
+    for (int i = 0; i < lines.size(); i++) {
+      String line = lines.get(i);
+      int comment = line.indexOf('#');
+      if (comment >= 0) {
+        line = line.substring(0, comment);
+      }
+      line = line.strip();
+      if (line.isEmpty()) {
+        continue;
+      }
+
+      try {
+        if (line.startsWith("[")) {
+          definitions = new ArrayList<>();
+          if (null != roundDefinitions.put(parseRound(line), definitions)) {
+            throw new IllegalArgumentException("round defined twice");
+          }
+        } else {
+          definitions.add(parseDefinition(line));
+        }
+      } catch (IllegalArgumentException e) {
+        throw new InvalidPropertiesFormatException(
+            "[WheelConfiguration] Line " + (i + 1) + ": " + e.getMessage());
+      }
+    }
+
+    try {
+      Map<Integer, Wheel> roundWheels = new HashMap<>();
+      for (Map.Entry<Integer, List<WedgeDefinition>> entry : roundDefinitions.entrySet()) {
+        roundWheels.put(entry.getKey(), new Wheel(entry.getValue()));
+      }
+      return new WheelConfiguration(new Wheel(defaultDefinitions), roundWheels);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidPropertiesFormatException(
+          "[WheelConfiguration] Every wheel needs at least one wedge");
+    }
+  }
+
+  /**
+   * Parses a {@code [round N]} line.
+   *
+   * @param line a {@link String} with the line, without comment nor surrounding whitespace
+   * @return the round number
+   * @throws IllegalArgumentException if the line is not valid
+   */
+  private static int parseRound(String line) {
+    if (!line.endsWith("]") || line.length() < 2) {
+      throw new IllegalArgumentException("expected '[round N]' with N at least 1");
+    }
+
+    String[] parts = line.substring(1, line.length() - 1).strip().split("\\s+");
+    if (2 != parts.length
+        || !parts[0].equalsIgnoreCase("round")
+        || Integer.parseInt(parts[1]) < 1) {
+      throw new IllegalArgumentException("expected '[round N]' with N at least 1");
+    }
+    return Integer.parseInt(parts[1]);
+  }
+
+  /**
+   * Parses a {@code TYPE [VALUE [WEIGHT]]} line.
+   *
+   * @param line a {@link String} with the line, without comment nor surrounding whitespace
+   * @return the {@link WedgeDefinition} described by the line
+   * @throws IllegalArgumentException if the line is not valid
+   */
+  private static WedgeDefinition parseDefinition(String line) {
+    String[] parts = line.split("\\s+");
+    if (parts.length > 3) {
+      throw new IllegalArgumentException("expected 'TYPE [VALUE [WEIGHT]]'");
+    }
+
+    WedgeType type = WedgeType.valueOf(parts[0].toUpperCase(Locale.ROOT));
+    int minValue = 0;
+    int maxValue = 0;
+    if (parts.length > 1) {
+      int range = parts[1].indexOf("..");
+      if (range >= 0) {
+        minValue = Integer.parseInt(parts[1].substring(0, range));
+        maxValue = Integer.parseInt(parts[1].substring(range + 2));
+      } else {
+        minValue = Integer.parseInt(parts[1]);
+        maxValue = minValue;
+      }
+    }
+    int weight = parts.length > 2 ? Integer.parseInt(parts[2]) : 1;
+
+    return new WedgeDefinition(type, minValue, maxValue, weight);
+  }
+}
@@ -0,0 +1,244 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.metrics;
+
+import ch.heigvd.dai.logic.StatusCode;
+import ch.heigvd.dai.logic.commands.GameCommand;
+import ch.heigvd.dai.logic.commands.GameCommandType;
+import ch.heigvd.dai.logic.commands.StatusCommand;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of the commands exchanged by a server, broken down by {@link GameCommandType}.
+ *
+ * <p>For the commands sent by the clients, it counts the requests and the errors among them, and
+ * keeps a {@link LatencyHistogram} of the time the server took to answer. For every command, it
+ * counts the bytes received and sent, and the broadcasts queued by the game matches and not sent
+ * yet.
+ *
+ * <p>All the counters are {@link LongAdder}, so recording from the threads of many connections and
+ * matches never contends on a lock or a single cache line. A {@link #snapshot()} can be taken at
+ * any time, while the metrics keep being recorded.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+public class CommandMetrics {
+
+  /**
+   * Metrics of a type of command, as they were when the snapshot was taken.
+   *
+   * @param type the {@link GameCommandType} of the commands
+   * @param requests the number of commands of this type sent by the clients
+   * @param errors the number of these requests answered with {@link StatusCode#KO}, or that failed
+   * @param bytesIn the number of bytes of the commands of this type received
+   * @param bytesOut the number of bytes of the commands of this type sent
+   * @param pendingBroadcasts the number of commands of this type queued for a player and not sent
+   * @param meanNanos the mean time taken to answer a request, in nanoseconds
+   * @param p50Nanos the median time taken to answer a request, in nanoseconds
+   * @param p99Nanos the 99th percentile of the time taken to answer a request, in nanoseconds
+   * @param p999Nanos the 99.9th percentile of the time taken to answer a request, in nanoseconds
+   * @param maxNanos the longest time taken to answer a request, in nanoseconds
+   */
+  public record CommandStats(
+      GameCommandType type,
+      long requests,
+      long errors,
+      long bytesIn,
+      long bytesOut,
+      long pendingBroadcasts,
+      double meanNanos,
+      long p50Nanos,
+      long p99Nanos,
+      long p999Nanos,
+      long maxNanos) {
+
+    /**
+     * Checks whether any command of this type was seen.
+     *
+     * @return {@code true} if a command of this type was received, sent or queued
+     */
+    public boolean isActive() {
+      return requests > 0 || bytesIn > 0 || bytesOut > 0 || pendingBroadcasts > 0;
+    }
+  }
+
+  /** Counters of a single type of command. */
+  private static final class Counters {
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder pendingBroadcasts = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+  }
+
+  private static final GameCommandType[] TYPES = GameCommandType.values();
+
+  /** Metrics of the commands handled by the server running in this process. */
+  private static final CommandMetrics GLOBAL = new CommandMetrics();
+
+  /** Counters of each type of command, indexed by the ordinal of the type. */
+  private final Counters[] counters;
+
+  /** Default constructor. Creates metrics where nothing was recorded yet. */
+  public CommandMetrics() {
+    counters = new Counters[TYPES.length];
+    for (int i = 0; i < counters.length; i++) {
+      counters[i] = new Counters();
+    }
+  }
+
+  /**
+   * Gets the metrics of the commands handled by the server running in this process.
+   *
+   * @return the global {@link CommandMetrics}
+   */
+  public static CommandMetrics getGlobal() {
+    return GLOBAL;
+  }
+
+  /**
+   * Records a request received from a client.
+   *
+   * @param type the {@link GameCommandType} of the request
+   * @param bytes the size of the request on the wire
+   */
+  public void recordRequest(GameCommandType type, int bytes) {
+    Counters c = counters[type.ordinal()];
+    c.requests.increment();
+    c.bytesIn.add(bytes);
+  }
+
+  /**
+   * Records the outcome of a request, once the server answered it.
+   *
+   * @param type the {@link GameCommandType} of the request
+   * @param response the {@link GameCommand} answering the request, or {@code null} if there is none
+   * @param failed whether handling the request threw an exception
+   * @param latencyNanos the time taken to answer the request, in nanoseconds
+   */
+  public void recordResponse(
+      GameCommandType type, GameCommand response, boolean failed, long latencyNanos) {
+    Counters c = counters[type.ordinal()];
+    c.latency.record(latencyNanos);
+    if (failed
+        || (response instanceof StatusCommand status && status.getStatus() == StatusCode.KO)) {
+      c.errors.increment();
+    }
+  }
+
+  /**
+   * Records a command sent to a client, be it a response or a broadcast.
+   *
+   * @param type the {@link GameCommandType} of the command
+   * @param bytes the size of the command on the wire
+   */
+  public void recordSent(GameCommandType type, int bytes) {
+    counters[type.ordinal()].bytesOut.add(bytes);
+  }
+
+  /**
+   * Records a command queued by a game match for one of its players.
+   *
+   * @param type the {@link GameCommandType} of the command
+   */
+  public void broadcastQueued(GameCommandType type) {
+    counters[type.ordinal()].pendingBroadcasts.increment();
+  }
+
+  /**
+   * Records a queued command that was taken by the connection of the player, or dropped with it.
+   *
+   * @param type the {@link GameCommandType} of the command
+   */
+  public void broadcastDequeued(GameCommandType type) {
+    counters[type.ordinal()].pendingBroadcasts.decrement();
+  }
+
+  /**
+   * Takes a snapshot of the metrics of every type of command.
+   *
+   * @return an unmodifiable {@link Map} with the {@link CommandStats} of each {@link
+   *     GameCommandType}, in the order of the enumeration
+   */
+  public Map<GameCommandType, CommandStats> snapshot() {
+    EnumMap<GameCommandType, CommandStats> stats = new EnumMap<>(GameCommandType.class);
+    for (GameCommandType type : TYPES) {
+      Counters c = counters[type.ordinal()];
+      LatencyHistogram latency = c.latency;
+      stats.put(
+          type,
+          new CommandStats(
+              type,
+              c.requests.sum(),
+              c.errors.sum(),
+              c.bytesIn.sum(),
+              c.bytesOut.sum(),
+              c.pendingBroadcasts.sum(),
+              latency.getMean(),
+              latency.getValueAtPercentile(50),
+              latency.getValueAtPercentile(99),
+              latency.getValueAtPercentile(99.9),
+              latency.getMax()));
+    }
+    return Collections.unmodifiableMap(stats);
+  }
+
+  /**
+   * Gets the latency histogram of a type of request, to read its buckets directly.
+   *
+   * @param type the {@link GameCommandType} of the requests
+   * @return the {@link LatencyHistogram} of the time taken to answer them
+   */
+  public LatencyHistogram getLatency(GameCommandType type) {
+    return counters[type.ordinal()].latency;
+  }
+
+  /**
+   * Prints a table with the metrics of the types of command that were seen.
+   *
+   * @param out the {@link PrintStream} to print to
+   */
+  public void print(PrintStream out) {
+    out.printf(
+        "%-8s %10s %8s %10s %10s %8s %10s %10s %10s%n",
+        "command", "requests", "errors", "bytes in", "bytes out", "pending", "p50", "p99", "max");
+    for (CommandStats s : snapshot().values()) {
+      if (!s.isActive()) {
+        continue;
+      }
+      out.printf(
+          "%-8s %10d %8d %10d %10d %8d %10s %10s %10s%n",
+          s.type(),
+          s.requests(),
+          s.errors(),
+          s.bytesIn(),
+          s.bytesOut(),
+          s.pendingBroadcasts(),
+          LatencyHistogram.format(s.p50Nanos()),
+          LatencyHistogram.format(s.p99Nanos()),
+          LatencyHistogram.format(s.maxNanos()));
+    }
+  }
+}
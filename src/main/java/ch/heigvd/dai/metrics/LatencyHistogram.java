@@ -0,0 +1,225 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ch.heigvd.dai.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations, recorded from any number of threads without locking.
+ *
+ * <p>The buckets follow the layout of an HDR histogram: the durations are kept exactly up to {@code
+ * 2 * SUB_BUCKETS} nanoseconds, and above that each power of two is split into {@link #SUB_BUCKETS}
+ * buckets of the same width. Every recorded duration is thus known with a relative error below
+ * {@code 1 / SUB_BUCKETS}, whatever its magnitude, for a fixed amount of memory.
+ *
+ * <p>Recording a duration increments a single bucket and a few counters. Reading the histogram
+ * while it is recorded is allowed, but the counts read may then be slightly out of sync with each
+ * other.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+public class LatencyHistogram {
+
+  /** Number of bits of the sub-buckets of each power of two. */
+  private static final int SUB_BUCKET_BITS = 7;
+
+  /** Number of buckets each power of two is split into. */
+  public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /** Number of buckets, enough for any positive {@code long}. */
+  private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts;
+  private final LongAdder count;
+  private final LongAdder sum;
+  private final LongAccumulator max;
+
+  /** Default constructor. Creates an empty histogram. */
+  public LatencyHistogram() {
+    counts = new AtomicLongArray(BUCKETS);
+    count = new LongAdder();
+    sum = new LongAdder();
+    max = new LongAccumulator(Math::max, 0);
+  }
+
+  /**
+   * Records a duration.
+   *
+   * @param nanos the duration in nanoseconds, negative durations being recorded as 0
+   */
+  public void record(long nanos) {
+    long value = Math.max(nanos, 0);
+    counts.incrementAndGet(bucketOf(value));
+    count.increment();
+    sum.add(value);
+    max.accumulate(value);
+  }
+
+  /**
+   * Records the duration elapsed since the given instant.
+   *
+   * @param startNanos the start of the duration, as returned by {@link System#nanoTime()}
+   */
+  public void recordSince(long startNanos) {
+    record(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Gets the index of the bucket holding a duration.
+   *
+   * @param value the duration in nanoseconds, not negative
+   * @return the index of the bucket
+   */
+  static int bucketOf(long value) {
+    int msb = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+    if (msb <= SUB_BUCKET_BITS) {
+      return (int) value;
+    }
+
+    int shift = msb - SUB_BUCKET_BITS;
+    return SUB_BUCKETS * (shift + 1) + (int) ((value >>> shift) - SUB_BUCKETS);
+  }
+
+  /**
+   * Gets the highest duration held by a bucket.
+   *
+   * @param bucket the index of the bucket
+   * @return the highest duration in nanoseconds falling into the bucket
+   */
+  static long highestValueOf(int bucket) {
+    if (bucket < 2 * SUB_BUCKETS) {
+      return bucket;
+    }
+
+    int shift = bucket / SUB_BUCKETS - 1;
+    long top = SUB_BUCKETS + bucket % SUB_BUCKETS;
+    return ((top + 1) << shift) - 1;
+  }
+
+  /**
+   * Gets the number of recorded durations.
+   *
+   * @return the number of durations
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * Gets the sum of the recorded durations.
+   *
+   * @return the sum in nanoseconds
+   */
+  public long getSum() {
+    return sum.sum();
+  }
+
+  /**
+   * Gets the longest recorded duration.
+   *
+   * @return the longest duration in nanoseconds, or 0 if none was recorded
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Gets the mean of the recorded durations.
+   *
+   * @return the mean in nanoseconds, or 0 if none was recorded
+   */
+  public double getMean() {
+    long n = count.sum();
+    return 0 == n ? 0 : (double) sum.sum() / n;
+  }
+
+  /**
+   * Gets the duration below which the given percentage of the recorded durations lie.
+   *
+   * @param percentile the percentage, between 0 and 100
+   * @return the duration in nanoseconds, or 0 if none was recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    long[] snapshot = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+      total += snapshot[i];
+    }
+    if (0 == total) {
+      return 0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return Math.min(highestValueOf(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  /**
+   * Gets the number of recorded durations up to each of the given bounds, as the cumulative buckets
+   * of a Prometheus histogram. A duration is counted under a bound if its bucket starts at or below
+   * the bound, so the counts are as precise as the buckets themselves.
+   *
+   * @param boundsNanos the bounds in nanoseconds, in increasing order
+   * @return an array with the count of durations up to each bound, followed by the count of all the
+   *     durations, read in a single pass so that the counts are consistent with each other
+   */
+  public long[] getCumulativeCounts(long[] boundsNanos) {
+    long[] cumulative = new long[boundsNanos.length + 1];
+    int bound = 0;
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      while (bound < boundsNanos.length && bucketOf(boundsNanos[bound]) < i) {
+        cumulative[bound++] = seen;
+      }
+      seen += counts.get(i);
+    }
+    while (bound < boundsNanos.length) {
+      cumulative[bound++] = seen;
+    }
+    cumulative[boundsNanos.length] = seen;
+    return cumulative;
+  }
+
+  /**
+   * Formats a duration in the most readable unit.
+   *
+   * @param nanos the duration in nanoseconds
+   * @return a {@link String} with the duration and its unit
+   */
+  public static String format(double nanos) {
+    if (nanos < TimeUnit.MICROSECONDS.toNanos(1)) {
+      return String.format("%.0f ns", nanos);
+    } else if (nanos < TimeUnit.MILLISECONDS.toNanos(1)) {
+      return String.format("%.1f us", nanos / 1e3);
+    } else if (nanos < TimeUnit.SECONDS.toNanos(1)) {
+      return String.format("%.2f ms", nanos / 1e6);
+    }
+    return String.format("%.2f s", nanos / 1e9);
+  }
+}
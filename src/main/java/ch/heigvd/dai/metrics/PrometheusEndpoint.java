@@ -0,0 +1,355 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.metrics;
+
+import ch.heigvd.dai.logging.Logger;
+import ch.heigvd.dai.logic.commands.GameCommandType;
+import ch.heigvd.dai.logic.server.GameMatch;
+import ch.heigvd.dai.logic.server.GamePhase;
+import ch.heigvd.dai.logic.server.MatchRegistry;
+import com.google.common.net.HostAndPort;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Small HTTP endpoint exposing the metrics of a server in the Prometheus text format, on a port of
+ * its own.
+ *
+ * <p>Every scrape of {@code /metrics} renders the open connections, the game matches hosted by the
+ * registry and their phases, the {@link CommandMetrics} of each type of command, the time taken to
+ * select puzzles, and the memory and garbage collections of the JVM.
+ *
+ * <p>Rendering only reads counters and volatile fields. It never submits a task to a game match, so
+ * a scrape neither waits for nor delays any match.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+public class PrometheusEndpoint {
+
+  private static final Logger LOGGER = new Logger("PrometheusEndpoint");
+
+  /** Content type of the Prometheus text format. */
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  /** Upper bounds of the buckets of the latency histograms, in nanoseconds. */
+  private static final long[] LATENCY_BOUNDS_NANOS = {
+    10_000L,
+    50_000L,
+    100_000L,
+    250_000L,
+    500_000L,
+    1_000_000L,
+    2_500_000L,
+    5_000_000L,
+    10_000_000L,
+    25_000_000L,
+    50_000_000L,
+    100_000_000L,
+    250_000_000L,
+    500_000_000L,
+    1_000_000_000L,
+    2_500_000_000L
+  };
+
+  /** Labels of the buckets of the latency histograms, with their bounds in seconds. */
+  private static final String[] LATENCY_BOUND_LABELS = new String[LATENCY_BOUNDS_NANOS.length];
+
+  static {
+    for (int i = 0; i < LATENCY_BOUNDS_NANOS.length; i++) {
+      LATENCY_BOUND_LABELS[i] =
+          "le=\""
+              + BigDecimal.valueOf(LATENCY_BOUNDS_NANOS[i], 9).stripTrailingZeros().toPlainString()
+              + "\"";
+    }
+  }
+
+  private final MatchRegistry registry;
+  private final CommandMetrics commands;
+  private final ServerMetrics server;
+  private final HttpServer http;
+
+  /**
+   * Default constructor. Binds the endpoint, without serving it yet.
+   *
+   * @param hostAndPort a {@link HostAndPort} with the address and port to listen on
+   * @param registry the {@link MatchRegistry} of the game matches hosted by the server
+   * @throws IllegalArgumentException if {@code hostAndPort} does not contain a port number
+   * @throws IOException if the port cannot be bound
+   */
+  public PrometheusEndpoint(HostAndPort hostAndPort, MatchRegistry registry)
+      throws IllegalArgumentException, IOException {
+    if (!hostAndPort.hasPort()) {
+      throw new IllegalArgumentException("[PrometheusEndpoint] The address has no port");
+    }
+
+    this.registry = registry;
+    commands = CommandMetrics.getGlobal();
+    server = ServerMetrics.getGlobal();
+    http =
+        HttpServer.create(
+            new InetSocketAddress(
+                InetAddress.getByName(hostAndPort.getHost()), hostAndPort.getPort()),
+            0);
+  }
+
+  /** Starts serving the metrics, on a thread of the endpoint. */
+  public void start() {
+    http.createContext("/metrics", this::serve);
+    http.setExecutor(
+        Executors.newSingleThreadExecutor(Thread.ofPlatform().name("metrics").daemon().factory()));
+    http.start();
+    LOGGER.info(() -> "Serving metrics on port " + http.getAddress().getPort() + " at /metrics");
+  }
+
+  /**
+   * Answers a scrape with the current metrics.
+   *
+   * @param exchange the {@link HttpExchange} of the request
+   * @throws IOException if the response cannot be written
+   */
+  private void serve(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+
+      byte[] body = render().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    }
+  }
+
+  /**
+   * Renders all the metrics in the Prometheus text format.
+   *
+   * @return a {@link String} with the metrics
+   */
+  public String render() {
+    StringBuilder sb = new StringBuilder(16 * 1024);
+
+    header(sb, "wof_connections", "gauge", "Client connections currently open.");
+    sample(sb, "wof_connections", null, server.getConnections());
+
+    EnumMap<GamePhase, Integer> phases = new EnumMap<>(GamePhase.class);
+    for (GamePhase phase : GamePhase.values()) {
+      phases.put(phase, 0);
+    }
+    int matches = 0;
+    for (GameMatch match : registry.getMatches()) {
+      phases.merge(match.getPhase(), 1, Integer::sum);
+      ++matches;
+    }
+    header(sb, "wof_matches", "gauge", "Game matches currently hosted.");
+    sample(sb, "wof_matches", null, matches);
+    header(sb, "wof_matches_by_phase", "gauge", "Game matches currently in each phase.");
+    for (Map.Entry<GamePhase, Integer> entry : phases.entrySet()) {
+      sample(sb, "wof_matches_by_phase", "phase=\"" + entry.getKey() + "\"", entry.getValue());
+    }
+
+    renderCommands(sb);
+
+    header(
+        sb,
+        "wof_puzzle_selection_seconds",
+        "histogram",
+        "Time taken by the game matches to select the puzzle of a round.");
+    histogram(sb, "wof_puzzle_selection_seconds", null, server.getPuzzleSelection());
+
+    renderJvm(sb);
+    return sb.toString();
+  }
+
+  /**
+   * Renders the metrics of each type of command.
+   *
+   * @param sb the {@link StringBuilder} to render to
+   */
+  private void renderCommands(StringBuilder sb) {
+    Map<GameCommandType, CommandMetrics.CommandStats> stats = commands.snapshot();
+
+    header(sb, "wof_command_requests_total", "counter", "Commands received from the clients.");
+    for (CommandMetrics.CommandStats s : stats.values()) {
+      sample(sb, "wof_command_requests_total", label(s.type()), s.requests());
+    }
+    header(
+        sb,
+        "wof_command_errors_total",
+        "counter",
+        "Commands received from the clients that were answered with KO or failed.");
+    for (CommandMetrics.CommandStats s : stats.values()) {
+      sample(sb, "wof_command_errors_total", label(s.type()), s.errors());
+    }
+    header(sb, "wof_command_received_bytes_total", "counter", "Bytes of the commands received.");
+    for (CommandMetrics.CommandStats s : stats.values()) {
+      sample(sb, "wof_command_received_bytes_total", label(s.type()), s.bytesIn());
+    }
+    header(sb, "wof_command_sent_bytes_total", "counter", "Bytes of the commands sent.");
+    for (CommandMetrics.CommandStats s : stats.values()) {
+      sample(sb, "wof_command_sent_bytes_total", label(s.type()), s.bytesOut());
+    }
+    header(
+        sb,
+        "wof_command_pending_broadcasts",
+        "gauge",
+        "Commands queued by the game matches for their players and not sent yet.");
+    for (CommandMetrics.CommandStats s : stats.values()) {
+      sample(sb, "wof_command_pending_broadcasts", label(s.type()), s.pendingBroadcasts());
+    }
+
+    header(
+        sb,
+        "wof_command_latency_seconds",
+        "histogram",
+        "Time taken by the server to answer the commands received.");
+    for (GameCommandType type : stats.keySet()) {
+      histogram(sb, "wof_command_latency_seconds", label(type), commands.getLatency(type));
+    }
+  }
+
+  /**
+   * Renders the memory usage and the garbage collections of the JVM.
+   *
+   * @param sb the {@link StringBuilder} to render to
+   */
+  private static void renderJvm(StringBuilder sb) {
+    MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+    MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+
+    header(sb, "jvm_memory_used_bytes", "gauge", "Memory used by the JVM.");
+    sample(sb, "jvm_memory_used_bytes", "area=\"heap\"", heap.getUsed());
+    sample(sb, "jvm_memory_used_bytes", "area=\"nonheap\"", nonHeap.getUsed());
+    header(sb, "jvm_memory_committed_bytes", "gauge", "Memory committed by the JVM.");
+    sample(sb, "jvm_memory_committed_bytes", "area=\"heap\"", heap.getCommitted());
+    sample(sb, "jvm_memory_committed_bytes", "area=\"nonheap\"", nonHeap.getCommitted());
+    header(sb, "jvm_memory_max_bytes", "gauge", "Maximum memory of the JVM, -1 if undefined.");
+    sample(sb, "jvm_memory_max_bytes", "area=\"heap\"", heap.getMax());
+    sample(sb, "jvm_memory_max_bytes", "area=\"nonheap\"", nonHeap.getMax());
+
+    header(sb, "jvm_gc_collections_total", "counter", "Garbage collections run by the JVM.");
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      sample(
+          sb,
+          "jvm_gc_collections_total",
+          "gc=\"" + escape(gc.getName()) + "\"",
+          gc.getCollectionCount());
+    }
+    header(sb, "jvm_gc_collection_seconds_total", "counter", "Time spent in garbage collections.");
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      sb.append("jvm_gc_collection_seconds_total{gc=\"")
+          .append(escape(gc.getName()))
+          .append("\"} ")
+          .append(gc.getCollectionTime() / 1e3)
+          .append('\n');
+    }
+
+    header(sb, "jvm_threads_live", "gauge", "Live threads of the JVM, virtual threads excluded.");
+    sample(sb, "jvm_threads_live", null, ManagementFactory.getThreadMXBean().getThreadCount());
+  }
+
+  /**
+   * Renders the buckets, the sum and the count of a latency histogram, in seconds.
+   *
+   * @param sb the {@link StringBuilder} to render to
+   * @param name the name of the metric
+   * @param labels the labels of the histogram, or {@code null} if there is none
+   * @param histogram the {@link LatencyHistogram} to render
+   */
+  private static void histogram(
+      StringBuilder sb, String name, String labels, LatencyHistogram histogram) {
+    long[] cumulative = histogram.getCumulativeCounts(LATENCY_BOUNDS_NANOS);
+    String prefix = null == labels ? "" : labels + ",";
+    for (int i = 0; i < LATENCY_BOUNDS_NANOS.length; i++) {
+      sample(sb, name + "_bucket", prefix + LATENCY_BOUND_LABELS[i], cumulative[i]);
+    }
+    long count = cumulative[LATENCY_BOUNDS_NANOS.length];
+    sample(sb, name + "_bucket", prefix + "le=\"+Inf\"", count);
+    sb.append(name).append("_sum");
+    if (null != labels) {
+      sb.append('{').append(labels).append('}');
+    }
+    sb.append(' ').append(histogram.getSum() / 1e9).append('\n');
+    sample(sb, name + "_count", labels, count);
+  }
+
+  /**
+   * Renders the help and type lines of a metric.
+   *
+   * @param sb the {@link StringBuilder} to render to
+   * @param name the name of the metric
+   * @param type the Prometheus type of the metric
+   * @param help a {@link String} describing the metric
+   */
+  private static void header(StringBuilder sb, String name, String type, String help) {
+    sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  /**
+   * Renders a sample with an integer value.
+   *
+   * @param sb the {@link StringBuilder} to render to
+   * @param name the name of the metric
+   * @param labels the labels of the sample, or {@code null} if there is none
+   * @param value the value of the sample
+   */
+  private static void sample(StringBuilder sb, String name, String labels, long value) {
+    sb.append(name);
+    if (null != labels) {
+      sb.append('{').append(labels).append('}');
+    }
+    sb.append(' ').append(value).append('\n');
+  }
+
+  /**
+   * Builds the label of a type of command.
+   *
+   * @param type the {@link GameCommandType}
+   * @return a {@link String} with the label
+   */
+  private static String label(GameCommandType type) {
+    return "command=\"" + type + "\"";
+  }
+
+  /**
+   * Escapes a label value as required by the Prometheus text format.
+   *
+   * @param value the value to escape
+   * @return the escaped {@link String}
+   */
+  private static String escape(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of a server that are not tied to a type of command: the client connections currently
+ * open, and the time taken to select the puzzle of each round.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+public class ServerMetrics {
+
+  /** Metrics of the server running in this process. */
+  private static final ServerMetrics GLOBAL = new ServerMetrics();
+
+  private final LongAdder connections;
+  private final LatencyHistogram puzzleSelection;
+
+  /** Default constructor. Creates metrics where nothing was recorded yet. */
+  public ServerMetrics() {
+    connections = new LongAdder();
+    puzzleSelection = new LatencyHistogram();
+  }
+
+  /**
+   * Gets the metrics of the server running in this process.
+   *
+   * @return the global {@link ServerMetrics}
+   */
+  public static ServerMetrics getGlobal() {
+    return GLOBAL;
+  }
+
+  /** Records a client connection that was just accepted. */
+  public void connectionOpened() {
+    connections.increment();
+  }
+
+  /** Records a client connection that was just closed. */
+  public void connectionClosed() {
+    connections.decrement();
+  }
+
+  /**
+   * Gets the number of client connections currently open.
+   *
+   * @return the number of open connections
+   */
+  public long getConnections() {
+    return connections.sum();
+  }
+
+  /**
+   * Gets the histogram of the time taken by the game matches to select the puzzle of a round.
+   *
+   * @return the {@link LatencyHistogram} of the puzzle selections
+   */
+  public LatencyHistogram getPuzzleSelection() {
+    return puzzleSelection;
+  }
+}
@@ -0,0 +1,321 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.network;
+
+import ch.heigvd.dai.Player;
+import ch.heigvd.dai.logging.Level;
+import ch.heigvd.dai.logging.Logger;
+import ch.heigvd.dai.logic.StatusCode;
+import ch.heigvd.dai.logic.commands.GameCommand;
+import ch.heigvd.dai.logic.commands.GameCommandType;
+import ch.heigvd.dai.logic.commands.JoinCommand;
+import ch.heigvd.dai.logic.commands.StatusCommand;
+import ch.heigvd.dai.logic.server.GameMatch;
+import ch.heigvd.dai.logic.server.MatchRegistry;
+import ch.heigvd.dai.metrics.CommandMetrics;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Holds the server-side state of a single client connection and dispatches the commands it sends to
+ * the game match.
+ *
+ * <p>This class does not do any I/O by itself. The connection is notified through a callback when
+ * the game match queues a command for its player, and is expected to send the pending commands
+ * right away, as well as after each response it sends back. It is shared by the different server
+ * implementations ({@link SocketServer} and {@link NioSocketServer}), so that all of them speak
+ * exactly the same protocol regardless of how the bytes reach the server.
+ *
+ * <p>The commands are handled asynchronously, as tasks of the game match: the connection gets a
+ * {@link CompletableFuture} of the response, completed by whichever thread runs the match. A
+ * connection needs to wait for a response before handling its next command, and should not send the
+ * pending commands while waiting, so that the client gets them after the response.
+ *
+ * <p>Each command is accounted for in the global {@link CommandMetrics}: the connection reports the
+ * size of what it receives and sends, and the session times the responses.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+class ClientSession {
+
+  private static final Logger LOGGER = new Logger("Server");
+
+  /** The registry of the game matches hosted by the server. */
+  private final MatchRegistry registry;
+
+  /** The IP address of the client, used for console outputs before the client joins. */
+  private final String peerAddress;
+
+  /** Callback notified when the game match queues a command for the player of this connection. */
+  private final Runnable onPendingCommands;
+
+  /** The metrics the commands of this connection are accounted for in. */
+  private final CommandMetrics metrics;
+
+  /** The logger of the connection, tied to the game match once the client joined one. */
+  private volatile Logger logger;
+
+  /** The game match the client is playing in, or {@code null} if the client did not join. */
+  private volatile GameMatch match;
+
+  /** The player associated with this connection, or {@code null} if the client did not join. */
+  private volatile Player player;
+
+  /**
+   * Whether the transport of the connection was closed, in which case a join still in progress is
+   * undone. A QUIT does not set it, as the client can join again on the same connection.
+   */
+  private volatile boolean closed;
+
+  /**
+   * Default constructor.
+   *
+   * @param registry a {@link MatchRegistry} with the game matches hosted by the server
+   * @param peerAddress a {@link String} with the IP address of the client
+   * @param onPendingCommands a {@link Runnable} called when the game match queues a command for the
+   *     player of this connection, so that the connection can send it right away
+   */
+  ClientSession(MatchRegistry registry, String peerAddress, Runnable onPendingCommands) {
+    this.registry = registry;
+    match = null;
+    this.peerAddress = peerAddress;
+    this.onPendingCommands = onPendingCommands;
+    metrics = CommandMetrics.getGlobal();
+    logger = LOGGER;
+    player = null;
+    closed = false;
+  }
+
+  /**
+   * Getter for the player associated with this connection.
+   *
+   * @return the {@link Player} that joined through this connection, or {@code null} if the client
+   *     did not join the game match yet
+   */
+  Player getPlayer() {
+    return player;
+  }
+
+  /**
+   * Getter for the game match the client is playing in.
+   *
+   * @return the {@link GameMatch} of this connection, or {@code null} if the client did not join a
+   *     game match yet
+   */
+  GameMatch getMatch() {
+    return match;
+  }
+
+  /**
+   * Method to parse the JOIN command from the client and to add the player to the requested game
+   * match, or to the one picked by the registry.
+   *
+   * @param joinCommand a {@link JoinCommand} object containing the JOIN command from the client
+   * @return a {@link CompletableFuture} of the {@link StatusCommand} response to the JOIN command
+   */
+  private CompletableFuture<GameCommand> parseJoin(JoinCommand joinCommand) {
+    return registry
+        .join(joinCommand.getUsername(), joinCommand.getMatchName())
+        .thenApply(
+            result -> {
+              StatusCode joinStatus = result.status();
+
+              if (null == joinStatus) {
+                joinStatus = StatusCode.KO;
+              } else if (StatusCode.OK == joinStatus) {
+                GameMatch joinedMatch = result.match();
+                Player joinedPlayer = joinedMatch.getPlayer(joinCommand.getUsername());
+                joinedMatch.setPendingCommandsListener(joinedPlayer, onPendingCommands);
+                match = joinedMatch;
+                player = joinedPlayer;
+                logger = LOGGER.forMatch(joinedMatch.getName());
+                logger.info(joinedPlayer.getUsername(), () -> "connected successfully");
+
+                // The connection was closed while joining.
+                if (closed) {
+                  leave();
+                }
+              }
+
+              return new StatusCommand(joinStatus);
+            });
+  }
+
+  /**
+   * Accounts for a command received from the client, before it gets handled.
+   *
+   * @param command the {@link GameCommand} sent by the client
+   * @param bytes the size of the command on the wire
+   */
+  void received(GameCommand command, int bytes) {
+    metrics.recordRequest(command.getType(), bytes);
+  }
+
+  /**
+   * Handles a command sent by the client and prepares the response to send back, timing how long
+   * the response takes.
+   *
+   * @param command the {@link GameCommand} sent by the client
+   * @return a {@link CompletableFuture} of the {@link GameCommand} to send back to the client,
+   *     completed with {@code null} if the command does not expect a direct response
+   */
+  CompletableFuture<GameCommand> handle(GameCommand command) {
+    GameCommandType type = command.getType();
+    long start = System.nanoTime();
+    return route(command)
+        .whenComplete(
+            (response, exception) -> {
+              long latency = System.nanoTime() - start;
+              metrics.recordResponse(type, response, null != exception, latency);
+              if (null != exception) {
+                logger.log(Level.WARN, username(), type, latency, () -> "failed: " + exception);
+              } else {
+                logger.log(Level.DEBUG, username(), type, latency, () -> describe(response));
+              }
+            });
+  }
+
+  /**
+   * Gets the username of the player, to log the messages about this connection.
+   *
+   * @return the username, or {@code null} if the client did not join a game match
+   */
+  private String username() {
+    Player currentPlayer = player;
+    return null != currentPlayer ? currentPlayer.getUsername() : null;
+  }
+
+  /**
+   * Describes the response to a command, for the log.
+   *
+   * @param response the {@link GameCommand} sent back, or {@code null} if there is none
+   * @return a {@link String} describing the response
+   */
+  private String describe(GameCommand response) {
+    String from = null == player ? " from " + peerAddress : "";
+    if (null == response) {
+      return "handled without response" + from;
+    } else if (response instanceof StatusCommand status) {
+      return "answered " + status.getStatus() + from;
+    }
+    return "answered " + response.getType() + from;
+  }
+
+  /**
+   * Routes a command sent by the client, either by joining a game match or by passing it to the
+   * match the client joined.
+   *
+   * @param command the {@link GameCommand} sent by the client
+   * @return a {@link CompletableFuture} of the {@link GameCommand} to send back to the client,
+   *     completed with {@code null} if the command does not expect a direct response
+   */
+  private CompletableFuture<GameCommand> route(GameCommand command) {
+    Player currentPlayer = player;
+    GameMatch currentMatch = match;
+    if (null != currentMatch) {
+      return currentMatch.submit(() -> dispatch(currentMatch, currentPlayer, command));
+    }
+
+    // Only a JOIN or a QUIT make sense before joining a game match.
+    GameCommand response = null;
+    switch (command.getType()) {
+      case JOIN -> {
+        return parseJoin((JoinCommand) command);
+      }
+
+      case QUIT -> logger.debug(null, () -> "Peer " + peerAddress + " quit before joining");
+
+      default -> {
+        logger.debug(null, () -> "Peer " + peerAddress + " is not in a match yet");
+        response = new StatusCommand(StatusCode.KO);
+      }
+    }
+
+    return CompletableFuture.completedFuture(response);
+  }
+
+  /**
+   * Dispatches a command sent by the client to the game match. Runs as a task of the match.
+   *
+   * @param match the {@link GameMatch} the client is playing in
+   * @param player the {@link Player} associated with this connection
+   * @param command the {@link GameCommand} sent by the client
+   * @return the {@link GameCommand} to send back to the client, or {@code null} if the command does
+   *     not expect a direct response
+   */
+  private GameCommand dispatch(GameMatch match, Player player, GameCommand command) {
+    if (command.getType() == GameCommandType.QUIT) {
+      logger.info(player.getUsername(), () -> "quit");
+      leave();
+      return null;
+    }
+
+    return match.handle(player, command);
+  }
+
+  /**
+   * Accounts for a command written to the client, be it a response or a pending command.
+   *
+   * @param command the {@link GameCommand} written
+   * @param bytes the size of the command on the wire
+   */
+  void sent(GameCommand command, int bytes) {
+    metrics.recordSent(command.getType(), bytes);
+  }
+
+  /**
+   * Gets the commands queued by the game match for the player of this connection.
+   *
+   * @return an array of {@link GameCommand} with the pending commands, empty if the client did not
+   *     join the game match yet
+   */
+  GameCommand[] pendingCommands() {
+    GameMatch currentMatch = match;
+    Player currentPlayer = player;
+    GameCommand[] pending = null;
+    if (null != currentMatch && null != currentPlayer) {
+      pending = currentMatch.getPendingCommands(currentPlayer);
+    }
+    return null != pending ? pending : new GameCommand[0];
+  }
+
+  /**
+   * Removes the player from the game match, letting the registry reclaim the match if it became
+   * empty. The client can join a game match again afterwards.
+   */
+  private void leave() {
+    GameMatch currentMatch = match;
+    Player currentPlayer = player;
+    if (null != currentMatch && null != currentPlayer) {
+      player = null;
+      match = null;
+      logger = LOGGER;
+      registry.leave(currentMatch, currentPlayer.getUsername());
+    }
+  }
+
+  /**
+   * Tears the session down once the connection is closed, disconnecting the player from the game
+   * match if that's not yet the case. Can be called from any thread.
+   */
+  void close() {
+    closed = true;
+    leave();
+  }
+}
@@ -0,0 +1,629 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package ch.heigvd.dai.network;
+
+import ch.heigvd.dai.logic.PlayerState;
+import ch.heigvd.dai.logic.StatusCode;
+import ch.heigvd.dai.logic.client.InteractiveConsole;
+import ch.heigvd.dai.logic.commands.GameCommand;
+import ch.heigvd.dai.logic.commands.GameCommandType;
+import ch.heigvd.dai.logic.commands.InfoCommand;
+import ch.heigvd.dai.logic.commands.LastCommand;
+import ch.heigvd.dai.logic.commands.LobbyCommand;
+import ch.heigvd.dai.logic.commands.RoundCommand;
+import ch.heigvd.dai.logic.commands.StartCommand;
+import ch.heigvd.dai.logic.commands.StatusCommand;
+import ch.heigvd.dai.logic.commands.WireFormat;
+import ch.heigvd.dai.metrics.LatencyHistogram;
+import com.google.common.net.HostAndPort;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.InvalidPropertiesFormatException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load generator playing complete games against a running server, over many connections at once.
+ *
+ * <p>Each connection is a bot running on its own virtual thread. A bot goes through the same {@link
+ * InteractiveConsole} state machine as a human player, typing its inputs instead of reading them
+ * from the console, and only sends a command once the response to the previous one arrived. The
+ * bots are grouped in named matches, the first bot of each match starting the games once everybody
+ * joined.
+ *
+ * <p>The round trip of each command expecting a direct response is recorded in a {@link
+ * LatencyHistogram}, as well as the time to set up each connection, from the connection attempt to
+ * the response to the JOIN command.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+public class LoadGenerator {
+
+  /** Consonants in the order the bots guess them, most frequent in English first. */
+  private static final String CONSONANTS = "TNSHRDLCMWFGYPBVKJXQZ";
+
+  /** Vowels in the order the bots buy them, most frequent in English first. */
+  private static final String VOWELS = "EAOIU";
+
+  /** Letters the bots pick for the last round. */
+  private static final String LAST_ROUND_LETTERS = "HDCMA";
+
+  /** Number of commands after which a bot considers its game stuck and leaves. */
+  private static final int MAX_COMMANDS_PER_GAME = 5_000;
+
+  /** Timeout of a connection attempt, in milliseconds. */
+  private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+
+  /**
+   * Results of a load test.
+   *
+   * @param connections the number of connections attempted
+   * @param games the number of games played to the end
+   * @param nanos the duration of the load test, in nanoseconds
+   * @param commands the number of commands sent by the bots
+   * @param broadcasts the number of commands the server sent on its own to the bots
+   * @param connectTimes the {@link LatencyHistogram} of the connection setup times
+   * @param roundTrips the {@link LatencyHistogram} of the round trips of all the commands
+   * @param roundTripsByType the {@link LatencyHistogram} of the round trips of each type of command
+   * @param errors the number of errors of each kind, by name
+   */
+  public record Result(
+      int connections,
+      long games,
+      long nanos,
+      long commands,
+      long broadcasts,
+      LatencyHistogram connectTimes,
+      LatencyHistogram roundTrips,
+      Map<GameCommandType, LatencyHistogram> roundTripsByType,
+      Map<String, Long> errors) {}
+
+  private final InetSocketAddress address;
+  private final int connections;
+  private final int playersPerMatch;
+  private final int gamesPerMatch;
+  private final Semaphore connectPermits;
+
+  private final LatencyHistogram connectTimes;
+  private final LatencyHistogram roundTrips;
+  private final Map<GameCommandType, LatencyHistogram> roundTripsByType;
+  private final LongAdder commands;
+  private final LongAdder broadcasts;
+  private final LongAdder games;
+  private final LongAdder connectErrors;
+  private final LongAdder joinErrors;
+  private final LongAdder ioErrors;
+  private final LongAdder koResponses;
+  private final LongAdder invalidMessages;
+  private final LongAdder stuckBots;
+  private final LongAdder finishedBots;
+
+  /**
+   * Default constructor.
+   *
+   * @param hostAndPort a {@link HostAndPort} object with the IP and port of the server
+   * @param connections the number of connections to open
+   * @param playersPerMatch the number of players of each match
+   * @param gamesPerMatch the number of games each match plays before its players leave
+   * @param concurrentConnects the number of connections attempted at the same time
+   * @throws NullPointerException if {@code hostAndPort} is null
+   * @throws IllegalArgumentException if {@code hostAndPort} does not contain a port number, or if a
+   *     number is invalid
+   * @throws UnknownHostException if {@code hostAndPort} contains a hostname that is unresolvable to
+   *     a valid IP
+   */
+  public LoadGenerator(
+      HostAndPort hostAndPort,
+      int connections,
+      int playersPerMatch,
+      int gamesPerMatch,
+      int concurrentConnects)
+      throws NullPointerException, IllegalArgumentException, UnknownHostException {
+    if (!hostAndPort.hasPort()) {
+      throw new IllegalArgumentException("[LoadGenerator] The address of the server has no port");
+    }
+    if (connections <= 0 || playersPerMatch <= 0 || gamesPerMatch <= 0 || concurrentConnects <= 0) {
+      throw new IllegalArgumentException("[LoadGenerator] The numbers must be positive");
+    }
+
+    address =
+        new InetSocketAddress(InetAddress.getByName(hostAndPort.getHost()), hostAndPort.getPort());
+    this.connections = connections;
+    this.playersPerMatch = playersPerMatch;
+    this.gamesPerMatch = gamesPerMatch;
+    connectPermits = new Semaphore(concurrentConnects);
+
+    connectTimes = new LatencyHistogram();
+    roundTrips = new LatencyHistogram();
+    EnumMap<GameCommandType, LatencyHistogram> byType = new EnumMap<>(GameCommandType.class);
+    for (GameCommandType type : GameCommandType.values()) {
+      if (expectsResponse(type)) {
+        byType.put(type, new LatencyHistogram());
+      }
+    }
+    roundTripsByType = Collections.unmodifiableMap(byType);
+    commands = new LongAdder();
+    broadcasts = new LongAdder();
+    games = new LongAdder();
+    connectErrors = new LongAdder();
+    joinErrors = new LongAdder();
+    ioErrors = new LongAdder();
+    koResponses = new LongAdder();
+    invalidMessages = new LongAdder();
+    stuckBots = new LongAdder();
+    finishedBots = new LongAdder();
+  }
+
+  /**
+   * Checks whether the server answers a type of command with a direct response.
+   *
+   * @param type the {@link GameCommandType} sent
+   * @return {@code true} if a response is expected, {@code false} otherwise
+   */
+  private static boolean expectsResponse(GameCommandType type) {
+    return switch (type) {
+      case JOIN, GUESS, VOWEL, FILL, LETTERS -> true;
+      default -> false;
+    };
+  }
+
+  /**
+   * Opens all the connections and plays the games, until every bot left or the timeout elapsed.
+   *
+   * <p>The console outputs of the bots are muted while the load test runs.
+   *
+   * @param timeout the maximum {@link Duration} of the load test
+   * @return the {@link Result} of the load test
+   * @throws InterruptedException if interrupted while waiting for the bots
+   */
+  public Result run(Duration timeout) throws InterruptedException {
+    PrintStream out = System.out;
+    PrintStream err = System.err;
+    PrintStream muted =
+        new PrintStream(OutputStream.nullOutputStream()) {
+          @Override
+          public void println() {}
+
+          @Override
+          public void println(String x) {}
+
+          @Override
+          public void println(Object x) {}
+
+          @Override
+          public void print(String s) {}
+        };
+    System.setOut(muted);
+    System.setErr(muted);
+
+    // Name the matches after the run, so that the bots never join the matches of another one.
+    String run = Long.toHexString(ThreadLocalRandom.current().nextLong() >>> 16);
+    long start = System.nanoTime();
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < connections; i++) {
+        executor.submit(new Bot(run, i));
+      }
+      executor.shutdown();
+      if (!executor.awaitTermination(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+        executor.shutdownNow();
+      }
+    } finally {
+      System.setOut(out);
+      System.setErr(err);
+    }
+    long nanos = System.nanoTime() - start;
+
+    Map<String, Long> errors = new LinkedHashMap<>();
+    errors.put("connection failed", connectErrors.sum());
+    errors.put("join refused", joinErrors.sum());
+    errors.put("connection lost", ioErrors.sum());
+    errors.put("KO responses", koResponses.sum());
+    errors.put("invalid messages", invalidMessages.sum());
+    errors.put("stuck games", stuckBots.sum());
+    errors.put("unfinished bots", connections - finishedBots.sum());
+
+    return new Result(
+        connections,
+        games.sum(),
+        nanos,
+        commands.sum(),
+        broadcasts.sum(),
+        connectTimes,
+        roundTrips,
+        roundTripsByType,
+        Collections.unmodifiableMap(errors));
+  }
+
+  /**
+   * Bot playing over a single connection, driving an {@link InteractiveConsole} as a human player
+   * would.
+   */
+  class Bot implements Runnable {
+    private final String username;
+    private final String matchName;
+    private final boolean host;
+    private final int matchSize;
+    private final InteractiveConsole console;
+
+    private OutputStream out;
+    private GameCommandType awaiting;
+    private long sentAt;
+    private long startedAt;
+    private boolean joined;
+    private boolean goSent;
+    private boolean done;
+    private boolean awaitingPuzzle;
+    private int lobbySize;
+    private int gamesPlayed;
+    private int commandsThisGame;
+    private int fillAttempts;
+    private String puzzle;
+    private final StringBuilder usedLetters;
+
+    /**
+     * Default constructor.
+     *
+     * @param run a {@link String} identifying the load test
+     * @param index the index of the bot among all the bots
+     */
+    Bot(String run, int index) {
+      int match = index / playersPerMatch;
+      username = "bot" + index;
+      matchName = "load-" + run + "-" + match;
+      host = 0 == index % playersPerMatch;
+      matchSize = Math.min(playersPerMatch, connections - match * playersPerMatch);
+      console = new InteractiveConsole(matchName);
+      puzzle = "";
+      usedLetters = new StringBuilder();
+    }
+
+    /** Connects to the server and plays until the games of the match are over. */
+    @Override
+    public void run() {
+      Socket socket = new Socket();
+      try (socket) {
+        connectPermits.acquire();
+        // The time spent waiting for a permit is the throttling of the generator, not the server.
+        startedAt = System.nanoTime();
+        try {
+          socket.connect(address, CONNECT_TIMEOUT_MILLIS);
+        } finally {
+          connectPermits.release();
+        }
+        socket.setTcpNoDelay(true);
+        out = new BufferedOutputStream(socket.getOutputStream());
+        BufferedReader in =
+            new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+        send(console.parseUserInput(username));
+        while (!done) {
+          String line = in.readLine();
+          if (null == line) {
+            ioErrors.increment();
+            break;
+          }
+
+          receive(line.trim());
+
+          // Let the console catch up with everything the server already sent before acting.
+          if (!in.ready()) {
+            play();
+          }
+        }
+        finishedBots.increment();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (IOException e) {
+        if (joined) {
+          ioErrors.increment();
+        } else {
+          connectErrors.increment();
+        }
+      }
+    }
+
+    /**
+     * Handles a line sent by the server, recording the round trip if it is the awaited response.
+     *
+     * @param line a {@link String} with the line
+     */
+    private void receive(String line) {
+      GameCommand command;
+      try {
+        command = GameCommand.fromTcpBody(line);
+      } catch (InvalidPropertiesFormatException e) {
+        invalidMessages.increment();
+        return;
+      }
+
+      if (null != awaiting && isResponse(command)) {
+        long roundTrip = System.nanoTime() - sentAt;
+        roundTrips.record(roundTrip);
+        roundTripsByType.get(awaiting).record(roundTrip);
+        if (command instanceof StatusCommand status && status.getStatus() == StatusCode.KO) {
+          koResponses.increment();
+        }
+        if (GameCommandType.JOIN == awaiting) {
+          join((StatusCommand) command);
+        }
+
+        // A right letter may have solved the puzzle, which the server only tells right after.
+        awaitingPuzzle =
+            command instanceof StatusCommand status
+                && status.getStatus() == StatusCode.LETTER_EXISTS;
+        awaiting = null;
+      } else {
+        broadcasts.increment();
+      }
+
+      observe(command);
+      console.parseServerResponse(command);
+    }
+
+    /**
+     * Checks whether a command is the direct response to the awaited command.
+     *
+     * @param command the {@link GameCommand} received
+     * @return {@code true} if it is the response, {@code false} if the server sent it on its own
+     */
+    private boolean isResponse(GameCommand command) {
+      if (command instanceof StatusCommand status) {
+        return status.getStatus() != StatusCode.PLAYER_JOINED
+            && status.getStatus() != StatusCode.PLAYER_QUIT;
+      }
+      return GameCommandType.LETTERS == awaiting && GameCommandType.ROUND == command.getType();
+    }
+
+    /**
+     * Handles the response to the JOIN command.
+     *
+     * @param status the {@link StatusCommand} answering the JOIN command
+     */
+    private void join(StatusCommand status) {
+      connectTimes.recordSince(startedAt);
+      if (status.getStatus() == StatusCode.OK) {
+        joined = true;
+        lobbySize = 1;
+      } else {
+        joinErrors.increment();
+        done = true;
+      }
+    }
+
+    /**
+     * Keeps track of what the bot needs to know about the game to pick its inputs.
+     *
+     * @param command the {@link GameCommand} received
+     */
+    private void observe(GameCommand command) {
+      switch (command.getType()) {
+        case INFO, START, WINNER, LAST, END -> awaitingPuzzle = false;
+        default -> {}
+      }
+
+      switch (command) {
+        case LobbyCommand lobby -> lobbySize = lobby.getPlayers().length;
+        case StartCommand start -> {
+          puzzle = start.getPuzzle();
+          fillAttempts = 0;
+          usedLetters.setLength(0);
+        }
+        case InfoCommand info -> {
+          puzzle = info.getPuzzle();
+          usedLetters.setLength(0);
+          usedLetters.append(info.getUsedLetters());
+        }
+        case RoundCommand round -> puzzle = round.getPuzzle();
+        case LastCommand last -> {
+          puzzle = last.getPuzzle();
+          fillAttempts = 0;
+          usedLetters.setLength(0);
+          usedLetters.append(last.getInitialLetters());
+        }
+        default -> {
+          if (GameCommandType.END == command.getType()) {
+            if (host) {
+              games.increment();
+            }
+            ++gamesPlayed;
+            goSent = false;
+            commandsThisGame = 0;
+          }
+        }
+      }
+    }
+
+    /**
+     * Types inputs in the console until a command awaiting a response is sent, or until the bot has
+     * to wait for the server.
+     *
+     * @throws IOException if the command cannot be sent
+     */
+    private void play() throws IOException {
+      while (!done && null == awaiting && !awaitingPuzzle && console.needsInput()) {
+        String input = pickInput();
+        if (null == input) {
+          return;
+        }
+
+        // Leave a game that does not move forward, quitting from the lobby as players do.
+        if (++commandsThisGame > MAX_COMMANDS_PER_GAME) {
+          stuckBots.increment();
+          console.setCurrentState(PlayerState.WAIT_IN_LOBBY);
+          input = "quit";
+        }
+
+        PlayerState state = console.getCurrentState();
+        GameCommand command = console.parseUserInput(input);
+        if (null != command) {
+          send(command);
+        } else if (console.getCurrentState() == state) {
+          // The console rejected the input, wait for the server rather than insisting.
+          return;
+        }
+      }
+    }
+
+    /**
+     * Picks the input a player would type in the current state of the console.
+     *
+     * @return a {@link String} with the input, or {@code null} to wait for the server
+     */
+    private String pickInput() {
+      switch (console.getCurrentState()) {
+        case WAIT_IN_LOBBY -> {
+          if (gamesPlayed >= gamesPerMatch) {
+            return "quit";
+          }
+          // Whoever joined last never gets the full lobby, so any other player may start the game.
+          if (!goSent && lobbySize >= matchSize) {
+            goSent = true;
+            return "go";
+          }
+          return null;
+        }
+
+        case WAIT_FOR_GUESS -> {
+          String consonant = nextLetter(CONSONANTS);
+          return null != consonant ? consonant : solution();
+        }
+
+        case SECOND_GUESS_PHASE -> {
+          return hasLetterLeft(VOWELS) ? "2" : "1";
+        }
+
+        case WAIT_FOR_VOWEL -> {
+          String vowel = nextLetter(VOWELS);
+          if (null == vowel) {
+            // Every vowel was bought meanwhile, skip the turn instead.
+            console.setCurrentState(PlayerState.SECOND_GUESS_PHASE);
+            return "1";
+          }
+          return vowel;
+        }
+
+        case WAIT_FOR_FILL, WAIT_FOR_LAST_TURN -> {
+          return solution();
+        }
+
+        case SEND_LETTERS -> {
+          return LAST_ROUND_LETTERS;
+        }
+
+        default -> {
+          return null;
+        }
+      }
+    }
+
+    /**
+     * Checks whether some of the given letters were not tried yet.
+     *
+     * @param letters a {@link String} with the candidate letters
+     * @return {@code true} if a letter is left, {@code false} otherwise
+     */
+    private boolean hasLetterLeft(String letters) {
+      for (int i = 0; i < letters.length(); i++) {
+        if (usedLetters.indexOf(String.valueOf(letters.charAt(i))) < 0) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Picks the first letter nobody tried yet, and remembers it as tried.
+     *
+     * @param letters a {@link String} with the candidate letters, by order of preference
+     * @return a {@link String} with the letter, or {@code null} if all of them were tried
+     */
+    private String nextLetter(String letters) {
+      for (int i = 0; i < letters.length(); i++) {
+        char letter = letters.charAt(i);
+        if (usedLetters.indexOf(String.valueOf(letter)) < 0) {
+          usedLetters.append(letter);
+          return String.valueOf(letter);
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Guesses the solution of the puzzle from its uncovered letters.
+     *
+     * @return a {@link String} with the guessed solution
+     */
+    private String solution() {
+      // A quoted puzzle keeps its quotes when followed by other arguments, as in START or INFO.
+      String uncovered = puzzle.replace("\"", "");
+      if (uncovered.isEmpty()) {
+        return "?";
+      }
+
+      // The hidden letters were never tried, fill them with another untried letter at each attempt.
+      StringBuilder untried = new StringBuilder();
+      for (char letter : (VOWELS + CONSONANTS).toCharArray()) {
+        if (usedLetters.indexOf(String.valueOf(letter)) < 0) {
+          untried.append(letter);
+        }
+      }
+      char guess = untried.isEmpty() ? 'E' : untried.charAt(fillAttempts++ % untried.length());
+      return uncovered.replace('*', guess);
+    }
+
+    /**
+     * Sends a command to the server, and starts the round trip if it expects a response.
+     *
+     * @param command the {@link GameCommand} to send
+     * @throws IOException if the command cannot be sent
+     */
+    private void send(GameCommand command) throws IOException {
+      if (expectsResponse(command.getType())) {
+        awaiting = command.getType();
+      }
+      if (GameCommandType.QUIT == command.getType()) {
+        done = true;
+      }
+
+      commands.increment();
+      sentAt = System.nanoTime();
+      out.write(command.toFrame(WireFormat.TEXT));
+      out.flush();
+    }
+  }
+}
@@ -0,0 +1,700 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.network;
+
+import ch.heigvd.dai.logging.Logger;
+import ch.heigvd.dai.logic.StatusCode;
+import ch.heigvd.dai.logic.commands.CommandDecoder;
+import ch.heigvd.dai.logic.commands.GameCommand;
+import ch.heigvd.dai.logic.commands.StatusCommand;
+import ch.heigvd.dai.logic.server.GameMatch;
+import ch.heigvd.dai.logic.server.MatchRegistry;
+import ch.heigvd.dai.logic.server.MatchScheduler;
+import ch.heigvd.dai.metrics.ServerMetrics;
+import com.google.common.net.HostAndPort;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.InvalidPropertiesFormatException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+
+/**
+ * Implements a non-blocking network server for the Wheel of Fortune game.
+ *
+ * <p>Instead of dedicating a thread to each client, the connections are multiplexed over a small
+ * number of reactor threads, each one owning a {@link Selector}. The main thread only accepts the
+ * incoming connections and hands them to the reactor with the fewest connections. A single process
+ * can then hold a very large number of idle or active connections.
+ *
+ * <p>The reactors also run the game matches: each match is pinned to the reactor with the fewest
+ * matches when it is created, and the connections of its players move to that reactor once they
+ * joined. The I/O and the game logic of a match then run on the same thread, without any handoff
+ * between threads.
+ *
+ * <p>The server speaks exactly the same line protocol as {@link SocketServer}, and the commands are
+ * handled by the same {@link ClientSession} logic.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+public class NioSocketServer extends SocketAbstract {
+
+  private static final Logger LOGGER = new Logger("Server");
+
+  /** Size of the buffer used to read the bytes sent by a client. */
+  private static final int READ_BUFFER_SIZE = 1024;
+
+  /**
+   * Placeholder queued instead of a line that is not a valid command. It is the response sent back
+   * when its turn comes.
+   */
+  private static final GameCommand MALFORMED_REQUEST = new StatusCommand(StatusCode.KO);
+
+  /**
+   * Maximum number of requests a client can send ahead of the responses. More requests make the
+   * server drop the client.
+   */
+  private static final int MAX_QUEUED_REQUESTS = 64;
+
+  /** Maximum number of pending connections on the server socket. */
+  private static final int ACCEPT_BACKLOG = 1024;
+
+  /** Attribute containing the registry of the game matches hosted by the server. */
+  private final MatchRegistry registry;
+
+  /** Reactors handling the client connections and running the game matches. */
+  private final Reactor[] reactors;
+
+  /**
+   * Default constructor.
+   *
+   * <p>The server creates its own {@link MatchRegistry}, as the game matches are pinned to its
+   * reactors.
+   *
+   * @param hostAndPort a {@link HostAndPort} object containing the host and port information
+   * @param reactorCount the number of reactor threads handling the client connections
+   * @throws NullPointerException if {@code hostAndPort} is null
+   * @throws IllegalArgumentException if {@code hostAndPort} does not contain a port number or if
+   *     {@code reactorCount} is not positive
+   * @throws UnknownHostException if {@code hostAndPort} contains a hostname that is unresolvable to
+   *     a valid IP
+   * @throws IOException if the selectors of the reactors cannot be opened
+   */
+  public NioSocketServer(HostAndPort hostAndPort, int reactorCount)
+      throws NullPointerException, IllegalArgumentException, IOException {
+    super(hostAndPort);
+    if (reactorCount < 1) {
+      throw new IllegalArgumentException("reactorCount needs to be at least 1");
+    }
+    reactors = new Reactor[reactorCount];
+    for (int i = 0; i < reactorCount; i++) {
+      reactors[i] = new Reactor("reactor-" + i);
+    }
+    registry = new MatchRegistry(new ReactorScheduler());
+  }
+
+  /**
+   * Gets the registry of the game matches hosted by the server.
+   *
+   * @return the {@link MatchRegistry} of the server
+   */
+  public MatchRegistry getRegistry() {
+    return registry;
+  }
+
+  /**
+   * Picks the reactor with the lowest load.
+   *
+   * @param load a function giving the load of a reactor
+   * @return the {@link Reactor} with the lowest load, the first one in case of a tie
+   */
+  private Reactor leastLoaded(ToIntFunction<Reactor> load) {
+    Reactor best = reactors[0];
+    for (Reactor reactor : reactors) {
+      if (load.applyAsInt(reactor) < load.applyAsInt(best)) {
+        best = reactor;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Inner class that pins every new game match to the reactor with the fewest matches, so that a
+   * reactor that accumulated many matches sheds the new ones to idler reactors.
+   */
+  class ReactorScheduler implements MatchScheduler {
+    @Override
+    public Executor acquire() {
+      Reactor reactor = leastLoaded(r -> r.matches.get());
+      reactor.matches.incrementAndGet();
+      return reactor;
+    }
+
+    @Override
+    public void release(Executor executor) {
+      ((Reactor) executor).matches.decrementAndGet();
+    }
+
+    @Override
+    public List<LoopLoad> getLoads() {
+      List<LoopLoad> loads = new ArrayList<>(reactors.length);
+      for (Reactor reactor : reactors) {
+        loads.add(
+            new LoopLoad(
+                reactor.name,
+                reactor.matches.get(),
+                reactor.connections.get(),
+                reactor.tasksRun.get()));
+      }
+      return loads;
+    }
+  }
+
+  /**
+   * Inner class that implements a reactor thread. Each reactor owns a {@link Selector} and handles
+   * all the I/O of the connections that were assigned to it. It also runs the tasks handed to it
+   * through {@link #execute(Runnable)}, such as sending the responses of the game matches.
+   */
+  class Reactor implements Runnable, Executor {
+    private final String name;
+    private final Selector selector;
+
+    /** Number of game matches pinned to this reactor. */
+    private final AtomicInteger matches = new AtomicInteger(0);
+
+    /** Number of client connections handled by this reactor. */
+    private final AtomicInteger connections = new AtomicInteger(0);
+
+    /** Number of tasks run by this reactor so far. */
+    private final AtomicLong tasksRun = new AtomicLong(0);
+
+    /** Connections accepted by the main thread that still need to be registered. */
+    private final Queue<SocketChannel> newChannels = new ConcurrentLinkedQueue<>();
+
+    /** Tasks to run on the reactor thread, such as sending the commands queued by a game match. */
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    /** The thread running this reactor. */
+    private volatile Thread thread;
+
+    /**
+     * Default constructor.
+     *
+     * @param name the name of the reactor, also used for its thread
+     * @throws IOException if the selector cannot be opened
+     */
+    Reactor(String name) throws IOException {
+      this.name = name;
+      selector = Selector.open();
+    }
+
+    /**
+     * Hands a newly accepted connection to this reactor. Can be called from any thread.
+     *
+     * @param channel the {@link SocketChannel} of the new client
+     */
+    void register(SocketChannel channel) {
+      connections.incrementAndGet();
+      newChannels.add(channel);
+      selector.wakeup();
+    }
+
+    /**
+     * Schedules a task to run on the reactor thread at the end of the current loop iteration. Can
+     * be called from any thread, and only wakes the reactor up if it is called from another thread.
+     *
+     * @param task the {@link Runnable} to run
+     */
+    @Override
+    public void execute(Runnable task) {
+      tasks.add(task);
+      if (Thread.currentThread() != thread) {
+        selector.wakeup();
+      }
+    }
+
+    /**
+     * Takes over a connection moved from another reactor. Needs to be called from the thread of
+     * this reactor.
+     *
+     * <p>The connection only belongs to this reactor once its channel is registered on the
+     * selector. The tasks of the connection that reached this reactor before are run right after.
+     *
+     * @param connection the {@link Connection} to take over
+     */
+    private void adopt(Connection connection) {
+      connection.reactor = this;
+      connection.movingTo = null;
+      if (!connection.channel.isOpen()) {
+        connection.deferredTasks.clear();
+        return;
+      }
+
+      try {
+        connection.key =
+            connection.channel.register(
+                selector,
+                connection.writeQueue.isEmpty()
+                    ? SelectionKey.OP_READ
+                    : SelectionKey.OP_READ | SelectionKey.OP_WRITE,
+                connection);
+      } catch (IOException e) {
+        LOGGER.warn(() -> "IOException: " + e);
+        connection.close();
+        return;
+      }
+      connections.incrementAndGet();
+      connection.countedBy = this;
+
+      // Resume where the previous reactor stopped.
+      Runnable task;
+      while (null != (task = connection.deferredTasks.poll())) {
+        task.run();
+      }
+      connection.flushPendingCommands();
+      connection.handleNextRequest();
+    }
+
+    /** Registers the connections handed to this reactor since the last loop iteration. */
+    private void registerNewChannels() {
+      SocketChannel channel;
+      while (null != (channel = newChannels.poll())) {
+        try {
+          channel.configureBlocking(false);
+          SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+          key.attach(new Connection(this, channel, key));
+        } catch (IOException e) {
+          LOGGER.warn(() -> "IOException: " + e);
+          connections.decrementAndGet();
+          try {
+            channel.close();
+          } catch (IOException ignored) {
+            // Nothing else to do, the client is gone.
+          }
+        }
+      }
+    }
+
+    /**
+     * Run method (implements {@link Runnable}) for the reactor that waits for I/O readiness and
+     * dispatches it to the corresponding connections.
+     *
+     * <p>The reactor blocks until there is I/O to handle or until it is woken up because a task was
+     * scheduled, for instance when a game match answered or queued commands for one of its
+     * connections, so idle connections cost nothing.
+     */
+    @Override
+    public void run() {
+      thread = Thread.currentThread();
+      try (selector) {
+        while (selector.isOpen()) {
+          selector.select();
+          registerNewChannels();
+
+          Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+          while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+
+            Connection connection = (Connection) key.attachment();
+            try {
+              if (key.isValid() && key.isReadable()) {
+                connection.onReadable();
+              }
+              if (key.isValid() && key.isWritable()) {
+                connection.onWritable();
+              }
+            } catch (Exception e) {
+              LOGGER.warn(() -> "Random exception: " + e);
+              connection.close();
+            }
+          }
+
+          // Run the tasks scheduled since the last iteration. A failing task must not end the
+          // reactor, as every connection and game match pinned to it would hang.
+          Runnable task;
+          while (null != (task = tasks.poll())) {
+            tasksRun.incrementAndGet();
+            try {
+              task.run();
+            } catch (RuntimeException e) {
+              LOGGER.error(() -> "Exception in reactor task: " + e);
+            }
+          }
+        }
+      } catch (IOException e) {
+        LOGGER.warn(() -> "IOException: " + e);
+      }
+    }
+  }
+
+  /**
+   * Inner class that holds the state of a single non-blocking client connection: the partial line
+   * read so far, the requests waiting for the game match to answer and the bytes still waiting to
+   * be written.
+   *
+   * <p>All the methods are called from the thread of the reactor currently owning the connection.
+   * The requests are handed to the game match one at a time, and the response is sent back from the
+   * reactor thread once the match answered. Once the client joined a game match, the connection
+   * moves to the reactor the match is pinned to.
+   */
+  class Connection {
+    /** The reactor owning the connection, whose selector the channel is registered on. */
+    private volatile Reactor reactor;
+
+    /** The reactor the connection is moving to, or {@code null} if it is not moving. */
+    private volatile Reactor movingTo;
+
+    /**
+     * Tasks that reached the new reactor before it took the connection over. Only accessed from the
+     * thread of that reactor.
+     */
+    private final Queue<Runnable> deferredTasks = new ArrayDeque<>();
+
+    /**
+     * The reactor whose number of connections includes this connection, or {@code null} while it is
+     * moving or once it is closed. Only accessed from the thread of the reactor owning the
+     * connection.
+     */
+    private Reactor countedBy;
+
+    private final SocketChannel channel;
+    private SelectionKey key;
+    private final ClientSession session;
+    private final String peer;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private final Queue<ByteBuffer> writeQueue = new ArrayDeque<>();
+    private final Queue<GameCommand> requests = new ArrayDeque<>();
+    private final RequestFramer framer = new RequestFramer();
+    private final CommandDecoder decoder = new CommandDecoder();
+    private boolean awaitingResponse = false;
+
+    /**
+     * Default constructor.
+     *
+     * @param reactor the {@link Reactor} handling the connection
+     * @param channel the {@link SocketChannel} of the client
+     * @param key the {@link SelectionKey} of the channel on the reactor selector
+     * @throws IOException if the address of the client cannot be retrieved
+     */
+    Connection(Reactor reactor, SocketChannel channel, SelectionKey key) throws IOException {
+      this.reactor = reactor;
+      countedBy = reactor;
+      this.channel = channel;
+      this.key = key;
+      InetSocketAddress address = (InetSocketAddress) channel.getRemoteAddress();
+      session =
+          new ClientSession(
+              registry,
+              address.getAddress().getHostAddress(),
+              () -> execute(this::flushPendingCommands));
+      peer = address.getAddress().getHostAddress() + ":" + address.getPort();
+
+      // Print message with client information.
+      LOGGER.info(() -> "New client connection from " + peer);
+      ServerMetrics.getGlobal().connectionOpened();
+    }
+
+    /**
+     * Reads the available bytes from the client and handles every complete request.
+     *
+     * @throws IOException if the channel cannot be read, or if a request is too long
+     */
+    void onReadable() throws IOException {
+      int read = channel.read(readBuffer);
+
+      // If read is negative, the client has disconnected.
+      if (read < 0) {
+        close();
+        return;
+      }
+
+      readBuffer.flip();
+      try {
+        while (readBuffer.hasRemaining() && channel.isOpen()) {
+          switch (framer.push(readBuffer.get())) {
+            case REQUEST -> onRequest();
+            case HANDSHAKE -> {
+              // Nothing was sent to the client yet, the handshake goes first.
+              writeQueue.add(ByteBuffer.wrap(framer.handshake()));
+              onWritable();
+            }
+            case NONE -> {
+              // Wait for the rest of the request.
+            }
+          }
+        }
+      } finally {
+        readBuffer.clear();
+      }
+    }
+
+    /**
+     * Decodes the request sent by the client straight from the bytes read so far, and queues it to
+     * be handled once the previous requests got their response.
+     */
+    private void onRequest() {
+      if (requests.size() == MAX_QUEUED_REQUESTS) {
+        LOGGER.warn(() -> "Too many requests from client " + peer);
+        close();
+        return;
+      }
+
+      // Parse the message we got from the player.
+      GameCommand command;
+      try {
+        command = framer.decode(decoder);
+        session.received(command, framer.getRequestLength());
+      } catch (InvalidPropertiesFormatException format) {
+        // Response is malformed (not a valid command).
+        command = MALFORMED_REQUEST;
+      }
+
+      requests.add(command);
+      handleNextRequest();
+    }
+
+    /**
+     * Hands the queued requests to the game match, until one of them needs to wait for the match to
+     * answer.
+     */
+    private void handleNextRequest() {
+      GameCommand command;
+      while (!awaitingResponse && channel.isOpen() && null != (command = requests.poll())) {
+        if (command == MALFORMED_REQUEST) {
+          send(command);
+          continue;
+        }
+
+        // Handle the request, the response is sent back from the reactor thread.
+        awaitingResponse = true;
+        session
+            .handle(command)
+            .whenComplete((response, exception) -> execute(() -> onResponse(response, exception)));
+      }
+    }
+
+    /**
+     * Sends the response of the game match back to the client, followed by the commands queued
+     * meanwhile by the game match, and moves on to the next request.
+     *
+     * @param response the {@link GameCommand} to send back, or {@code null} if there is none
+     * @param exception the {@link Throwable} thrown while handling the request, or {@code null}
+     */
+    private void onResponse(GameCommand response, Throwable exception) {
+      awaitingResponse = false;
+      if (null != exception) {
+        LOGGER.warn(() -> "Random exception: " + exception);
+        close();
+        return;
+      }
+
+      if (null != response) {
+        send(response);
+      }
+      flushPendingCommands();
+
+      // Move next to the game match the client joined, if it is pinned to another reactor.
+      GameMatch match = session.getMatch();
+      if (null != match
+          && match.getExecutor() != reactor
+          && match.getExecutor() instanceof Reactor) {
+        moveTo((Reactor) match.getExecutor());
+        return;
+      }
+      handleNextRequest();
+    }
+
+    /**
+     * Runs a task on the reactor owning the connection. If the connection is moving to another
+     * reactor, or moved before the task got to run, the task follows it and only runs once the new
+     * reactor took the connection over.
+     *
+     * @param task the {@link Runnable} to run
+     */
+    private void execute(Runnable task) {
+      Reactor next = movingTo;
+      Reactor owner = null != next ? next : reactor;
+      owner.execute(
+          () -> {
+            if (owner == reactor && null == movingTo) {
+              task.run();
+            } else if (owner == movingTo) {
+              deferredTasks.add(task);
+            } else {
+              execute(task);
+            }
+          });
+    }
+
+    /**
+     * Hands the connection over to another reactor. The connection is registered on the selector of
+     * the new reactor by the thread of that reactor, and only belongs to it from then on.
+     *
+     * @param target the {@link Reactor} taking over the connection
+     */
+    private void moveTo(Reactor target) {
+      key.cancel();
+      uncount();
+      movingTo = target;
+      target.execute(() -> target.adopt(this));
+    }
+
+    /**
+     * Sends the commands queued by the game match for the player of this connection, unless a
+     * response is awaited, in which case they are sent after it.
+     */
+    void flushPendingCommands() {
+      if (!channel.isOpen() || awaitingResponse) {
+        return;
+      }
+      for (GameCommand pendingCommand : session.pendingCommands()) {
+        send(pendingCommand);
+      }
+    }
+
+    /**
+     * Queues a command to be written to the client and tries to write it right away.
+     *
+     * @param command the {@link GameCommand} to send
+     */
+    void send(GameCommand command) {
+      if (!channel.isOpen()) {
+        return;
+      }
+
+      ByteBuffer frame = command.toFrameBuffer(framer.getFormat());
+      session.sent(command, frame.remaining());
+      writeQueue.add(frame);
+      try {
+        onWritable();
+      } catch (IOException e) {
+        LOGGER.warn(() -> "IOException: " + e);
+        close();
+      }
+    }
+
+    /**
+     * Writes as many queued bytes as the socket accepts, and asks the selector to be notified when
+     * the socket becomes writable again if some bytes are left.
+     *
+     * @throws IOException if the channel cannot be written
+     */
+    void onWritable() throws IOException {
+      ByteBuffer buffer;
+      while (null != (buffer = writeQueue.peek())) {
+        channel.write(buffer);
+        if (buffer.hasRemaining()) {
+          break;
+        }
+        writeQueue.poll();
+      }
+
+      if (writeQueue.isEmpty()) {
+        key.interestOps(SelectionKey.OP_READ);
+      } else {
+        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+      }
+    }
+
+    /** Removes the connection from the number of connections of the reactor counting it, if any. */
+    private void uncount() {
+      if (null != countedBy) {
+        countedBy.connections.decrementAndGet();
+        countedBy = null;
+      }
+    }
+
+    /** Closes the connection and disconnects the player from the game match. */
+    void close() {
+      if (!channel.isOpen()) {
+        return;
+      }
+
+      key.cancel();
+      uncount();
+      ServerMetrics.getGlobal().connectionClosed();
+      try {
+        channel.close();
+      } catch (IOException e) {
+        LOGGER.warn(() -> "IOException: " + e);
+      }
+
+      // Print message to say connection with client has closed.
+      LOGGER.info(() -> "Closed connection with client " + peer);
+
+      // Disconnect player from match if that's not yet the case.
+      session.close();
+    }
+  }
+
+  /**
+   * Run method (implements {@link Runnable}) for the server that starts the reactor threads and
+   * accepts the incoming connections.
+   *
+   * <p>The main thread blocks on the server socket and hands every accepted connection to the
+   * reactor with the fewest connections. The connection may move later on to the reactor of the
+   * game match its client joins.
+   */
+  @Override
+  public void run() {
+    try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+      serverChannel.bind(
+          isHostAny()
+              ? new InetSocketAddress(getPort())
+              : new InetSocketAddress(getHost(), getPort()),
+          ACCEPT_BACKLOG);
+
+      for (Reactor reactor : reactors) {
+        Thread thread = new Thread(reactor, reactor.name);
+        thread.setDaemon(true);
+        thread.start();
+      }
+
+      LOGGER.info(() -> "Starting server with " + reactors.length + " reactor thread(s)...");
+      if (isHostAny()) {
+        LOGGER.info(() -> "Listening on all interfaces");
+      } else {
+        LOGGER.info(() -> "Listening on the interface with IP " + getHost().getHostAddress());
+      }
+      LOGGER.info(() -> "Listening on port " + getPort());
+
+      while (serverChannel.isOpen()) {
+        SocketChannel clientChannel = serverChannel.accept();
+        leastLoaded(r -> r.connections.get()).register(clientChannel);
+      }
+    } catch (IOException e) {
+      LOGGER.warn(() -> "IOException: " + e);
+    }
+  }
+}
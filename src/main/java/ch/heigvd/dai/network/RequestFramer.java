@@ -0,0 +1,234 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.network;
+
+import static ch.heigvd.dai.network.SocketAbstract.MAX_LINE_LENGTH;
+
+import ch.heigvd.dai.logic.commands.BinaryCodec;
+import ch.heigvd.dai.logic.commands.CommandDecoder;
+import ch.heigvd.dai.logic.commands.GameCommand;
+import ch.heigvd.dai.logic.commands.WireFormat;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.InvalidPropertiesFormatException;
+
+/**
+ * Splits the bytes sent by a client into requests, in the wire format negotiated by the client.
+ *
+ * <p>Every connection starts with the text protocol, one request per line. If the very first line
+ * is the handshake of {@link BinaryCodec}, the rest of the connection is made of length-prefixed
+ * binary frames, and the server is expected to answer with {@link #handshake()} before anything
+ * else. The bytes are pushed one by one, straight from the read buffer of the connection, and the
+ * requests are decoded from the bytes collected by the framer, without building any string.
+ *
+ * <p>A framer holds the state of a single connection and is not thread-safe.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+final class RequestFramer {
+
+  /** Outcome of pushing a byte to the framer. */
+  enum Event {
+    /** The request is not complete yet. */
+    NONE,
+
+    /** A request is complete and can be decoded with {@link #decode(CommandDecoder)}. */
+    REQUEST,
+
+    /** The client asked for the binary protocol, and needs to get {@link #handshake()} back. */
+    HANDSHAKE
+  }
+
+  /** The wire format spoken by the client. */
+  private WireFormat format = WireFormat.TEXT;
+
+  /** The version of the binary protocol agreed on with the client. */
+  private int version = 0;
+
+  /** Whether the first line was not read yet, the only one that can be a handshake. */
+  private boolean firstLine = true;
+
+  /** The bytes of the request being read, without its line terminator or length prefix. */
+  private byte[] request = new byte[256];
+
+  /** Number of bytes of the request read so far. */
+  private int length = 0;
+
+  /** Whether the request was complete, in which case the next byte starts a new one. */
+  private boolean complete = false;
+
+  /** Length announced by the prefix of the binary frame being read, -1 while reading the prefix. */
+  private int expectedLength = -1;
+
+  /** Bits of the length prefix read so far. */
+  private int prefix = 0;
+
+  /** Number of bits of the length prefix read so far. */
+  private int prefixBits = 0;
+
+  /**
+   * Gets the wire format spoken by the client.
+   *
+   * @return the {@link WireFormat} of the connection
+   */
+  WireFormat getFormat() {
+    return format;
+  }
+
+  /**
+   * Gets the size of the request that was just completed.
+   *
+   * @return the number of bytes of the request, without its line terminator or length prefix
+   */
+  int getRequestLength() {
+    return length;
+  }
+
+  /**
+   * Builds the handshake acknowledging the binary protocol, to send once {@link Event#HANDSHAKE}
+   * was returned.
+   *
+   * @return a byte array with the handshake carrying the version agreed on with the client
+   */
+  byte[] handshake() {
+    return BinaryCodec.handshake(version);
+  }
+
+  /**
+   * Pushes the next byte sent by the client.
+   *
+   * @param b the byte sent by the client
+   * @return the {@link Event} triggered by the byte
+   * @throws IOException if the request is longer than allowed by the protocol
+   */
+  Event push(byte b) throws IOException {
+    if (complete) {
+      complete = false;
+      length = 0;
+    }
+    return format == WireFormat.BINARY ? pushBinary(b) : pushText(b);
+  }
+
+  /**
+   * Handles the end of the stream sent by the client.
+   *
+   * @return {@link Event#REQUEST} if a text request without its line terminator is left, like the
+   *     last line read by {@link java.io.BufferedReader#readLine()}, {@link Event#NONE} otherwise
+   */
+  Event endOfStream() {
+    if (format == WireFormat.TEXT && !complete && length > 0) {
+      complete = true;
+      return Event.REQUEST;
+    }
+    return Event.NONE;
+  }
+
+  /**
+   * Decodes the request that was just completed.
+   *
+   * @param decoder the {@link CommandDecoder} of the connection, used for text requests
+   * @return the decoded {@link GameCommand}
+   * @throws InvalidPropertiesFormatException if the request is not a valid command
+   */
+  GameCommand decode(CommandDecoder decoder) throws InvalidPropertiesFormatException {
+    return format == WireFormat.BINARY
+        ? BinaryCodec.decode(request, 0, length)
+        : decoder.decode(request, 0, length);
+  }
+
+  /**
+   * Pushes a byte of a text line.
+   *
+   * @param b the byte sent by the client
+   * @return the {@link Event} triggered by the byte
+   * @throws IOException if the line is longer than {@link SocketAbstract#MAX_LINE_LENGTH}
+   */
+  private Event pushText(byte b) throws IOException {
+    if (b != '\n') {
+      append(b, MAX_LINE_LENGTH);
+      return Event.NONE;
+    }
+
+    complete = true;
+    if (firstLine) {
+      firstLine = false;
+      int requestedVersion = BinaryCodec.parseHandshake(request, 0, length);
+      if (requestedVersion > 0) {
+        version = Math.min(requestedVersion, BinaryCodec.VERSION);
+        format = WireFormat.BINARY;
+        return Event.HANDSHAKE;
+      }
+    }
+    return Event.REQUEST;
+  }
+
+  /**
+   * Pushes a byte of a binary frame, either of its length prefix or of its payload.
+   *
+   * @param b the byte sent by the client
+   * @return the {@link Event} triggered by the byte
+   * @throws IOException if the frame is longer than {@link BinaryCodec#MAX_FRAME_LENGTH}
+   */
+  private Event pushBinary(byte b) throws IOException {
+    if (expectedLength < 0) {
+      prefix |= (b & 0x7F) << prefixBits;
+      prefixBits += 7;
+      if ((b & 0x80) != 0) {
+        if (prefixBits >= Integer.SIZE) {
+          throw new IOException("Invalid frame length");
+        }
+        return Event.NONE;
+      }
+
+      expectedLength = prefix;
+      prefix = 0;
+      prefixBits = 0;
+      if (expectedLength < 0 || expectedLength > BinaryCodec.MAX_FRAME_LENGTH) {
+        throw new IOException("Frame too long");
+      }
+    } else {
+      append(b, BinaryCodec.MAX_FRAME_LENGTH);
+    }
+
+    if (length < expectedLength) {
+      return Event.NONE;
+    }
+    expectedLength = -1;
+    complete = true;
+    return Event.REQUEST;
+  }
+
+  /**
+   * Appends a byte to the request being read.
+   *
+   * @param b the byte to append
+   * @param maxLength the maximum length of a request
+   * @throws IOException if the request would be longer than {@code maxLength}
+   */
+  private void append(byte b, int maxLength) throws IOException {
+    if (length == maxLength) {
+      throw new IOException("Request too long");
+    }
+    if (length == request.length) {
+      request = Arrays.copyOf(request, Math.min(request.length * 2, maxLength));
+    }
+    request[length++] = b;
+  }
+}
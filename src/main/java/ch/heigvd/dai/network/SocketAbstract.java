@@ -45,6 +45,9 @@ abstract class SocketAbstract implements Runnable {
   /** The end of line character, as specified by the protocol. */
   public static final String END_OF_LINE = "\n";
 
+  /** Maximum length of a line sent by a client. Longer lines make the server drop the client. */
+  static final int MAX_LINE_LENGTH = 8192;
+
   /**
    * Default constructor.
    *
@@ -19,8 +19,10 @@
 package ch.heigvd.dai.network;
 
 import ch.heigvd.dai.logic.client.InteractiveConsole;
+import ch.heigvd.dai.logic.commands.BinaryCodec;
 import ch.heigvd.dai.logic.commands.GameCommand;
 import ch.heigvd.dai.logic.commands.GameCommandType;
+import ch.heigvd.dai.logic.commands.WireFormat;
 import com.google.common.net.HostAndPort;
 import java.io.*;
 import java.net.*;
@@ -69,6 +71,12 @@ public class SocketClient extends SocketAbstract {
 
   protected final InteractiveConsole interactiveConsole;
 
+  /** Whether the client asks the server for the binary protocol. */
+  private final boolean binary;
+
+  /** The wire format agreed on with the server, set before the child threads start. */
+  private WireFormat format = WireFormat.TEXT;
+
   /**
    * Default constructor.
    *
@@ -81,8 +89,89 @@ public class SocketClient extends SocketAbstract {
    */
   public SocketClient(HostAndPort hostAndPort)
       throws NullPointerException, IllegalArgumentException, UnknownHostException {
+    this(hostAndPort, null);
+  }
+
+  /**
+   * Constructor for a client joining a specific game match.
+   *
+   * @param hostAndPort a {@link HostAndPort} object with the IP and port information for creating a
+   *     socket
+   * @param matchName the name of the game match to join, or {@code null} to let the server pick one
+   * @throws NullPointerException if {@code hostAndPort} is null
+   * @throws IllegalArgumentException if {@code hostAndPort} does not contain a port number
+   * @throws UnknownHostException if {@code hostAndPort} contains a hostname that is unresolvable to
+   *     a valid IP
+   */
+  public SocketClient(HostAndPort hostAndPort, String matchName)
+      throws NullPointerException, IllegalArgumentException, UnknownHostException {
+    this(hostAndPort, matchName, false);
+  }
+
+  /**
+   * Constructor for a client joining a specific game match, optionally over the binary protocol.
+   *
+   * @param hostAndPort a {@link HostAndPort} object with the IP and port information for creating a
+   *     socket
+   * @param matchName the name of the game match to join, or {@code null} to let the server pick one
+   * @param binary {@code true} to ask the server for the binary protocol, falling back to text if
+   *     the server does not support it
+   * @throws NullPointerException if {@code hostAndPort} is null
+   * @throws IllegalArgumentException if {@code hostAndPort} does not contain a port number
+   * @throws UnknownHostException if {@code hostAndPort} contains a hostname that is unresolvable to
+   *     a valid IP
+   */
+  public SocketClient(HostAndPort hostAndPort, String matchName, boolean binary)
+      throws NullPointerException, IllegalArgumentException, UnknownHostException {
     super(hostAndPort);
-    interactiveConsole = new InteractiveConsole();
+    interactiveConsole = new InteractiveConsole(matchName);
+    this.binary = binary;
+  }
+
+  /**
+   * Asks the server for the binary protocol, before anything else is sent on the connection.
+   *
+   * <p>A server supporting it answers with a handshake. Any other server answers with a line of the
+   * text protocol, which is skipped, and the client carries on in text.
+   *
+   * @param socket a {@link Socket} object with the connection to the server
+   * @return the {@link WireFormat} to use for the rest of the connection
+   * @throws IOException if the socket cannot be read or written
+   */
+  private static WireFormat negotiateBinaryProtocol(Socket socket) throws IOException {
+    OutputStream out = socket.getOutputStream();
+    out.write(BinaryCodec.handshake(BinaryCodec.VERSION));
+    out.flush();
+
+    // Read byte by byte, so that nothing sent after the answer is consumed here.
+    InputStream in = socket.getInputStream();
+    byte[] answer = new byte[BinaryCodec.HANDSHAKE_LENGTH];
+    int length = 0;
+    int b;
+    while (length < answer.length && (b = in.read()) >= 0) {
+      answer[length++] = (byte) b;
+      if (b == '\n') {
+        break;
+      }
+    }
+
+    if (length == 0) {
+      throw new EOFException("Server closed the connection");
+    }
+
+    int version = BinaryCodec.parseHandshake(answer, 0, length - 1);
+    if (version > 0 && answer[length - 1] == '\n') {
+      System.out.println("[Client] Using version " + version + " of the binary protocol");
+      return WireFormat.BINARY;
+    }
+
+    // Skip the rest of the answer of a server speaking only text.
+    b = answer[length - 1];
+    while (b != '\n' && b >= 0) {
+      b = in.read();
+    }
+    System.out.println("[Client] Server does not support the binary protocol, using text");
+    return WireFormat.TEXT;
   }
 
   /**
@@ -113,8 +202,7 @@ public class SocketClient extends SocketAbstract {
     @Override
     public void run() {
       try (socket;
-          Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
-          BufferedWriter out = new BufferedWriter(writer);
+          OutputStream out = new BufferedOutputStream(socket.getOutputStream());
           Reader inputReader = new InputStreamReader(System.in, StandardCharsets.UTF_8);
           BufferedReader bir = new BufferedReader(inputReader)) {
 
@@ -135,7 +223,7 @@ public class SocketClient extends SocketAbstract {
 
             // Send request to server if it is non-null.
             if (command != null) {
-              out.write(command.toTcpBody() + END_OF_LINE);
+              out.write(command.toFrame(format));
               out.flush();
             }
           } catch (Exception e) {
@@ -183,8 +271,9 @@ public class SocketClient extends SocketAbstract {
     @Override
     public void run() {
       try (socket;
-          Reader reader = new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8);
-          BufferedReader in = new BufferedReader(reader)) {
+          InputStream in = new BufferedInputStream(socket.getInputStream());
+          Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+          BufferedReader lines = new BufferedReader(reader)) {
 
         // Listen for server responses while the socket is open.
         while (!socket.isClosed()) {
@@ -195,19 +284,16 @@ public class SocketClient extends SocketAbstract {
           }
 
           // Read response from server and parse it.
-          String serverResponse = in.readLine();
-
-          // If serverResponse is null, the server has disconnected.
-          if (serverResponse == null) {
-            socket.close();
-            continue;
-          }
-
-          // Parse the response from the server.
-          serverResponse = serverResponse.trim();
+          String serverResponse = null;
           GameCommand response;
           try {
-            response = GameCommand.fromTcpBody(serverResponse);
+            if (format == WireFormat.BINARY) {
+              response = BinaryCodec.read(in);
+            } else {
+              serverResponse = lines.readLine();
+              response =
+                  null != serverResponse ? GameCommand.fromTcpBody(serverResponse.trim()) : null;
+            }
           } catch (InvalidPropertiesFormatException format) {
             // Response is malformed (not a valid command).
             System.out.println();
@@ -218,6 +304,12 @@ public class SocketClient extends SocketAbstract {
             continue;
           }
 
+          // If response is null, the server has disconnected.
+          if (null == response) {
+            socket.close();
+            continue;
+          }
+
           System.out.println(); // Print an empty line to improve readability on the console.
           interactiveConsole.parseServerResponse(response);
         } // end of while (!socket.isClosed())
@@ -263,6 +355,10 @@ public class SocketClient extends SocketAbstract {
       System.out.println(
           "[Client] Connected to server at " + getHost().getHostAddress() + ":" + getPort());
 
+      if (binary) {
+        format = negotiateBinaryProtocol(socket);
+      }
+
       // Create child threads, one for getting user inputs, another for listening to the server
       // responses.
       executor.submit(new ServerResponseHandler(socket));
@@ -18,101 +18,289 @@
 
 package ch.heigvd.dai.network;
 
-import ch.heigvd.dai.Player;
+import ch.heigvd.dai.logging.Logger;
 import ch.heigvd.dai.logic.StatusCode;
-import ch.heigvd.dai.logic.commands.FillCommand;
+import ch.heigvd.dai.logic.commands.CommandDecoder;
 import ch.heigvd.dai.logic.commands.GameCommand;
-import ch.heigvd.dai.logic.commands.GuessCommand;
-import ch.heigvd.dai.logic.commands.JoinCommand;
-import ch.heigvd.dai.logic.commands.LettersCommand;
 import ch.heigvd.dai.logic.commands.StatusCommand;
-import ch.heigvd.dai.logic.commands.VowelCommand;
-import ch.heigvd.dai.logic.server.GameMatch;
+import ch.heigvd.dai.logic.commands.WireFormat;
+import ch.heigvd.dai.logic.server.MatchRegistry;
+import ch.heigvd.dai.metrics.ServerMetrics;
 import com.google.common.net.HostAndPort;
 import java.io.*;
 import java.net.*;
-import java.nio.charset.StandardCharsets;
 import java.util.InvalidPropertiesFormatException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Implements a network server for the Wheel of Fortune game.
  *
  * <p>It listens for incoming connections and creates a new thread for each client that connects.
- * The number of clients is limited to the maximum number of players allowed in a game match, and
- * this limit is enforced both through a maximum number of threads in the thread pool and a maximum
- * number of connections on the server socket.
+ * The clients are spread over the game matches held by a {@link MatchRegistry}, so the number of
+ * clients is not bound to the number of players allowed in a single match.
+ *
+ * <p>The client threads are either platform threads or virtual threads. As a client thread spends
+ * most of its time blocked on a read, virtual threads let a single process hold tens of thousands
+ * of connections without changing the handler logic. None of the locks taken by the handlers or by
+ * the game matches are {@code synchronized} blocks, so the virtual threads never pin their carrier.
  *
  * <p>Each client thread reads commands from the client and sends responses back.
  */
 public class SocketServer extends SocketAbstract {
 
-  /** Attribute containing the instance of the game match. */
-  private final GameMatch match;
+  private static final Logger LOGGER = new Logger("Server");
+
+  /** Maximum number of pending connections on the server socket. */
+  private static final int ACCEPT_BACKLOG = 1024;
+
+  /** Attribute containing the registry of the game matches hosted by the server. */
+  private final MatchRegistry registry;
+
+  /** Whether each client is handled by a virtual thread instead of a platform thread. */
+  private final boolean virtualThreads;
 
   /**
    * Default constructor.
    *
    * @param hostAndPort a {@link HostAndPort} object containing the host and port information
-   * @param match a {@link GameMatch} object containing the instance of the game match
-   * @throws NullPointerException if {@code hostAndPort} or {@code match} is null
+   * @param registry a {@link MatchRegistry} object containing the game matches hosted by the server
+   * @param virtualThreads {@code true} to handle each client on a virtual thread, {@code false} to
+   *     use platform threads
+   * @throws NullPointerException if {@code hostAndPort} or {@code registry} is null
    * @throws IllegalArgumentException if {@code hostAndPort} does not contain a port number
    * @throws UnknownHostException if {@code hostAndPort} contains a hostname that is unresolvable to
    *     a valid IP
    */
-  public SocketServer(HostAndPort hostAndPort, GameMatch match)
+  public SocketServer(HostAndPort hostAndPort, MatchRegistry registry, boolean virtualThreads)
       throws NullPointerException, IllegalArgumentException, UnknownHostException {
     super(hostAndPort);
-    this.match = match;
+    this.registry = registry;
+    this.virtualThreads = virtualThreads;
   }
 
   /**
    * Inner class that implements the client handler for each of the threads of the clients.
    * Implements {@link Runnable} to be able to run in a separate thread.
+   *
+   * <p>The thread of the handler blocks on reading the requests of the client, and on waiting for
+   * the game match to handle them. The commands queued by the game match for the player are written
+   * by a separate task, so that an idle client does not need to wake up to receive them, and a slow
+   * client never blocks the thread running the match.
    */
   class ClientHandler implements Runnable {
-    private static final int READ_TIMEOUT_MS = 250;
     private final Socket socket;
-    private Player player;
+    private final ClientSession session;
+
+    /** Executor running the tasks that push the commands queued by the game match. */
+    private final Executor pushExecutor;
+
+    /**
+     * Whether a push task is queued and has not taken the {@link #writeLock} yet. At most one task
+     * waits for the lock, however many commands the game match queues meanwhile.
+     */
+    private final AtomicBoolean pushScheduled = new AtomicBoolean();
+
+    /** Lock protecting the writer, since commands can be pushed from other threads. */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * Whether this handler is handling a request of its client. While it is the case, the pending
+     * commands are not pushed but sent after the response, to keep the order expected by the
+     * client.
+     */
+    private boolean responding = false;
+
+    private OutputStream out;
+
+    /**
+     * The wire format the commands are written in. Guarded by {@link #writeLock}, as it changes
+     * when the client negotiates the binary protocol.
+     */
+    private WireFormat format = WireFormat.TEXT;
+
+    /** Splits the bytes sent by the client into requests. */
+    private final RequestFramer framer = new RequestFramer();
+
+    /** Decoder of the text lines sent by the client. */
+    private final CommandDecoder decoder = new CommandDecoder();
+
+    /** Bytes read from the client and not consumed yet. */
+    private final byte[] readBuffer = new byte[1024];
+
+    private int readPosition = 0;
+    private int readLimit = 0;
 
     /**
      * Default constructor.
      *
      * @param socket a {@link Socket} object containing the socket connection to the client
-     * @throws RuntimeException if the timeout for the socket read cannot be set
+     * @param pushExecutor the {@link Executor} running the tasks that push the queued commands
      */
-    ClientHandler(Socket socket) throws RuntimeException {
+    ClientHandler(Socket socket, Executor pushExecutor) {
       this.socket = socket;
-      player = null;
+      this.pushExecutor = pushExecutor;
+      session =
+          new ClientSession(registry, socket.getInetAddress().getHostAddress(), this::schedulePush);
+    }
+
+    /**
+     * Reads the bytes sent by the client until a request or a handshake is complete. The request
+     * itself stays in the {@link #framer}, without being decoded into a string.
+     *
+     * @param in the {@link InputStream} of the socket
+     * @return the {@link RequestFramer.Event} completed, or {@code null} if the client disconnected
+     * @throws IOException if the socket cannot be read or if the request is too long
+     */
+    private RequestFramer.Event readRequest(InputStream in) throws IOException {
+      while (true) {
+        if (readPosition == readLimit) {
+          readLimit = in.read(readBuffer);
+          readPosition = 0;
+          if (readLimit < 0) {
+            readLimit = 0;
+            RequestFramer.Event event = framer.endOfStream();
+            return event != RequestFramer.Event.NONE ? event : null;
+          }
+        }
+
+        RequestFramer.Event event = framer.push(readBuffer[readPosition++]);
+        if (event != RequestFramer.Event.NONE) {
+          return event;
+        }
+      }
+    }
 
+    /**
+     * Writes the frame of a command to the buffer of the client, without flushing it. The caller
+     * needs to hold {@link #writeLock}.
+     *
+     * @param command the {@link GameCommand} to send
+     * @throws IOException if the socket cannot be written
+     */
+    private void write(GameCommand command) throws IOException {
+      byte[] frame = command.toFrame(format);
+      out.write(frame);
+      session.sent(command, frame.length);
+    }
+
+    /**
+     * Acknowledges the binary protocol asked for by the client, and switches to it for all the
+     * commands written from now on.
+     *
+     * @throws IOException if the socket cannot be written
+     */
+    private void acceptBinaryProtocol() throws IOException {
+      writeLock.lock();
       try {
-        socket.setSoTimeout(READ_TIMEOUT_MS);
-      } catch (SocketException e) {
-        throw new RuntimeException(
-            "[ClientHandler] SocketException: failed to set timeout for socket read");
+        out.write(framer.handshake());
+        out.flush();
+        format = WireFormat.BINARY;
+      } finally {
+        writeLock.unlock();
       }
     }
 
     /**
-     * Method to parse the JOIN command from the client and to add the player to the game match
-     * object.
+     * Writes a command to the client, taking the {@link #writeLock}.
      *
-     * @param joinCommand a {@link JoinCommand} object containing the JOIN command from the client
-     * @return a {@link GameCommand} object with the {@link StatusCommand} response to the JOIN
-     *     command
+     * @param command the {@link GameCommand} to send
+     * @throws IOException if the socket cannot be written
      */
-    GameCommand parseJoin(JoinCommand joinCommand) {
-      StatusCode joinStatus = match.addPlayer(joinCommand.getUsername());
-
-      if (null == joinStatus) {
-        joinStatus = StatusCode.KO;
-      } else if (StatusCode.OK == joinStatus) {
-        player = match.getPlayer(joinCommand.getUsername());
-        System.out.println(player + " connected successfully");
+    private void send(GameCommand command) throws IOException {
+      writeLock.lock();
+      try {
+        write(command);
+        out.flush();
+      } finally {
+        writeLock.unlock();
       }
+    }
 
-      return new StatusCommand(joinStatus);
+    /**
+     * Writes all the commands queued by the game match for the player, and flushes everything
+     * written so far. The caller needs to hold {@link #writeLock}.
+     *
+     * @throws IOException if the socket cannot be written
+     */
+    private void writePendingCommands() throws IOException {
+      for (GameCommand pendingCommand : session.pendingCommands()) {
+        write(pendingCommand);
+      }
+      out.flush();
+    }
+
+    /**
+     * Callback called by the game match, from the thread running it, when a command is queued for
+     * the player. It only schedules a push task, as writing to the socket could block the match.
+     */
+    private void schedulePush() {
+      if (pushScheduled.compareAndSet(false, true)) {
+        try {
+          pushExecutor.execute(this::pushPendingCommands);
+        } catch (RejectedExecutionException e) {
+          // The server is shutting down, the connection is about to be closed anyway.
+          pushScheduled.set(false);
+        }
+      }
+    }
+
+    /**
+     * Push task writing the commands queued for the player right away, unless this handler is in
+     * the middle of handling a request, in which case they are written after the response.
+     */
+    private void pushPendingCommands() {
+      writeLock.lock();
+      try {
+        // The commands queued from now on need another push.
+        pushScheduled.set(false);
+        if (!responding && null != out) {
+          writePendingCommands();
+        }
+      } catch (IOException e) {
+        LOGGER.warn(() -> "IOException: " + e);
+        try {
+          socket.close();
+        } catch (IOException ignored) {
+          // Nothing else to do, the reader will notice the socket is closed.
+        }
+      } finally {
+        writeLock.unlock();
+      }
+    }
+
+    /**
+     * Handles a request of the client and writes the response back, followed by the commands queued
+     * meanwhile by the game match.
+     *
+     * @param command the {@link GameCommand} sent by the client
+     * @throws IOException if the socket cannot be written
+     */
+    private void respond(GameCommand command) throws IOException {
+      writeLock.lock();
+      responding = true;
+      writeLock.unlock();
+
+      GameCommand response = null;
+      try {
+        // The handler has nothing else to do until the game match answers.
+        response = session.handle(command).join();
+      } finally {
+        writeLock.lock();
+        try {
+          responding = false;
+          if (null != response) {
+            write(response);
+          }
+          writePendingCommands();
+        } finally {
+          writeLock.unlock();
+        }
+      }
     }
 
     /**
@@ -120,7 +308,7 @@ public class SocketServer extends SocketAbstract {
      * client and sends responses back.
      *
      * <p>It reads commands from the client and sends responses back while the client socket is not
-     * closed.
+     * closed. The commands themselves are handled by a {@link ClientSession}.
      *
      * <p>NOTE: Use of try-with-resources automatically closes the resources when the try block
      * ends. Most of the exceptions are caught and handled, only critical exceptions are sent
@@ -128,179 +316,76 @@ public class SocketServer extends SocketAbstract {
      */
     @Override
     public void run() {
+      ServerMetrics.getGlobal().connectionOpened();
       try (socket;
-          Reader reader = new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8);
-          BufferedReader in = new BufferedReader(reader);
-          Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
-          BufferedWriter out = new BufferedWriter(writer)) {
+          InputStream in = socket.getInputStream();
+          OutputStream out = new BufferedOutputStream(socket.getOutputStream())) {
+        this.out = out;
 
         // Print message with client information.
-        System.out.println(
-            "[Server] New client connection from "
-                + socket.getInetAddress().getHostAddress()
-                + ":"
-                + socket.getPort());
+        LOGGER.info(
+            () ->
+                "New client connection from "
+                    + socket.getInetAddress().getHostAddress()
+                    + ":"
+                    + socket.getPort());
 
         // Run REPL until client disconnects.
         while (!socket.isClosed()) {
 
           try {
-            // Send all remaining global commands.
-            if (null != player) {
-              for (GameCommand pendingCommand : match.getPendingCommands(player)) {
-                out.write(pendingCommand.toTcpBody() + END_OF_LINE);
-                out.flush();
-              }
-            }
-
-            // Read response from client, or wait for a timeout.
-            String clientRequest = in.readLine();
+            // Read request from client.
+            RequestFramer.Event event = readRequest(in);
 
-            // If clientRequest is null, the client has disconnected.
+            // If event is null, the client has disconnected.
             // The server can close the connection and end the thread.
-            if (clientRequest == null) {
+            if (null == event) {
               socket.close();
               break;
             }
 
-            // Parse the message we got from the player.
+            if (event == RequestFramer.Event.HANDSHAKE) {
+              acceptBinaryProtocol();
+              continue;
+            }
+
+            // Parse the message we got from the player, straight from the bytes of the request.
             GameCommand command;
             try {
-              command = GameCommand.fromTcpBody(clientRequest.trim());
+              command = framer.decode(decoder);
+              session.received(command, framer.getRequestLength());
             } catch (InvalidPropertiesFormatException format) {
               // Response is malformed (not a valid command).
-              out.write(new StatusCommand(StatusCode.KO).toTcpBody() + END_OF_LINE);
-              out.flush();
+              send(new StatusCommand(StatusCode.KO));
               continue;
             }
 
-            // Prepare response from the server back to the client.
-            String response = null;
-            if (null != player) {
-              System.out.println(player + " sent command " + command.getType());
-            } else {
-              System.out.println(
-                  "Player from IP "
-                      + socket.getInetAddress().getHostAddress()
-                      + " sent command "
-                      + command.getType());
-            }
-
-            // Handle the request and setup appropriate response.
-            switch (command.getType()) {
-              case JOIN -> {
-                if (null == player) {
-                  response = parseJoin((JoinCommand) command).toTcpBody();
-                } else {
-                  response = new StatusCommand(StatusCode.KO).toTcpBody();
-                  System.out.println(player + " tried to join again");
-                }
-              }
-
-              case GO -> {
-                if (!match.startGame()) {
-                  System.out.println(
-                      player + " tried to start the match, but it was already ongoing");
-                } else {
-                  System.out.println(player + " started the match");
-                }
-              }
-
-              case LETTERS -> {
-                if (match.isNotMyTurn(player)) {
-                  System.out.println(
-                      player + " tried to play the last round, but it's not their turn");
-                  response = new StatusCommand(StatusCode.KO).toTcpBody();
-                } else {
-                  response = match.guessLastRoundLetters((LettersCommand) command).toTcpBody();
-                }
-              }
-
-              case GUESS -> {
-                if (match.isNotMyTurn(player)) {
-                  System.out.println(
-                      player + " tried to guess a consonant, but it's not their turn");
-                  response = new StatusCommand(StatusCode.KO).toTcpBody();
-                } else {
-                  response = match.guessConsonant((GuessCommand) command).toTcpBody();
-                }
-              }
-
-              case FILL -> {
-                if (match.isNotMyTurn(player)) {
-                  System.out.println(
-                      player + " tried to fill in the puzzle, but it's not their turn");
-                  response = new StatusCommand(StatusCode.KO).toTcpBody();
-                } else {
-                  response = match.solvePuzzle((FillCommand) command).toTcpBody();
-                }
-              }
-
-              case SKIP -> {
-                if (match.isNotMyTurn(player)) {
-                  System.out.println(player + " tried to skip their turn, but it's not their turn");
-                  response = new StatusCommand(StatusCode.KO).toTcpBody();
-                } else {
-                  System.out.println(player + " skipped their turn");
-                  match.skipTurn(player);
-                }
-              }
-
-              case VOWEL -> {
-                if (match.isNotMyTurn(player)) {
-                  System.out.println(player + " tried to buy a vowel, but it's not their turn");
-                  response = new StatusCommand(StatusCode.KO).toTcpBody();
-                } else {
-                  System.out.println(player + " bought a vowel");
-                  response = match.guessVowel((VowelCommand) command).toTcpBody();
-                }
-              }
-
-              case QUIT -> {
-                if (null == player) {
-                  System.out.println("Peer tried to quit lobby before even logging it");
-                } else {
-                  match.quitPlayer(player.getUsername());
-                  System.out.println(player + " quit");
-                  player = null;
-                }
-              }
-
-              default -> {
-                System.out.println("Command " + command.getType() + " was uncaught!");
-                response = new StatusCommand(StatusCode.KO).toTcpBody();
-              }
-            }
-
-            // Send the response back to the client.
-            if (null != response) {
-              out.write(response + END_OF_LINE);
-              out.flush();
-            }
+            // Handle the request and send the response back to the client.
+            respond(command);
 
-          } catch (SocketTimeoutException e) {
-            // Nothing to do but loop around and hope for an answer later on.
           } catch (Exception e) {
-            System.err.println("[Server] Random exception: " + e);
-            socket.close();
+            if (!socket.isClosed()) {
+              LOGGER.warn(() -> "Random exception: " + e);
+              socket.close();
+            }
             break;
           }
         } // end of while (!socket.isClosed())
 
         // Print message to say connection with client has closed.
-        System.out.println(
-            "[Server] Closed connection with client "
-                + socket.getInetAddress().getHostAddress()
-                + ":"
-                + socket.getPort());
+        LOGGER.info(
+            () ->
+                "Closed connection with client "
+                    + socket.getInetAddress().getHostAddress()
+                    + ":"
+                    + socket.getPort());
       } catch (IOException e) {
-        System.err.println("[Server] IOException: " + e);
+        LOGGER.warn(() -> "IOException: " + e);
       }
 
       // Disconnect player from match if that's not yet the case.
-      if (null != player) {
-        match.quitPlayer(player.getUsername());
-      }
+      session.close();
+      ServerMetrics.getGlobal().connectionClosed();
     }
   }
 
@@ -309,33 +394,34 @@ public class SocketServer extends SocketAbstract {
    * thread for each client that connects to the server.
    *
    * <p>It listens for incoming connections and creates a new thread for each client that connects
-   * while the server socket is not closed. The number of clients is limited to the maximum number
-   * of players allowed in a game match, and this limit is enforced both through a maximum number of
-   * threads in the thread pool and a maximum number of connections on the server socket.
+   * while the server socket is not closed. Platform threads are reused once their client
+   * disconnects, while virtual threads are simply created for each client.
    */
   @Override
   public void run() {
     try (ServerSocket serverSocket =
             isHostAny()
-                ? new ServerSocket(getPort(), GameMatch.MAX_PLAYERS)
-                : new ServerSocket(getPort(), GameMatch.MAX_PLAYERS, getHost());
-        ExecutorService executor = Executors.newFixedThreadPool(GameMatch.MAX_PLAYERS)) {
-
-      System.out.println("[Server] Starting server...");
+                ? new ServerSocket(getPort(), ACCEPT_BACKLOG)
+                : new ServerSocket(getPort(), ACCEPT_BACKLOG, getHost());
+        ExecutorService executor =
+            virtualThreads
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newCachedThreadPool()) {
+
+      LOGGER.info(() -> "Starting server...");
       if (isHostAny()) {
-        System.out.println("[Server] Listening on all interfaces");
+        LOGGER.info(() -> "Listening on all interfaces");
       } else {
-        System.out.println(
-            "[Server] Listening on the interface with IP " + getHost().getHostAddress());
+        LOGGER.info(() -> "Listening on the interface with IP " + getHost().getHostAddress());
       }
-      System.out.println("[Server] Listening on port " + getPort());
+      LOGGER.info(() -> "Listening on port " + getPort());
 
       while (!serverSocket.isClosed()) {
         Socket clientSocket = serverSocket.accept();
-        executor.submit(new ClientHandler(clientSocket));
+        executor.submit(new ClientHandler(clientSocket, executor));
       }
     } catch (IOException e) {
-      System.out.println("[Server] IOException: " + e);
+      LOGGER.warn(() -> "IOException: " + e);
     }
   }
 }
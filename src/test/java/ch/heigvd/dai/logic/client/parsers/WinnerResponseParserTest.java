@@ -0,0 +1,56 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.client.parsers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import ch.heigvd.dai.logic.PlayerState;
+import ch.heigvd.dai.logic.client.InteractiveConsole;
+import ch.heigvd.dai.logic.commands.WinnerCommand;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the handling of the WINNER command by the console of the client.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+class WinnerResponseParserTest {
+
+  private final WinnerResponseParser parser = new WinnerResponseParser();
+
+  @Test
+  void winnerAfterWaitingForTurnWaitsForTurn() {
+    InteractiveConsole console = new InteractiveConsole("test");
+    console.setCurrentState(PlayerState.WAIT_FOR_TURN);
+
+    parser.parse(console, new WinnerCommand("alice"));
+    assertEquals(PlayerState.WAIT_FOR_TURN, console.getCurrentState());
+  }
+
+  @Test
+  void winnerAfterSolvingWithAConsonantWaitsForTurn() {
+    // A consonant revealing the last letters is answered like any correct consonant.
+    InteractiveConsole console = new InteractiveConsole("test");
+    console.setCurrentState(PlayerState.SECOND_GUESS_PHASE);
+
+    parser.parse(console, new WinnerCommand("alice"));
+    assertEquals(PlayerState.WAIT_FOR_TURN, console.getCurrentState());
+  }
+}
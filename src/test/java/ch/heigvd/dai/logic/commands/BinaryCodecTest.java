@@ -0,0 +1,98 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.commands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import ch.heigvd.dai.logic.StatusCode;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link BinaryCodec}.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+class BinaryCodecTest {
+
+  /** One command of each {@link GameCommandType}, with arguments exercising every field. */
+  private static final List<GameCommand> COMMANDS =
+      List.of(
+          new EndCommand("alice", new String[] {"alice", "bob"}, new int[] {12_500, -300}),
+          new FillCommand("CAFE CREME"),
+          new GuessCommand('R'),
+          new InfoCommand("_A__ _R_M_", "FOOD", new char[] {'A', 'M', 'R', 'É'}),
+          new LastCommand(15, "C___ C____", "FOOD", "RSTNLE"),
+          new LobbyCommand(new String[] {"alice", "bob smith", "Zoë"}),
+          new JoinCommand("alice", "room"),
+          new QuitCommand(),
+          new RoundCommand("CAF_ CR_M_"),
+          new StartCommand(3, "____ _____", "FOOD"),
+          new StatusCommand(StatusCode.DUPLICATE_NAME),
+          new TurnCommand(-1, 1_000_000),
+          new VowelCommand('E'),
+          new WinnerCommand("bob"),
+          new GoCommand(),
+          new SkipCommand(),
+          new LettersCommand("BCDFA"),
+          new HelpCommand(),
+          new HostCommand());
+
+  @BeforeAll
+  static void registerHandlers() {
+    GameCommand.registerHandlers();
+  }
+
+  @Test
+  void everyTypeIsCovered() {
+    Set<GameCommandType> types = EnumSet.noneOf(GameCommandType.class);
+    for (GameCommand command : COMMANDS) {
+      types.add(command.getType());
+    }
+    assertEquals(EnumSet.allOf(GameCommandType.class), types);
+  }
+
+  @Test
+  void encodedCommandsDecodeToTheSameCommand() throws IOException {
+    for (GameCommand command : COMMANDS) {
+      byte[] frame = BinaryCodec.encode(command);
+      GameCommand decoded = BinaryCodec.read(new ByteArrayInputStream(frame));
+
+      assertEquals(command.getType(), decoded.getType());
+      assertEquals(command.toTcpBody(), decoded.toTcpBody());
+    }
+  }
+
+  @Test
+  void joinWithoutMatchName() throws IOException {
+    JoinCommand command = new JoinCommand("alice");
+    JoinCommand decoded =
+        (JoinCommand) BinaryCodec.read(new ByteArrayInputStream(BinaryCodec.encode(command)));
+
+    assertEquals("alice", decoded.getUsername());
+    assertNull(decoded.getMatchName());
+  }
+}
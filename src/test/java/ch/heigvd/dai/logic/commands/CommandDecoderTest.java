@@ -0,0 +1,169 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.commands;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.InvalidPropertiesFormatException;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link CommandDecoder} against the regular expression it replaced.
+ *
+ * <p>The arguments are decoded through {@code LOBBY}, whose command keeps every argument as is, and
+ * compared with the arguments the original implementation of {@link GameCommand#fromTcpBody}
+ * extracted from the same line.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+class CommandDecoderTest {
+
+  /** Regular expression splitting the arguments in the original implementation. */
+  private static final Pattern ARGUMENT = Pattern.compile("([^\"]\\S*|.+?\")\\s*");
+
+  /** Pieces the random lines are made of, tricky characters included. */
+  private static final String[] PIECES = {
+    "A", "bc", "É", "\"", "\"", " ", " ", "  ", "\t", "\u000B", "\u0001", "\u00A0", "\u2003",
+    "\u3000", "\u2028", "\u0085", "\n", "\r"
+  };
+
+  @BeforeAll
+  static void registerHandlers() {
+    GameCommand.registerHandlers();
+  }
+
+  /**
+   * Extracts the arguments of a line the way the original implementation did, the line being
+   * trimmed by the servers beforehand.
+   *
+   * @param line a {@link String} with the line
+   * @return a {@link String} array with the arguments, or {@code null} if there are none
+   */
+  private static String[] regexArguments(String line) {
+    String body = line.trim();
+    String commandName = body.split(" ")[0];
+    Matcher matcher = ARGUMENT.matcher(body.substring(commandName.length()).stripLeading());
+    List<String> allMatches = new ArrayList<>();
+    while (matcher.find()) {
+      allMatches.add(matcher.group());
+    }
+    if (allMatches.isEmpty()) {
+      return null;
+    }
+
+    String[] args = new String[allMatches.size()];
+    for (int i = 0; i < args.length; i++) {
+      String arg = allMatches.get(i);
+      if (arg.startsWith("\"") && arg.endsWith("\"")) {
+        arg = arg.substring(1, arg.length() - 1);
+      }
+      args[i] = arg.trim();
+    }
+    return args;
+  }
+
+  /**
+   * Asserts that the decoder extracts the same arguments as the original implementation.
+   *
+   * @param arguments a {@link String} with the arguments of a {@code LOBBY} line
+   */
+  private static void assertSameAsRegex(String arguments) {
+    String text = "LOBBY " + arguments;
+    byte[] line = text.getBytes(StandardCharsets.UTF_8);
+    String[] expected = regexArguments(text);
+    CommandDecoder decoder = new CommandDecoder();
+
+    if (null == expected) {
+      assertThrows(
+          InvalidPropertiesFormatException.class, () -> decoder.decode(line, 0, line.length));
+      return;
+    }
+
+    LobbyCommand command =
+        (LobbyCommand) assertDoesNotThrow(() -> decoder.decode(line, 0, line.length));
+    assertArrayEquals(expected, command.getPlayers(), () -> "Arguments of: " + arguments);
+  }
+
+  @Test
+  void plainWords() {
+    assertSameAsRegex("alice bob");
+    assertSameAsRegex("alice\tbob\u000Bcarol");
+    assertSameAsRegex("   alice    bob   ");
+  }
+
+  @Test
+  void quotedArguments() {
+    assertSameAsRegex("\"alice smith\"");
+    assertSameAsRegex("bob \"alice smith\"");
+    assertSameAsRegex("\"\"");
+    assertSameAsRegex("a\"b c\"d");
+  }
+
+  @Test
+  void quotesFollowedByWhitespaceAreKept() {
+    assertSameAsRegex("\"alice smith\" bob");
+    assertSameAsRegex("\"alice\"\tbob");
+    assertSameAsRegex("\"alice\" ");
+    assertSameAsRegex("\"a\" \"b\" \"c\"");
+  }
+
+  @Test
+  void unclosedQuotes() {
+    assertSameAsRegex("\"alice");
+    assertSameAsRegex("\"alice smith");
+    assertSameAsRegex("bob \"");
+    assertSameAsRegex("\"");
+    assertSameAsRegex("\"a\" \"b");
+    assertSameAsRegex("\"alice\u2028smith\"");
+    assertSameAsRegex("\"alice\u0085smith\"");
+  }
+
+  @Test
+  void unicodeWhitespace() {
+    assertSameAsRegex("\u2003alice bob");
+    assertSameAsRegex("\u3000\u1680alice");
+    assertSameAsRegex("alice\u2003bob");
+    assertSameAsRegex("alice\u00A0bob");
+    assertSameAsRegex("\u00A0alice");
+    assertSameAsRegex("\u2028");
+  }
+
+  @Test
+  void randomLines() {
+    Random random = new Random(7);
+    for (int i = 0; i < 20_000; i++) {
+      StringBuilder arguments = new StringBuilder();
+      int pieces = random.nextInt(8);
+      for (int j = 0; j < pieces; j++) {
+        arguments.append(PIECES[random.nextInt(PIECES.length)]);
+      }
+      assertSameAsRegex(arguments.toString());
+    }
+  }
+}
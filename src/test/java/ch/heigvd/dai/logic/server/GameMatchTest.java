@@ -0,0 +1,193 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.server;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import ch.heigvd.dai.Player;
+import ch.heigvd.dai.logging.Level;
+import ch.heigvd.dai.logging.Logger;
+import ch.heigvd.dai.logic.PlayerState;
+import ch.heigvd.dai.logic.StatusCode;
+import ch.heigvd.dai.logic.commands.FillCommand;
+import ch.heigvd.dai.logic.commands.GameCommand;
+import ch.heigvd.dai.logic.commands.GuessCommand;
+import ch.heigvd.dai.logic.commands.LettersCommand;
+import ch.heigvd.dai.logic.commands.StatusCommand;
+import ch.heigvd.dai.logic.commands.VowelCommand;
+import ch.heigvd.dai.logic.server.puzzle.PuzzleCatalogue;
+import ch.heigvd.dai.logic.server.puzzle.PuzzleCategory;
+import ch.heigvd.dai.logic.server.puzzle.PuzzleHistory;
+import ch.heigvd.dai.logic.server.puzzle.PuzzleRecord;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the game logic of {@link GameMatch}, played directly on the match without any
+ * connection.
+ *
+ * <p>The matches draw their puzzles from a catalogue holding a single puzzle, so that the tests
+ * know which letters are hidden. The tasks of the matches run on the thread of the test.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+class GameMatchTest {
+
+  /** The only puzzle of the catalogue of the tests. */
+  private static final String PUZZLE = "BANANA";
+
+  private GameMatch match;
+  private Player alice;
+  private Player bob;
+
+  @BeforeAll
+  static void muteLog() {
+    Logger.setLevel(Level.OFF);
+  }
+
+  /**
+   * Creates a game match waiting for players, drawing its puzzles from the catalogue of the tests.
+   *
+   * @return the new {@link GameMatch}
+   */
+  private static GameMatch newMatch() {
+    PuzzleCatalogue catalogue =
+        PuzzleCatalogue.of(List.of(new PuzzleRecord(PUZZLE, PuzzleCategory.FOOD)));
+    return new GameMatch("test", Runnable::run, 42, new PuzzleHistory(catalogue));
+  }
+
+  @BeforeEach
+  void startGame() {
+    match = newMatch();
+    match.addPlayer("alice");
+    match.addPlayer("bob");
+    alice = match.getPlayer("alice");
+    bob = match.getPlayer("bob");
+    match.startGame();
+  }
+
+  /**
+   * Asserts that a response is a {@link StatusCommand} with the given status.
+   *
+   * @param expected the expected {@link StatusCode}
+   * @param response the {@link GameCommand} returned by the match
+   */
+  private static void assertStatus(StatusCode expected, GameCommand response) {
+    assertEquals(expected, ((StatusCommand) response).getStatus());
+  }
+
+  /** Solves every normal round with the solution, up to the last round. */
+  private void reachLastRound() {
+    for (int round = 0; round < GameMatch.NORMAL_ROUNDS_BEFORE_LAST_ROUND; round++) {
+      match.solvePuzzle(new FillCommand(match.getSolution()));
+    }
+    assertEquals(GamePhase.LAST_TURN, match.getPhase());
+  }
+
+  @Test
+  void duplicateNameDoesNotJoinNorStartTheGame() {
+    GameMatch lobby = newMatch();
+    for (String username : List.of("alice", "bob", "carol", "dave")) {
+      assertEquals(StatusCode.OK, lobby.addPlayer(username));
+    }
+
+    // The lobby would be full if the duplicate were added.
+    assertEquals(StatusCode.DUPLICATE_NAME, lobby.addPlayer("alice"));
+    assertEquals(GameMatch.MAX_PLAYERS - 1, lobby.getPlayers().length);
+    assertEquals(GamePhase.WAITING_FOR_PLAYERS, lobby.getPhase());
+  }
+
+  @Test
+  void replaySwitchesDeckAtEachCatalogueEntry() {
+    GameMatch replay = newMatch();
+    replay.replayPuzzles(
+        List.of(
+                new MatchLog.PuzzleEntry(MatchLog.CATALOGUE, 1, 3),
+                new MatchLog.PuzzleEntry(MatchLog.PUZZLE, 0, 5),
+                new MatchLog.PuzzleEntry(MatchLog.CATALOGUE, 1, 8),
+                new MatchLog.PuzzleEntry(MatchLog.PUZZLE, 0, 9),
+                new MatchLog.PuzzleEntry(MatchLog.CATALOGUE, 2, 12),
+                new MatchLog.PuzzleEntry(MatchLog.PUZZLE, 1, 13))
+            .iterator());
+    replay.addPlayer("alice");
+    replay.addPlayer("bob");
+    replay.startGame();
+    replay.solvePuzzle(new FillCommand(replay.getSolution()));
+    assertEquals(PUZZLE, replay.getSolution());
+
+    // The third round was recorded after a switch to a catalogue the replay does not have.
+    IllegalStateException e =
+        assertThrows(
+            IllegalStateException.class,
+            () -> replay.solvePuzzle(new FillCommand(replay.getSolution())));
+    assertEquals(
+        "[GameMatch] Line 12: the match switched to a catalogue of 2 puzzles, the current one has 1",
+        e.getMessage());
+  }
+
+  @Test
+  void skipDuringLastRoundIsIgnored() {
+    reachLastRound();
+    Player finalist = match.getCurrentPlayer();
+
+    assertDoesNotThrow(() -> match.skipTurn(finalist));
+    assertEquals(GamePhase.LAST_TURN, match.getPhase());
+    assertSame(finalist, match.getCurrentPlayer());
+  }
+
+  @Test
+  void newGameResetsThePlayers() {
+    reachLastRound();
+    Player finalist = match.getCurrentPlayer();
+    match.guessLastRoundLetters(new LettersCommand("BCDFA"));
+    assertEquals(PlayerState.SECOND_GUESS_PHASE, finalist.getState());
+    assertStatus(StatusCode.RIGHT_ANSWER, match.solvePuzzle(new FillCommand(match.getSolution())));
+    assertEquals(GamePhase.WAITING_FOR_PLAYERS, match.getPhase());
+
+    match.startGame();
+    assertEquals(PlayerState.CHILLING, alice.getState());
+    assertEquals(PlayerState.CHILLING, bob.getState());
+  }
+
+  @Test
+  void vowelSolvingTheRoundEndsTheSecondGuessPhase() {
+    // B is found, and the player passes instead of buying a vowel.
+    Player first = match.getCurrentPlayer();
+    assertStatus(StatusCode.LETTER_EXISTS, match.guessConsonant(new GuessCommand('B')));
+    match.skipTurn(first);
+
+    // N is found, and only the vowel A is left to buy.
+    Player solver = match.getCurrentPlayer();
+    assertStatus(StatusCode.LETTER_EXISTS, match.guessConsonant(new GuessCommand('N')));
+    assertEquals(PlayerState.SECOND_GUESS_PHASE, solver.getState());
+    assertStatus(StatusCode.LETTER_EXISTS, match.guessVowel(new VowelCommand('A')));
+
+    // The next round started, and the solver can spin again when their turn comes.
+    assertEquals(GamePhase.NORMAL_TURN, match.getPhase());
+    assertNotNull(match.getCurrentPuzzle());
+    assertEquals(PlayerState.CHILLING, solver.getState());
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.server.puzzle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.InvalidPropertiesFormatException;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of {@link PuzzleCatalogue} files.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+class PuzzleCatalogueTest {
+
+  @TempDir Path directory;
+
+  @Test
+  void fileSizeCountsEverySection() throws IOException {
+    Path file = directory.resolve("puzzles.wofc");
+    List<PuzzleRecord> records =
+        List.of(
+            new PuzzleRecord("APPLE PIE", PuzzleCategory.FOOD),
+            new PuzzleRecord("MINI GOLF", PuzzleCategory.PLACES));
+    PuzzleCatalogue.write(file, records);
+
+    assertEquals(
+        PuzzleCatalogue.fileSize(2, "APPLE PIE".length() + "MINI GOLF".length()),
+        file.toFile().length());
+  }
+
+  @Test
+  void oversizedFileIsNotACatalogue() throws IOException {
+    Path file = directory.resolve("huge.wofc");
+    try (RandomAccessFile sparse = new RandomAccessFile(file.toFile(), "rw")) {
+      sparse.setLength(PuzzleCatalogue.MAX_FILE_SIZE + 1);
+    }
+
+    assertThrows(InvalidPropertiesFormatException.class, () -> PuzzleCatalogue.open(file));
+  }
+}
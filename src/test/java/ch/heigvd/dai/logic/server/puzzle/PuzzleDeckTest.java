@@ -0,0 +1,71 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.server.puzzle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Tests of the draws of {@link PuzzleDeck} among the puzzles the players have not seen.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+class PuzzleDeckTest {
+
+  private final PuzzleCatalogue catalogue = PuzzleCatalogue.builtIn();
+  private final PuzzleDeck deck = new PuzzleDeck(catalogue, new SplittableRandom(42));
+
+  @Test
+  void drawsEveryUnseenPuzzleBeforeFallingBack() {
+    RoaringBitmap seen = new RoaringBitmap();
+    seen.add(0L, catalogue.size() / 2);
+
+    for (int i = catalogue.size() / 2; i < catalogue.size(); i++) {
+      int index = deck.drawIndex(seen);
+      assertFalse(seen.contains(index), () -> "Puzzle " + index + " was already seen");
+      seen.add(index);
+    }
+    assertEquals(catalogue.size(), seen.getCardinality());
+
+    // Every puzzle was seen, the deck draws from its piles.
+    int index = deck.drawIndex(seen);
+    assertTrue(index >= 0 && index < catalogue.size());
+  }
+
+  @Test
+  void drawsUnseenPuzzlesOfTheWeightedCategory() {
+    PuzzleCategory category = PuzzleCategory.SONGS;
+    int first = catalogue.getFirstIndex(category);
+    int count = catalogue.getCount(category);
+    RoaringBitmap seen = new RoaringBitmap();
+    seen.add(first, first + count - 1L);
+
+    // Only the last puzzle of the category is left.
+    for (int i = 0; i < 10; i++) {
+      assertEquals(first + count - 1, deck.drawIndex(Map.of(category, 1), seen));
+    }
+  }
+}
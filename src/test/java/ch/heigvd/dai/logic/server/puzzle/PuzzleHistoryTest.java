@@ -0,0 +1,67 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.server.puzzle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * Tests of {@link PuzzleHistory}.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+class PuzzleHistoryTest {
+
+  private static final PuzzleRecord APPLE = new PuzzleRecord("APPLE PIE", PuzzleCategory.FOOD);
+  private static final PuzzleRecord BREAD = new PuzzleRecord("BANANA BREAD", PuzzleCategory.FOOD);
+  private static final PuzzleRecord CLOCK =
+      new PuzzleRecord("ANTIQUE CLOCK", PuzzleCategory.PLACES);
+  private static final PuzzleRecord GOLF = new PuzzleRecord("MINI GOLF", PuzzleCategory.PLACES);
+
+  @Test
+  void seenPuzzlesSurviveACatalogueReload() {
+    PuzzleCatalogue before = PuzzleCatalogue.of(List.of(APPLE, BREAD, CLOCK));
+    PuzzleHistory history = new PuzzleHistory(before);
+    history.markSeen(List.of("alice"), before, before.indexOf(BREAD.fingerprint()));
+    history.markSeen(List.of("bob"), before, before.indexOf(CLOCK.fingerprint()));
+
+    // The reloaded catalogue moves the puzzles around and drops CLOCK.
+    PuzzleCatalogue after = PuzzleCatalogue.of(List.of(GOLF, BREAD, APPLE));
+    history.setCatalogue(after);
+    assertSame(after, history.getCatalogue());
+
+    RoaringBitmap expected = RoaringBitmap.bitmapOf(after.indexOf(BREAD.fingerprint()));
+    assertEquals(expected, history.seenByAny(List.of("alice", "bob"), after));
+    assertEquals(2, history.size());
+  }
+
+  @Test
+  void indexOfFindsEveryPuzzle() {
+    PuzzleCatalogue catalogue = PuzzleCatalogue.builtIn();
+    for (int i = 0; i < catalogue.size(); i++) {
+      assertEquals(i, catalogue.indexOf(catalogue.get(i).fingerprint()));
+    }
+    assertEquals(-1, catalogue.indexOf(GOLF.fingerprint()));
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.server.puzzle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of {@link PuzzleImporter}.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+class PuzzleImporterTest {
+
+  @TempDir Path directory;
+
+  @Test
+  void accentsAreStrippedAndOtherLettersRejected() throws IOException {
+    Path input = directory.resolve("puzzles.csv");
+    Files.writeString(
+        input, "FOOD,Café  Crème\nFOOD,Smørrebrød\nFOOD,Crème Brûlée\n", StandardCharsets.UTF_8);
+    Path output = directory.resolve("puzzles.wofc");
+
+    PuzzleImporter importer = new PuzzleImporter(PuzzleImporter.Format.CSV, null, 1, 100, 1);
+    PuzzleImporter.Report report = importer.importInto(List.of(input), output);
+
+    assertEquals(2, report.imported());
+    assertEquals(1, report.invalid());
+    PuzzleCatalogue catalogue = PuzzleCatalogue.open(output);
+    assertEquals("CAFE CREME", catalogue.get(0).puzzle());
+    assertEquals("CREME BRULEE", catalogue.get(1).puzzle());
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.server.puzzle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link Puzzle}.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+class PuzzleTest {
+
+  @Test
+  void lettersOutsideOfTheAlphabetAreNotHidden() {
+    Puzzle puzzle = new Puzzle(new PuzzleRecord("Café Crème", PuzzleCategory.FOOD), "", 250);
+    assertEquals("***É **È**", puzzle.getCurrentPuzzleState());
+
+    for (char letter : "CAFRM".toCharArray()) {
+      puzzle.tryGuessLetter(letter);
+    }
+    puzzle.tryGuessLetter('E');
+    assertTrue(puzzle.isSolved());
+    assertEquals("CAFÉ CRÈME", puzzle.getCurrentPuzzleState());
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Wheel Of Fortune - a Java server/client implementation of the television game
+ * Copyright (C) 2024 Pedro Alves da Silva, Gonçalo Carvalheiro Heleno
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package ch.heigvd.dai.logic.server.wheel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.InvalidPropertiesFormatException;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the parsing of wheel files by {@link WheelConfiguration}, and of the fingerprint of the
+ * parsed configurations.
+ *
+ * @author Pedro Alves da Silva
+ * @author Gonçalo Carvalheiro Heleno
+ */
+class WheelConfigurationTest {
+
+  /**
+   * Parses a wheel file expected to be invalid.
+   *
+   * @param lines the lines of the file
+   * @return the message of the exception thrown by the parser
+   */
+  private static String parseInvalid(String... lines) {
+    return assertThrows(
+            InvalidPropertiesFormatException.class, () -> WheelConfiguration.parse(List.of(lines)))
+        .getMessage();
+  }
+
+  @Test
+  void bareBracketIsALineError() {
+    assertEquals(
+        "[WheelConfiguration] Line 2: expected '[round N]' with N at least 1",
+        parseInvalid("MONEY 500", "[", "MONEY 900"));
+  }
+
+  @Test
+  void fingerprintOnlyDependsOnTheWedges() throws InvalidPropertiesFormatException {
+    long fingerprint =
+        WheelConfiguration.parse(List.of("MONEY 500", "BANKRUPT", "[round 2]", "MONEY 0..900"))
+            .fingerprint();
+
+    assertEquals(
+        fingerprint,
+        WheelConfiguration.parse(
+                List.of(
+                    "# Same wheel",
+                    "MONEY   500  1",
+                    "",
+                    "BANKRUPT 0",
+                    "[round 2]",
+                    "MONEY 0..900 1"))
+            .fingerprint());
+    assertNotEquals(
+        fingerprint,
+        WheelConfiguration.parse(List.of("MONEY 500", "BANKRUPT", "[round 3]", "MONEY 0..900"))
+            .fingerprint());
+    assertNotEquals(
+        fingerprint,
+        WheelConfiguration.parse(List.of("MONEY 500 2", "BANKRUPT", "[round 2]", "MONEY 0..900"))
+            .fingerprint());
+  }
+
+  @Test
+  void invalidRoundHeadersAreLineErrors() {
+    parseInvalid("MONEY 500", "[round]");
+    parseInvalid("MONEY 500", "[round 0]");
+    parseInvalid("MONEY 500", "[round two]");
+    parseInvalid("MONEY 500", "[round 2");
+  }
+}